@@ -1,5 +1,6 @@
 package io.topiacoin.node;
 
+import io.topiacoin.node.exceptions.ChallengeQueueFullException;
 import io.topiacoin.node.exceptions.ContainerAlreadyExistsException;
 import io.topiacoin.node.exceptions.CorruptDataItemException;
 import io.topiacoin.node.exceptions.DataItemAlreadyExistsException;
@@ -7,16 +8,26 @@ import io.topiacoin.node.exceptions.FailedToCreateContainer;
 import io.topiacoin.node.exceptions.FailedToRemoveContainer;
 import io.topiacoin.node.exceptions.InitializationException;
 import io.topiacoin.node.exceptions.InvalidChallengeException;
+import io.topiacoin.node.exceptions.NoSuchChallengeJobException;
 import io.topiacoin.node.exceptions.NoSuchContainerException;
 import io.topiacoin.node.exceptions.NoSuchDataItemException;
 import io.topiacoin.node.exceptions.NoSuchNodeException;
+import io.topiacoin.node.exceptions.QuotaExceededException;
 import io.topiacoin.node.micronetwork.ContainerManager;
 import io.topiacoin.node.model.Challenge;
+import io.topiacoin.node.model.ChallengeChunkInfo;
+import io.topiacoin.node.model.ChallengeJob;
+import io.topiacoin.node.model.CacheMetrics;
+import io.topiacoin.node.model.ChallengeQueueMetrics;
 import io.topiacoin.node.model.ChallengeSolution;
 import io.topiacoin.node.model.ContainerConnectionInfo;
 import io.topiacoin.node.model.ContainerInfo;
 import io.topiacoin.node.model.DataItemInfo;
+import io.topiacoin.node.model.DataItemUpload;
+import io.topiacoin.node.model.DataItemUploadResult;
+import io.topiacoin.node.proof.ChallengeJobPipeline;
 import io.topiacoin.node.proof.ProofSolver;
+import io.topiacoin.node.proof.ProofSubmissionQueue;
 import io.topiacoin.node.smsc.SMSCManager;
 import io.topiacoin.node.storage.DataStorageManager;
 import org.apache.commons.logging.Log;
@@ -29,8 +40,18 @@ import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static io.topiacoin.node.micronetwork.ContainerManager.ContainerState.*;
 
@@ -51,6 +72,15 @@ public class BusinessLogic {
     @Autowired
     private ContainerManager _containerManager;
 
+    @Autowired
+    private ProofSubmissionQueue _proofSubmissionQueue;
+
+    @Autowired
+    private ChallengeJobPipeline _challengeJobPipeline;
+
+    // The longest a challenge job waits for the SMSC to accept its solution, in milliseconds.
+    private long _submissionTimeout = 60 * 1000L;
+
     // -------- Lifecycle Methods --------
 
     @PostConstruct
@@ -60,7 +90,9 @@ public class BusinessLogic {
         if (_dataStorageManager == null ||
                 _smscManager == null ||
                 _proofSolver == null ||
-                _containerManager == null) {
+                _containerManager == null ||
+                _proofSubmissionQueue == null ||
+                _challengeJobPipeline == null) {
             throw new InitializationException("Business Logic is missing required components");
         }
         _log.info("Initialized Business Logic");
@@ -187,7 +219,20 @@ public class BusinessLogic {
     }
 
     public void storeChunk(String containerID, String chunkID, String dataHash, InputStream dataStream)
-            throws NoSuchContainerException, DataItemAlreadyExistsException, IOException, CorruptDataItemException {
+            throws NoSuchContainerException, DataItemAlreadyExistsException, IOException, CorruptDataItemException,
+            QuotaExceededException {
+        storeChunk(containerID, chunkID, dataHash, dataStream, -1);
+    }
+
+    /**
+     * Stores the chunk, first checking its expected size against the container and node quotas so that an upload that
+     * would exceed them is rejected before any of its data is read.
+     *
+     * @param contentLength The size of the chunk, e.g. from the request's Content-Length, or -1 if it isn't known.
+     */
+    public void storeChunk(String containerID, String chunkID, String dataHash, InputStream dataStream, long contentLength)
+            throws NoSuchContainerException, DataItemAlreadyExistsException, IOException, CorruptDataItemException,
+            QuotaExceededException {
 
         DataItemInfo dataItemInfo = null;
 
@@ -205,8 +250,28 @@ public class BusinessLogic {
             throw new DataItemAlreadyExistsException("The specified Data item already exists");
         }
 
+        if (contentLength >= 0) {
+            _dataStorageManager.checkQuota(containerID, contentLength);
+        }
+
         // Add the chunk to the Data Storage Manager
-        long size = _dataStorageManager.saveData(containerID, chunkID, dataHash, dataStream);
+        long size = _dataStorageManager.saveData(containerID, chunkID, dataHash, dataStream, contentLength);
+    }
+
+    public List<DataItemUploadResult> storeChunks(String containerID, Iterator<DataItemUpload> chunks)
+            throws NoSuchContainerException, IOException {
+
+        // Check if this node is hosting the specified container
+        if (!_containerManager.hasContainer(containerID)) {
+            throw new NoSuchContainerException("This node is not hosting the specified container(" + containerID + ")");
+        }
+
+        if (_containerManager.getContainerState(containerID) != RUNNING) {
+            throw new NoSuchContainerException("This node is not hosting the specified container(" + containerID + ")");
+        }
+
+        // Verify and store the chunks, then record them all at once
+        return _dataStorageManager.saveData(containerID, chunks);
     }
 
     public boolean hasChunk(String containerID, String chunkID)
@@ -235,6 +300,32 @@ public class BusinessLogic {
         return found;
     }
 
+    /**
+     * Returns which of the specified chunks are stored in the container.  This is answered from an in-memory index, so
+     * thousands of chunks can be checked in a single call.
+     *
+     * @param containerID The ID of the container being queried.
+     * @param chunkIDs    The IDs of the chunks whose existence is being queried.
+     *
+     * @return The IDs of the chunks that are stored in the container, in the order they were given.
+     *
+     * @throws NoSuchContainerException If this node is not hosting the specified container.
+     */
+    public List<String> hasChunks(String containerID, List<String> chunkIDs)
+            throws NoSuchContainerException {
+
+        // Check if this node is hosting the specified container
+        if (!_containerManager.hasContainer(containerID)) {
+            throw new NoSuchContainerException("This node is not hosting the specified container(" + containerID + ")");
+        }
+
+        if (_containerManager.getContainerState(containerID) != RUNNING) {
+            throw new NoSuchContainerException("This node is not hosting the specified container(" + containerID + ")");
+        }
+
+        return _dataStorageManager.findPresentData(containerID, chunkIDs);
+    }
+
     public void getChunk(String containerID, String chunkID, OutputStream dataStream)
             throws NoSuchDataItemException, CorruptDataItemException, NoSuchContainerException {
 
@@ -259,6 +350,58 @@ public class BusinessLogic {
         }
     }
 
+    /**
+     * Writes the requested range of the chunk to the given stream.  Range responses are committed before the data is
+     * read, so a failure part way through is rethrown rather than logged, letting the caller abort the response
+     * instead of sending a short body under a 206 status.
+     *
+     * @throws IOException If the range could not be read or written.
+     */
+    public void getChunk(String containerID, String chunkID, long offset, long length, OutputStream dataStream)
+            throws NoSuchDataItemException, CorruptDataItemException, NoSuchContainerException, IOException {
+
+        // Check if this node is hosting the specified container
+        if (!_containerManager.hasContainer(containerID)) {
+            throw new NoSuchContainerException("This node is not hosting the specified container(" + containerID + ")");
+        }
+
+        if (_containerManager.getContainerState(containerID) != RUNNING) {
+            throw new NoSuchContainerException("This node is not hosting the specified container(" + containerID + ")");
+        }
+
+        // Check the Data Storage Manger to see if we have this chunk.
+        if (!_dataStorageManager.hasData(containerID, chunkID)) {
+            throw new NoSuchDataItemException("The Requested Chunk is not available");
+        }
+        // Retrieve the requested range of the chunk and write it to the provided output stream.
+        try {
+            _dataStorageManager.fetchData(containerID, chunkID, offset, length, dataStream);
+        } catch (IOException e) {
+            _log.warn("IOException getting chunk " + chunkID, e);
+            throw e;
+        }
+    }
+
+    public long getChunkSize(String containerID, String chunkID)
+            throws NoSuchDataItemException, NoSuchContainerException {
+
+        // Check if this node is hosting the specified container
+        if (!_containerManager.hasContainer(containerID)) {
+            throw new NoSuchContainerException("This node is not hosting the specified container(" + containerID + ")");
+        }
+
+        if (_containerManager.getContainerState(containerID) != RUNNING) {
+            throw new NoSuchContainerException("This node is not hosting the specified container(" + containerID + ")");
+        }
+
+        try {
+            return _dataStorageManager.getDataSize(containerID, chunkID);
+        } catch (IOException e) {
+            _log.warn("IOException getting the size of chunk " + chunkID, e);
+            throw new NoSuchDataItemException("The Requested Chunk is not available");
+        }
+    }
+
     public void removeChunk(String containerID, String chunkID)
             throws NoSuchContainerException, NoSuchDataItemException {
 
@@ -281,7 +424,73 @@ public class BusinessLogic {
     }
 
 
-    public void submitChallenge(Challenge challenge)
+    /**
+     * Checks whether the chunk is stored in the container, without blocking while storage is checked.  Failures
+     * checking storage are reported as the chunk not being found.
+     */
+    public CompletableFuture<Boolean> hasChunkAsync(String containerID, String chunkID)
+            throws NoSuchContainerException {
+
+        checkContainerRunning(containerID);
+
+        return _dataStorageManager.hasDataAsync(containerID, chunkID).exceptionally(throwable -> {
+            Throwable cause = (throwable instanceof CompletionException ? throwable.getCause() : throwable);
+            if (cause instanceof IOException) {
+                return false;
+            }
+            throw new CompletionException(cause);
+        });
+    }
+
+    /**
+     * Queues the challenge to be solved and submitted to the SMSC by the Challenge Job Pipeline, and returns the job
+     * that tracks it.  The container and the challenge's chunk ranges are checked before returning.  Failures while
+     * solving or submitting are reported in the job's status.
+     *
+     * @throws InvalidChallengeException If a chunk range names a chunk that is not in the container, or does not lie
+     *                                   within its chunk.
+     */
+    public ChallengeJob startChallenge(final Challenge challenge)
+            throws NoSuchContainerException, InvalidChallengeException, ChallengeQueueFullException, IOException {
+
+        checkContainerRunning(challenge.getContainerID());
+        checkChallengeRanges(challenge);
+
+        return _challengeJobPipeline.submit(challenge, new Callable<ChallengeSolution>() {
+            @Override
+            public ChallengeSolution call() throws Exception {
+                return submitChallenge(challenge);
+            }
+        });
+    }
+
+    public ChallengeJob getChallengeJob(String jobID)
+            throws NoSuchChallengeJobException {
+
+        ChallengeJob job = _challengeJobPipeline.getJob(jobID);
+        if (job == null) {
+            throw new NoSuchChallengeJobException("The specified challenge job does not exist");
+        }
+        return job;
+    }
+
+    public ChallengeQueueMetrics getChallengeQueueMetrics() {
+        return _challengeJobPipeline.getMetrics();
+    }
+
+    public CacheMetrics getCacheMetrics() {
+        return _dataStorageManager.getCacheMetrics();
+    }
+
+    /**
+     * Solves the challenge and submits the solution to the SMSC, waiting until the challenge's deadline or the
+     * submission timeout for the submission to complete.  A solution the SMSC rejects, or whose submission is cancelled
+     * because it took too long, is queued for retry.  A submission that can't be cancelled is already complete, so it is
+     * only queued if it failed.  A solution found after the challenge's deadline is neither submitted nor queued.
+     *
+     * @return The solution to the challenge.
+     */
+    public ChallengeSolution submitChallenge(Challenge challenge)
             throws NoSuchContainerException, InvalidChallengeException {
 
         // Verify that we are actually hosting the container this challenege is for
@@ -296,32 +505,126 @@ public class BusinessLogic {
         }
 
 
-        // Verify that we can successfully solve the provided challenge
+        // Verify that we can successfully solve the provided challenge.  The solver reports a challenge it can't solve
+        // with a solution that has no chunk hash.
         ChallengeSolution solution = _proofSolver.generateSolution(challenge);
-        if (solution == null) {
-            throw new InvalidChallengeException();
+        if (solution == null || solution.getChunkHash() == null) {
+            throw new InvalidChallengeException("Unable to solve the challenge for container " + containerID);
         }
 
         // Store the Challenge in the data model
         _containerManager.saveChallenge(challenge);
 
+        // Any solution still waiting to be retried answers an older challenge, so it is no longer needed.
+        _proofSubmissionQueue.discard(containerID);
+
+        long timeout = _submissionTimeout;
+        if (challenge.getDeadline() > 0) {
+            long remaining = challenge.getDeadline() - System.currentTimeMillis();
+            if (remaining <= 0) {
+                _log.warn("The challenge for container " + containerID + " was solved after its deadline.  Not submitting it.");
+                return solution;
+            }
+            timeout = Math.min(timeout, remaining);
+        }
+
         // Submit the solution to this challenge to the SMSC
         Future<?> solutionFuture = _smscManager.submitProofSolution(containerID, solution);
 
         try {
-            solutionFuture.get();
+            solutionFuture.get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
+            solutionFuture.cancel(true);
             _log.info("Solution Submission was interrupted", e);
+        } catch (TimeoutException e) {
+            if (solutionFuture.cancel(true)) {
+                _log.info("The SMSC did not accept the solution in time.  Queueing it for retry.");
+                _proofSubmissionQueue.enqueue(containerID, solution, challenge.getDeadline());
+            } else if (!isSubmitted(solutionFuture)) {
+                // The submission finished as the wait ran out, and failed.
+                _log.info("Exception submitting solution.  Queueing it for retry.");
+                _proofSubmissionQueue.enqueue(containerID, solution, challenge.getDeadline());
+            }
         } catch (ExecutionException e) {
-            _log.info("Exception submitting solution", e);
-            // TODO - Schedule the Periodic Proof Executor to rerun the proof in the near future.
+            _log.info("Exception submitting solution.  Queueing it for retry.", e);
+            _proofSubmissionQueue.enqueue(containerID, solution, challenge.getDeadline());
         }
+
+        return solution;
     }
 
 
-    // -------- Accessor Methods --------
+    // -------- Private Methods --------
+
+    /**
+     * Returns whether a finished submission was accepted by the SMSC.
+     */
+    private boolean isSubmitted(Future<?> solutionFuture) {
+        try {
+            solutionFuture.get();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | CancellationException e) {
+            return false;
+        }
+    }
+
+    private void checkContainerRunning(String containerID) throws NoSuchContainerException {
+
+        // Check if this node is hosting the specified container
+        if (!_containerManager.hasContainer(containerID)) {
+            throw new NoSuchContainerException("This node is not hosting the specified container(" + containerID + ")");
+        }
+
+        if (_containerManager.getContainerState(containerID) != RUNNING) {
+            throw new NoSuchContainerException("This node is not hosting the specified container(" + containerID + ")");
+        }
+    }
+
+    /**
+     * Checks that every chunk range of the challenge lies within a chunk stored in the challenge's container, so that a
+     * challenge that can't be solved is turned away before it is queued.  Each chunk's size is looked up once.
+     */
+    private void checkChallengeRanges(Challenge challenge)
+            throws InvalidChallengeException, NoSuchContainerException, IOException {
+
+        String containerID = challenge.getContainerID();
+        List<ChallengeChunkInfo> chunkRanges = challenge.getChunkRanges();
+        if (chunkRanges == null || chunkRanges.isEmpty()) {
+            throw new InvalidChallengeException("The challenge has no chunk ranges");
+        }
+
+        Map<String, Long> chunkSizes = new HashMap<>();
+        for (ChallengeChunkInfo chunkRange : chunkRanges) {
+            if (chunkRange == null || chunkRange.getChunkID() == null) {
+                throw new InvalidChallengeException("A chunk range of the challenge does not name a chunk");
+            }
+            String chunkID = chunkRange.getChunkID();
+            if (chunkRange.getOffset() < 0 || chunkRange.getLength() < 0) {
+                throw new InvalidChallengeException("The chunk range of chunk " + chunkID + " is invalid: offset " +
+                        chunkRange.getOffset() + ", length " + chunkRange.getLength());
+            }
+
+            Long chunkSize = chunkSizes.get(chunkID);
+            if (chunkSize == null) {
+                try {
+                    chunkSize = _dataStorageManager.getDataSize(containerID, chunkID);
+                } catch (NoSuchDataItemException e) {
+                    throw new InvalidChallengeException("The chunk " + chunkID + " is not stored in the container", e);
+                }
+                chunkSizes.put(chunkID, chunkSize);
+            }
+            if ((long) chunkRange.getOffset() + chunkRange.getLength() > chunkSize) {
+                throw new InvalidChallengeException("The chunk range extends past the end of chunk " + chunkID);
+            }
+        }
+    }
 
 
+    // -------- Accessor Methods --------
+
     public void setDataStorageManager(DataStorageManager dataStorageManager) {
         _dataStorageManager = dataStorageManager;
     }
@@ -337,4 +640,19 @@ public class BusinessLogic {
     public void setContainerManager(ContainerManager containerManager) {
         _containerManager = containerManager;
     }
+
+    public void setProofSubmissionQueue(ProofSubmissionQueue proofSubmissionQueue) {
+        _proofSubmissionQueue = proofSubmissionQueue;
+    }
+
+    public void setChallengeJobPipeline(ChallengeJobPipeline challengeJobPipeline) {
+        _challengeJobPipeline = challengeJobPipeline;
+    }
+
+    /**
+     * Sets the longest a challenge job waits for the SMSC to accept its solution, in milliseconds.
+     */
+    public void setSubmissionTimeout(long submissionTimeout) {
+        _submissionTimeout = submissionTimeout;
+    }
 }
@@ -1,7 +1,11 @@
 package io.topiacoin.node.exceptions;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
 import java.security.PrivilegedActionException;
 
+@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "The specified challenge is invalid")
 public class InvalidChallengeException extends Exception {
 
     /**
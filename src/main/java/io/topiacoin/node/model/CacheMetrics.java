@@ -0,0 +1,84 @@
+package io.topiacoin.node.model;
+
+import java.util.Objects;
+
+/**
+ * A snapshot of the data item cache in front of the Data Storage Provider: how many reads it has served and missed, how
+ * many data items it has evicted, and how much it holds.
+ */
+public class CacheMetrics {
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long weightedSize;
+    private int entryCount;
+    private long maximumSize;
+
+    public CacheMetrics() {
+    }
+
+    public CacheMetrics(long hitCount, long missCount, long evictionCount, long weightedSize, int entryCount, long maximumSize) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.weightedSize = weightedSize;
+        this.entryCount = entryCount;
+        this.maximumSize = maximumSize;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getWeightedSize() {
+        return weightedSize;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CacheMetrics that = (CacheMetrics) o;
+        return hitCount == that.hitCount &&
+                missCount == that.missCount &&
+                evictionCount == that.evictionCount &&
+                weightedSize == that.weightedSize &&
+                entryCount == that.entryCount &&
+                maximumSize == that.maximumSize;
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(hitCount, missCount, evictionCount, weightedSize, entryCount, maximumSize);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheMetrics{" +
+                "hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                ", weightedSize=" + weightedSize +
+                ", entryCount=" + entryCount +
+                ", maximumSize=" + maximumSize +
+                '}';
+    }
+}
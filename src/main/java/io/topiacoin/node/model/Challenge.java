@@ -7,6 +7,7 @@ import java.util.Objects;
 public class Challenge {
     private String containerID;
     private List<ChallengeChunkInfo> chunkRanges;
+    private long deadline;
 
     public Challenge() {
     }
@@ -16,6 +17,11 @@ public class Challenge {
         this.chunkRanges = new ArrayList<>(challengeChunks);
     }
 
+    public Challenge(String containerID, List<ChallengeChunkInfo> challengeChunks, long deadline) {
+        this(containerID, challengeChunks);
+        this.deadline = deadline;
+    }
+
     public String getContainerID() {
         return containerID;
     }
@@ -24,19 +30,28 @@ public class Challenge {
         return chunkRanges;
     }
 
+    /**
+     * Returns the time, in milliseconds since the epoch, by which the solution to this challenge must be accepted by
+     * the SMSC, or 0 if the challenge has no deadline.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Challenge challenge = (Challenge) o;
-        return Objects.equals(containerID, challenge.containerID) &&
+        return deadline == challenge.deadline &&
+                Objects.equals(containerID, challenge.containerID) &&
                 Objects.equals(chunkRanges, challenge.chunkRanges);
     }
 
     @Override
     public int hashCode() {
 
-        return Objects.hash(containerID, chunkRanges);
+        return Objects.hash(containerID, chunkRanges, deadline);
     }
 
     @Override
@@ -44,6 +59,7 @@ public class Challenge {
         return "Challenge{" +
                 "containerID='" + containerID + '\'' +
                 ", chunkRanges=" + chunkRanges +
+                ", deadline=" + deadline +
                 '}';
     }
 }
@@ -0,0 +1,139 @@
+package io.topiacoin.node.model;
+
+import java.util.Objects;
+
+/**
+ * The status of a challenge that has been accepted for solving.  A job starts out QUEUED, is RUNNING while its challenge
+ * is solved and the solution submitted to the SMSC, and ends up COMPLETED or FAILED.  Times are in milliseconds since
+ * the epoch, and are 0 until the job reaches that point.
+ */
+public class ChallengeJob {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private String jobID;
+    private String containerID;
+    private State state;
+    private long queuedTime;
+    private long startedTime;
+    private long completedTime;
+
+    // The Merkle root of the challenged ranges, once the challenge has been solved.
+    private String merkleRoot;
+
+    // Why the job failed, if it did.
+    private String error;
+
+    public ChallengeJob() {
+    }
+
+    public ChallengeJob(String jobID, String containerID, long queuedTime) {
+        this.jobID = jobID;
+        this.containerID = containerID;
+        this.state = State.QUEUED;
+        this.queuedTime = queuedTime;
+    }
+
+    public ChallengeJob(ChallengeJob job) {
+        this.jobID = job.jobID;
+        this.containerID = job.containerID;
+        this.state = job.state;
+        this.queuedTime = job.queuedTime;
+        this.startedTime = job.startedTime;
+        this.completedTime = job.completedTime;
+        this.merkleRoot = job.merkleRoot;
+        this.error = job.error;
+    }
+
+    public String getJobID() {
+        return jobID;
+    }
+
+    public String getContainerID() {
+        return containerID;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public long getQueuedTime() {
+        return queuedTime;
+    }
+
+    public long getStartedTime() {
+        return startedTime;
+    }
+
+    public void setStartedTime(long startedTime) {
+        this.startedTime = startedTime;
+    }
+
+    public long getCompletedTime() {
+        return completedTime;
+    }
+
+    public void setCompletedTime(long completedTime) {
+        this.completedTime = completedTime;
+    }
+
+    public String getMerkleRoot() {
+        return merkleRoot;
+    }
+
+    public void setMerkleRoot(String merkleRoot) {
+        this.merkleRoot = merkleRoot;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ChallengeJob that = (ChallengeJob) o;
+        return queuedTime == that.queuedTime &&
+                startedTime == that.startedTime &&
+                completedTime == that.completedTime &&
+                Objects.equals(jobID, that.jobID) &&
+                Objects.equals(containerID, that.containerID) &&
+                state == that.state &&
+                Objects.equals(merkleRoot, that.merkleRoot) &&
+                Objects.equals(error, that.error);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(jobID, containerID, state, queuedTime, startedTime, completedTime, merkleRoot, error);
+    }
+
+    @Override
+    public String toString() {
+        return "ChallengeJob{" +
+                "jobID='" + jobID + '\'' +
+                ", containerID='" + containerID + '\'' +
+                ", state=" + state +
+                ", queuedTime=" + queuedTime +
+                ", startedTime=" + startedTime +
+                ", completedTime=" + completedTime +
+                ", merkleRoot='" + merkleRoot + '\'' +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,68 @@
+package io.topiacoin.node.model;
+
+import java.util.Objects;
+
+/**
+ * A snapshot of the challenge job pipeline: how many challenges are waiting for a solver, how many are being solved,
+ * and how many have completed or failed since the node started.
+ */
+public class ChallengeQueueMetrics {
+
+    private int queueDepth;
+    private int activeJobs;
+    private long jobsCompleted;
+    private long jobsFailed;
+
+    public ChallengeQueueMetrics() {
+    }
+
+    public ChallengeQueueMetrics(int queueDepth, int activeJobs, long jobsCompleted, long jobsFailed) {
+        this.queueDepth = queueDepth;
+        this.activeJobs = activeJobs;
+        this.jobsCompleted = jobsCompleted;
+        this.jobsFailed = jobsFailed;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getActiveJobs() {
+        return activeJobs;
+    }
+
+    public long getJobsCompleted() {
+        return jobsCompleted;
+    }
+
+    public long getJobsFailed() {
+        return jobsFailed;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ChallengeQueueMetrics that = (ChallengeQueueMetrics) o;
+        return queueDepth == that.queueDepth &&
+                activeJobs == that.activeJobs &&
+                jobsCompleted == that.jobsCompleted &&
+                jobsFailed == that.jobsFailed;
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(queueDepth, activeJobs, jobsCompleted, jobsFailed);
+    }
+
+    @Override
+    public String toString() {
+        return "ChallengeQueueMetrics{" +
+                "queueDepth=" + queueDepth +
+                ", activeJobs=" + activeJobs +
+                ", jobsCompleted=" + jobsCompleted +
+                ", jobsFailed=" + jobsFailed +
+                '}';
+    }
+}
@@ -9,6 +9,9 @@ public class ChallengeSolution {
     private long blockNumber;
     private String chunkHash;
 
+    public ChallengeSolution() {
+    }
+
     public ChallengeSolution(String verificationValue, String transactionID, long blockNumber, String chunkHash) {
         this.verificationValue = verificationValue;
         this.transactionID = transactionID;
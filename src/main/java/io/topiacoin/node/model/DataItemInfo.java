@@ -7,6 +7,16 @@ public class DataItemInfo {
 	private long size;
 	private String dataHash;
 
+	// The verification record.  The stored version of the data item that was last verified, the hash it was verified
+	// against, and when.  This is bookkeeping about the stored copy, so it is not part of the item's equality.
+	private String verifiedVersion;
+	private String verifiedHash;
+	private long lastVerified;
+
+	// Set when the stored copy of the data item was found to be corrupt.  Quarantined data items are not served until
+	// they are repaired.
+	private boolean quarantined;
+
 	public DataItemInfo() {
 
 	}
@@ -21,6 +31,10 @@ public class DataItemInfo {
 		this.id = item.id;
 		this.size = item.size;
 		this.dataHash = item.dataHash;
+		this.verifiedVersion = item.verifiedVersion;
+		this.verifiedHash = item.verifiedHash;
+		this.lastVerified = item.lastVerified;
+		this.quarantined = item.quarantined;
 	}
 
 	public String getId() {
@@ -47,6 +61,38 @@ public class DataItemInfo {
 		this.dataHash = dataHash;
 	}
 
+	public String getVerifiedVersion() {
+		return verifiedVersion;
+	}
+
+	public void setVerifiedVersion(String verifiedVersion) {
+		this.verifiedVersion = verifiedVersion;
+	}
+
+	public String getVerifiedHash() {
+		return verifiedHash;
+	}
+
+	public void setVerifiedHash(String verifiedHash) {
+		this.verifiedHash = verifiedHash;
+	}
+
+	public long getLastVerified() {
+		return lastVerified;
+	}
+
+	public void setLastVerified(long lastVerified) {
+		this.lastVerified = lastVerified;
+	}
+
+	public boolean isQuarantined() {
+		return quarantined;
+	}
+
+	public void setQuarantined(boolean quarantined) {
+		this.quarantined = quarantined;
+	}
+
 
 	@Override public boolean equals(Object o) {
 		if (this == o)
@@ -0,0 +1,41 @@
+package io.topiacoin.node.model;
+
+/**
+ * A data item received as one record of a batch upload, waiting to be verified and stored.
+ */
+public class DataItemUpload {
+
+    private String dataID;
+    private String dataHash;
+    private byte[] data;
+
+    public DataItemUpload() {
+    }
+
+    public DataItemUpload(String dataID, String dataHash, byte[] data) {
+        this.dataID = dataID;
+        this.dataHash = dataHash;
+        this.data = data;
+    }
+
+    public String getDataID() {
+        return dataID;
+    }
+
+    public String getDataHash() {
+        return dataHash;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return "DataItemUpload{" +
+                "dataID='" + dataID + '\'' +
+                ", dataHash='" + dataHash + '\'' +
+                ", length=" + (data == null ? 0 : data.length) +
+                '}';
+    }
+}
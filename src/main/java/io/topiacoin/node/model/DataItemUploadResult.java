@@ -0,0 +1,74 @@
+package io.topiacoin.node.model;
+
+import java.util.Objects;
+
+/**
+ * The outcome of storing one data item from a batch upload.
+ */
+public class DataItemUploadResult {
+
+    public enum Status {
+        STORED,
+        ALREADY_EXISTS,
+        CORRUPT,
+        FAILED
+    }
+
+    private String dataID;
+    private Status status;
+    private long size;
+    private String message;
+
+    public DataItemUploadResult() {
+    }
+
+    public DataItemUploadResult(String dataID, Status status, long size, String message) {
+        this.dataID = dataID;
+        this.status = status;
+        this.size = size;
+        this.message = message;
+    }
+
+    public String getDataID() {
+        return dataID;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DataItemUploadResult that = (DataItemUploadResult) o;
+        return size == that.size &&
+                Objects.equals(dataID, that.dataID) &&
+                status == that.status &&
+                Objects.equals(message, that.message);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(dataID, status, size, message);
+    }
+
+    @Override
+    public String toString() {
+        return "DataItemUploadResult{" +
+                "dataID='" + dataID + '\'' +
+                ", status=" + status +
+                ", size=" + size +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
@@ -91,6 +91,11 @@ public class DataModel {
         return _provider.createDataItem(id, size, dataHash);
     }
 
+    public void createDataItems(List<DataItemInfo> dataItems, String containerID)
+            throws DataItemAlreadyExistsException, NoSuchContainerException {
+        _provider.createDataItems(dataItems, containerID);
+    }
+
     public void updateDataItem(DataItemInfo updatedDataItem)
             throws NoSuchDataItemException {
         _provider.updateDataItem(updatedDataItem);
@@ -104,6 +109,14 @@ public class DataModel {
         return _provider.getDataItems(containerID);
     }
 
+    public List<String> getDataItemIDs(String afterID, int limit) {
+        return _provider.getDataItemIDs(afterID, limit);
+    }
+
+    public List<String> getDataItemIDsWithHash(String dataHash) {
+        return _provider.getDataItemIDsWithHash(dataHash);
+    }
+
     public boolean removeDataItem(String id) {
         return _provider.removeDataItem(id);
     }
@@ -113,6 +126,30 @@ public class DataModel {
         return _provider.removeDataItems(containerID);
     }
 
+    public long incrementBlobReferenceCount(String dataHash) {
+        return _provider.incrementBlobReferenceCount(dataHash);
+    }
+
+    public long decrementBlobReferenceCount(String dataHash) {
+        return _provider.decrementBlobReferenceCount(dataHash);
+    }
+
+    public long getBlobReferenceCount(String dataHash) {
+        return _provider.getBlobReferenceCount(dataHash);
+    }
+
+    public StorageUsage adjustStorageUsage(String containerID, long bytesDelta, long itemsDelta) {
+        return _provider.adjustStorageUsage(containerID, bytesDelta, itemsDelta);
+    }
+
+    public StorageUsage getStorageUsage(String containerID) {
+        return _provider.getStorageUsage(containerID);
+    }
+
+    public StorageUsage getNodeStorageUsage() {
+        return _provider.getNodeStorageUsage();
+    }
+
     public MicroNetworkInfo createMicroNetwork(String id, String containerID, String path, MicroNetworkState state, String rpcURL, String p2pURL)
             throws MicroNetworkAlreadyExistsException {
         return _provider.createMicroNetwork(id, containerID, path, state, rpcURL, p2pURL);
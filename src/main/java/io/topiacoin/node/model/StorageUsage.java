@@ -0,0 +1,51 @@
+package io.topiacoin.node.model;
+
+import java.util.Objects;
+
+/**
+ * The number of data items, and the total size of those data items in bytes, stored in a container or on the node.
+ */
+public class StorageUsage {
+
+    private long bytes;
+    private long items;
+
+    public StorageUsage() {
+    }
+
+    public StorageUsage(long bytes, long items) {
+        this.bytes = bytes;
+        this.items = items;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getItems() {
+        return items;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StorageUsage that = (StorageUsage) o;
+        return bytes == that.bytes &&
+                items == that.items;
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(bytes, items);
+    }
+
+    @Override
+    public String toString() {
+        return "StorageUsage{" +
+                "bytes=" + bytes +
+                ", items=" + items +
+                '}';
+    }
+}
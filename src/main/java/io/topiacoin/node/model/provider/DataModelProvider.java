@@ -17,6 +17,7 @@ import io.topiacoin.node.exceptions.DataItemAlreadyExistsException;
 import io.topiacoin.node.exceptions.NoSuchContainerException;
 import io.topiacoin.node.exceptions.NoSuchDataItemException;
 import io.topiacoin.node.model.NodeConnectionInfo;
+import io.topiacoin.node.model.StorageUsage;
 
 import java.util.List;
 
@@ -50,6 +51,17 @@ public interface DataModelProvider {
     DataItemInfo createDataItem(String dataItemID, long size, String dataHash)
             throws DataItemAlreadyExistsException;
 
+    /**
+     * Creates the given data items and adds them to the specified container as a single transaction.  Either every
+     * data item is created, or, if any of them fails, none are.  The data items' verification records are stored with
+     * them.
+     *
+     * @throws DataItemAlreadyExistsException If any of the data items already exists.
+     * @throws NoSuchContainerException       If the container does not exist.
+     */
+    void createDataItems(List<DataItemInfo> dataItems, String containerID)
+            throws DataItemAlreadyExistsException, NoSuchContainerException;
+
     void updateDataItem(DataItemInfo updatedDataItem)
             throws NoSuchDataItemException;
 
@@ -58,11 +70,66 @@ public interface DataModelProvider {
     List<DataItemInfo> getDataItems(String containerID)
             throws NoSuchContainerException;
 
+    /**
+     * Returns the IDs of up to limit data items, in ascending order, starting after the given ID.  Passing the last ID
+     * of one page as the afterID of the next walks every data item in the model.
+     *
+     * @param afterID The ID after which to start, or null to start with the first data item.
+     * @param limit   The maximum number of IDs to return.
+     */
+    List<String> getDataItemIDs(String afterID, int limit);
+
+    /**
+     * Returns the IDs of every data item with the given hash, in ascending order.  These are the data items sharing the
+     * stored blob of that hash.
+     */
+    List<String> getDataItemIDsWithHash(String dataHash);
+
     boolean removeDataItem(String dataItemID);
 
     boolean removeDataItems(String containerID)
             throws NoSuchContainerException;
 
+    /**
+     * Increments the number of data items sharing the stored blob with the given hash, creating the count if needed.
+     *
+     * @return The new reference count.
+     */
+    long incrementBlobReferenceCount(String dataHash);
+
+    /**
+     * Decrements the number of data items sharing the stored blob with the given hash.  The count is removed once it
+     * reaches zero.
+     *
+     * @return The new reference count, or zero if there was no count for the hash.
+     */
+    long decrementBlobReferenceCount(String dataHash);
+
+    /**
+     * Returns the number of data items sharing the stored blob with the given hash, or zero if there are none.
+     */
+    long getBlobReferenceCount(String dataHash);
+
+    /**
+     * Adjusts the storage usage counters of the specified container by the given amounts in a single transaction.  The
+     * counters are created at zero if needed.  The node's counters are kept by the data item methods instead.
+     *
+     * @return The container's new storage usage.
+     */
+    StorageUsage adjustStorageUsage(String containerID, long bytesDelta, long itemsDelta);
+
+    /**
+     * Returns the storage usage of the specified container.  A container with no recorded usage has zero usage.
+     */
+    StorageUsage getStorageUsage(String containerID);
+
+    /**
+     * Returns the storage usage of the node, across all containers.  This counts the distinct data hashes of the data
+     * items, and the size of each once, as data items with the same hash share their stored bytes.  The count is kept
+     * up to date as data items are created and removed.
+     */
+    StorageUsage getNodeStorageUsage();
+
     MicroNetworkInfo createMicroNetwork(String microNetworkID, String containerID, String path, MicroNetworkState state, String rpcURL, String p2pURL)
             throws MicroNetworkAlreadyExistsException;
 
@@ -17,6 +17,7 @@ import io.topiacoin.node.exceptions.DataItemAlreadyExistsException;
 import io.topiacoin.node.exceptions.NoSuchContainerException;
 import io.topiacoin.node.exceptions.NoSuchDataItemException;
 import io.topiacoin.node.model.NodeConnectionInfo;
+import io.topiacoin.node.model.StorageUsage;
 import io.topiacoin.node.utilities.RelationshipMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -27,22 +28,30 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 @Component
-@Profile("memory")
+@Profile({"memory", "offheap"})
 public class MemoryDataModelProvider implements DataModelProvider {
 
     private Log _log = LogFactory.getLog(this.getClass());
 
     private Map<String, ContainerInfo> _containerMap = new HashMap<>();
-    private Map<String, DataItemInfo> _dataItemMap = new HashMap<>();
+    private TreeMap<String, DataItemInfo> _dataItemMap = new TreeMap<>();
     private Map<String, MicroNetworkInfo> _microNetworkMap = new HashMap<>();
     private Map<String, BlockchainInfo> _blockchainInfoMap = new HashMap<>();
     private Map<String, NodeConnectionInfo> _nodeConnectionInfoMap = new HashMap<>();
+    private Map<String, Long> _blobReferenceMap = new HashMap<>();
+    private Map<String, StorageUsage> _storageUsageMap = new HashMap<>();
+    private StorageUsage _nodeStorageUsage = new StorageUsage();
+
+    // The number of data items with each data hash.  The node's storage usage counts each hash once.
+    private Map<String, Long> _dataHashCountMap = new HashMap<>();
 
     private RelationshipMap _containerDataItemRelationship = new RelationshipMap();
 
@@ -163,9 +172,34 @@ public class MemoryDataModelProvider implements DataModelProvider {
         }
         DataItemInfo item = new DataItemInfo(dataItemID, size, dataHash);
         _dataItemMap.put(dataItemID, item);
+        dataItemAdded(item);
         return item;
     }
 
+    @Override
+    public void createDataItems(List<DataItemInfo> dataItems, String containerID)
+            throws DataItemAlreadyExistsException, NoSuchContainerException {
+        ContainerInfo containerInfo = _containerMap.get(containerID);
+        if (containerInfo == null) {
+            throw new NoSuchContainerException("The specified container does not exist");
+        }
+
+        // Check everything before changing anything, so a failure leaves the model untouched.
+        Set<String> newIDs = new HashSet<>();
+        for (DataItemInfo dataItem : dataItems) {
+            if (_dataItemMap.containsKey(dataItem.getId()) || !newIDs.add(dataItem.getId())) {
+                throw new DataItemAlreadyExistsException("DataItem with id " + dataItem.getId() + " already exists");
+            }
+        }
+
+        for (DataItemInfo dataItem : dataItems) {
+            DataItemInfo item = new DataItemInfo(dataItem);
+            _dataItemMap.put(item.getId(), item);
+            _containerDataItemRelationship.addRelationship(containerInfo, item);
+            dataItemAdded(item);
+        }
+    }
+
     @Override
     public void updateDataItem(DataItemInfo updatedDataItem)
             throws NoSuchDataItemException {
@@ -203,11 +237,40 @@ public class MemoryDataModelProvider implements DataModelProvider {
         return retItems;
     }
 
+    @Override
+    public List<String> getDataItemIDs(String afterID, int limit) {
+        Map<String, DataItemInfo> items = (afterID == null ? _dataItemMap : _dataItemMap.tailMap(afterID, false));
+
+        List<String> ids = new ArrayList<>();
+        for (String id : items.keySet()) {
+            if (ids.size() >= limit) {
+                break;
+            }
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    @Override
+    public List<String> getDataItemIDsWithHash(String dataHash) {
+        List<String> ids = new ArrayList<>();
+        for (DataItemInfo dataItemInfo : _dataItemMap.values()) {
+            if (dataItemInfo.getDataHash().equals(dataHash)) {
+                ids.add(dataItemInfo.getId());
+            }
+        }
+        return ids;
+    }
+
     @Override
     public boolean removeDataItem(String dataItemID) {
         DataItemInfo dataItemInfo = _dataItemMap.get(dataItemID);
         _containerDataItemRelationship.removeAllRelationships(dataItemInfo);
-        return (_dataItemMap.remove(dataItemID) != null);
+        DataItemInfo removedItem = _dataItemMap.remove(dataItemID);
+        if (removedItem != null) {
+            dataItemRemoved(removedItem);
+        }
+        return (removedItem != null);
     }
 
     @Override
@@ -222,13 +285,92 @@ public class MemoryDataModelProvider implements DataModelProvider {
         Iterator<Object> iterator = items.iterator();
         while (iterator.hasNext()) {
             removedItems = true;
-            _dataItemMap.remove(((DataItemInfo) iterator.next()).getId());
+            DataItemInfo removedItem = _dataItemMap.remove(((DataItemInfo) iterator.next()).getId());
+            if (removedItem != null) {
+                dataItemRemoved(removedItem);
+            }
             iterator.remove();
         }
 
         return removedItems;
     }
 
+    @Override
+    public synchronized long incrementBlobReferenceCount(String dataHash) {
+        Long count = _blobReferenceMap.get(dataHash);
+        long newCount = (count == null ? 0 : count) + 1;
+        _blobReferenceMap.put(dataHash, newCount);
+        return newCount;
+    }
+
+    @Override
+    public synchronized long decrementBlobReferenceCount(String dataHash) {
+        Long count = _blobReferenceMap.get(dataHash);
+        if (count == null) {
+            return 0;
+        }
+        long newCount = count - 1;
+        if (newCount <= 0) {
+            _blobReferenceMap.remove(dataHash);
+            return 0;
+        }
+        _blobReferenceMap.put(dataHash, newCount);
+        return newCount;
+    }
+
+    @Override
+    public synchronized long getBlobReferenceCount(String dataHash) {
+        Long count = _blobReferenceMap.get(dataHash);
+        return (count == null ? 0 : count);
+    }
+
+    @Override
+    public synchronized StorageUsage adjustStorageUsage(String containerID, long bytesDelta, long itemsDelta) {
+        StorageUsage usage = getStorageUsage(containerID);
+        usage = new StorageUsage(usage.getBytes() + bytesDelta, usage.getItems() + itemsDelta);
+        _storageUsageMap.put(containerID, usage);
+
+        return usage;
+    }
+
+    @Override
+    public synchronized StorageUsage getStorageUsage(String containerID) {
+        StorageUsage usage = _storageUsageMap.get(containerID);
+        return (usage == null ? new StorageUsage() : usage);
+    }
+
+    @Override
+    public synchronized StorageUsage getNodeStorageUsage() {
+        return _nodeStorageUsage;
+    }
+
+    /**
+     * Counts a new data item's bytes towards the node's usage, unless a data item with the same hash already did.
+     */
+    private synchronized void dataItemAdded(DataItemInfo dataItem) {
+        Long count = _dataHashCountMap.get(dataItem.getDataHash());
+        _dataHashCountMap.put(dataItem.getDataHash(), (count == null ? 0 : count) + 1);
+        if (count == null) {
+            _nodeStorageUsage = new StorageUsage(_nodeStorageUsage.getBytes() + dataItem.getSize(), _nodeStorageUsage.getItems() + 1);
+        }
+    }
+
+    /**
+     * Stops counting a removed data item's bytes towards the node's usage once no data item with its hash is left.
+     */
+    private synchronized void dataItemRemoved(DataItemInfo dataItem) {
+        Long count = _dataHashCountMap.get(dataItem.getDataHash());
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            _dataHashCountMap.put(dataItem.getDataHash(), count - 1);
+        } else {
+            _dataHashCountMap.remove(dataItem.getDataHash());
+            _nodeStorageUsage = new StorageUsage(_nodeStorageUsage.getBytes() - dataItem.getSize(), _nodeStorageUsage.getItems() - 1);
+        }
+    }
+
     @Override
     public MicroNetworkInfo createMicroNetwork(String microNetworkID, String containerID, String path, MicroNetworkState state, String rpcURL, String p2pURL)
             throws MicroNetworkAlreadyExistsException {
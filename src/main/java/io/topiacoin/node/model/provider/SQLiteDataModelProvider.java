@@ -22,6 +22,7 @@ import io.topiacoin.node.model.DataItemInfo;
 import io.topiacoin.node.model.MicroNetworkInfo;
 import io.topiacoin.node.model.MicroNetworkState;
 import io.topiacoin.node.model.NodeConnectionInfo;
+import io.topiacoin.node.model.StorageUsage;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.context.annotation.Profile;
@@ -31,16 +32,20 @@ import org.sqlite.SQLiteErrorCode;
 import org.sqlite.SQLiteException;
 
 import java.io.IOException;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Component
-@Profile("filesystem")
+@Profile({"filesystem", "segment", "tiered"})
 public class SQLiteDataModelProvider implements DataModelProvider {
 
     private Log _log = LogFactory.getLog(this.getClass());
@@ -50,6 +55,9 @@ public class SQLiteDataModelProvider implements DataModelProvider {
 
     private ObjectMapper _objectMapper;
 
+    // The StorageUsage row holding the node's totals.  Container IDs are never empty.
+    private static final String NODE_USAGE_ID = "";
+
     @Override
     public void initialize() {
         _log.info("Initializing SQLite Data Model Provider");
@@ -101,10 +109,25 @@ public class SQLiteDataModelProvider implements DataModelProvider {
         String dataItemCreateSQL = "CREATE TABLE IF NOT EXISTS DataItems (" +
                 "dataItemID     TEXT PRIMARY KEY    NOT NULL, " +
                 "size           INT(20)             NOT NULL, " +
-                "dataHash       TEXT                NOT NULL );";
+                "dataHash       TEXT                NOT NULL, " +
+                "verifiedVersion TEXT, " +
+                "verifiedHash   TEXT, " +
+                "lastVerified   INT(20)             NOT NULL DEFAULT 0, " +
+                "quarantined    INT(1)              NOT NULL DEFAULT 0 );";
         PreparedStatement createDataItemsPS = c.prepareStatement(dataItemCreateSQL);
         createDataItemsPS.execute();
 
+        // Databases created before data items carried a verification record need the columns added.
+        addColumnIfMissing(c, "DataItems", "verifiedVersion", "TEXT");
+        addColumnIfMissing(c, "DataItems", "verifiedHash", "TEXT");
+        addColumnIfMissing(c, "DataItems", "lastVerified", "INT(20) NOT NULL DEFAULT 0");
+        addColumnIfMissing(c, "DataItems", "quarantined", "INT(1) NOT NULL DEFAULT 0");
+
+        // Data items sharing a blob are looked up by their hash.
+        String dataHashIndexSQL = "CREATE INDEX IF NOT EXISTS DataItemsByHash ON DataItems (dataHash);";
+        PreparedStatement createDataHashIndexPS = c.prepareStatement(dataHashIndexSQL);
+        createDataHashIndexPS.execute();
+
         // DataItems/Containers Table
         String dataItemContainerCreateSQL = "CREATE TABLE IF NOT EXISTS DataItemsContainer (" +
                 "containerID    TEXT                NOT NULL, " +
@@ -133,6 +156,60 @@ public class SQLiteDataModelProvider implements DataModelProvider {
                 "PRIMARY KEY (nodeID) );";
         PreparedStatement nodeConnectionPS = c.prepareStatement(nodeConnectionCreateSQL);
         nodeConnectionPS.execute();
+
+        // BlobReferences Table
+        String blobReferencesCreateSQL = "CREATE TABLE IF NOT EXISTS BlobReferences (" +
+                "dataHash       TEXT PRIMARY KEY    NOT NULL, " +
+                "refCount       INT(20)             NOT NULL );";
+        PreparedStatement blobReferencesPS = c.prepareStatement(blobReferencesCreateSQL);
+        blobReferencesPS.execute();
+
+        // StorageUsage Table.  The node's totals are kept in the row with an empty containerID.
+        boolean hadStorageUsage = tableExists(c, "StorageUsage");
+        String storageUsageCreateSQL = "CREATE TABLE IF NOT EXISTS StorageUsage (" +
+                "containerID    TEXT PRIMARY KEY    NOT NULL, " +
+                "bytes          INT(20)             NOT NULL, " +
+                "items          INT(20)             NOT NULL );";
+        PreparedStatement storageUsagePS = c.prepareStatement(storageUsageCreateSQL);
+        storageUsagePS.execute();
+
+        // Databases created before usage was counted need the counters seeded from the data items already stored.
+        if (!hadStorageUsage) {
+            String seedContainersSQL = "INSERT INTO StorageUsage (`containerID`, `bytes`, `items`) " +
+                    "SELECT dic.`containerID`, SUM(di.`size`), COUNT(*) FROM DataItemsContainer dic " +
+                    "JOIN DataItems di ON di.`dataItemID` = dic.`dataItemID` GROUP BY dic.`containerID`";
+            c.prepareStatement(seedContainersSQL).execute();
+
+            // Data items with the same hash share their stored bytes, so the node counts each hash once.
+            String seedNodeSQL = "INSERT INTO StorageUsage (`containerID`, `bytes`, `items`) " +
+                    "SELECT ?, COALESCE(SUM(`size`), 0), COUNT(*) FROM " +
+                    "(SELECT MAX(`size`) AS `size` FROM DataItems GROUP BY `dataHash`)";
+            PreparedStatement seedNodePS = c.prepareStatement(seedNodeSQL);
+            seedNodePS.setString(1, NODE_USAGE_ID);
+            seedNodePS.execute();
+        }
+    }
+
+    private boolean tableExists(Connection c, String table) throws SQLException {
+        PreparedStatement ps = c.prepareStatement("SELECT name FROM sqlite_master WHERE type = 'table' AND name = ?");
+        ps.setString(1, table);
+        ResultSet rs = ps.executeQuery();
+        boolean exists = rs.next();
+        rs.close();
+        return exists;
+    }
+
+    private void addColumnIfMissing(Connection c, String table, String column, String definition) throws SQLException {
+        PreparedStatement tableInfoPS = c.prepareStatement("PRAGMA table_info(" + table + ")");
+        ResultSet rs = tableInfoPS.executeQuery();
+        while (rs.next()) {
+            if (column.equalsIgnoreCase(rs.getString("name"))) {
+                return;
+            }
+        }
+
+        PreparedStatement alterPS = c.prepareStatement("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        alterPS.execute();
     }
 
     @Override
@@ -380,6 +457,7 @@ public class SQLiteDataModelProvider implements DataModelProvider {
         DataItemInfo dataItemInfo = null;
 
         try (Connection c = getConnection()) {
+            c.setAutoCommit(false);
 
             String insertSQL = "INSERT INTO DataItems (`dataItemID`, `size`, `dataHash`) VALUES (?, ?, ?)";
             PreparedStatement ps = c.prepareStatement(insertSQL);
@@ -388,9 +466,15 @@ public class SQLiteDataModelProvider implements DataModelProvider {
             ps.setLong(2, size);
             ps.setString(3, dataHash);
 
-            ps.executeUpdate();
-
             dataItemInfo = new DataItemInfo(dataItemID, size, dataHash);
+            try {
+                ps.executeUpdate();
+                countAddedDataItems(c, Collections.singletonList(dataItemInfo));
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
         } catch (SQLiteException e) {
             SQLiteErrorCode errorCode = e.getResultCode();
             if (errorCode == SQLiteErrorCode.SQLITE_CONSTRAINT_PRIMARYKEY) {
@@ -404,6 +488,63 @@ public class SQLiteDataModelProvider implements DataModelProvider {
         return dataItemInfo;
     }
 
+    @Override
+    public void createDataItems(List<DataItemInfo> dataItems, String containerID)
+            throws DataItemAlreadyExistsException, NoSuchContainerException {
+
+        try (Connection c = getConnection()) {
+            if (getContainer(containerID) == null) {
+                throw new NoSuchContainerException("The specified container does not exist");
+            }
+
+            c.setAutoCommit(false);
+
+            String insertSQL = "INSERT INTO DataItems (`dataItemID`, `size`, `dataHash`, `verifiedVersion`, `verifiedHash`, `lastVerified`, `quarantined`) VALUES (?, ?, ?, ?, ?, ?, ?)";
+            PreparedStatement insertPS = c.prepareStatement(insertSQL);
+            String relateSQL = "INSERT INTO `DataItemsContainer` (`containerID`, `dataItemID`) VALUES (?, ?)";
+            PreparedStatement relatePS = c.prepareStatement(relateSQL);
+
+            for (DataItemInfo dataItem : dataItems) {
+                insertPS.setString(1, dataItem.getId());
+                insertPS.setLong(2, dataItem.getSize());
+                insertPS.setString(3, dataItem.getDataHash());
+                insertPS.setString(4, dataItem.getVerifiedVersion());
+                insertPS.setString(5, dataItem.getVerifiedHash());
+                insertPS.setLong(6, dataItem.getLastVerified());
+                insertPS.setBoolean(7, dataItem.isQuarantined());
+                insertPS.addBatch();
+
+                relatePS.setString(1, containerID);
+                relatePS.setString(2, dataItem.getId());
+                relatePS.addBatch();
+            }
+
+            try {
+                insertPS.executeBatch();
+                relatePS.executeBatch();
+                countAddedDataItems(c, dataItems);
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
+        } catch (SQLiteException e) {
+            SQLiteErrorCode errorCode = e.getResultCode();
+            if (errorCode == SQLiteErrorCode.SQLITE_CONSTRAINT_PRIMARYKEY) {
+                throw new DataItemAlreadyExistsException("A data item already exists with one of the specified IDs");
+            }
+            throw new RuntimeException("Exception while using SQLite", e);
+        } catch (BatchUpdateException e) {
+            // The driver reports failures in a batch without the SQLite result code, only in the message.
+            if (e.getMessage() != null && e.getMessage().contains("CONSTRAINT")) {
+                throw new DataItemAlreadyExistsException("A data item already exists with one of the specified IDs");
+            }
+            throw new RuntimeException("Exception while using SQLite", e);
+        } catch (SQLException e) {
+            throw new RuntimeException("Exception while using SQLite", e);
+        }
+    }
+
     @Override
     public void updateDataItem(DataItemInfo updatedDataItem)
             throws NoSuchDataItemException {
@@ -416,12 +557,16 @@ public class SQLiteDataModelProvider implements DataModelProvider {
             long size = updatedDataItem.getSize();
             String dataHash = updatedDataItem.getDataHash();
 
-            String insertSQL = "UPDATE DataItems SET `size` = ?, `dataHash` = ? WHERE `dataItemID` = ?";
+            String insertSQL = "UPDATE DataItems SET `size` = ?, `dataHash` = ?, `verifiedVersion` = ?, `verifiedHash` = ?, `lastVerified` = ?, `quarantined` = ? WHERE `dataItemID` = ?";
             PreparedStatement ps = c.prepareStatement(insertSQL);
 
             ps.setLong(1, size);
             ps.setString(2, dataHash);
-            ps.setString(3, dataItemID);
+            ps.setString(3, updatedDataItem.getVerifiedVersion());
+            ps.setString(4, updatedDataItem.getVerifiedHash());
+            ps.setLong(5, updatedDataItem.getLastVerified());
+            ps.setBoolean(6, updatedDataItem.isQuarantined());
+            ps.setString(7, dataItemID);
 
             int rowsAffected = ps.executeUpdate();
             if (rowsAffected == 0) {
@@ -439,7 +584,7 @@ public class SQLiteDataModelProvider implements DataModelProvider {
 
         try (Connection c = getConnection()) {
 
-            String insertSQL = "SELECT `size`, `dataHash` FROM DataItems WHERE `dataItemID` = ?";
+            String insertSQL = "SELECT `size`, `dataHash`, `verifiedVersion`, `verifiedHash`, `lastVerified`, `quarantined` FROM DataItems WHERE `dataItemID` = ?";
             PreparedStatement ps = c.prepareStatement(insertSQL);
 
             ps.setString(1, dataItemID);
@@ -449,6 +594,10 @@ public class SQLiteDataModelProvider implements DataModelProvider {
                 long size = rs.getLong(1);
                 String dataHash = rs.getString(2);
                 dataItemInfo = new DataItemInfo(dataItemID, size, dataHash);
+                dataItemInfo.setVerifiedVersion(rs.getString(3));
+                dataItemInfo.setVerifiedHash(rs.getString(4));
+                dataItemInfo.setLastVerified(rs.getLong(5));
+                dataItemInfo.setQuarantined(rs.getBoolean(6));
             }
         } catch (SQLException e) {
             throw new RuntimeException("Exception while using SQLite", e);
@@ -469,7 +618,7 @@ public class SQLiteDataModelProvider implements DataModelProvider {
                 throw new NoSuchContainerException("The specified container does not exist");
             }
 
-            String insertSQL = "SELECT di.`dataItemID`, di.`size`, di.`dataHash` FROM DataItemsContainer AS dic LEFT JOIN DataItems AS di ON dic.`dataItemID` = di.`dataItemID`  WHERE dic.`containerID` = ?";
+            String insertSQL = "SELECT di.`dataItemID`, di.`size`, di.`dataHash`, di.`verifiedVersion`, di.`verifiedHash`, di.`lastVerified`, di.`quarantined` FROM DataItemsContainer AS dic LEFT JOIN DataItems AS di ON dic.`dataItemID` = di.`dataItemID`  WHERE dic.`containerID` = ?";
             PreparedStatement ps = c.prepareStatement(insertSQL);
 
             ps.setString(1, containerID);
@@ -480,6 +629,10 @@ public class SQLiteDataModelProvider implements DataModelProvider {
                 long size = rs.getLong(2);
                 String dataHash = rs.getString(3);
                 DataItemInfo dataItemInfo = new DataItemInfo(dataItemID, size, dataHash);
+                dataItemInfo.setVerifiedVersion(rs.getString(4));
+                dataItemInfo.setVerifiedHash(rs.getString(5));
+                dataItemInfo.setLastVerified(rs.getLong(6));
+                dataItemInfo.setQuarantined(rs.getBoolean(7));
                 dataItemInfos.add(dataItemInfo);
             }
         } catch (SQLException e) {
@@ -490,18 +643,81 @@ public class SQLiteDataModelProvider implements DataModelProvider {
     }
 
     @Override
-    public boolean removeDataItem(String dataItemID) {
+    public List<String> getDataItemIDs(String afterID, int limit) {
 
-        DataItemInfo dataItemInfo = null;
+        List<String> dataItemIDs = new ArrayList<>();
+
+        try (Connection c = getConnection()) {
+
+            String selectSQL = "SELECT `dataItemID` FROM DataItems WHERE `dataItemID` > ? ORDER BY `dataItemID` LIMIT ?";
+            PreparedStatement ps = c.prepareStatement(selectSQL);
+
+            ps.setString(1, (afterID == null ? "" : afterID));
+            ps.setInt(2, limit);
+
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                dataItemIDs.add(rs.getString(1));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Exception while using SQLite", e);
+        }
+
+        return dataItemIDs;
+    }
+
+    @Override
+    public List<String> getDataItemIDsWithHash(String dataHash) {
+
+        List<String> dataItemIDs = new ArrayList<>();
 
         try (Connection c = getConnection()) {
 
+            String selectSQL = "SELECT `dataItemID` FROM DataItems WHERE `dataHash` = ? ORDER BY `dataItemID`";
+            PreparedStatement ps = c.prepareStatement(selectSQL);
+
+            ps.setString(1, dataHash);
+
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                dataItemIDs.add(rs.getString(1));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Exception while using SQLite", e);
+        }
+
+        return dataItemIDs;
+    }
+
+    @Override
+    public boolean removeDataItem(String dataItemID) {
+
+        try (Connection c = getConnection()) {
+            c.setAutoCommit(false);
+
+            // Write first, so the transaction holds the write lock before it reads the data item's hash.
+            adjustNodeStorageUsage(c, 0, 0);
+
+            String selectSQL = "SELECT `size`, `dataHash` FROM DataItems WHERE `dataItemID` = ?";
+            PreparedStatement selectPS = c.prepareStatement(selectSQL);
+            selectPS.setString(1, dataItemID);
+            ResultSet rs = selectPS.executeQuery();
+            boolean exists = rs.next();
+            long size = (exists ? rs.getLong(1) : 0);
+            String dataHash = (exists ? rs.getString(2) : null);
+            rs.close();
+
             String insertSQL = "DELETE FROM DataItems WHERE `dataItemID` = ?";
             PreparedStatement ps = c.prepareStatement(insertSQL);
 
             ps.setString(1, dataItemID);
 
             int rowsAffected = ps.executeUpdate();
+            if (rowsAffected > 0 && countDataItemsWithHash(c, dataHash) == 0) {
+                adjustNodeStorageUsage(c, -size, -1);
+            }
+            c.commit();
+
             return (rowsAffected > 0);
         } catch (SQLException e) {
             throw new RuntimeException("Exception while using SQLite", e);
@@ -533,6 +749,192 @@ public class SQLiteDataModelProvider implements DataModelProvider {
         }
     }
 
+    @Override
+    public long incrementBlobReferenceCount(String dataHash) {
+
+        try (Connection c = getConnection()) {
+            c.setAutoCommit(false);
+
+            String insertSQL = "INSERT OR IGNORE INTO BlobReferences (`dataHash`, `refCount`) VALUES (?, 0)";
+            PreparedStatement insertPS = c.prepareStatement(insertSQL);
+            insertPS.setString(1, dataHash);
+            insertPS.executeUpdate();
+
+            String updateSQL = "UPDATE BlobReferences SET `refCount` = `refCount` + 1 WHERE `dataHash` = ?";
+            PreparedStatement updatePS = c.prepareStatement(updateSQL);
+            updatePS.setString(1, dataHash);
+            updatePS.executeUpdate();
+
+            long count = getBlobReferenceCount(c, dataHash);
+            c.commit();
+
+            return count;
+        } catch (SQLException e) {
+            throw new RuntimeException("Exception while using SQLite", e);
+        }
+    }
+
+    @Override
+    public long decrementBlobReferenceCount(String dataHash) {
+
+        try (Connection c = getConnection()) {
+            c.setAutoCommit(false);
+
+            String updateSQL = "UPDATE BlobReferences SET `refCount` = `refCount` - 1 WHERE `dataHash` = ?";
+            PreparedStatement updatePS = c.prepareStatement(updateSQL);
+            updatePS.setString(1, dataHash);
+            updatePS.executeUpdate();
+
+            long count = getBlobReferenceCount(c, dataHash);
+            if (count <= 0) {
+                String deleteSQL = "DELETE FROM BlobReferences WHERE `dataHash` = ?";
+                PreparedStatement deletePS = c.prepareStatement(deleteSQL);
+                deletePS.setString(1, dataHash);
+                deletePS.executeUpdate();
+                count = 0;
+            }
+            c.commit();
+
+            return count;
+        } catch (SQLException e) {
+            throw new RuntimeException("Exception while using SQLite", e);
+        }
+    }
+
+    @Override
+    public long getBlobReferenceCount(String dataHash) {
+
+        try (Connection c = getConnection()) {
+            return getBlobReferenceCount(c, dataHash);
+        } catch (SQLException e) {
+            throw new RuntimeException("Exception while using SQLite", e);
+        }
+    }
+
+    private long getBlobReferenceCount(Connection c, String dataHash) throws SQLException {
+        String selectSQL = "SELECT `refCount` FROM BlobReferences WHERE `dataHash` = ?";
+        PreparedStatement ps = c.prepareStatement(selectSQL);
+
+        ps.setString(1, dataHash);
+
+        ResultSet rs = ps.executeQuery();
+        long count = 0;
+        if (rs.next()) {
+            count = rs.getLong(1);
+        }
+        rs.close();
+
+        return count;
+    }
+
+    @Override
+    public StorageUsage adjustStorageUsage(String containerID, long bytesDelta, long itemsDelta) {
+
+        try (Connection c = getConnection()) {
+            c.setAutoCommit(false);
+
+            String insertSQL = "INSERT OR IGNORE INTO StorageUsage (`containerID`, `bytes`, `items`) VALUES (?, 0, 0)";
+            PreparedStatement insertPS = c.prepareStatement(insertSQL);
+            String updateSQL = "UPDATE StorageUsage SET `bytes` = `bytes` + ?, `items` = `items` + ? WHERE `containerID` = ?";
+            PreparedStatement updatePS = c.prepareStatement(updateSQL);
+
+            insertPS.setString(1, containerID);
+            insertPS.executeUpdate();
+
+            updatePS.setLong(1, bytesDelta);
+            updatePS.setLong(2, itemsDelta);
+            updatePS.setString(3, containerID);
+            updatePS.executeUpdate();
+
+            StorageUsage usage = getStorageUsage(c, containerID);
+            c.commit();
+
+            return usage;
+        } catch (SQLException e) {
+            throw new RuntimeException("Exception while using SQLite", e);
+        }
+    }
+
+    @Override
+    public StorageUsage getStorageUsage(String containerID) {
+
+        try (Connection c = getConnection()) {
+            return getStorageUsage(c, containerID);
+        } catch (SQLException e) {
+            throw new RuntimeException("Exception while using SQLite", e);
+        }
+    }
+
+    @Override
+    public StorageUsage getNodeStorageUsage() {
+        return getStorageUsage(NODE_USAGE_ID);
+    }
+
+    /**
+     * Counts the bytes of data items that were just inserted in the given transaction towards the node's usage, once
+     * for each data hash that no other data item has.
+     */
+    private void countAddedDataItems(Connection c, List<DataItemInfo> dataItems) throws SQLException {
+        Map<String, Long> addedCounts = new HashMap<>();
+        Map<String, Long> sizes = new HashMap<>();
+        for (DataItemInfo dataItem : dataItems) {
+            Long count = addedCounts.get(dataItem.getDataHash());
+            addedCounts.put(dataItem.getDataHash(), (count == null ? 0 : count) + 1);
+            sizes.put(dataItem.getDataHash(), dataItem.getSize());
+        }
+
+        long bytesDelta = 0;
+        long itemsDelta = 0;
+        for (Map.Entry<String, Long> entry : addedCounts.entrySet()) {
+            if (countDataItemsWithHash(c, entry.getKey()) == entry.getValue()) {
+                bytesDelta += sizes.get(entry.getKey());
+                itemsDelta++;
+            }
+        }
+        adjustNodeStorageUsage(c, bytesDelta, itemsDelta);
+    }
+
+    private long countDataItemsWithHash(Connection c, String dataHash) throws SQLException {
+        PreparedStatement ps = c.prepareStatement("SELECT COUNT(*) FROM DataItems WHERE `dataHash` = ?");
+        ps.setString(1, dataHash);
+
+        ResultSet rs = ps.executeQuery();
+        long count = (rs.next() ? rs.getLong(1) : 0);
+        rs.close();
+
+        return count;
+    }
+
+    private void adjustNodeStorageUsage(Connection c, long bytesDelta, long itemsDelta) throws SQLException {
+        String insertSQL = "INSERT OR IGNORE INTO StorageUsage (`containerID`, `bytes`, `items`) VALUES (?, 0, 0)";
+        PreparedStatement insertPS = c.prepareStatement(insertSQL);
+        insertPS.setString(1, NODE_USAGE_ID);
+        insertPS.executeUpdate();
+
+        String updateSQL = "UPDATE StorageUsage SET `bytes` = `bytes` + ?, `items` = `items` + ? WHERE `containerID` = ?";
+        PreparedStatement updatePS = c.prepareStatement(updateSQL);
+        updatePS.setLong(1, bytesDelta);
+        updatePS.setLong(2, itemsDelta);
+        updatePS.setString(3, NODE_USAGE_ID);
+        updatePS.executeUpdate();
+    }
+
+    private StorageUsage getStorageUsage(Connection c, String containerID) throws SQLException {
+        String selectSQL = "SELECT `bytes`, `items` FROM StorageUsage WHERE `containerID` = ?";
+        PreparedStatement ps = c.prepareStatement(selectSQL);
+
+        ps.setString(1, containerID);
+
+        ResultSet rs = ps.executeQuery();
+        StorageUsage usage = new StorageUsage();
+        if (rs.next()) {
+            usage = new StorageUsage(rs.getLong(1), rs.getLong(2));
+        }
+        rs.close();
+
+        return usage;
+    }
+
     @Override
     public MicroNetworkInfo createMicroNetwork(
             String microNetworkID,
@@ -0,0 +1,235 @@
+package io.topiacoin.node.proof;
+
+import io.topiacoin.node.exceptions.ChallengeQueueFullException;
+import io.topiacoin.node.model.Challenge;
+import io.topiacoin.node.model.ChallengeJob;
+import io.topiacoin.node.model.ChallengeQueueMetrics;
+import io.topiacoin.node.model.ChallengeSolution;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Solves challenges off the request thread.  Each challenge accepted by the node becomes a job that waits in a bounded
+ * queue for one of a fixed number of solver threads, which solves the challenge and submits the solution to the SMSC.
+ * When the queue is full, new challenges are turned away rather than queued without limit.
+ * <p>
+ * The status of each job can be looked up by its ID while it is queued or running, and for a while after it finishes.
+ */
+@Component
+public class ChallengeJobPipeline {
+
+    private Log _log = LogFactory.getLog(this.getClass());
+
+    // The number of challenges solved at once.
+    private int _solverThreads = 2;
+
+    // The most challenges that may wait for a solver thread.
+    private int _maxQueuedJobs = 64;
+
+    // How long a finished job can still be looked up, in milliseconds.
+    private long _jobRetention = 60 * 60 * 1000L;
+
+    private ThreadPoolExecutor _solverExecutor;
+
+    private final Map<String, ChallengeJob> _jobs = new ConcurrentHashMap<>();
+
+    private final AtomicInteger _activeJobs = new AtomicInteger();
+    private final AtomicLong _jobsCompleted = new AtomicLong();
+    private final AtomicLong _jobsFailed = new AtomicLong();
+
+    @PostConstruct
+    public void initialize() {
+        _log.info("Initializing Challenge Job Pipeline");
+
+        _solverExecutor = new ThreadPoolExecutor(_solverThreads, _solverThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(_maxQueuedJobs));
+
+        _log.info("        Solver Threads  : " + _solverThreads);
+        _log.info("        Max Queued Jobs : " + _maxQueuedJobs);
+
+        _log.info("Initialized Challenge Job Pipeline");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        _log.info("Shutting Down Challenge Job Pipeline");
+
+        if (_solverExecutor != null) {
+            // Let running jobs finish rather than interrupting them, as an interrupt can close the storage provider's
+            // file channels.
+            _solverExecutor.shutdown();
+            try {
+                _solverExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            _solverExecutor = null;
+        }
+
+        _log.info("Shut Down Challenge Job Pipeline");
+    }
+
+    /**
+     * Queues a challenge to be solved and submitted by the given task, and returns its job.
+     *
+     * @param challenge The challenge being solved.
+     * @param task      The task that solves the challenge and submits the solution, returning the solution.
+     *
+     * @return The status of the newly queued job.
+     *
+     * @throws ChallengeQueueFullException If too many challenges are already waiting to be solved.
+     */
+    public ChallengeJob submit(Challenge challenge, final Callable<ChallengeSolution> task)
+            throws ChallengeQueueFullException {
+
+        ThreadPoolExecutor solverExecutor = _solverExecutor;
+        if (solverExecutor == null) {
+            throw new ChallengeQueueFullException("The Challenge Job Pipeline is not running");
+        }
+
+        pruneFinishedJobs();
+
+        final ChallengeJob job = new ChallengeJob(UUID.randomUUID().toString(), challenge.getContainerID(),
+                System.currentTimeMillis());
+        _jobs.put(job.getJobID(), job);
+
+        try {
+            solverExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runJob(job, task);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            _jobs.remove(job.getJobID());
+            throw new ChallengeQueueFullException("Too many challenges are waiting to be solved", e);
+        }
+
+        return getSnapshot(job);
+    }
+
+    /**
+     * Returns the status of the given job, or null if there is no such job or it finished too long ago.
+     */
+    public ChallengeJob getJob(String jobID) {
+        ChallengeJob job = _jobs.get(jobID);
+        return (job != null ? getSnapshot(job) : null);
+    }
+
+    /**
+     * Returns the number of challenges waiting for a solver thread.
+     */
+    public int getQueueDepth() {
+        ThreadPoolExecutor solverExecutor = _solverExecutor;
+        return (solverExecutor != null ? solverExecutor.getQueue().size() : 0);
+    }
+
+    public ChallengeQueueMetrics getMetrics() {
+        return new ChallengeQueueMetrics(getQueueDepth(), _activeJobs.get(), _jobsCompleted.get(), _jobsFailed.get());
+    }
+
+    // -------- Private Methods --------
+
+    private void runJob(ChallengeJob job, Callable<ChallengeSolution> task) {
+        synchronized (job) {
+            job.setState(ChallengeJob.State.RUNNING);
+            job.setStartedTime(System.currentTimeMillis());
+        }
+        _activeJobs.incrementAndGet();
+
+        ChallengeSolution solution = null;
+        Exception failure = null;
+        try {
+            solution = task.call();
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            _activeJobs.decrementAndGet();
+        }
+
+        synchronized (job) {
+            job.setCompletedTime(System.currentTimeMillis());
+            if (failure == null) {
+                job.setState(ChallengeJob.State.COMPLETED);
+                job.setMerkleRoot(solution != null ? solution.getChunkHash() : null);
+            } else {
+                job.setState(ChallengeJob.State.FAILED);
+                String message = failure.getMessage();
+                job.setError(failure.getClass().getSimpleName() + (message != null ? ": " + message : ""));
+            }
+        }
+
+        if (failure == null) {
+            _jobsCompleted.incrementAndGet();
+            _log.info("Completed challenge job " + job.getJobID() + " for container " + job.getContainerID());
+        } else {
+            _jobsFailed.incrementAndGet();
+            _log.warn("Challenge job " + job.getJobID() + " for container " + job.getContainerID() + " failed", failure);
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        long cutoff = System.currentTimeMillis() - _jobRetention;
+        Iterator<ChallengeJob> iterator = _jobs.values().iterator();
+        while (iterator.hasNext()) {
+            ChallengeJob job = iterator.next();
+            synchronized (job) {
+                if (job.getCompletedTime() > 0 && job.getCompletedTime() < cutoff) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private ChallengeJob getSnapshot(ChallengeJob job) {
+        synchronized (job) {
+            return new ChallengeJob(job);
+        }
+    }
+
+    // -------- Accessor Methods --------
+
+    /**
+     * Sets the number of challenges solved at once.  Takes effect when the pipeline is initialized.
+     */
+    public void setSolverThreads(int solverThreads) {
+        _solverThreads = solverThreads;
+    }
+
+    /**
+     * Sets the most challenges that may wait for a solver thread.  Takes effect when the pipeline is initialized.
+     */
+    public void setMaxQueuedJobs(int maxQueuedJobs) {
+        _maxQueuedJobs = maxQueuedJobs;
+    }
+
+    /**
+     * Sets how long a finished job can still be looked up, in milliseconds.
+     */
+    public void setJobRetention(long jobRetention) {
+        _jobRetention = jobRetention;
+    }
+
+    public long getJobsCompleted() {
+        return _jobsCompleted.get();
+    }
+
+    public long getJobsFailed() {
+        return _jobsFailed.get();
+    }
+}
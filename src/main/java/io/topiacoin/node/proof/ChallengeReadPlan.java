@@ -0,0 +1,266 @@
+package io.topiacoin.node.proof;
+
+import io.topiacoin.node.exceptions.NoSuchDataItemException;
+import io.topiacoin.node.model.ChallengeChunkInfo;
+import io.topiacoin.node.storage.provider.DataStorageProvider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Plans the reads needed to answer a challenge.  The chunk ranges of a challenge arrive in arbitrary order and may hit
+ * the same chunk many times, so the plan groups them by chunk, sorts each chunk's ranges by offset, and merges ranges
+ * that overlap or abut into a single read.  Each read remembers which leaves it covers and where their bytes lie within
+ * it, so that the bytes can be scattered back into leaf order once read.
+ * <p>
+ * Reads are ordered by chunk ID and then by offset, so that a worker walking a run of reads touches each chunk once and
+ * moves forward through it.
+ */
+public class ChallengeReadPlan {
+
+    /**
+     * The largest read that ranges will be merged into.  Ranges longer than this are read on their own.
+     */
+    public static final int DEFAULT_MAX_READ_SIZE = 4 * 1024 * 1024;
+
+    private final int _rangeCount;
+    private final List<Read> _reads;
+    private final long _requestedBytes;
+    private final long _readBytes;
+
+    /**
+     * Plans the reads for the given chunk ranges, merging them into reads of at most DEFAULT_MAX_READ_SIZE bytes.
+     *
+     * @throws IOException If any of the ranges is invalid.  No data is read before the ranges are checked.
+     */
+    public ChallengeReadPlan(List<ChallengeChunkInfo> chunkRanges) throws IOException {
+        this(chunkRanges, DEFAULT_MAX_READ_SIZE);
+    }
+
+    /**
+     * Plans the reads for the given chunk ranges, merging them into reads of at most maxReadSize bytes.
+     *
+     * @throws IOException If any of the ranges is invalid.  No data is read before the ranges are checked.
+     */
+    public ChallengeReadPlan(List<ChallengeChunkInfo> chunkRanges, int maxReadSize) throws IOException {
+        _rangeCount = chunkRanges.size();
+
+        // Group the ranges by chunk, checking each one before anything is read.
+        Map<String, List<Integer>> rangesByChunk = new TreeMap<>();
+        long requestedBytes = 0;
+        for (int leafIndex = 0; leafIndex < chunkRanges.size(); leafIndex++) {
+            ChallengeChunkInfo info = chunkRanges.get(leafIndex);
+            if (info == null || info.getChunkID() == null) {
+                throw new IOException("Challenge range " + leafIndex + " does not name a chunk");
+            }
+            if (info.getOffset() < 0 || info.getLength() < 0 ||
+                    (long) info.getOffset() + info.getLength() > Integer.MAX_VALUE) {
+                throw new IOException("Challenge range " + leafIndex + " is invalid: offset " + info.getOffset() +
+                        ", length " + info.getLength());
+            }
+            List<Integer> ranges = rangesByChunk.get(info.getChunkID());
+            if (ranges == null) {
+                ranges = new ArrayList<>();
+                rangesByChunk.put(info.getChunkID(), ranges);
+            }
+            ranges.add(leafIndex);
+            requestedBytes += info.getLength();
+        }
+
+        // Sort each chunk's ranges by offset and merge those that overlap or abut.
+        List<Read> reads = new ArrayList<>();
+        long readBytes = 0;
+        for (Map.Entry<String, List<Integer>> entry : rangesByChunk.entrySet()) {
+            List<Integer> leafIndexes = entry.getValue();
+            Collections.sort(leafIndexes, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    ChallengeChunkInfo info1 = chunkRanges.get(o1);
+                    ChallengeChunkInfo info2 = chunkRanges.get(o2);
+                    if (info1.getOffset() != info2.getOffset()) {
+                        return Integer.compare(info1.getOffset(), info2.getOffset());
+                    }
+                    return Integer.compare(o1, o2);
+                }
+            });
+
+            Read read = null;
+            for (int leafIndex : leafIndexes) {
+                ChallengeChunkInfo info = chunkRanges.get(leafIndex);
+                long end = (long) info.getOffset() + info.getLength();
+                if (read == null || info.getOffset() > read.getEnd() ||
+                        Math.max(end, read.getEnd()) - read.offset > maxReadSize) {
+                    if (read != null) {
+                        reads.add(read);
+                        readBytes += read.length;
+                    }
+                    read = new Read(entry.getKey(), info.getOffset());
+                }
+                read.add(leafIndex, info);
+            }
+            reads.add(read);
+            readBytes += read.length;
+        }
+
+        _reads = Collections.unmodifiableList(reads);
+        _requestedBytes = requestedBytes;
+        _readBytes = readBytes;
+    }
+
+    /**
+     * Checks every read against the size of its chunk, so that a challenge naming a missing chunk or a range past the
+     * end of one is rejected before any of its data is read.  Each chunk's size is looked up once.
+     *
+     * @throws IOException             If a read extends past the end of its chunk, or the size could not be found.
+     * @throws NoSuchDataItemException If one of the chunks does not exist.
+     */
+    public void validate(DataStorageProvider dataStorageProvider) throws IOException, NoSuchDataItemException {
+        String chunkID = null;
+        long chunkSize = 0;
+        for (Read read : _reads) {
+            if (!read.chunkID.equals(chunkID)) {
+                chunkID = read.chunkID;
+                chunkSize = dataStorageProvider.getDataSize(chunkID);
+            }
+            if (read.getEnd() > chunkSize) {
+                throw new IOException("Challenge range extends past the end of chunk '" + chunkID + "'");
+            }
+        }
+    }
+
+    // -------- Accessor Methods --------
+
+    /**
+     * Returns the reads, ordered by chunk ID and offset.
+     */
+    public List<Read> getReads() {
+        return _reads;
+    }
+
+    /**
+     * Returns the number of chunk ranges in the challenge.
+     */
+    public int getRangeCount() {
+        return _rangeCount;
+    }
+
+    /**
+     * Returns the number of reads the plan makes.
+     */
+    public int getReadCount() {
+        return _reads.size();
+    }
+
+    /**
+     * Returns the number of reads saved by merging ranges, compared to reading each range on its own.
+     */
+    public int getSavedReadCount() {
+        return _rangeCount - _reads.size();
+    }
+
+    /**
+     * Returns the total length of the chunk ranges in the challenge.
+     */
+    public long getRequestedBytes() {
+        return _requestedBytes;
+    }
+
+    /**
+     * Returns the number of bytes the plan reads.
+     */
+    public long getReadBytes() {
+        return _readBytes;
+    }
+
+    /**
+     * Returns the number of bytes saved by reading overlapping ranges once, compared to reading each range on its own.
+     */
+    public long getSavedBytes() {
+        return _requestedBytes - _readBytes;
+    }
+
+    // ======== Read ========
+
+    /**
+     * A single read from a chunk, covering one or more of the challenge's ranges.
+     */
+    public static class Read {
+        private final String chunkID;
+        private final int offset;
+        private int length;
+        private final List<Slice> slices = new ArrayList<>();
+
+        private Read(String chunkID, int offset) {
+            this.chunkID = chunkID;
+            this.offset = offset;
+        }
+
+        private void add(int leafIndex, ChallengeChunkInfo info) {
+            slices.add(new Slice(leafIndex, info.getOffset() - offset, info.getLength()));
+            length = (int) Math.max(length, (long) info.getOffset() + info.getLength() - offset);
+        }
+
+        private long getEnd() {
+            return (long) offset + length;
+        }
+
+        public String getChunkID() {
+            return chunkID;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Returns the ranges covered by this read, ordered by their offset within it.
+         */
+        public List<Slice> getSlices() {
+            return Collections.unmodifiableList(slices);
+        }
+    }
+
+    // ======== Slice ========
+
+    /**
+     * A challenge range within a read.
+     */
+    public static class Slice {
+        private final int leafIndex;
+        private final int offset;
+        private final int length;
+
+        private Slice(int leafIndex, int offset, int length) {
+            this.leafIndex = leafIndex;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Returns the index of the range in the challenge, which is also the index of its leaf in the Merkle Tree.
+         */
+        public int getLeafIndex() {
+            return leafIndex;
+        }
+
+        /**
+         * Returns the offset of the range from the start of the read.
+         */
+        public int getOffset() {
+            return offset;
+        }
+
+        public int getLength() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package io.topiacoin.node.proof;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of SHA-256 digests for a single thread.  Digests are created only when the pool is empty, so a thread that
+ * hashes many leaves reuses the same few digests.  Not thread safe.
+ */
+class DigestPool {
+
+    private final ArrayDeque<MessageDigest> _digests = new ArrayDeque<>();
+
+    /**
+     * Takes a digest from the pool, creating one if the pool is empty.
+     */
+    MessageDigest acquire() {
+        MessageDigest digest = _digests.poll();
+        if (digest == null) {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("OMG!! Java doesn't support SHA-256 anymore!!", e);
+            }
+        }
+        return digest;
+    }
+
+    /**
+     * Returns a digest to the pool.
+     */
+    void release(MessageDigest digest) {
+        _digests.push(digest);
+    }
+}
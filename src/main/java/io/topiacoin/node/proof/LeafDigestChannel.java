@@ -0,0 +1,141 @@
+package io.topiacoin.node.proof;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hashes the leaves covered by one planned read as the read's bytes stream through it.  Bytes are fed straight into the
+ * digest of every slice they fall within, so no copy of the read is ever held.  Heap buffers are hashed in place, while
+ * direct buffers are staged through a fixed-size scratch buffer.  Slices may overlap, so a digest is taken from the
+ * pool as each slice starts and returned as soon as it ends.
+ */
+class LeafDigestChannel implements WritableByteChannel {
+
+    private final ChallengeReadPlan.Read _read;
+    private final byte[][] _leaves;
+    private final byte[] _scratch;
+    private final DigestPool _digestPool;
+
+    private final List<ChallengeReadPlan.Slice> _slices;
+    private final List<ActiveSlice> _active = new ArrayList<>();
+    private int _nextSlice;
+    private long _position;
+    private boolean _open = true;
+
+    /**
+     * @param read       The read whose bytes will be written to the channel.
+     * @param leaves     The array the finished leaf hashes are stored into, indexed by leaf.
+     * @param scratch    A scratch buffer used to stage bytes from direct buffers.
+     * @param digestPool The pool of digests used to hash the slices.
+     */
+    LeafDigestChannel(ChallengeReadPlan.Read read, byte[][] leaves, byte[] scratch, DigestPool digestPool) {
+        _read = read;
+        _leaves = leaves;
+        _scratch = scratch;
+        _digestPool = digestPool;
+        _slices = read.getSlices();
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!_open) {
+            throw new IOException("The leaf digest channel is closed");
+        }
+        int count = src.remaining();
+        if (_position + count > _read.getLength()) {
+            throw new IOException("More data was written than the read covers");
+        }
+
+        if (src.hasArray()) {
+            update(src.array(), src.arrayOffset() + src.position(), count);
+            src.position(src.limit());
+        } else {
+            while (src.hasRemaining()) {
+                int length = Math.min(src.remaining(), _scratch.length);
+                src.get(_scratch, 0, length);
+                update(_scratch, 0, length);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks that the whole read was written and finishes any slices that end at the very end of the read.
+     *
+     * @throws IOException If fewer bytes were written than the read covers.
+     */
+    public void finish() throws IOException {
+        if (_position != _read.getLength()) {
+            throw new IOException("Only " + _position + " of " + _read.getLength() + " bytes of chunk '" +
+                    _read.getChunkID() + "' were read");
+        }
+        update(_scratch, 0, 0);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return _open;
+    }
+
+    /**
+     * Closes the channel, returning the digests of any unfinished slices to the pool.
+     */
+    @Override
+    public void close() {
+        _open = false;
+        for (ActiveSlice active : _active) {
+            _digestPool.release(active.digest);
+        }
+        _active.clear();
+    }
+
+    // -------- Private Methods --------
+
+    private void update(byte[] bytes, int offset, int length) {
+        long windowStart = _position;
+        long windowEnd = _position + length;
+
+        // Start every slice that begins within this window, or at its end if nothing more is coming.
+        while (_nextSlice < _slices.size() && (_slices.get(_nextSlice).getOffset() < windowEnd ||
+                (_slices.get(_nextSlice).getOffset() == windowEnd && windowEnd == _read.getLength()))) {
+            ChallengeReadPlan.Slice slice = _slices.get(_nextSlice++);
+            MessageDigest digest = _digestPool.acquire();
+            digest.reset();
+            _active.add(new ActiveSlice(slice, digest));
+        }
+
+        Iterator<ActiveSlice> iterator = _active.iterator();
+        while (iterator.hasNext()) {
+            ActiveSlice active = iterator.next();
+            long start = Math.max(windowStart, active.slice.getOffset());
+            long end = Math.min(windowEnd, (long) active.slice.getOffset() + active.slice.getLength());
+            if (end > start) {
+                active.digest.update(bytes, offset + (int) (start - windowStart), (int) (end - start));
+            }
+            if ((long) active.slice.getOffset() + active.slice.getLength() <= windowEnd) {
+                _leaves[active.slice.getLeafIndex()] = active.digest.digest();
+                _digestPool.release(active.digest);
+                iterator.remove();
+            }
+        }
+
+        _position = windowEnd;
+    }
+
+    // ======== Active Slice ========
+
+    private static class ActiveSlice {
+        private final ChallengeReadPlan.Slice slice;
+        private final MessageDigest digest;
+
+        private ActiveSlice(ChallengeReadPlan.Slice slice, MessageDigest digest) {
+            this.slice = slice;
+            this.digest = digest;
+        }
+    }
+}
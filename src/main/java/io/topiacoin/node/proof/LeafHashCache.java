@@ -0,0 +1,410 @@
+package io.topiacoin.node.proof;
+
+import io.topiacoin.node.utilities.StatePaths;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the pre-image hashes of challenge ranges, so that a range sampled again by a later challenge can be
+ * answered without reading it from storage.  Each hash is recorded against the version stamp the Data Storage Provider
+ * gave the chunk when it was read, and is only returned while the chunk still has that version.  The Data Storage
+ * Manager and the Data Scrubber also invalidate a chunk's hashes when it is removed, re-verified as changed, or
+ * quarantined.
+ * <p>
+ * The cache holds a bounded number of ranges, evicting the least recently used.  The cache is saved in the state
+ * directory under the storage base path, or in the cache path if one is configured, and reloaded on startup.  It is
+ * saved whenever it has changed since the last save, at a fixed interval and again on shutdown, so a crash loses at
+ * most one interval's worth of hashes.
+ */
+@Component
+public class LeafHashCache {
+
+    private Log _log = LogFactory.getLog(this.getClass());
+
+    private static final String CACHE_FILE_NAME = "leafhashes.dat";
+
+    private static final int FILE_MAGIC = 0x4C484331; // "LHC1"
+
+    @Autowired(required = false)
+    private String storageBasePath;
+
+    // The directory in which the cache is saved.  Defaults to the state directory under the storage base path.  If
+    // neither is set, the cache is lost on restart.
+    private String _cachePath;
+
+    private int _maxEntries = 100000;
+
+    // How often the cache is saved if it has changed, in seconds.
+    private long _saveInterval = 5 * 60;
+
+    private ScheduledExecutorService _saveExecutor;
+
+    private final Object _lock = new Object();
+
+    // Serializes saves, so an older snapshot of the cache can't overwrite a newer one.  Taken before _lock.
+    private final Object _saveLock = new Object();
+
+    // Guarded by _lock.
+    private LinkedHashMap<RangeKey, CachedHash> _entries;
+    private Map<String, Set<RangeKey>> _keysByChunk;
+    private long _hitCount;
+    private long _missCount;
+    private boolean _modified;
+
+    @PostConstruct
+    public void initialize() {
+        _log.info("Initializing Leaf Hash Cache");
+
+        if (_cachePath == null) {
+            _cachePath = StatePaths.getDefaultStatePath(storageBasePath);
+        }
+
+        synchronized (_lock) {
+            _entries = new LinkedHashMap<RangeKey, CachedHash>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<RangeKey, CachedHash> eldest) {
+                    if (size() > _maxEntries) {
+                        removeFromChunkIndex(eldest.getKey());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+            _keysByChunk = new HashMap<>();
+            _hitCount = 0;
+            _missCount = 0;
+
+            loadCache();
+            _modified = false;
+        }
+
+        if (_cachePath != null && _saveInterval > 0) {
+            _saveExecutor = Executors.newSingleThreadScheduledExecutor();
+            _saveExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        saveCache();
+                    } catch (IOException e) {
+                        _log.warn("Unable to save the leaf hash cache", e);
+                    }
+                }
+            }, _saveInterval, _saveInterval, TimeUnit.SECONDS);
+        }
+
+        _log.info("        Cache Path    : " + _cachePath);
+        _log.info("        Save Interval : " + _saveInterval);
+        _log.info("        Cached Ranges : " + getSize());
+
+        _log.info("Initialized Leaf Hash Cache");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        _log.info("Shutting Down Leaf Hash Cache");
+
+        if (_saveExecutor != null) {
+            _saveExecutor.shutdown();
+            try {
+                _saveExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            _saveExecutor = null;
+        }
+
+        try {
+            saveCache();
+        } catch (IOException e) {
+            _log.warn("Unable to save the leaf hash cache", e);
+        }
+
+        _log.info("Shut Down Leaf Hash Cache");
+    }
+
+    /**
+     * Returns the cached hash of the given range, or null if the range isn't cached or was cached for a different
+     * version of the chunk.
+     *
+     * @param chunkID The ID of the chunk the range is in.
+     * @param offset  The offset of the range within the chunk.
+     * @param length  The length of the range.
+     * @param version The chunk's current version stamp from the Data Storage Provider.
+     */
+    public byte[] get(String chunkID, int offset, int length, String version) {
+        RangeKey key = new RangeKey(chunkID, offset, length);
+        synchronized (_lock) {
+            CachedHash cachedHash = _entries.get(key);
+            if (cachedHash != null && !cachedHash.version.equals(version)) {
+                // The chunk has changed since the range was hashed.
+                _entries.remove(key);
+                removeFromChunkIndex(key);
+                _modified = true;
+                cachedHash = null;
+            }
+            if (cachedHash == null) {
+                _missCount++;
+                return null;
+            }
+            _hitCount++;
+            return cachedHash.hash.clone();
+        }
+    }
+
+    /**
+     * Records the hash of the given range, as read from the given version of the chunk.
+     */
+    public void put(String chunkID, int offset, int length, String version, byte[] hash) {
+        RangeKey key = new RangeKey(chunkID, offset, length);
+        synchronized (_lock) {
+            Set<RangeKey> chunkKeys = _keysByChunk.get(chunkID);
+            if (chunkKeys == null) {
+                chunkKeys = new HashSet<>();
+                _keysByChunk.put(chunkID, chunkKeys);
+            }
+            chunkKeys.add(key);
+            _entries.put(key, new CachedHash(version, hash.clone()));
+            _modified = true;
+        }
+    }
+
+    /**
+     * Forgets every cached range of the given chunk.
+     */
+    public void invalidate(String chunkID) {
+        synchronized (_lock) {
+            Set<RangeKey> chunkKeys = _keysByChunk.remove(chunkID);
+            if (chunkKeys != null) {
+                for (RangeKey key : chunkKeys) {
+                    _entries.remove(key);
+                }
+                _modified = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of ranges in the cache.
+     */
+    public int getSize() {
+        synchronized (_lock) {
+            return _entries.size();
+        }
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     */
+    public long getHitCount() {
+        synchronized (_lock) {
+            return _hitCount;
+        }
+    }
+
+    /**
+     * Returns the number of lookups that had to be read from storage.
+     */
+    public long getMissCount() {
+        synchronized (_lock) {
+            return _missCount;
+        }
+    }
+
+    // -------- Private Methods --------
+
+    private void removeFromChunkIndex(RangeKey key) {
+        Set<RangeKey> chunkKeys = _keysByChunk.get(key.chunkID);
+        if (chunkKeys != null) {
+            chunkKeys.remove(key);
+            if (chunkKeys.isEmpty()) {
+                _keysByChunk.remove(key.chunkID);
+            }
+        }
+    }
+
+    private void loadCache() {
+        File cacheFile = getCacheFile();
+        if (cacheFile == null || !cacheFile.exists()) {
+            return;
+        }
+
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (inputStream.readInt() != FILE_MAGIC) {
+                throw new IOException("Not a leaf hash cache file");
+            }
+            int count = inputStream.readInt();
+            for (int i = 0; i < count; i++) {
+                String chunkID = inputStream.readUTF();
+                int offset = inputStream.readInt();
+                int length = inputStream.readInt();
+                String version = inputStream.readUTF();
+                byte[] hash = new byte[inputStream.readUnsignedByte()];
+                inputStream.readFully(hash);
+                put(chunkID, offset, length, version, hash);
+            }
+        } catch (IOException e) {
+            _log.warn("Unable to load the leaf hash cache.  Starting with an empty cache.", e);
+            _entries.clear();
+            _keysByChunk.clear();
+        }
+    }
+
+    /**
+     * Saves the cache if it has changed since it was last saved.  The entries are copied while the cache is locked and
+     * written out after it is released, so lookups aren't held up by the write.
+     */
+    private void saveCache() throws IOException {
+        File cacheFile = getCacheFile();
+        if (cacheFile == null) {
+            return;
+        }
+
+        synchronized (_saveLock) {
+            List<Map.Entry<RangeKey, CachedHash>> snapshot;
+            synchronized (_lock) {
+                if (!_modified) {
+                    return;
+                }
+                snapshot = new ArrayList<>(_entries.size());
+                for (Map.Entry<RangeKey, CachedHash> entry : _entries.entrySet()) {
+                    snapshot.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+                }
+                _modified = false;
+            }
+
+            try {
+                writeCache(cacheFile, snapshot);
+            } catch (IOException e) {
+                synchronized (_lock) {
+                    _modified = true;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void writeCache(File cacheFile, List<Map.Entry<RangeKey, CachedHash>> entries) throws IOException {
+        // Write the new cache beside the old one and rename it into place, so a crash never leaves a torn cache file.
+        // Entries are written least recently used first, so that reloading them restores their order.
+        File tempFile = new File(cacheFile.getPath() + ".tmp");
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            outputStream.writeInt(FILE_MAGIC);
+            outputStream.writeInt(entries.size());
+            for (Map.Entry<RangeKey, CachedHash> entry : entries) {
+                outputStream.writeUTF(entry.getKey().chunkID);
+                outputStream.writeInt(entry.getKey().offset);
+                outputStream.writeInt(entry.getKey().length);
+                outputStream.writeUTF(entry.getValue().version);
+                outputStream.writeByte(entry.getValue().hash.length);
+                outputStream.write(entry.getValue().hash);
+            }
+        }
+        Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private File getCacheFile() {
+        if (_cachePath == null) {
+            return null;
+        }
+        File cacheDirectory = new File(_cachePath);
+        if (!cacheDirectory.exists() && !cacheDirectory.mkdirs()) {
+            _log.warn("Unable to create the leaf hash cache directory " + cacheDirectory);
+        }
+        return new File(cacheDirectory, CACHE_FILE_NAME);
+    }
+
+    // -------- Accessor Methods --------
+
+    public void setStorageBasePath(String storageBasePath) {
+        this.storageBasePath = storageBasePath;
+    }
+
+    /**
+     * Sets the directory in which the cache is saved.
+     */
+    public void setCachePath(String cachePath) {
+        _cachePath = cachePath;
+    }
+
+    /**
+     * Sets how often the cache is saved if it has changed, in seconds.  Takes effect when the cache is initialized.
+     */
+    public void setSaveInterval(long saveInterval) {
+        _saveInterval = saveInterval;
+    }
+
+    /**
+     * Sets the maximum number of ranges the cache holds.
+     */
+    public void setMaxEntries(int maxEntries) {
+        _maxEntries = maxEntries;
+    }
+
+    // ======== Range Key ========
+
+    private static class RangeKey {
+        private final String chunkID;
+        private final int offset;
+        private final int length;
+
+        private RangeKey(String chunkID, int offset, int length) {
+            this.chunkID = chunkID;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            RangeKey that = (RangeKey) o;
+            return offset == that.offset &&
+                    length == that.length &&
+                    Objects.equals(chunkID, that.chunkID);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(chunkID, offset, length);
+        }
+    }
+
+    // ======== Cached Hash ========
+
+    private static class CachedHash {
+        private final String version;
+        private final byte[] hash;
+
+        private CachedHash(String version, byte[] hash) {
+            this.version = version;
+            this.hash = hash;
+        }
+    }
+}
@@ -1,32 +1,447 @@
 package io.topiacoin.node.proof;
 
+import io.topiacoin.node.exceptions.InitializationException;
+import io.topiacoin.node.exceptions.NotRegisteredException;
+import io.topiacoin.node.micronetwork.ContainerManager;
+import io.topiacoin.node.model.Challenge;
+import io.topiacoin.node.model.ChallengeSolution;
+import io.topiacoin.node.model.ContainerInfo;
+import io.topiacoin.node.smsc.SMSCManager;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import sun.reflect.generics.reflectiveObjects.NotImplementedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class will periodically execute the Proof Solver for each container hosted by
  * this node.  Once a solution has been generated, it will be submitted to the SMSC.
+ * <p>
+ * The list of containers assigned to this node is refreshed from the SMSC on an interval.  Each container is proven
+ * against the last challenge saved for it, once per proof period.  A container's first proof starts at a random point
+ * within the first period, and each later proof is jittered around the period, so that hundreds of containers don't
+ * all read from disk at once.  At most a fixed number of proofs run at a time across the node; the rest wait for a
+ * free slot.  Each proof has a deadline, measured from when it was due.  A proof that can't start, solve, or be
+ * accepted by the SMSC before its deadline is abandoned and counted as missed.  A solution the SMSC fails to accept is
+ * handed to the Proof Submission Queue to be retried until that deadline.
  */
+@Component
 public class PeriodicProofExecutor {
 
     private Log _log = LogFactory.getLog(this.getClass());
 
+    @Autowired
+    private ProofSolver _proofSolver;
+
+    @Autowired
+    private SMSCManager _smscManager;
+
+    @Autowired
+    private ContainerManager _containerManager;
+
+    @Autowired
+    private ProofSubmissionQueue _proofSubmissionQueue;
+
+    private boolean _enabled = true;
+
+    // How often each container is proven, in milliseconds.
+    private long _proofPeriod = 60 * 60 * 1000L;
+
+    // The fraction of the proof period by which each proof after the first is moved earlier or later at random.
+    private double _jitter = 0.1;
+
+    // How long a proof has, from when it was due, to be solved and accepted by the SMSC, in milliseconds.
+    private long _proofDeadline = 10 * 60 * 1000L;
+
+    // The most proofs that may run at once across all containers.
+    private int _maxConcurrentProofs = 2;
+
+    // How often the list of containers assigned to this node is fetched from the SMSC, in milliseconds.
+    private long _containerRefreshInterval = 5 * 60 * 1000L;
+
+    private ScheduledExecutorService _scheduler;
+
+    // Refreshes the container list on a thread of its own, so that a slow SMSC can't hold up proofs that are due.
+    private ScheduledExecutorService _refreshScheduler;
+
+    private ExecutorService _proofExecutor;
+
+    private volatile boolean _stopping;
+
+    private final Map<String, ContainerSchedule> _schedules = new ConcurrentHashMap<>();
+
+    private final AtomicLong _proofsSubmitted = new AtomicLong();
+    private final AtomicLong _proofsFailed = new AtomicLong();
+    private final AtomicLong _deadlinesMissed = new AtomicLong();
+
     @PostConstruct
     public void initialize() {
         _log.info ( "Initializing Periodic Proof Executor" ) ;
 
-        throw new NotImplementedException();
+        if ( _proofSolver == null ) {
+            throw new InitializationException("Failed to initialize Periodic Proof Executor.  No Proof Solver configured" ) ;
+        }
+        if ( _smscManager == null ) {
+            throw new InitializationException("Failed to initialize Periodic Proof Executor.  No SMSC Manager configured" ) ;
+        }
+        if ( _containerManager == null ) {
+            throw new InitializationException("Failed to initialize Periodic Proof Executor.  No Container Manager configured" ) ;
+        }
+        if ( _proofSubmissionQueue == null ) {
+            throw new InitializationException("Failed to initialize Periodic Proof Executor.  No Proof Submission Queue configured" ) ;
+        }
+
+        _stopping = false;
+
+        if ( _enabled ) {
+            _scheduler = Executors.newSingleThreadScheduledExecutor();
+            _refreshScheduler = Executors.newSingleThreadScheduledExecutor();
+            _proofExecutor = Executors.newFixedThreadPool(_maxConcurrentProofs);
 
-        //_log.info ( "Initialized Periodic Proof Executor" ) ;
+            _refreshScheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refreshContainers();
+                    } catch ( Exception e ) {
+                        _log.warn("Failed to refresh the containers to prove", e);
+                    }
+                }
+            }, 0, _containerRefreshInterval, TimeUnit.MILLISECONDS);
+        }
+
+        _log.info ( "Initialized Periodic Proof Executor" ) ;
     }
 
     @PreDestroy
     public void shutDown() {
         _log.info ( "Shutting Down Periodic Proof Executor" ) ;
+
+        _stopping = true;
+        for ( ContainerSchedule schedule : _schedules.values() ) {
+            schedule.cancel();
+        }
+        _schedules.clear();
+
+        if ( _refreshScheduler != null ) {
+            _refreshScheduler.shutdownNow();
+            _refreshScheduler = null;
+        }
+
+        if ( _scheduler != null ) {
+            _scheduler.shutdownNow();
+            _scheduler = null;
+        }
+
+        if ( _proofExecutor != null ) {
+            // Let running proofs finish rather than interrupting them, as an interrupt can close the provider's file
+            // channels.  Proofs still waiting for a slot see that the executor is stopping and return straight away.
+            _proofExecutor.shutdown();
+            try {
+                _proofExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+            _proofExecutor = null;
+        }
+
         _log.info ( "Shut Down Periodic Proof Executor" ) ;
     }
+
+    /**
+     * Fetches the list of containers assigned to this node from the SMSC.  Newly assigned containers are scheduled for
+     * their first proof at a random point within the next proof period, and containers no longer assigned to this node
+     * stop being proven.  The periodic refresh runs on its own thread, as the fetch can block for a long time while
+     * proofs are due.
+     */
+    public synchronized void refreshContainers() {
+        List<String> containerIDs;
+        try {
+            containerIDs = _smscManager.getContainers().get(_proofDeadline, TimeUnit.MILLISECONDS);
+        } catch ( NotRegisteredException e ) {
+            _log.debug("This node is not registered, so it has no containers to prove");
+            containerIDs = null;
+        } catch ( ExecutionException | TimeoutException e ) {
+            _log.warn("Unable to fetch the containers assigned to this node", e);
+            return;
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        Set<String> assigned = new HashSet<>();
+        if ( containerIDs != null ) {
+            assigned.addAll(containerIDs);
+        }
+
+        for ( String containerID : assigned ) {
+            if ( !_schedules.containsKey(containerID) ) {
+                ContainerSchedule schedule = new ContainerSchedule(containerID);
+                _schedules.put(containerID, schedule);
+                scheduleProof(schedule, (long) (ThreadLocalRandom.current().nextDouble() * _proofPeriod));
+                _log.info("Scheduled periodic proofs for container " + containerID);
+            }
+        }
+
+        for ( ContainerSchedule schedule : _schedules.values() ) {
+            if ( !assigned.contains(schedule.containerID) ) {
+                _schedules.remove(schedule.containerID);
+                schedule.cancel();
+                _log.info("Stopped periodic proofs for container " + schedule.containerID);
+            }
+        }
+    }
+
+    // -------- Private Methods --------
+
+    private void scheduleProof(final ContainerSchedule schedule, long delay) {
+        ScheduledExecutorService scheduler = _scheduler;
+        if ( scheduler == null || schedule.cancelled ) {
+            return;
+        }
+        try {
+            schedule.nextProof = scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    startProof(schedule);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch ( RejectedExecutionException e ) {
+            // NOOP - The executor is shutting down.
+        }
+    }
+
+    /**
+     * Runs on the scheduler when a container's proof is due.  Schedules the container's next proof, then hands this one
+     * to the proof executor to wait for a free slot.  If the container's previous proof is still running, this one is
+     * skipped rather than queued behind it.
+     */
+    private void startProof(final ContainerSchedule schedule) {
+        if ( schedule.cancelled ) {
+            return;
+        }
+
+        long jitter = (long) ((ThreadLocalRandom.current().nextDouble() * 2 - 1) * _jitter * _proofPeriod);
+        scheduleProof(schedule, _proofPeriod + jitter);
+
+        if ( !schedule.running.compareAndSet(false, true) ) {
+            _log.warn("The previous proof of container " + schedule.containerID + " is still running.  Skipping this one.");
+            _deadlinesMissed.incrementAndGet();
+            return;
+        }
+
+        final long deadline = System.currentTimeMillis() + _proofDeadline;
+        try {
+            _proofExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        proveContainer(schedule.containerID, deadline);
+                    } catch ( Exception e ) {
+                        _log.warn("Failed to prove container " + schedule.containerID, e);
+                        _proofsFailed.incrementAndGet();
+                    } finally {
+                        schedule.running.set(false);
+                    }
+                }
+            });
+        } catch ( RejectedExecutionException e ) {
+            schedule.running.set(false);
+        }
+    }
+
+    /**
+     * Solves the last challenge saved for the container and submits the solution to the SMSC, giving up if the
+     * deadline passes first.
+     */
+    private void proveContainer(String containerID, long deadline) {
+        if ( _stopping ) {
+            return;
+        }
+
+        if ( System.currentTimeMillis() > deadline ) {
+            _log.warn("The proof of container " + containerID + " waited past its deadline for a free slot");
+            _deadlinesMissed.incrementAndGet();
+            return;
+        }
+
+        if ( !_containerManager.hasContainer(containerID) ||
+                _containerManager.getContainerState(containerID) != ContainerManager.ContainerState.RUNNING ) {
+            _log.debug("Container " + containerID + " is not running on this node.  Skipping its proof.");
+            return;
+        }
+
+        ContainerInfo containerInfo = _containerManager.getContainer(containerID);
+        Challenge challenge = ( containerInfo != null ? containerInfo.getChallenge() : null );
+        if ( challenge == null ) {
+            _log.debug("Container " + containerID + " has no challenge yet.  Skipping its proof.");
+            return;
+        }
+
+        ChallengeSolution solution = _proofSolver.generateSolution(challenge);
+        if ( solution == null || solution.getChunkHash() == null ) {
+            _log.warn("Unable to solve the challenge for container " + containerID);
+            _proofsFailed.incrementAndGet();
+            return;
+        }
+
+        long remaining = deadline - System.currentTimeMillis();
+        if ( remaining <= 0 ) {
+            _log.warn("The proof of container " + containerID + " was solved after its deadline.  Not submitting it.");
+            _deadlinesMissed.incrementAndGet();
+            return;
+        }
+
+        // This solution supersedes any older one still waiting to be retried.
+        _proofSubmissionQueue.discard(containerID);
+
+        Future<Void> submission = _smscManager.submitProofSolution(containerID, solution);
+        try {
+            submission.get(remaining, TimeUnit.MILLISECONDS);
+            _proofsSubmitted.incrementAndGet();
+            _log.info("Submitted the proof of container " + containerID);
+        } catch ( TimeoutException e ) {
+            submission.cancel(true);
+            _log.warn("The SMSC did not accept the proof of container " + containerID + " before its deadline");
+            _deadlinesMissed.incrementAndGet();
+        } catch ( ExecutionException e ) {
+            _log.warn("Failed to submit the proof of container " + containerID + ".  Queueing it for retry.", e);
+            _proofsFailed.incrementAndGet();
+            long retryDeadline = ( challenge.getDeadline() > 0 ? Math.min(challenge.getDeadline(), deadline) : deadline );
+            _proofSubmissionQueue.enqueue(containerID, solution, retryDeadline);
+        } catch ( InterruptedException e ) {
+            submission.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // -------- Accessor Methods --------
+
+    public void setProofSolver(ProofSolver proofSolver) {
+        _proofSolver = proofSolver;
+    }
+
+    public void setSMSCManager(SMSCManager smscManager) {
+        _smscManager = smscManager;
+    }
+
+    public void setContainerManager(ContainerManager containerManager) {
+        _containerManager = containerManager;
+    }
+
+    public void setProofSubmissionQueue(ProofSubmissionQueue proofSubmissionQueue) {
+        _proofSubmissionQueue = proofSubmissionQueue;
+    }
+
+    /**
+     * Sets whether containers are proven periodically.  Takes effect when the executor is initialized.
+     */
+    public void setEnabled(boolean enabled) {
+        _enabled = enabled;
+    }
+
+    /**
+     * Sets how often each container is proven, in milliseconds.
+     */
+    public void setProofPeriod(long proofPeriod) {
+        _proofPeriod = proofPeriod;
+    }
+
+    /**
+     * Sets the fraction of the proof period, between 0 and 1, by which each proof after the first is moved earlier or
+     * later at random.
+     */
+    public void setJitter(double jitter) {
+        _jitter = jitter;
+    }
+
+    /**
+     * Sets how long a proof has, from when it was due, to be solved and accepted by the SMSC, in milliseconds.
+     */
+    public void setProofDeadline(long proofDeadline) {
+        _proofDeadline = proofDeadline;
+    }
+
+    /**
+     * Sets the most proofs that may run at once across all containers.  Takes effect when the executor is initialized.
+     */
+    public void setMaxConcurrentProofs(int maxConcurrentProofs) {
+        _maxConcurrentProofs = maxConcurrentProofs;
+    }
+
+    /**
+     * Sets how often the list of containers assigned to this node is fetched from the SMSC, in milliseconds.  Takes
+     * effect when the executor is initialized.
+     */
+    public void setContainerRefreshInterval(long containerRefreshInterval) {
+        _containerRefreshInterval = containerRefreshInterval;
+    }
+
+    /**
+     * Returns the number of containers currently being proven periodically.
+     */
+    public int getScheduledContainerCount() {
+        return _schedules.size();
+    }
+
+    /**
+     * Returns the number of proofs that have been accepted by the SMSC.
+     */
+    public long getProofsSubmitted() {
+        return _proofsSubmitted.get();
+    }
+
+    /**
+     * Returns the number of proofs that could not be solved or were rejected by the SMSC.
+     */
+    public long getProofsFailed() {
+        return _proofsFailed.get();
+    }
+
+    /**
+     * Returns the number of proofs that were skipped or abandoned because they could not finish by their deadline.
+     */
+    public long getDeadlinesMissed() {
+        return _deadlinesMissed.get();
+    }
+
+    // ======== Container Schedule ========
+
+    private static class ContainerSchedule {
+        private final String containerID;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile ScheduledFuture<?> nextProof;
+        private volatile boolean cancelled;
+
+        private ContainerSchedule(String containerID) {
+            this.containerID = containerID;
+        }
+
+        private void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> proof = nextProof;
+            if ( proof != null ) {
+                proof.cancel(false);
+            }
+        }
+    }
 }
@@ -0,0 +1,539 @@
+package io.topiacoin.node.proof;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.topiacoin.node.exceptions.InitializationException;
+import io.topiacoin.node.model.ChallengeSolution;
+import io.topiacoin.node.smsc.SMSCManager;
+import io.topiacoin.node.utilities.StatePaths;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds proof solutions that the SMSC failed to accept and retries them until they are accepted or their deadline
+ * passes.  The solution itself is kept in the queue, so a retry never has to read the container's data again.
+ * <p>
+ * Each failed attempt pushes the next one back exponentially, with random jitter so that many queued solutions don't
+ * retry in lock step.  A retry is never scheduled past the solution's deadline; when the backoff would overrun it, the
+ * retry is moved to halfway through the remaining time instead.  The solutions that are due are all submitted at once,
+ * nearest deadline first, and each is waited on no longer than its own deadline, so a slow submission can't hold up
+ * one that is about to expire.  Only the newest solution is kept for each container.
+ * <p>
+ * The queue is saved whenever it changes, in the state directory under the storage base path or in the state path if
+ * one is configured, and reloaded on startup, so that pending solutions survive a restart.
+ */
+@Component
+public class ProofSubmissionQueue {
+
+    private Log _log = LogFactory.getLog(this.getClass());
+
+    private static final String QUEUE_FILE_NAME = "proofsubmissions.json";
+
+    @Autowired
+    private SMSCManager _smscManager;
+
+    @Autowired(required = false)
+    private String storageBasePath;
+
+    // The directory in which the queue is saved.  Defaults to the state directory under the storage base path.  If
+    // neither is set, pending solutions are lost on restart.
+    private String _statePath;
+
+    // The delay before the first retry, in milliseconds.  Each later retry waits twice as long as the one before.
+    private long _initialBackoff = 5 * 1000L;
+
+    // The longest delay between retries, in milliseconds.
+    private long _maxBackoff = 5 * 60 * 1000L;
+
+    // The most times a solution is submitted before it is abandoned.
+    private int _maxAttempts = 10;
+
+    // How often the queue is checked for due retries, in milliseconds.
+    private long _pollInterval = 1000L;
+
+    // How long the SMSC is given to accept a retried solution, in milliseconds.
+    private long _submissionTimeout = 60 * 1000L;
+
+    private final Object _lock = new Object();
+
+    // Guarded by _lock.
+    private Map<String, PendingSubmission> _pending;
+
+    private ObjectMapper _objectMapper;
+
+    private ScheduledExecutorService _retryExecutor;
+
+    private volatile boolean _stopping;
+
+    private final AtomicLong _retriesSucceeded = new AtomicLong();
+    private final AtomicLong _retriesFailed = new AtomicLong();
+    private final AtomicLong _submissionsExpired = new AtomicLong();
+    private final AtomicLong _submissionsAbandoned = new AtomicLong();
+
+    @PostConstruct
+    public void initialize() {
+        _log.info("Initializing Proof Submission Queue");
+
+        if (_smscManager == null) {
+            throw new InitializationException("Failed to initialize Proof Submission Queue.  No SMSC Manager configured");
+        }
+
+        _objectMapper = new ObjectMapper();
+        _stopping = false;
+
+        if (_statePath == null) {
+            _statePath = StatePaths.getDefaultStatePath(storageBasePath);
+        }
+
+        synchronized (_lock) {
+            _pending = new LinkedHashMap<>();
+            loadQueue();
+        }
+
+        _log.info("        State Path        : " + _statePath);
+        _log.info("        Pending Solutions : " + getPendingCount());
+
+        _retryExecutor = Executors.newSingleThreadScheduledExecutor();
+        _retryExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    retryDueSubmissions();
+                } catch (Exception e) {
+                    _log.warn("Proof submission retry failed", e);
+                }
+            }
+        }, _pollInterval, _pollInterval, TimeUnit.MILLISECONDS);
+
+        _log.info("Initialized Proof Submission Queue");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        _log.info("Shutting Down Proof Submission Queue");
+
+        _stopping = true;
+        if (_retryExecutor != null) {
+            _retryExecutor.shutdown();
+            try {
+                _retryExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            _retryExecutor = null;
+        }
+
+        synchronized (_lock) {
+            if (_pending != null) {
+                saveQueueQuietly();
+            }
+        }
+
+        _log.info("Shut Down Proof Submission Queue");
+    }
+
+    /**
+     * Queues a solution that the SMSC failed to accept, to be retried after a backoff.  Any solution already queued
+     * for the container is replaced, as it answers an older challenge.
+     *
+     * @param containerID The ID of the container to which the solution belongs.
+     * @param solution    The solution to submit.
+     * @param deadline    The time, in milliseconds since the epoch, after which the solution is no longer worth
+     *                    submitting, or 0 if it has no deadline.
+     */
+    public void enqueue(String containerID, ChallengeSolution solution, long deadline) {
+        long now = System.currentTimeMillis();
+        if (deadline > 0 && deadline <= now) {
+            _log.info("The proof of container " + containerID + " is past its deadline.  Not queueing it for retry.");
+            _submissionsExpired.incrementAndGet();
+            return;
+        }
+
+        PendingSubmission submission = new PendingSubmission(containerID, solution, deadline);
+        submission.setAttempts(1);
+        submission.setNextAttempt(now + getBackoff(submission, now));
+
+        synchronized (_lock) {
+            _pending.put(containerID, submission);
+            saveQueueQuietly();
+        }
+
+        _log.info("Queued the proof of container " + containerID + " for retry");
+    }
+
+    /**
+     * Drops any solution queued for the given container, for example because a newer one has been accepted.
+     */
+    public void discard(String containerID) {
+        synchronized (_lock) {
+            if (_pending.remove(containerID) != null) {
+                saveQueueQuietly();
+            }
+        }
+    }
+
+    /**
+     * Returns whether a solution is queued for the given container.
+     */
+    public boolean isPending(String containerID) {
+        synchronized (_lock) {
+            return _pending.containsKey(containerID);
+        }
+    }
+
+    /**
+     * Returns the number of solutions waiting to be retried.
+     */
+    public int getPendingCount() {
+        synchronized (_lock) {
+            return _pending.size();
+        }
+    }
+
+    /**
+     * Submits every queued solution whose retry is due, nearest deadline first, then waits for the SMSC to accept them.
+     * The submissions run concurrently, and each is given until its own deadline or the submission timeout, whichever
+     * comes first.  Called periodically by the retry thread.
+     */
+    public void retryDueSubmissions() {
+        long now = System.currentTimeMillis();
+
+        List<PendingSubmission> dueSubmissions = new ArrayList<>();
+        synchronized (_lock) {
+            for (PendingSubmission submission : _pending.values()) {
+                if (submission.getNextAttempt() <= now) {
+                    dueSubmissions.add(submission);
+                }
+            }
+        }
+        Collections.sort(dueSubmissions, DEADLINE_ORDER);
+
+        List<PendingSubmission> submitted = new ArrayList<>();
+        List<Future<Void>> futures = new ArrayList<>();
+        for (PendingSubmission submission : dueSubmissions) {
+            if (_stopping) {
+                break;
+            }
+            Future<Void> future = submit(submission);
+            if (future != null) {
+                submitted.add(submission);
+                futures.add(future);
+            }
+        }
+
+        long submittedTime = System.currentTimeMillis();
+        for (int i = 0; i < submitted.size(); i++) {
+            PendingSubmission submission = submitted.get(i);
+            long waitUntil = submittedTime + _submissionTimeout;
+            if (submission.getDeadline() > 0) {
+                waitUntil = Math.min(waitUntil, submission.getDeadline());
+            }
+            if (!awaitRetry(submission, futures.get(i), waitUntil)) {
+                // Interrupted.  Stop waiting on the rest, and leave them queued for the next retry.
+                for (int j = i + 1; j < futures.size(); j++) {
+                    futures.get(j).cancel(true);
+                }
+                return;
+            }
+        }
+    }
+
+    // -------- Private Methods --------
+
+    /**
+     * Submits the solution to the SMSC, or drops it if it has passed its deadline.
+     *
+     * @return The future of the submission, or null if the solution was dropped.
+     */
+    private Future<Void> submit(PendingSubmission submission) {
+        String containerID = submission.getContainerID();
+        long deadline = submission.getDeadline();
+
+        if (deadline > 0 && deadline <= System.currentTimeMillis()) {
+            _log.warn("The proof of container " + containerID + " passed its deadline before it was accepted.  Dropping it.");
+            _submissionsExpired.incrementAndGet();
+            removeIfCurrent(submission);
+            return null;
+        }
+
+        return _smscManager.submitProofSolution(containerID, submission.getSolution());
+    }
+
+    /**
+     * Waits until the given time for the SMSC to accept a retried solution, then removes it from the queue or schedules
+     * its next retry.
+     *
+     * @return False if the thread was interrupted while waiting, otherwise true.
+     */
+    private boolean awaitRetry(PendingSubmission submission, Future<Void> future, long waitUntil) {
+        String containerID = submission.getContainerID();
+
+        boolean accepted = false;
+        try {
+            future.get(Math.max(0, waitUntil - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            accepted = true;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            _log.info("The SMSC did not accept the retried proof of container " + containerID + " in time");
+        } catch (ExecutionException e) {
+            _log.info("Failed to resubmit the proof of container " + containerID, e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        if (accepted) {
+            _log.info("Resubmitted the proof of container " + containerID);
+            _retriesSucceeded.incrementAndGet();
+            removeIfCurrent(submission);
+            return true;
+        }
+
+        _retriesFailed.incrementAndGet();
+        synchronized (_lock) {
+            if (_pending.get(containerID) != submission) {
+                // A newer solution was queued while this one was being submitted.
+                return true;
+            }
+            if (submission.getAttempts() + 1 >= _maxAttempts) {
+                _log.warn("Giving up on the proof of container " + containerID + " after " + (submission.getAttempts() + 1) + " attempts");
+                _submissionsAbandoned.incrementAndGet();
+                _pending.remove(containerID);
+            } else {
+                long now = System.currentTimeMillis();
+                submission.setAttempts(submission.getAttempts() + 1);
+                submission.setNextAttempt(now + getBackoff(submission, now));
+            }
+            saveQueueQuietly();
+        }
+        return true;
+    }
+
+    private void removeIfCurrent(PendingSubmission submission) {
+        synchronized (_lock) {
+            if (_pending.get(submission.getContainerID()) == submission) {
+                _pending.remove(submission.getContainerID());
+                saveQueueQuietly();
+            }
+        }
+    }
+
+    private long getBackoff(PendingSubmission submission, long now) {
+        int doublings = Math.min(submission.getAttempts() - 1, 30);
+        long backoff = Math.min(_maxBackoff, _initialBackoff << doublings);
+
+        // Wait somewhere between half and all of the backoff.
+        long halfBackoff = backoff / 2;
+        backoff = halfBackoff + ThreadLocalRandom.current().nextLong(backoff - halfBackoff + 1);
+
+        if (submission.getDeadline() > 0) {
+            long remaining = submission.getDeadline() - now;
+            if (backoff >= remaining) {
+                backoff = Math.max(0, remaining / 2);
+            }
+        }
+        return backoff;
+    }
+
+    private void loadQueue() {
+        File queueFile = getQueueFile();
+        if (queueFile == null || !queueFile.exists()) {
+            return;
+        }
+
+        try {
+            List<PendingSubmission> submissions = _objectMapper.readValue(queueFile, new TypeReference<List<PendingSubmission>>() {
+            });
+            for (PendingSubmission submission : submissions) {
+                _pending.put(submission.getContainerID(), submission);
+            }
+        } catch (IOException e) {
+            _log.warn("Unable to load the proof submission queue.  Starting with an empty queue.", e);
+            _pending.clear();
+        }
+    }
+
+    private void saveQueueQuietly() {
+        try {
+            saveQueue();
+        } catch (IOException e) {
+            _log.warn("Unable to save the proof submission queue", e);
+        }
+    }
+
+    private void saveQueue() throws IOException {
+        File queueFile = getQueueFile();
+        if (queueFile == null) {
+            return;
+        }
+
+        // Write the new queue beside the old one and rename it into place, so a crash never leaves a torn queue file.
+        File tempFile = new File(queueFile.getPath() + ".tmp");
+        _objectMapper.writeValue(tempFile, new ArrayList<>(_pending.values()));
+        Files.move(tempFile.toPath(), queueFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private File getQueueFile() {
+        if (_statePath == null) {
+            return null;
+        }
+        File stateDirectory = new File(_statePath);
+        if (!stateDirectory.exists() && !stateDirectory.mkdirs()) {
+            _log.warn("Unable to create the proof submission queue directory " + stateDirectory);
+        }
+        return new File(stateDirectory, QUEUE_FILE_NAME);
+    }
+
+    // -------- Accessor Methods --------
+
+    public void setSMSCManager(SMSCManager smscManager) {
+        _smscManager = smscManager;
+    }
+
+    public void setStorageBasePath(String storageBasePath) {
+        this.storageBasePath = storageBasePath;
+    }
+
+    /**
+     * Sets the directory in which the queue is saved.
+     */
+    public void setStatePath(String statePath) {
+        _statePath = statePath;
+    }
+
+    /**
+     * Sets the delay before the first retry, in milliseconds.
+     */
+    public void setInitialBackoff(long initialBackoff) {
+        _initialBackoff = initialBackoff;
+    }
+
+    /**
+     * Sets the longest delay between retries, in milliseconds.
+     */
+    public void setMaxBackoff(long maxBackoff) {
+        _maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Sets the most times a solution is submitted, including the original submission, before it is abandoned.
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        _maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Sets how often the queue is checked for due retries, in milliseconds.  Takes effect when the queue is
+     * initialized.
+     */
+    public void setPollInterval(long pollInterval) {
+        _pollInterval = pollInterval;
+    }
+
+    /**
+     * Sets how long the SMSC is given to accept a retried solution, in milliseconds.
+     */
+    public void setSubmissionTimeout(long submissionTimeout) {
+        _submissionTimeout = submissionTimeout;
+    }
+
+    public long getRetriesSucceeded() {
+        return _retriesSucceeded.get();
+    }
+
+    public long getRetriesFailed() {
+        return _retriesFailed.get();
+    }
+
+    public long getSubmissionsExpired() {
+        return _submissionsExpired.get();
+    }
+
+    public long getSubmissionsAbandoned() {
+        return _submissionsAbandoned.get();
+    }
+
+    // ======== Pending Submission ========
+
+    // Solutions without a deadline sort after every solution that has one.
+    private static final Comparator<PendingSubmission> DEADLINE_ORDER = new Comparator<PendingSubmission>() {
+        @Override
+        public int compare(PendingSubmission o1, PendingSubmission o2) {
+            long deadline1 = (o1.getDeadline() > 0 ? o1.getDeadline() : Long.MAX_VALUE);
+            long deadline2 = (o2.getDeadline() > 0 ? o2.getDeadline() : Long.MAX_VALUE);
+            if (deadline1 != deadline2) {
+                return Long.compare(deadline1, deadline2);
+            }
+            return Long.compare(o1.getNextAttempt(), o2.getNextAttempt());
+        }
+    };
+
+    static class PendingSubmission {
+        private String containerID;
+        private ChallengeSolution solution;
+        private long deadline;
+        private int attempts;
+        private long nextAttempt;
+
+        public PendingSubmission() {
+        }
+
+        public PendingSubmission(String containerID, ChallengeSolution solution, long deadline) {
+            this.containerID = containerID;
+            this.solution = solution;
+            this.deadline = deadline;
+        }
+
+        public String getContainerID() {
+            return containerID;
+        }
+
+        public ChallengeSolution getSolution() {
+            return solution;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public void setAttempts(int attempts) {
+            this.attempts = attempts;
+        }
+
+        public long getNextAttempt() {
+            return nextAttempt;
+        }
+
+        public void setNextAttempt(long nextAttempt) {
+            this.nextAttempt = nextAttempt;
+        }
+    }
+}
@@ -15,13 +15,19 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.security.DigestOutputStream;
+import java.lang.management.ManagementFactory;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 public class SDFSProofSolver implements ProofSolver {
@@ -34,6 +40,39 @@ public class SDFSProofSolver implements ProofSolver {
     @Autowired
     private MicroNetworkManager _microNetworkManager;
 
+    @Autowired
+    private LeafHashCache _leafHashCache;
+
+    private int _solverThreads = Runtime.getRuntime().availableProcessors();
+
+    // Levels of the Merkle Tree with fewer pairs than this are combined on the calling thread, since hashing a pair is
+    // cheaper than handing it to another thread.
+    private int _parallelReductionThreshold = 1024;
+
+    private ExecutorService _solverExecutor;
+
+    private static final int SCRATCH_BUFFER_SIZE = 64 * 1024;
+
+    // Each worker thread hashes with its own pooled digests and scratch buffer, so the memory the solver uses is bounded
+    // by its thread count rather than by the length of the challenged ranges.
+    private static final ThreadLocal<DigestPool> DIGESTS = new ThreadLocal<DigestPool>() {
+        @Override
+        protected DigestPool initialValue() {
+            return new DigestPool();
+        }
+    };
+
+    private static final ThreadLocal<byte[]> SCRATCH_BUFFERS = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[SCRATCH_BUFFER_SIZE];
+        }
+    };
+
+    private final AtomicLong _solvedCount = new AtomicLong();
+    private final AtomicLong _allocatedBytes = new AtomicLong();
+    private volatile long _lastAllocatedBytes = -1;
+
     @Override
     @PostConstruct
     public void initialize() {
@@ -45,6 +84,9 @@ public class SDFSProofSolver implements ProofSolver {
         if ( _microNetworkManager == null ) {
             throw new InitializationException("Failed to initialize SDFS Proof Solver.  No Micro Network Manager configured" ) ;
         }
+
+        _solverExecutor = Executors.newFixedThreadPool(_solverThreads);
+
         _log.info ("Initialized the SDFS Proof Solver" ) ;
     }
 
@@ -52,6 +94,12 @@ public class SDFSProofSolver implements ProofSolver {
     @PreDestroy
     public void shutdown() {
         _log.info ("Shutting Down the SDFS Proof Solver" ) ;
+
+        if ( _solverExecutor != null ) {
+            _solverExecutor.shutdown();
+            _solverExecutor = null;
+        }
+
         _log.info ("Shut Down the SDFS Proof Solver" ) ;
     }
 
@@ -71,69 +119,247 @@ public class SDFSProofSolver implements ProofSolver {
 
     private String generateReplicateSolution(Challenge proofChallenge) {
         String merkleRoot = null;
-        List<byte[]> leaves = new ArrayList<>(proofChallenge.getChunkRanges().size());
+        AtomicLong allocated = new AtomicLong();
+        long startAllocated = getThreadAllocatedBytes();
         try {
             // Generate the Pre Image of all of the chunks
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            int leafIndex = 0 ;
-            for (ChallengeChunkInfo info : proofChallenge.getChunkRanges()) {
-                digest.reset();
-                ByteArrayOutputStream baos = new ByteArrayOutputStream(info.getLength());
-                DigestOutputStream dos = new DigestOutputStream(baos, digest);
-                _dataStorageProvider.fetchData(info.getChunkID(), info.getOffset(), info.getLength(), baos);
-                dos.close();
-                byte[] leafPreImageHash = digest.digest(baos.toByteArray());
-                leaves.add(leafPreImageHash);
-                _log.info ( "Merkle Pre Image " + (leafIndex++) + ": " + Hex.encodeHexString(leafPreImageHash));
+            byte[][] leaves = generateLeaves(proofChallenge.getChunkRanges(), allocated);
+            for (int leafIndex = 0; leafIndex < leaves.length; leafIndex++) {
+                _log.info ( "Merkle Pre Image " + leafIndex + ": " + Hex.encodeHexString(leaves[leafIndex]));
             }
 
             // Combine adjacent nodes until there is only one left.
             int level = 0 ;
-            while (leaves.size() > 1) {
-                List<byte[]> curLeaves = leaves;
-                leaves = new ArrayList<>();
-
-                for (int i = 0; i < curLeaves.size(); ) {
-                    byte[] newDigest;
-                    if (i + 1 < curLeaves.size()) {
-                        // There are more than two nodes left, so combine the next two.
-                        digest.reset();
-                        if ( level == 0 ) {
-                            // Leaf nodes are prepended with 0x00.
-                            digest.update((byte)0x00);
-                        } else {
-                            // Inner nodes are prepended with 0x01.
-                            digest.update((byte) 0x01);
-                        }
-                        digest.update(curLeaves.get(i));
-                        digest.update(curLeaves.get(i + 1));
-                        newDigest = digest.digest();
-                        i += 2;
-                    } else {
-                        // This is a single node at the end of the list.  Just push it forward.
-                        newDigest = curLeaves.get(i);
-                        i++;
-                    }
+            while (leaves.length > 1) {
+                leaves = combineLevel(leaves, level, allocated);
+                for (byte[] newDigest : leaves) {
                     _log.info ( "Merkle Node Level " + level + " : " + Hex.encodeHexString(newDigest));
-
-                    leaves.add(newDigest);
                 }
                 level++;
             }
 
-            merkleRoot = Hex.encodeHexString(leaves.get(0));
+            merkleRoot = Hex.encodeHexString(leaves[0]);
             _log.info ( "MerkleRoot : " + merkleRoot);
         } catch (IOException e) {
             _log.info ( "Exception retrieving data", e );
         } catch (NoSuchDataItemException e) {
             _log.info ( "A requested piece of data was not found.", e);
-        } catch (NoSuchAlgorithmException e) {
-            _log.fatal("OMG!!  Java doesn't support SHA-256 anymore!!", e);
-            throw new RuntimeException("OMG!! Java doesn't support SHA-256 anymore!!", e);
+        } finally {
+            recordAllocation(startAllocated, allocated);
         }
         return merkleRoot;
     }
 
+    // -------- Private Methods --------
+
+    /**
+     * Hashes each of the chunk ranges into a leaf of the Merkle Tree.  The ranges are planned into coalesced reads,
+     * which are checked against their chunks before anything is read.  Ranges whose hashes are in the Leaf Hash Cache
+     * for the chunk's current version are answered from it, and the rest are planned again without them.  The reads
+     * are then split into contiguous slices that are handled on the solver's worker threads.  Each read is fed through
+     * a LeafDigestChannel, which hashes the leaves it covers as the bytes go by and writes each to its own slot so that
+     * the leaves come out in challenge order.  Where the Data Storage Provider's buffers are the stored bytes themselves,
+     * such as a slice of a file mapping, the read is taken with getDataBuffer and hashed in place.  Otherwise it is
+     * streamed with transferData, so it is never copied into a buffer of its own.
+     */
+    private byte[][] generateLeaves(List<ChallengeChunkInfo> chunkRanges, AtomicLong allocated) throws IOException, NoSuchDataItemException {
+        byte[][] leaves = new byte[chunkRanges.size()][];
+
+        ChallengeReadPlan plan = new ChallengeReadPlan(chunkRanges);
+        plan.validate(_dataStorageProvider);
+
+        // Look up each range in the cache, noting the ones that still need to be read.
+        LeafHashCache leafHashCache = _leafHashCache;
+        List<ChallengeChunkInfo> uncachedRanges = chunkRanges;
+        int[] uncachedIndexes = null;
+        Map<String, String> versions = new HashMap<>();
+        if (leafHashCache != null) {
+            for (ChallengeReadPlan.Read read : plan.getReads()) {
+                if (!versions.containsKey(read.getChunkID())) {
+                    versions.put(read.getChunkID(), _dataStorageProvider.getDataVersion(read.getChunkID()));
+                }
+            }
+
+            uncachedRanges = new ArrayList<>();
+            uncachedIndexes = new int[chunkRanges.size()];
+            for (int i = 0; i < chunkRanges.size(); i++) {
+                ChallengeChunkInfo info = chunkRanges.get(i);
+                leaves[i] = leafHashCache.get(info.getChunkID(), info.getOffset(), info.getLength(), versions.get(info.getChunkID()));
+                if (leaves[i] == null) {
+                    uncachedIndexes[uncachedRanges.size()] = i;
+                    uncachedRanges.add(info);
+                }
+            }
+            _log.info ( "Found " + (chunkRanges.size() - uncachedRanges.size()) + " of " + chunkRanges.size() +
+                    " challenge ranges in the leaf hash cache");
+
+            if (uncachedRanges.size() < chunkRanges.size()) {
+                plan = new ChallengeReadPlan(uncachedRanges);
+            }
+        }
+
+        _log.info ( "Planned " + plan.getRangeCount() + " challenge ranges into " + plan.getReadCount() + " reads, saving " +
+                plan.getSavedReadCount() + " reads and " + plan.getSavedBytes() + " bytes");
+
+        final byte[][] readLeaves = new byte[uncachedRanges.size()][];
+        final List<ChallengeReadPlan.Read> reads = plan.getReads();
+        final boolean zeroCopy = _dataStorageProvider.isDataBufferZeroCopy();
+        runSliced(reads.size(), 1, allocated, new SliceTask() {
+            @Override
+            public void run(int start, int end) throws IOException, NoSuchDataItemException {
+                DigestPool digestPool = DIGESTS.get();
+                byte[] scratch = SCRATCH_BUFFERS.get();
+                for (int i = start; i < end; i++) {
+                    ChallengeReadPlan.Read read = reads.get(i);
+                    try (LeafDigestChannel channel = new LeafDigestChannel(read, readLeaves, scratch, digestPool)) {
+                        if (zeroCopy) {
+                            channel.write(_dataStorageProvider.getDataBuffer(read.getChunkID(), read.getOffset(), read.getLength()));
+                        } else {
+                            _dataStorageProvider.transferData(read.getChunkID(), read.getOffset(), read.getLength(), channel);
+                        }
+                        channel.finish();
+                    }
+                }
+            }
+        });
+
+        if (uncachedIndexes == null) {
+            return readLeaves;
+        }
+
+        // Fill in the leaves that were read, and remember them for the next challenge.
+        for (int i = 0; i < readLeaves.length; i++) {
+            ChallengeChunkInfo info = uncachedRanges.get(i);
+            leaves[uncachedIndexes[i]] = readLeaves[i];
+            leafHashCache.put(info.getChunkID(), info.getOffset(), info.getLength(), versions.get(info.getChunkID()), readLeaves[i]);
+        }
+
+        return leaves;
+    }
+
+    /**
+     * Combines each adjacent pair of nodes on a level of the Merkle Tree into a node of the next level.  Nodes combined
+     * from the leaves are prefixed with 0x00, and those combined from inner nodes with 0x01.  A single node left over at
+     * the end of the level is pushed forward unchanged.  Levels with enough pairs are combined on the worker threads.
+     */
+    private byte[][] combineLevel(final byte[][] nodes, int level, AtomicLong allocated) throws IOException, NoSuchDataItemException {
+        final byte[][] combined = new byte[(nodes.length + 1) / 2][];
+        final byte prefix = (level == 0 ? (byte) 0x00 : (byte) 0x01);
+
+        runSliced(nodes.length / 2, _parallelReductionThreshold, allocated, new SliceTask() {
+            @Override
+            public void run(int start, int end) {
+                DigestPool digestPool = DIGESTS.get();
+                MessageDigest digest = digestPool.acquire();
+                try {
+                    for (int i = start; i < end; i++) {
+                        digest.reset();
+                        digest.update(prefix);
+                        digest.update(nodes[2 * i]);
+                        digest.update(nodes[2 * i + 1]);
+                        combined[i] = digest.digest();
+                    }
+                } finally {
+                    digestPool.release(digest);
+                }
+            }
+        });
+
+        if (nodes.length % 2 == 1) {
+            // This is a single node at the end of the list.  Just push it forward.
+            combined[combined.length - 1] = nodes[nodes.length - 1];
+        }
+
+        return combined;
+    }
+
+    /**
+     * Runs the task over the indices [0, count).  If there are fewer than minParallelCount indices, or only one worker
+     * thread, the task runs on the calling thread.  Otherwise the indices are split into a few contiguous slices per
+     * worker so that a slow slice doesn't hold up the others, and the calling thread waits for all of them.  The heap
+     * allocated by each slice on its worker thread is added to the allocated counter.
+     */
+    private void runSliced(int count, int minParallelCount, final AtomicLong allocated, final SliceTask task) throws IOException, NoSuchDataItemException {
+        ExecutorService executor = _solverExecutor;
+        if (executor == null || _solverThreads < 2 || count < 2 || count < minParallelCount) {
+            task.run(0, count);
+            return;
+        }
+
+        int sliceCount = Math.min(count, _solverThreads * 4);
+        List<Future<Void>> futures = new ArrayList<>(sliceCount);
+        for (int slice = 0; slice < sliceCount; slice++) {
+            final int start = (int) ((long) count * slice / sliceCount);
+            final int end = (int) ((long) count * (slice + 1) / sliceCount);
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    long startAllocated = getThreadAllocatedBytes();
+                    try {
+                        task.run(start, end);
+                    } finally {
+                        if (startAllocated >= 0) {
+                            allocated.addAndGet(getThreadAllocatedBytes() - startAllocated);
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating the proof", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof NoSuchDataItemException) {
+                throw (NoSuchDataItemException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to generate the proof", cause);
+        } finally {
+            for (Future<Void> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Records the heap allocated while solving a challenge, adding what the calling thread allocated to what the worker
+     * threads did.
+     */
+    private void recordAllocation(long startAllocated, AtomicLong allocated) {
+        if (startAllocated < 0) {
+            return;
+        }
+        long challengeAllocated = allocated.get() + getThreadAllocatedBytes() - startAllocated;
+        _lastAllocatedBytes = challengeAllocated;
+        _allocatedBytes.addAndGet(challengeAllocated);
+        _solvedCount.incrementAndGet();
+        _log.info ( "Allocated " + challengeAllocated + " bytes solving the challenge");
+    }
+
+    /**
+     * Returns the number of bytes the current thread has allocated on the heap, or -1 if the JVM can't measure it.
+     */
+    private static long getThreadAllocatedBytes() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (allocationMXBean.isThreadAllocatedMemorySupported() && allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+                return allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
     // -------- Accessor Methods --------
 
 
@@ -144,4 +370,49 @@ public class SDFSProofSolver implements ProofSolver {
     public void setMicroNetworkManager(MicroNetworkManager microNetworkManager) {
         _microNetworkManager = microNetworkManager;
     }
+
+    /**
+     * Sets the cache used to answer repeated challenge ranges.  If not set, every range is read from storage.
+     */
+    public void setLeafHashCache(LeafHashCache leafHashCache) {
+        _leafHashCache = leafHashCache;
+    }
+
+    /**
+     * Sets the number of worker threads used to read and hash the chunk ranges of a challenge.  Must be set before the
+     * solver is initialized.
+     */
+    public void setSolverThreads(int solverThreads) {
+        _solverThreads = solverThreads;
+    }
+
+    /**
+     * Sets the number of pairs a level of the Merkle Tree must have before it is combined on the worker threads.
+     */
+    public void setParallelReductionThreshold(int parallelReductionThreshold) {
+        _parallelReductionThreshold = parallelReductionThreshold;
+    }
+
+    /**
+     * Returns the number of bytes allocated on the heap while solving the most recent challenge, or -1 if no challenge
+     * has been measured.  Allocation can only be measured on JVMs that support per-thread allocation accounting.
+     */
+    public long getLastAllocatedBytes() {
+        return _lastAllocatedBytes;
+    }
+
+    /**
+     * Returns the average number of bytes allocated on the heap per challenge solved, or -1 if no challenge has been
+     * measured.
+     */
+    public long getAverageAllocatedBytes() {
+        long solvedCount = _solvedCount.get();
+        return ( solvedCount > 0 ? _allocatedBytes.get() / solvedCount : -1 );
+    }
+
+    // ======== Slice Task ========
+
+    private interface SliceTask {
+        void run(int start, int end) throws IOException, NoSuchDataItemException;
+    }
 }
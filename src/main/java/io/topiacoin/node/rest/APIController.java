@@ -2,6 +2,7 @@ package io.topiacoin.node.rest;
 
 import io.topiacoin.node.BusinessLogic;
 import io.topiacoin.node.exceptions.BadRequestException;
+import io.topiacoin.node.exceptions.ChallengeQueueFullException;
 import io.topiacoin.node.exceptions.ContainerAlreadyExistsException;
 import io.topiacoin.node.exceptions.CorruptDataItemException;
 import io.topiacoin.node.exceptions.DataItemAlreadyExistsException;
@@ -10,18 +11,27 @@ import io.topiacoin.node.exceptions.FailedToRemoveContainer;
 import io.topiacoin.node.exceptions.InitializationException;
 import io.topiacoin.node.exceptions.InvalidChallengeException;
 import io.topiacoin.node.exceptions.MicroNetworkAlreadyExistsException;
+import io.topiacoin.node.exceptions.NoSuchChallengeJobException;
 import io.topiacoin.node.exceptions.NoSuchContainerException;
 import io.topiacoin.node.exceptions.NoSuchDataItemException;
 import io.topiacoin.node.exceptions.NoSuchNodeException;
+import io.topiacoin.node.exceptions.QuotaExceededException;
 import io.topiacoin.node.model.Challenge;
+import io.topiacoin.node.model.ChallengeJob;
+import io.topiacoin.node.model.CacheMetrics;
+import io.topiacoin.node.model.ChallengeQueueMetrics;
 import io.topiacoin.node.model.ContainerConnectionInfo;
+import io.topiacoin.node.model.DataItemUploadResult;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.util.TextUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -34,12 +44,26 @@ import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 public class APIController {
 
     private Log _log = LogFactory.getLog(this.getClass());
 
+    // Requests for more ranges than this are served the whole chunk, so a client can't make the node perform
+    // thousands of tiny reads with a single request.
+    private static final int MAX_RANGES_PER_REQUEST = 16;
+
+    // The most chunk IDs that can be checked with a single existence query.
+    private static final int MAX_EXISTENCE_QUERY_SIZE = 10000;
+
+    // The largest chunk accepted in a batch upload.  Each chunk is held in memory until it is stored.
+    private static final int MAX_BATCH_CHUNK_SIZE = 16 * 1024 * 1024;
+
     @Autowired
     private BusinessLogic _businessLogic;
 
@@ -150,7 +174,8 @@ public class APIController {
             @RequestParam("containerID") String containerID,
             @RequestParam("dataHash") String dataHash,
             HttpServletRequest request)
-            throws IOException, DataItemAlreadyExistsException, CorruptDataItemException, NoSuchContainerException {
+            throws IOException, DataItemAlreadyExistsException, CorruptDataItemException, NoSuchContainerException,
+            QuotaExceededException {
 
         if (TextUtils.isBlank(chunkID)) {
             throw new BadRequestException("ChunkID not specified.");
@@ -168,13 +193,48 @@ public class APIController {
 
         InputStream dataStream = request.getInputStream();
 
-        _businessLogic.storeChunk(containerID, chunkID, dataHash, dataStream);
+        // An upload that would exceed the quota is rejected before its body is read.
+        _businessLogic.storeChunk(containerID, chunkID, dataHash, dataStream, request.getContentLengthLong());
 
         return new ResponseEntity<>(HttpStatus.CREATED);
     }
 
+    /**
+     * Stores a batch of chunks sent in a single request body, in the format read by {@link ChunkBatchReader}.  The
+     * chunks are verified and stored as they arrive, and the result for each chunk is returned in upload order.  A
+     * chunk that fails to store does not fail the rest of the batch, but a body that cannot be read in full stores none
+     * of it.
+     */
+    @RequestMapping(value = "/chunks", method = RequestMethod.POST)
+    public ResponseEntity<List<DataItemUploadResult>> addChunks(
+            @RequestParam("containerID") String containerID,
+            HttpServletRequest request)
+            throws IOException, NoSuchContainerException {
+
+        if (TextUtils.isBlank(containerID)) {
+            throw new BadRequestException("ContainerID not specified.");
+        }
+
+        _log.info("Adding Chunks to Container " + containerID);
+
+        ChunkBatchReader chunks = new ChunkBatchReader(request.getInputStream(), MAX_BATCH_CHUNK_SIZE);
+
+        List<DataItemUploadResult> results;
+        try {
+            results = _businessLogic.storeChunks(containerID, chunks);
+        } catch (IOException e) {
+            // Failures storing individual chunks are reported in their results, so this is a malformed body.
+            throw new BadRequestException("Failed to read the chunk batch: " + e.getMessage());
+        }
+
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
+    /**
+     * Checks whether the chunk is stored in the container.  Storage is checked without holding the request thread.
+     */
     @RequestMapping(value = "/chunk", method = RequestMethod.HEAD)
-    public ResponseEntity<Void> hasChunk(
+    public CompletableFuture<ResponseEntity<Void>> hasChunk(
             @RequestParam("chunkID") String chunkID,
             @RequestParam("containerID") String containerID)
             throws NoSuchContainerException {
@@ -188,17 +248,63 @@ public class APIController {
 
         _log.info("Checking on Chunk " + chunkID);
 
-        if (_businessLogic.hasChunk(containerID, chunkID)) {
-            return new ResponseEntity<>(HttpStatus.OK);
-        } else {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        return _businessLogic.hasChunkAsync(containerID, chunkID).thenApply(present -> {
+            if (present) {
+                return new ResponseEntity<>(HttpStatus.OK);
+            } else {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+        });
+    }
+
+    /**
+     * Checks which of the chunks in the body, a JSON array of chunk IDs, are stored in the container.  Responds with
+     * the IDs of the chunks that are present, in the order they were requested.
+     */
+    @RequestMapping(value = "/chunks/exists", method = RequestMethod.POST)
+    public ResponseEntity<List<String>> hasChunks(
+            @RequestParam("containerID") String containerID,
+            @RequestBody List<String> chunkIDs)
+            throws NoSuchContainerException {
+
+        if (TextUtils.isBlank(containerID)) {
+            throw new BadRequestException("ContainerID not specified.");
+        }
+        if (chunkIDs == null) {
+            throw new BadRequestException("ChunkIDs not specified.");
         }
+        if (chunkIDs.size() > MAX_EXISTENCE_QUERY_SIZE) {
+            throw new BadRequestException("Too many ChunkIDs specified.  At most " + MAX_EXISTENCE_QUERY_SIZE + " may be checked at once.");
+        }
+
+        _log.info("Checking on " + chunkIDs.size() + " Chunks");
+
+        List<String> presentChunkIDs = _businessLogic.hasChunks(containerID, chunkIDs);
+
+        return new ResponseEntity<>(presentChunkIDs, HttpStatus.OK);
+    }
+
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> getChunk(
+            String chunkID,
+            String containerID)
+            throws IOException, CorruptDataItemException, NoSuchDataItemException, NoSuchContainerException {
+        return getChunk(chunkID, containerID, null);
     }
 
+    /**
+     * Returns the requested chunk.  If the request has a Range header, only the requested byte ranges are returned, in
+     * a 206 Partial Content response.  A single range is returned as the response body, and multiple ranges are
+     * returned as a multipart/byteranges body.  Malformed Range headers, and headers with an excessive number of
+     * ranges, are ignored and the whole chunk is returned.
+     * <p>
+     * The chunk, or each of its ranges, is streamed straight from storage once the request thread has been released,
+     * so it is never held in memory.
+     */
     @RequestMapping(value = "/chunk", method = RequestMethod.GET)
-    public ResponseEntity<StreamingResponseBody> getChunk(
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> getChunk(
             @RequestParam("chunkID") String chunkID,
-            @RequestParam("containerID") String containerID)
+            @RequestParam("containerID") String containerID,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader)
             throws IOException, CorruptDataItemException, NoSuchDataItemException, NoSuchContainerException {
 
         if (TextUtils.isBlank(chunkID)) {
@@ -217,21 +323,69 @@ public class APIController {
             throw new NoSuchDataItemException("The specified chunk does not exist");
         }
 
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (rangeHeader != null) {
+            long size = _businessLogic.getChunkSize(containerID, chunkID);
+            List<ByteRange> ranges = ByteRange.parse(rangeHeader, size);
+
+            if (ranges != null && ranges.isEmpty()) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                return CompletableFuture.completedFuture(new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE));
+            }
+
+            if (ranges != null && ranges.size() == 1) {
+                ByteRange range = ranges.get(0);
+                headers.set(HttpHeaders.CONTENT_RANGE, range.toContentRange(size));
+                headers.setContentLength(range.getLength());
+
+                StreamingResponseBody streamingResponseBody = new StreamingResponseBody() {
+                    @Override
+                    public void writeTo(OutputStream outputStream) throws IOException {
+                        writeChunkRange(containerID, chunkID, range, outputStream);
+                    }
+                };
+                return CompletableFuture.completedFuture(new ResponseEntity<>(streamingResponseBody, headers, HttpStatus.PARTIAL_CONTENT));
+            }
+
+            if (ranges != null && ranges.size() <= MAX_RANGES_PER_REQUEST) {
+                String boundary = UUID.randomUUID().toString();
+                headers.set(HttpHeaders.CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary);
+
+                StreamingResponseBody streamingResponseBody = new StreamingResponseBody() {
+                    @Override
+                    public void writeTo(OutputStream outputStream) throws IOException {
+                        for (ByteRange range : ranges) {
+                            String partHeader = "--" + boundary + "\r\n" +
+                                    "Content-Type: application/octet-stream\r\n" +
+                                    "Content-Range: " + range.toContentRange(size) + "\r\n\r\n";
+                            outputStream.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+                            writeChunkRange(containerID, chunkID, range, outputStream);
+                            outputStream.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+                        }
+                        outputStream.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+                    }
+                };
+                return CompletableFuture.completedFuture(new ResponseEntity<>(streamingResponseBody, headers, HttpStatus.PARTIAL_CONTENT));
+            }
+        }
+
         StreamingResponseBody streamingResponseBody = new StreamingResponseBody() {
             @Override
             public void writeTo(OutputStream outputStream) throws IOException {
                 try {
                     _businessLogic.getChunk(containerID, chunkID, outputStream);
                 } catch (NoSuchDataItemException e) {
-                    throw new IOException();
+                    throw new IOException(e);
                 } catch (CorruptDataItemException e) {
-                    throw new IOException();
+                    throw new IOException(e);
                 } catch (NoSuchContainerException e) {
-                    throw new IOException();
+                    throw new IOException(e);
                 }
             }
         };
-        return new ResponseEntity<>(streamingResponseBody, HttpStatus.OK);
+        return CompletableFuture.completedFuture(new ResponseEntity<>(streamingResponseBody, headers, HttpStatus.OK));
     }
 
     @RequestMapping(value = "/chunk", method = RequestMethod.DELETE)
@@ -257,9 +411,9 @@ public class APIController {
     // -------- Challenge Methods --------
 
     @RequestMapping(value = "/challenge", method = RequestMethod.POST)
-    public ResponseEntity<Void> submitChallenge(
+    public ResponseEntity<ChallengeJob> submitChallenge(
             @RequestBody Challenge challenge)
-            throws NoSuchContainerException, InvalidChallengeException {
+            throws NoSuchContainerException, InvalidChallengeException, ChallengeQueueFullException, IOException {
 
         if (challenge == null) {
             throw new BadRequestException("Challenge not specified.");
@@ -270,9 +424,55 @@ public class APIController {
 
         _log.info("Received Challenge: " + challenge);
 
-        _businessLogic.submitChallenge(challenge);
+        // The challenge is solved and submitted in the background.  The job can be polled for its outcome.
+        ChallengeJob job = _businessLogic.startChallenge(challenge);
+
+        return new ResponseEntity<>(job, HttpStatus.ACCEPTED);
+    }
+
+    @RequestMapping(value = "/challenge/metrics", method = RequestMethod.GET)
+    public ResponseEntity<ChallengeQueueMetrics> getChallengeQueueMetrics() {
+
+        ChallengeQueueMetrics metrics = _businessLogic.getChallengeQueueMetrics();
 
-        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+        return new ResponseEntity<>(metrics, HttpStatus.OK);
+    }
+
+    @RequestMapping(value = "/cache/metrics", method = RequestMethod.GET)
+    public ResponseEntity<CacheMetrics> getCacheMetrics() {
+
+        CacheMetrics metrics = _businessLogic.getCacheMetrics();
+
+        return new ResponseEntity<>(metrics, HttpStatus.OK);
+    }
+
+    @RequestMapping(value = "/challenge/{jobID}", method = RequestMethod.GET)
+    public ResponseEntity<ChallengeJob> getChallengeJob(
+            @PathVariable("jobID") String jobID)
+            throws NoSuchChallengeJobException {
+
+        if (TextUtils.isBlank(jobID)) {
+            throw new BadRequestException("Job ID not specified.");
+        }
+
+        ChallengeJob job = _businessLogic.getChallengeJob(jobID);
+
+        return new ResponseEntity<>(job, HttpStatus.OK);
+    }
+
+    // -------- Private Methods --------
+
+    private void writeChunkRange(String containerID, String chunkID, ByteRange range, OutputStream outputStream)
+            throws IOException {
+        try {
+            _businessLogic.getChunk(containerID, chunkID, range.getStart(), range.getLength(), outputStream);
+        } catch (NoSuchDataItemException e) {
+            throw new IOException(e);
+        } catch (CorruptDataItemException e) {
+            throw new IOException(e);
+        } catch (NoSuchContainerException e) {
+            throw new IOException(e);
+        }
     }
 
     // -------- Accessor Methods --------
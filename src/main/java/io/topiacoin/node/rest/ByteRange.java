@@ -0,0 +1,114 @@
+package io.topiacoin.node.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single byte range requested with an HTTP Range header (RFC 7233), resolved against the length of the resource.
+ */
+public class ByteRange {
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private final long start;
+    private final long end;
+
+    public ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Parses the value of a Range header and resolves it against the length of the resource.  Ranges that start past
+     * the end of the resource are dropped, and ranges that end past it are truncated.
+     *
+     * @param rangeHeader The value of the Range header.
+     * @param length      The length of the resource, in bytes.
+     *
+     * @return The satisfiable ranges, in the order they were requested.  The list is empty if none of the ranges can be
+     * satisfied.  Null is returned if the header is malformed or uses a unit other than bytes, in which case the header
+     * should be ignored and the whole resource returned.
+     */
+    public static List<ByteRange> parse(String rangeHeader, long length) {
+        if (rangeHeader == null || !rangeHeader.trim().toLowerCase().startsWith(BYTES_UNIT)) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>();
+        String[] specs = rangeHeader.trim().substring(BYTES_UNIT.length()).split(",");
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            try {
+                if (first.isEmpty()) {
+                    // Suffix range: the final N bytes of the resource
+                    long suffixLength = Long.parseLong(last);
+                    if (suffixLength < 0) {
+                        return null;
+                    }
+                    if (suffixLength > 0 && length > 0) {
+                        ranges.add(new ByteRange(Math.max(0, length - suffixLength), length - 1));
+                    }
+                } else {
+                    long start = Long.parseLong(first);
+                    long end = (last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last));
+                    if (start < 0 || end < start) {
+                        return null;
+                    }
+                    if (start < length) {
+                        ranges.add(new ByteRange(start, Math.min(end, length - 1)));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        return ranges;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    /**
+     * Returns the value of the Content-Range header describing this range of a resource with the given length.
+     */
+    public String toContentRange(long length) {
+        return "bytes " + start + "-" + end + "/" + length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        ByteRange that = (ByteRange) o;
+        return start == that.start && end == that.end;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(start) * 31 + Long.hashCode(end);
+    }
+
+    @Override
+    public String toString() {
+        return "ByteRange{" + start + "-" + end + "}";
+    }
+}
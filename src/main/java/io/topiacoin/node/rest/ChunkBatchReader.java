@@ -0,0 +1,73 @@
+package io.topiacoin.node.rest;
+
+import io.topiacoin.node.model.DataItemUpload;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the chunks of a batch upload from the request body, one at a time.  The body is a sequence of records, each
+ * of which is:
+ * <ul>
+ * <li>the chunk ID, in modified UTF-8 as written by DataOutput.writeUTF()</li>
+ * <li>the data hash, in the same format</li>
+ * <li>the length of the chunk data, as a 4 byte big-endian integer</li>
+ * <li>the chunk data</li>
+ * </ul>
+ * The body ends after the last record.  Failures reading the body, including a body that ends part way through a
+ * record, are thrown as UncheckedIOExceptions.
+ */
+public class ChunkBatchReader implements Iterator<DataItemUpload> {
+
+    private final PushbackInputStream _pushbackStream;
+    private final DataInputStream _dataStream;
+    private final int _maxChunkSize;
+
+    public ChunkBatchReader(InputStream inputStream, int maxChunkSize) {
+        _pushbackStream = new PushbackInputStream(inputStream, 1);
+        _dataStream = new DataInputStream(_pushbackStream);
+        _maxChunkSize = maxChunkSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            int b = _pushbackStream.read();
+            if (b < 0) {
+                return false;
+            }
+            _pushbackStream.unread(b);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public DataItemUpload next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        try {
+            String chunkID = _dataStream.readUTF();
+            String dataHash = _dataStream.readUTF();
+            int length = _dataStream.readInt();
+            if (length < 0 || length > _maxChunkSize) {
+                throw new IOException("Invalid length for chunk " + chunkID + ": " + length);
+            }
+
+            byte[] data = new byte[length];
+            _dataStream.readFully(data);
+
+            return new DataItemUpload(chunkID, dataHash, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package io.topiacoin.node.storage;
+
+import io.topiacoin.node.exceptions.NoSuchContainerException;
+import io.topiacoin.node.model.DataItemInfo;
+import io.topiacoin.node.model.DataModel;
+import io.topiacoin.node.utilities.BloomFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-memory index of which data items are in each container, used to answer existence queries for many data items
+ * at once without a Data Model or Data Storage Provider lookup per data item.
+ * <p>
+ * The index for a container is loaded from the Data Model the first time the container is queried, and is then kept
+ * in sync by the Data Storage Manager as data items are saved and removed.  Each container's index is an exact set of
+ * its data item IDs, fronted by a Bloom filter.  Queries for data items that aren't present, which are most of the
+ * queries made by replicating peers, are usually answered by the filter alone, and the data items it might contain are
+ * confirmed against the set, so a query never goes to the Data Model once the container is loaded.
+ * <p>
+ * At most a fixed number of containers are indexed at once.  When another container is loaded, the index of the one
+ * queried least recently is discarded, and is reloaded from the Data Model if it is queried again.
+ */
+public class DataItemMembershipIndex {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_CAPACITY = 1024;
+
+    public static final int DEFAULT_MAX_CONTAINERS = 1024;
+
+    private final DataModel _dataModel;
+    private final int _maxContainers;
+    private final ConcurrentHashMap<String, ContainerMembership> _containers = new ConcurrentHashMap<>();
+
+    // Orders the containers' indexes by when they were last queried.
+    private final AtomicLong _useCounter = new AtomicLong();
+
+    public DataItemMembershipIndex(DataModel dataModel) {
+        this(dataModel, DEFAULT_MAX_CONTAINERS);
+    }
+
+    /**
+     * @param dataModel     The Data Model from which the containers' data items are loaded.
+     * @param maxContainers The most containers that are indexed at once.
+     */
+    public DataItemMembershipIndex(DataModel dataModel, int maxContainers) {
+        _dataModel = dataModel;
+        _maxContainers = Math.max(1, maxContainers);
+    }
+
+    /**
+     * Returns which of the given data items are in the specified container.
+     *
+     * @param containerID The ID of the container being queried.
+     * @param dataIDs     The IDs of the data items whose existence is being queried.
+     *
+     * @return The IDs of the data items that are in the container, in the order they were given.
+     *
+     * @throws NoSuchContainerException If the specified container does not exist.
+     */
+    public List<String> findPresent(String containerID, Collection<String> dataIDs) throws NoSuchContainerException {
+        ContainerMembership membership = getMembership(containerID);
+        if (membership.isStale()) {
+            // The filter has outgrown its capacity or holds too many removed data items.  Reload it from the Data Model.
+            _containers.remove(containerID, membership);
+            membership = getMembership(containerID);
+        }
+        membership.setLastUsed(_useCounter.incrementAndGet());
+
+        return membership.findPresent(dataIDs);
+    }
+
+    /**
+     * Records that data items were added to the specified container.  This has no effect if the container's index has
+     * not been loaded, as the data items will be read from the Data Model when it is.
+     */
+    public void added(String containerID, Collection<String> dataIDs) {
+        // computeIfPresent waits for a load in progress, so the update can't fall between reading the model and
+        // publishing the index.
+        _containers.computeIfPresent(containerID, (id, membership) -> {
+            membership.addAll(dataIDs);
+            return membership;
+        });
+    }
+
+    /**
+     * Records that a data item was removed from the specified container.  The Data Model is checked first, so a save
+     * of the same data item that landed after the removal isn't undone.
+     */
+    public void removed(String containerID, String dataID) {
+        _containers.computeIfPresent(containerID, (id, membership) -> {
+            try {
+                if (!_dataModel.isDataItemInContainer(dataID, containerID)) {
+                    membership.remove(dataID);
+                }
+            } catch (NoSuchContainerException e) {
+                // The container is gone, so its index is too.
+                return null;
+            }
+            return membership;
+        });
+    }
+
+    /**
+     * Discards the index of the specified container.  It will be reloaded from the Data Model when next queried.
+     */
+    public void invalidate(String containerID) {
+        _containers.remove(containerID);
+    }
+
+    // -------- Private Methods --------
+
+    private ContainerMembership getMembership(String containerID) throws NoSuchContainerException {
+        ContainerMembership membership = _containers.get(containerID);
+        if (membership != null) {
+            return membership;
+        }
+
+        try {
+            membership = _containers.computeIfAbsent(containerID, id -> {
+                try {
+                    List<DataItemInfo> dataItems = _dataModel.getDataItems(id);
+                    List<String> dataIDs = new ArrayList<>(dataItems.size());
+                    for (DataItemInfo dataItem : dataItems) {
+                        dataIDs.add(dataItem.getId());
+                    }
+                    ContainerMembership loaded = new ContainerMembership(dataIDs);
+                    loaded.setLastUsed(_useCounter.incrementAndGet());
+                    return loaded;
+                } catch (NoSuchContainerException e) {
+                    throw new MissingContainerException(e);
+                }
+            });
+        } catch (MissingContainerException e) {
+            throw (NoSuchContainerException) e.getCause();
+        }
+
+        evictLeastRecentlyUsed();
+        return membership;
+    }
+
+    /**
+     * Discards the indexes of the containers queried least recently until no more than the maximum are left.  Only run
+     * when a container is loaded, so the scan is rare.
+     */
+    private void evictLeastRecentlyUsed() {
+        while (_containers.size() > _maxContainers) {
+            Map.Entry<String, ContainerMembership> oldest = null;
+            for (Map.Entry<String, ContainerMembership> entry : _containers.entrySet()) {
+                if (oldest == null || entry.getValue().getLastUsed() < oldest.getValue().getLastUsed()) {
+                    oldest = entry;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            _containers.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    // ======== Container Membership ========
+
+    /**
+     * The set of data items in one container, with a Bloom filter in front of it that rules out most absent data items
+     * without hashing the full ID into the set.  The filter can't forget removed data items, and loses selectivity once
+     * it holds more data items than it was sized for, so it is marked stale when it has grown past its capacity or
+     * collected too many removed data items, and is then reloaded from the Data Model.
+     */
+    private static class ContainerMembership {
+
+        private final Set<String> _dataIDs;
+        private final BloomFilter _filter;
+        private final int _capacity;
+        private int _removals;
+        private volatile long _lastUsed;
+
+        ContainerMembership(Collection<String> dataIDs) {
+            _dataIDs = new HashSet<>(dataIDs);
+            _capacity = Math.max(MIN_CAPACITY, dataIDs.size() * 2);
+            _filter = new BloomFilter(_capacity, FALSE_POSITIVE_RATE);
+            for (String dataID : dataIDs) {
+                _filter.add(dataID);
+            }
+        }
+
+        synchronized List<String> findPresent(Collection<String> dataIDs) {
+            List<String> present = new ArrayList<>();
+            for (String dataID : dataIDs) {
+                if (_filter.mightContain(dataID) && _dataIDs.contains(dataID)) {
+                    present.add(dataID);
+                }
+            }
+            return present;
+        }
+
+        synchronized void addAll(Collection<String> dataIDs) {
+            for (String dataID : dataIDs) {
+                _dataIDs.add(dataID);
+                _filter.add(dataID);
+            }
+        }
+
+        synchronized void remove(String dataID) {
+            if (_dataIDs.remove(dataID)) {
+                _removals++;
+            }
+        }
+
+        synchronized boolean isStale() {
+            return _filter.size() > _capacity || _removals > _capacity / 2;
+        }
+
+        long getLastUsed() {
+            return _lastUsed;
+        }
+
+        void setLastUsed(long lastUsed) {
+            _lastUsed = lastUsed;
+        }
+    }
+
+    // ======== Missing Container Exception ========
+
+    /**
+     * Carries a NoSuchContainerException out of the loading function, which can't throw checked exceptions.
+     */
+    private static class MissingContainerException extends RuntimeException {
+        MissingContainerException(NoSuchContainerException cause) {
+            super(cause);
+        }
+    }
+}
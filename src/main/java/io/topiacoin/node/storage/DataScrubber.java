@@ -0,0 +1,457 @@
+package io.topiacoin.node.storage;
+
+import io.topiacoin.node.exceptions.NoSuchDataItemException;
+import io.topiacoin.node.model.DataItemInfo;
+import io.topiacoin.node.model.DataModel;
+import io.topiacoin.node.proof.LeafHashCache;
+import io.topiacoin.node.storage.provider.DataStorageProvider;
+import io.topiacoin.node.utilities.HashUtilities;
+import io.topiacoin.node.utilities.RateLimiter;
+import io.topiacoin.node.utilities.StatePaths;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Walks every data item in the Data Model in the background and verifies its stored copy against its hash, so that
+ * data which is rarely read is still checked regularly.  Data items that are intact have their verification record
+ * refreshed.  Data items that are corrupt or missing are quarantined, so they are not served until they are repaired
+ * through the Data Storage Manager.
+ * <p>
+ * The scrubber reads at no more than the configured bandwidth, and pauses whenever the Data Storage Manager is busy
+ * with foreground saves and fetches.  Its position and progress are saved to a state file after every data item, so
+ * a restarted node resumes the pass where it left off.
+ */
+@Component
+public class DataScrubber {
+
+    private Log _log = LogFactory.getLog(this.getClass());
+
+    private static final String STATE_FILE_NAME = "scrubber.properties";
+
+    private static final int PAGE_SIZE = 100;
+
+    @Autowired
+    private DataModel _dataModel;
+
+    @Autowired
+    private DataStorageProvider _dataStorageProvider;
+
+    @Autowired
+    private DataStorageManager _dataStorageManager;
+
+    @Autowired
+    private LeafHashCache _leafHashCache;
+
+    @Autowired(required = false)
+    private String storageBasePath;
+
+    private boolean _enabled = true;
+
+    // The directory in which the scrubber's progress is saved.  Defaults to the state directory under the storage base
+    // path.  If neither is set, progress is lost on restart.
+    private String _statePath;
+
+    private long _bandwidthLimit = 4 * 1024 * 1024;
+
+    private long _passInterval = 24 * 60 * 60;
+
+    private long _foregroundQuietPeriod = 250;
+
+    private RateLimiter _rateLimiter;
+
+    private ScheduledExecutorService _scrubExecutor;
+
+    private volatile boolean _stopping;
+
+    // Progress.  The cursor is the ID of the last data item scrubbed in the current pass, or null between passes.
+    private String _cursor;
+    private long _passesCompleted;
+    private long _lastPassCompleted;
+    private long _itemsScrubbed;
+    private long _itemsQuarantined;
+    private long _bytesScrubbed;
+
+    @PostConstruct
+    public void initialize() {
+        _log.info("Initializing Data Scrubber");
+
+        _rateLimiter = new RateLimiter(_bandwidthLimit);
+        _stopping = false;
+
+        if ( _statePath == null ) {
+            _statePath = StatePaths.getDefaultStatePath(storageBasePath);
+        }
+        loadState();
+
+        _log.info("        State Path        : " + _statePath);
+
+        _log.info("        Cursor            : " + _cursor);
+        _log.info("        Passes Completed  : " + _passesCompleted);
+        _log.info("        Items Quarantined : " + _itemsQuarantined);
+
+        if ( _enabled ) {
+            // Resume an unfinished pass straight away, otherwise wait until the next pass is due.
+            long initialDelay = 0;
+            if ( _cursor == null && _lastPassCompleted > 0 ) {
+                long elapsed = (System.currentTimeMillis() - _lastPassCompleted) / 1000;
+                initialDelay = Math.max(0, _passInterval - elapsed);
+            }
+
+            _scrubExecutor = Executors.newSingleThreadScheduledExecutor();
+            _scrubExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        scrub(Integer.MAX_VALUE);
+                    } catch ( Exception e ) {
+                        _log.warn("Data scrub failed", e);
+                    }
+                }
+            }, initialDelay, _passInterval, TimeUnit.SECONDS);
+        }
+
+        _log.info("Initialized Data Scrubber");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        _log.info("Shutting Down Data Scrubber");
+
+        _stopping = true;
+        if ( _scrubExecutor != null ) {
+            // Let the current read stop at its next write rather than interrupting it, as an interrupt can close the
+            // provider's file channels.
+            _scrubExecutor.shutdown();
+            try {
+                _scrubExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+            _scrubExecutor = null;
+        }
+
+        _log.info("Shut Down Data Scrubber");
+    }
+
+    /**
+     * Scrubs up to maxItems data items, continuing the current pass from where it left off.  If the end of the data
+     * items is reached, the pass is completed and the method returns, so the next call starts a new pass.
+     *
+     * @param maxItems The maximum number of data items to scrub.
+     *
+     * @return The number of data items that were scrubbed.
+     *
+     * @throws IOException If the scrubber's progress cannot be saved.
+     */
+    public synchronized int scrub(int maxItems) throws IOException {
+        int scrubbed = 0;
+
+        while ( scrubbed < maxItems && !_stopping ) {
+            List<String> dataIDs = _dataModel.getDataItemIDs(_cursor, Math.min(PAGE_SIZE, maxItems - scrubbed));
+            if ( dataIDs.isEmpty() ) {
+                _cursor = null;
+                _passesCompleted++;
+                _lastPassCompleted = System.currentTimeMillis();
+                saveState();
+                _log.info("Completed data scrub pass " + _passesCompleted);
+                break;
+            }
+
+            for ( String dataID : dataIDs ) {
+                try {
+                    scrubDataItem(dataID);
+                } catch ( InterruptedIOException e ) {
+                    // The scrubber is stopping.  The data item will be scrubbed again on resume.
+                    return scrubbed;
+                }
+
+                _cursor = dataID;
+                _itemsScrubbed++;
+                scrubbed++;
+                saveState();
+            }
+        }
+
+        return scrubbed;
+    }
+
+    // -------- Private Methods --------
+
+    /**
+     * Verifies the stored copy of a single data item, recording the result in the Data Model.
+     */
+    private void scrubDataItem(String dataID) throws IOException {
+        DataItemInfo dataItemInfo = _dataModel.getDataItem(dataID);
+        if ( dataItemInfo == null || dataItemInfo.isQuarantined() ) {
+            // Removed since the page was read, or already awaiting repair.
+            return;
+        }
+        String dataHash = dataItemInfo.getDataHash();
+
+        String version = null;
+        boolean intact;
+        try {
+            version = _dataStorageProvider.getDataVersion(dataID);
+
+            MessageDigest digest = HashUtilities.getDigest(dataHash);
+            try (OutputStream outputStream = new ThrottledOutputStream(new DigestOutputStream(NullOutputStream.NULL_OUTPUT_STREAM, digest))) {
+                _dataStorageProvider.fetchData(dataID, outputStream);
+            }
+            intact = HashUtilities.verifyDigest(dataHash, digest);
+        } catch ( NoSuchDataItemException e ) {
+            intact = false;
+        } catch ( NoSuchAlgorithmException | IllegalArgumentException e ) {
+            _log.warn("Unable to verify the hash of data item " + dataID, e);
+            intact = false;
+        }
+
+        // If the data item was replaced while it was being read, the result doesn't apply to it.  It will be checked
+        // again on the next pass.
+        dataItemInfo = _dataModel.getDataItem(dataID);
+        if ( dataItemInfo == null || !Objects.equals(dataHash, dataItemInfo.getDataHash())
+                || !Objects.equals(version, getDataVersion(dataID)) ) {
+            return;
+        }
+
+        if ( intact ) {
+            dataItemInfo.setVerifiedVersion(version);
+            dataItemInfo.setVerifiedHash(dataHash);
+            dataItemInfo.setLastVerified(System.currentTimeMillis());
+        } else {
+            _log.warn("Quarantining corrupt data item " + dataID);
+            dataItemInfo.setQuarantined(true);
+            if ( _leafHashCache != null ) {
+                _leafHashCache.invalidate(dataID);
+            }
+            _itemsQuarantined++;
+        }
+
+        try {
+            _dataModel.updateDataItem(dataItemInfo);
+        } catch ( NoSuchDataItemException e ) {
+            // NOOP - The data item was removed while it was being scrubbed.
+        }
+    }
+
+    private String getDataVersion(String dataID) throws IOException {
+        try {
+            return _dataStorageProvider.getDataVersion(dataID);
+        } catch ( NoSuchDataItemException e ) {
+            return null;
+        }
+    }
+
+    /**
+     * Blocks while the Data Storage Manager has foreground work in progress, or has had within the quiet period.
+     */
+    private void waitForForeground() throws InterruptedIOException {
+        if ( _dataStorageManager == null ) {
+            return;
+        }
+
+        while ( !_stopping ) {
+            long sinceLastOperation = System.currentTimeMillis() - _dataStorageManager.getLastOperationTime();
+            if ( _dataStorageManager.getActiveOperationCount() == 0 && sinceLastOperation >= _foregroundQuietPeriod ) {
+                return;
+            }
+            try {
+                Thread.sleep(_foregroundQuietPeriod);
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for foreground work");
+            }
+        }
+        throw new InterruptedIOException("The scrubber is stopping");
+    }
+
+    private void loadState() {
+        File stateFile = getStateFile();
+        if ( stateFile == null || !stateFile.exists() ) {
+            return;
+        }
+
+        Properties state = new Properties();
+        try (InputStream inputStream = new FileInputStream(stateFile)) {
+            state.load(inputStream);
+
+            _cursor = state.getProperty("cursor");
+            _passesCompleted = Long.parseLong(state.getProperty("passesCompleted", "0"));
+            _lastPassCompleted = Long.parseLong(state.getProperty("lastPassCompleted", "0"));
+            _itemsScrubbed = Long.parseLong(state.getProperty("itemsScrubbed", "0"));
+            _itemsQuarantined = Long.parseLong(state.getProperty("itemsQuarantined", "0"));
+            _bytesScrubbed = Long.parseLong(state.getProperty("bytesScrubbed", "0"));
+        } catch ( IOException | NumberFormatException e ) {
+            _log.warn("Unable to load the scrubber state.  Starting a new pass.", e);
+        }
+    }
+
+    private void saveState() throws IOException {
+        File stateFile = getStateFile();
+        if ( stateFile == null ) {
+            return;
+        }
+
+        Properties state = new Properties();
+        if ( _cursor != null ) {
+            state.setProperty("cursor", _cursor);
+        }
+        state.setProperty("passesCompleted", Long.toString(_passesCompleted));
+        state.setProperty("lastPassCompleted", Long.toString(_lastPassCompleted));
+        state.setProperty("itemsScrubbed", Long.toString(_itemsScrubbed));
+        state.setProperty("itemsQuarantined", Long.toString(_itemsQuarantined));
+        state.setProperty("bytesScrubbed", Long.toString(_bytesScrubbed));
+
+        // Write the new state beside the old one and rename it into place, so a crash never leaves a torn state file.
+        File tempFile = new File(stateFile.getPath() + ".tmp");
+        try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+            state.store(outputStream, "Data Scrubber State");
+        }
+        Files.move(tempFile.toPath(), stateFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private File getStateFile() {
+        if ( _statePath == null ) {
+            return null;
+        }
+        File stateDirectory = new File(_statePath);
+        if ( !stateDirectory.exists() && !stateDirectory.mkdirs() ) {
+            _log.warn("Unable to create the scrubber state directory " + stateDirectory);
+        }
+        return new File(stateDirectory, STATE_FILE_NAME);
+    }
+
+    // -------- Accessor Methods --------
+
+    public void setDataModel(DataModel dataModel) {
+        _dataModel = dataModel;
+    }
+
+    public void setDataStorageProvider(DataStorageProvider dataStorageProvider) {
+        _dataStorageProvider = dataStorageProvider;
+    }
+
+    public void setDataStorageManager(DataStorageManager dataStorageManager) {
+        _dataStorageManager = dataStorageManager;
+    }
+
+    public void setLeafHashCache(LeafHashCache leafHashCache) {
+        _leafHashCache = leafHashCache;
+    }
+
+    /**
+     * Sets whether the scrubber runs in the background.  Must be set before the scrubber is initialized.
+     */
+    public void setEnabled(boolean enabled) {
+        _enabled = enabled;
+    }
+
+    public void setStorageBasePath(String storageBasePath) {
+        this.storageBasePath = storageBasePath;
+    }
+
+    /**
+     * Sets the directory in which the scrubber saves its progress.
+     */
+    public void setStatePath(String statePath) {
+        _statePath = statePath;
+    }
+
+    /**
+     * Sets the maximum number of bytes per second the scrubber reads.
+     */
+    public void setBandwidthLimit(long bandwidthLimit) {
+        _bandwidthLimit = bandwidthLimit;
+        if ( _rateLimiter != null ) {
+            _rateLimiter.setRate(bandwidthLimit);
+        }
+    }
+
+    /**
+     * Sets the number of seconds from the end of one scrub pass to the start of the next.
+     */
+    public void setPassInterval(long passInterval) {
+        _passInterval = passInterval;
+    }
+
+    /**
+     * Sets how many milliseconds the Data Storage Manager must have been idle before the scrubber reads.
+     */
+    public void setForegroundQuietPeriod(long foregroundQuietPeriod) {
+        _foregroundQuietPeriod = foregroundQuietPeriod;
+    }
+
+    public String getCursor() {
+        return _cursor;
+    }
+
+    public long getPassesCompleted() {
+        return _passesCompleted;
+    }
+
+    public long getItemsScrubbed() {
+        return _itemsScrubbed;
+    }
+
+    public long getItemsQuarantined() {
+        return _itemsQuarantined;
+    }
+
+    public long getBytesScrubbed() {
+        return _bytesScrubbed;
+    }
+
+    // ======== Throttled Output Stream ========
+
+    /**
+     * Passes writes through only as fast as the rate limiter allows, and only while there is no foreground work.
+     */
+    private class ThrottledOutputStream extends FilterOutputStream {
+
+        private ThrottledOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            waitForForeground();
+            try {
+                _rateLimiter.acquire(len);
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling the scrubber");
+            }
+            out.write(b, off, len);
+            _bytesScrubbed += len;
+        }
+    }
+}
@@ -5,11 +5,25 @@ import io.topiacoin.node.exceptions.InitializationException;
 import io.topiacoin.node.exceptions.NoSuchContainerException;
 import io.topiacoin.node.exceptions.NoSuchDataItemException;
 import io.topiacoin.node.exceptions.CorruptDataItemException;
+import io.topiacoin.node.exceptions.QuotaExceededException;
+import io.topiacoin.node.model.CacheMetrics;
 import io.topiacoin.node.model.ContainerInfo;
 import io.topiacoin.node.model.DataItemInfo;
+import io.topiacoin.node.model.DataItemUpload;
+import io.topiacoin.node.model.DataItemUploadResult;
 import io.topiacoin.node.model.DataModel;
+import io.topiacoin.node.model.StorageUsage;
+import io.topiacoin.node.proof.LeafHashCache;
+import io.topiacoin.node.storage.provider.AsyncDataStorageProvider;
+import io.topiacoin.node.storage.provider.CachingDataStorageProvider;
 import io.topiacoin.node.storage.provider.DataStorageProvider;
+import io.topiacoin.node.storage.provider.MemoryDataStorageProvider;
+import io.topiacoin.node.storage.provider.OffHeapDataStorageProvider;
+import io.topiacoin.node.storage.provider.TieredDataStorageProvider;
 import io.topiacoin.node.utilities.HashUtilities;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,7 +36,29 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 public class DataStorageManager {
@@ -35,6 +71,52 @@ public class DataStorageManager {
     @Autowired
     private DataModel _dataModel;
 
+    // Forgets the challenge range hashes of data items whose stored copy is removed or found to have changed.
+    @Autowired
+    private LeafHashCache _leafHashCache;
+
+    // How reads decide whether a data item needs to be re-hashed.  Data items record the stored version they were last
+    // verified at, so unchanged data items can be trusted according to this policy.
+    private ReadIntegrityPolicy _readIntegrityPolicy = ReadIntegrityPolicy.TRUST_RECENT;
+
+    // How long a verification is trusted under the TRUST_RECENT policy, in milliseconds.
+    private long _trustPeriod = 24 * 60 * 60 * 1000L;
+
+    // The number of bytes of hot data items to cache in memory in front of the provider.  Zero disables the cache.
+    // Providers that already hold their data items in memory are never cached.
+    private long _cacheSize = 64L * 1024 * 1024;
+
+    private CachingDataStorageProvider _cachingDataStorageProvider;
+
+    // The most bytes of data items that may be stored in each container, and on the node as a whole.  Zero means
+    // unlimited.  Checked against the usage counters in the Data Model, which are kept up to date as data items are
+    // saved and removed.
+    private long _containerQuota = 0;
+    private long _nodeQuota = 0;
+
+    // Answers bulk existence queries from memory.  Kept in sync as data items are saved and removed.
+    private DataItemMembershipIndex _membershipIndex;
+    private int _membershipIndexContainers = DataItemMembershipIndex.DEFAULT_MAX_CONTAINERS;
+
+    // Verifies and stores the data items of batch uploads while the rest of the batch is still being received.  Also
+    // runs the asynchronous operations of providers that only have blocking methods.
+    private int _batchThreads = Runtime.getRuntime().availableProcessors();
+
+    private ExecutorService _batchExecutor;
+
+    // The number of saves and fetches in progress, and when the last one finished.  Background work such as the
+    // scrubber uses these to stay out of the way of foreground traffic.
+    private final AtomicInteger _activeOperations = new AtomicInteger();
+    private volatile long _lastOperationTime;
+
+    // Serializes changes to the reference count and blob of each data hash.  Striped so unrelated hashes rarely contend.
+    private final Object[] _blobLocks = new Object[64];
+    {
+        for (int i = 0; i < _blobLocks.length; i++) {
+            _blobLocks[i] = new Object();
+        }
+    }
+
     @PostConstruct
     public void initialize() {
         _log.info("Initializing Data Storage Manager" ) ;
@@ -46,12 +128,33 @@ public class DataStorageManager {
             throw new InitializationException("Failed to initialize the Data Storage Manager.  Data Storage Provider was not configured.");
         }
 
+        _batchExecutor = Executors.newFixedThreadPool(_batchThreads);
+
+        if ( _cacheSize > 0 && _cachingDataStorageProvider == null && !isMemoryResident(_dataStorageProvider) ) {
+            // The cache passes asynchronous calls through to the provider, and runs those of providers that only have
+            // blocking methods on the batch executor.
+            _cachingDataStorageProvider = new CachingDataStorageProvider(_dataStorageProvider, _cacheSize, _batchExecutor);
+            _cachingDataStorageProvider.initialize();
+            _dataStorageProvider = _cachingDataStorageProvider;
+        }
+        _membershipIndex = new DataItemMembershipIndex(_dataModel, _membershipIndexContainers);
+
         _log.info("Initialized Data Storage Manager" ) ;
     }
 
     @PreDestroy
     public void shutdown() {
         _log.info("Shutting Down Data Storage Manager" ) ;
+
+        if ( _batchExecutor != null ) {
+            _batchExecutor.shutdown();
+            _batchExecutor = null;
+        }
+
+        if ( _cachingDataStorageProvider != null ) {
+            _cachingDataStorageProvider.shutdown();
+        }
+
         _log.info("Shut Down Data Storage Manager" ) ;
     }
 
@@ -75,10 +178,41 @@ public class DataStorageManager {
      * @throws DataItemAlreadyExistsException If a data item with the specified dataID already exists in the specified
      *                                        container.
      * @throws CorruptDataItemException       If the provided data item doesn't match its cryptographic hash.
+     * @throws QuotaExceededException         If storing the data item would exceed the container or node quota.  The
+     *                                        size of a stream isn't known up front, so this is checked once the data
+     *                                        item has been stored, and the stored data is then discarded.
      * @throws IOException                    If their is an exception saving the data item.
      */
     public long saveData(String containerID, String dataID, String dataHash, InputStream dataStream)
-            throws IOException, DataItemAlreadyExistsException, CorruptDataItemException, NoSuchContainerException {
+            throws IOException, DataItemAlreadyExistsException, CorruptDataItemException, NoSuchContainerException,
+            QuotaExceededException {
+        return saveData(containerID, dataID, dataHash, dataStream, -1);
+    }
+
+    /**
+     * Saves the data read from the given dataStream, as saveData() does, passing the expected size of the data item to
+     * the Data Storage Provider so that it can hold space for the data item while it is written.  The expected size is
+     * also checked against the quotas before any of the data is read, so an upload that is known to be too large costs
+     * no I/O.  The actual size is checked again once the data item has been stored.
+     *
+     * @param containerID
+     * @param dataID       The ID of the data item that is being saved.
+     * @param dataHash     The cryptographic hash of this data item.
+     * @param dataStream   The InputStream containing the raw bytes of the data item.
+     * @param expectedSize The expected size of the data item in bytes, e.g. the upload's Content-Length, or -1 if it
+     *                     is not known.
+     *
+     * @return The size of the stored data item.
+     *
+     * @throws DataItemAlreadyExistsException If a data item with the specified dataID already exists in the specified
+     *                                        container.
+     * @throws CorruptDataItemException       If the provided data item doesn't match its cryptographic hash.
+     * @throws QuotaExceededException         If storing the data item would exceed the container or node quota.
+     * @throws IOException                    If their is an exception saving the data item.
+     */
+    public long saveData(String containerID, String dataID, String dataHash, InputStream dataStream, long expectedSize)
+            throws IOException, DataItemAlreadyExistsException, CorruptDataItemException, NoSuchContainerException,
+            QuotaExceededException {
 
         if ( hasData(containerID, dataID)) {
             throw new DataItemAlreadyExistsException("The specified data item already exists. (ID: " + dataID + ")");
@@ -88,19 +222,26 @@ public class DataStorageManager {
             throw new NoSuchContainerException("The specified container does not exist.");
         }
 
+        if ( expectedSize >= 0 ) {
+            checkQuota(containerID, expectedSize);
+        }
+
         long size = -1 ;
+        beginOperation();
         try {
-            if ( ! HashUtilities.verifyHash(dataHash, dataStream) ) {
-                throw new CorruptDataItemException("The specified data item does not match the specified hash" );
+            DataItemInfo dataItemInfo = storeDataItem(dataID, dataHash, dataStream, expectedSize);
+            try {
+                checkQuota(containerID, dataItemInfo.getSize());
+            } catch ( QuotaExceededException e ) {
+                discardDataItems(Collections.singletonList(dataItemInfo));
+                throw e;
             }
-            size = _dataStorageProvider.saveData(dataID, dataStream);
-
-            _dataModel.createDataItem(dataID, size, dataHash);
-            _dataModel.addDataItemToContainer(dataID, containerID);
-        } catch ( NoSuchAlgorithmException e ) {
-            throw new CorruptDataItemException( "Unable to verify the data hash.", e) ;
+            commitDataItems(containerID, Collections.singletonList(dataItemInfo));
+            size = dataItemInfo.getSize();
         } catch (NoSuchDataItemException e) {
             // NOOP - It should exist because we just created it!
+        } finally {
+            endOperation();
         }
 
         return size;
@@ -123,11 +264,138 @@ public class DataStorageManager {
      * @throws DataItemAlreadyExistsException If a data item with the specified dataID already exists in the specified
      *                                        container.
      * @throws CorruptDataItemException       If the provided data item doesn't match its cryptographic hash.
+     * @throws QuotaExceededException         If storing the data item would exceed the container or node quota.
      * @throws IOException                    If there is an exception saving the data item.
      */
     public void saveData(String containerID, String dataID, String dataHash, byte[] data)
-            throws IOException, DataItemAlreadyExistsException, CorruptDataItemException, NoSuchContainerException {
-        saveData(containerID, dataID, dataHash, new ByteArrayInputStream(data));
+            throws IOException, DataItemAlreadyExistsException, CorruptDataItemException, NoSuchContainerException,
+            QuotaExceededException {
+        saveData(containerID, dataID, dataHash, new ByteArrayInputStream(data), data.length);
+    }
+
+    /**
+     * Saves a batch of data items into the specified container.  Each data item is verified against its hash and
+     * stored as it arrives, on a pool of worker threads, while the following data items are still being read from the
+     * uploads iterator.  Once every data item has been stored, the data model entries for all of the successfully
+     * stored data items are created in a single transaction.
+     * <p>
+     * A data item that fails does not fail the batch.  The outcome of each data item is returned, in the order the
+     * data items were uploaded.  If reading the uploads fails part way through, none of the batch is saved.  The data
+     * stored for the data items received up to that point is discarded, and then the exception is thrown, so that a
+     * client retrying the batch does not find part of it already present.
+     * <p>
+     * Data items that would take the container or node over its quota are failed, and their stored data discarded.
+     *
+     * @param containerID
+     * @param uploads     The data items to save.  Reading failures are reported as UncheckedIOExceptions.
+     *
+     * @return The result of saving each data item.
+     *
+     * @throws NoSuchContainerException If the specified container does not exist.
+     * @throws IOException              If reading the uploads fails.
+     */
+    public List<DataItemUploadResult> saveData(String containerID, Iterator<DataItemUpload> uploads)
+            throws IOException, NoSuchContainerException {
+
+        if ( _dataModel.getContainer(containerID) == null ) {
+            throw new NoSuchContainerException("The specified container does not exist.");
+        }
+
+        // Bound the number of received data items waiting to be stored, as each one is held in memory.
+        Semaphore pending = new Semaphore(_batchThreads * 2);
+        List<Future<StagedDataItem>> futures = new ArrayList<>();
+        Set<String> batchIDs = new HashSet<>();
+        IOException readFailure = null;
+        try {
+            while ( uploads.hasNext() ) {
+                DataItemUpload upload = uploads.next();
+                if ( !batchIDs.add(upload.getDataID()) ) {
+                    StagedDataItem duplicate = new StagedDataItem(upload.getDataID());
+                    duplicate.fail(DataItemUploadResult.Status.ALREADY_EXISTS, "The data item appears more than once in the batch.");
+                    futures.add(CompletableFuture.completedFuture(duplicate));
+                    continue;
+                }
+                pending.acquireUninterruptibly();
+                futures.add(_batchExecutor.submit(new Callable<StagedDataItem>() {
+                    @Override
+                    public StagedDataItem call() {
+                        try {
+                            return stageDataItem(upload);
+                        } finally {
+                            pending.release();
+                        }
+                    }
+                }));
+            }
+        } catch ( UncheckedIOException e ) {
+            readFailure = e.getCause();
+        }
+
+        List<StagedDataItem> stagedItems = new ArrayList<>();
+        for ( Future<StagedDataItem> future : futures ) {
+            try {
+                stagedItems.add(future.get());
+            } catch ( InterruptedException | ExecutionException e ) {
+                throw new IOException("Failed to save the batch of data items", e);
+            }
+        }
+
+        if ( readFailure != null ) {
+            // The batch was truncated.  Discard what was stored before any of it is committed to the data model.
+            List<DataItemInfo> truncatedItems = new ArrayList<>();
+            for ( StagedDataItem stagedItem : stagedItems ) {
+                if ( stagedItem.dataItemInfo != null ) {
+                    truncatedItems.add(stagedItem.dataItemInfo);
+                }
+            }
+            discardDataItems(truncatedItems);
+            throw readFailure;
+        }
+
+        List<DataItemInfo> storedItems = new ArrayList<>();
+        List<DataItemInfo> overQuotaItems = new ArrayList<>();
+        long storedBytes = 0;
+        for ( StagedDataItem stagedItem : stagedItems ) {
+            if ( stagedItem.dataItemInfo != null ) {
+                try {
+                    checkQuota(containerID, storedBytes + stagedItem.dataItemInfo.getSize());
+                    storedBytes += stagedItem.dataItemInfo.getSize();
+                    storedItems.add(stagedItem.dataItemInfo);
+                } catch ( QuotaExceededException e ) {
+                    overQuotaItems.add(stagedItem.dataItemInfo);
+                    stagedItem.fail(DataItemUploadResult.Status.FAILED, e.getMessage());
+                }
+            }
+        }
+        discardDataItems(overQuotaItems);
+
+        if ( !storedItems.isEmpty() ) {
+            try {
+                _dataModel.createDataItems(storedItems, containerID);
+                recordDataItemsAdded(containerID, storedItems);
+            } catch ( NoSuchContainerException | RuntimeException e ) {
+                discardDataItems(storedItems);
+                throw e;
+            } catch ( DataItemAlreadyExistsException e ) {
+                // Another upload created one of the data items first.  Commit the rest of them one at a time.
+                for ( StagedDataItem stagedItem : stagedItems ) {
+                    if ( stagedItem.dataItemInfo != null ) {
+                        try {
+                            commitDataItems(containerID, Collections.singletonList(stagedItem.dataItemInfo));
+                        } catch ( DataItemAlreadyExistsException e1 ) {
+                            stagedItem.fail(DataItemUploadResult.Status.ALREADY_EXISTS, "The specified data item already exists.");
+                        }
+                    }
+                }
+            }
+        }
+
+        List<DataItemUploadResult> results = new ArrayList<>();
+        for ( StagedDataItem stagedItem : stagedItems ) {
+            results.add(stagedItem.getResult());
+        }
+
+        return results;
     }
 
     /**
@@ -153,17 +421,28 @@ public class DataStorageManager {
         }
         DataItemInfo dataItemInfo = _dataModel.getDataItem(dataID);
         String dataHash = dataItemInfo.getDataHash();
+        checkQuarantine(dataItemInfo);
 
-        _dataStorageProvider.fetchData(dataID, outputStream);
-        outputStream.close();
-        byte[] data = outputStream.toByteArray();
-
+        byte[] data;
+        beginOperation();
         try {
-            if (!HashUtilities.verifyHash(dataHash, data)) {
-                throw new CorruptDataItemException("The requested data item is corrupt.");
+            String version = _dataStorageProvider.getDataVersion(dataID);
+            _dataStorageProvider.fetchData(dataID, outputStream);
+            outputStream.close();
+            data = outputStream.toByteArray();
+
+            if (!isVerified(dataItemInfo, version)) {
+                try {
+                    if (!HashUtilities.verifyHash(dataHash, data)) {
+                        throw new CorruptDataItemException("The requested data item is corrupt.");
+                    }
+                } catch ( NoSuchAlgorithmException e ) {
+                        throw new CorruptDataItemException("Unable to verify the data integrity.", e);
+                }
+                recordVerification(dataItemInfo, version);
             }
-        } catch ( NoSuchAlgorithmException e ) {
-                throw new CorruptDataItemException("Unable to verify the data integrity.", e);
+        } finally {
+            endOperation();
         }
 
         return data;
@@ -173,6 +452,12 @@ public class DataStorageManager {
      * Retrieves the data with the specified dataID and containerID.  Before returning the data in the outputStream, its
      * integrity will be verified against the recorded hash to insure that it hasn't been corrupted.  If the data is
      * found to be corrupted, it will be purged from internal storage and an exception returned to the caller.
+     * <p>
+     * The data item is transferred to the outputStream directly from the Data Storage Provider without being buffered
+     * in memory.  Whether a data item that has not changed since it was last verified is re-hashed is governed by the
+     * read integrity policy.  A data item that must be re-hashed is read through the digest first, and only transferred
+     * once it matches, so nothing is written to the outputStream if it turns out to be corrupt.  A corrupt data item is
+     * quarantined until it is repaired.
      *
      *
      * @param containerID
@@ -186,9 +471,80 @@ public class DataStorageManager {
     public void fetchData(String containerID, String dataID, OutputStream outputStream)
             throws IOException, NoSuchDataItemException, CorruptDataItemException, NoSuchContainerException {
 
-        byte[] data = fetchData(containerID, dataID) ;
+        if (!hasData(containerID, dataID)) {
+            throw new NoSuchDataItemException("The requested Data Item does not exist in the specified container");
+        }
+        DataItemInfo dataItemInfo = _dataModel.getDataItem(dataID);
+        checkQuarantine(dataItemInfo);
+
+        beginOperation();
+        try {
+            verifyData(dataItemInfo);
+
+            long size = _dataStorageProvider.getDataSize(dataID);
+            _dataStorageProvider.transferData(dataID, 0, size, Channels.newChannel(outputStream));
+        } finally {
+            endOperation();
+        }
+    }
+
+    /**
+     * Retrieves a range of the data with the specified dataID and containerID.  The data item is verified according to
+     * the read integrity policy, as for a full fetch, before any of it is written to the outputStream.  The range is
+     * transferred directly from the Data Storage Provider, so file backed providers can use zero-copy transfers.
+     *
+     * @param containerID
+     * @param dataID       The ID of the data item that is being fetched.
+     * @param offset       The offset within the data item from which to read.
+     * @param length       The number of bytes within the data item to read.
+     * @param outputStream The OutputStream to which the range should be written.
+     *
+     * @throws NoSuchDataItemException  If the specified data item does not exist in the specified container.
+     * @throws CorruptDataItemException If the specified data item doesn't match its cryptographic hash.
+     * @throws IOException              If there is an exception reading the data item, or the range extends past the
+     *                                  end of the data item.
+     */
+    public void fetchData(String containerID, String dataID, long offset, long length, OutputStream outputStream)
+            throws IOException, NoSuchDataItemException, CorruptDataItemException, NoSuchContainerException {
+
+        if (!hasData(containerID, dataID)) {
+            throw new NoSuchDataItemException("The requested Data Item does not exist in the specified container");
+        }
+        DataItemInfo dataItemInfo = _dataModel.getDataItem(dataID);
+        checkQuarantine(dataItemInfo);
+
+        beginOperation();
+        try {
+            verifyData(dataItemInfo);
+
+            long size = _dataStorageProvider.getDataSize(dataID);
+            if (offset < 0 || length < 0 || offset + length > size) {
+                throw new IOException("The requested range is outside of the data item");
+            }
+            _dataStorageProvider.transferData(dataID, offset, length, Channels.newChannel(outputStream));
+        } finally {
+            endOperation();
+        }
+    }
+
+    /**
+     * Returns the size, in bytes, of the data item with the specified dataID and containerID.
+     *
+     * @param containerID
+     * @param dataID      The ID of the data item whose size is being requested.
+     *
+     * @return The size of the data item.
+     *
+     * @throws NoSuchDataItemException If the specified data item does not exist in the specified container.
+     * @throws IOException             If there is an exception checking the size of the data item.
+     */
+    public long getDataSize(String containerID, String dataID)
+            throws IOException, NoSuchDataItemException, NoSuchContainerException {
 
-        outputStream.write(data);
+        if (!hasData(containerID, dataID)) {
+            throw new NoSuchDataItemException("The requested Data Item does not exist in the specified container");
+        }
+        return _dataStorageProvider.getDataSize(dataID);
     }
 
     /**
@@ -213,7 +569,12 @@ public class DataStorageManager {
 
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
 
-        _dataStorageProvider.fetchData(dataID, offset, length, outputStream);
+        beginOperation();
+        try {
+            _dataStorageProvider.fetchData(dataID, offset, length, outputStream);
+        } finally {
+            endOperation();
+        }
         outputStream.close();
         byte[] data = outputStream.toByteArray();
 
@@ -238,11 +599,20 @@ public class DataStorageManager {
 
         try {
             removed = _dataModel.removeDataItemFromContainer(dataID, containerID);
+            _membershipIndex.removed(containerID, dataID);
+
+            DataItemInfo dataItemInfo = _dataModel.getDataItem(dataID);
+            if ( removed && dataItemInfo != null ) {
+                _dataModel.adjustStorageUsage(containerID, -dataItemInfo.getSize(), -1);
+            }
 
             // See if any other containers are using the specified data item
             if ( !_dataModel.isDataItemInAnyContainer(dataID) ) {
-                _dataStorageProvider.removeData(dataID);
+                removeStoredData(dataID);
                 _dataModel.removeDataItem(dataID);
+                if ( dataItemInfo != null ) {
+                    releaseBlob(dataItemInfo.getDataHash());
+                }
             }
         } catch ( NoSuchContainerException e ) {
             return false ;
@@ -251,6 +621,79 @@ public class DataStorageManager {
         return removed;
     }
 
+    /**
+     * Replaces the stored copy of a data item with the data in the given dataStream, which is verified against the
+     * data item's recorded hash.  This is used to repair data items that were found to be corrupt, and clears the
+     * data item's quarantine.  Since identical data items share their storage, the repaired copy becomes the shared
+     * blob, and every data item with the same hash is linked back to it and has its quarantine cleared as well.
+     *
+     * @param dataID     The ID of the data item that is being repaired.
+     * @param dataStream The InputStream containing a good copy of the raw bytes of the data item.
+     *
+     * @throws NoSuchDataItemException  If the specified data item does not exist.
+     * @throws CorruptDataItemException If the provided data doesn't match the data item's cryptographic hash.
+     * @throws IOException              If there is an exception saving the data item.
+     */
+    public void repairData(String dataID, InputStream dataStream)
+            throws IOException, NoSuchDataItemException, CorruptDataItemException {
+
+        DataItemInfo dataItemInfo = _dataModel.getDataItem(dataID);
+        if ( dataItemInfo == null ) {
+            throw new NoSuchDataItemException("The requested Data Item does not exist");
+        }
+        String dataHash = dataItemInfo.getDataHash();
+        String blobID = getBlobID(dataHash);
+
+        beginOperation();
+        try {
+            _dataStorageProvider.saveData(dataID, dataHash, dataStream, dataItemInfo.getSize());
+
+            List<String> repairedIDs = Collections.singletonList(dataID);
+            synchronized (getBlobLock(dataHash)) {
+                if ( _dataModel.getBlobReferenceCount(dataHash) > 0 ) {
+                    // Any of the links may be the corrupt copy, so relink every data item with the hash to the
+                    // repaired blob rather than just the one being repaired.
+                    _dataStorageProvider.linkData(dataID, blobID);
+                    repairedIDs = _dataModel.getDataItemIDsWithHash(dataHash);
+                    for ( String repairedID : repairedIDs ) {
+                        if ( !repairedID.equals(dataID) ) {
+                            _dataStorageProvider.linkData(blobID, repairedID);
+                        }
+                    }
+                }
+            }
+
+            for ( String repairedID : repairedIDs ) {
+                DataItemInfo repairedItemInfo = ( repairedID.equals(dataID) ? dataItemInfo : _dataModel.getDataItem(repairedID) );
+                if ( repairedItemInfo == null ) {
+                    // Removed since the data items with the hash were looked up.
+                    continue;
+                }
+                invalidateLeafHashes(repairedID);
+                repairedItemInfo.setQuarantined(false);
+                recordVerification(repairedItemInfo, _dataStorageProvider.getDataVersion(repairedID));
+            }
+
+            _log.info("Repaired data item " + dataID + ( repairedIDs.size() > 1 ? " and " + (repairedIDs.size() - 1) + " data item(s) sharing its data" : "" ));
+        } finally {
+            endOperation();
+        }
+    }
+
+    /**
+     * Returns the number of saves and fetches that are currently in progress.
+     */
+    public int getActiveOperationCount() {
+        return _activeOperations.get();
+    }
+
+    /**
+     * Returns the time, in milliseconds since the epoch, at which the last save or fetch finished.
+     */
+    public long getLastOperationTime() {
+        return _lastOperationTime;
+    }
+
     /**
      * Returns whether the data item with the specified dataID and containerID is present in the Data Storage subsystem.
      * If the data is stored, its integrity will be verified against the recorded hash to insure it hasn't been
@@ -273,11 +716,851 @@ public class DataStorageManager {
         return _dataStorageProvider.hasData(dataID);
     }
 
-    public void setDataStorageProvider(DataStorageProvider dataStorageProvider) {
-        _dataStorageProvider = dataStorageProvider;
+    /**
+     * Returns which of the given data items are in the specified container.  The data items are looked up in an
+     * in-memory index of each container's data items, with a Bloom filter ruling out most absent ones, so it is suitable
+     * for checking thousands of data items at once.  Unlike hasData(), it neither touches the Data Storage Provider nor
+     * verifies the data items.
+     *
+     * @param containerID
+     * @param dataIDs     The IDs of the data items whose existence is being queried.
+     *
+     * @return The IDs of the data items that are in the specified container, in the order they were given.
+     *
+     * @throws NoSuchContainerException If the specified container does not exist.
+     */
+    public List<String> findPresentData(String containerID, Collection<String> dataIDs)
+            throws NoSuchContainerException {
+        if ( _dataModel.getContainer(containerID) == null ) {
+            _membershipIndex.invalidate(containerID);
+            throw new NoSuchContainerException("The specified container does not exist");
+        }
+        return _membershipIndex.findPresent(containerID, dataIDs);
     }
 
-    public void setDataModel(DataModel dataModel) {
-        _dataModel = dataModel;
+    /**
+     * Saves the given data without blocking while it is written.  The checks made by the blocking save are made before
+     * this method returns, and the data item is then verified and stored asynchronously.  If the Data Storage Provider
+     * is an {@link AsyncDataStorageProvider}, no thread is held while the data is written.
+     *
+     * @param containerID
+     * @param dataID      The ID of the data item that is being saved.
+     * @param dataHash    The cryptographic hash of this data item.
+     * @param data        The array containing the raw bytes of this data item.
+     *
+     * @return A future that completes with the size of the stored data item, or fails with a CorruptDataItemException
+     * if the data doesn't match its hash, or an IOException if it can't be stored.
+     *
+     * @throws DataItemAlreadyExistsException If a data item with the specified dataID already exists in the specified
+     *                                        container.
+     * @throws NoSuchContainerException       If the specified container does not exist.
+     * @throws QuotaExceededException         If storing the data item would exceed the container or node quota.
+     * @throws IOException                    If there is an exception checking for the data item.
+     */
+    public CompletableFuture<Long> saveDataAsync(String containerID, String dataID, String dataHash, byte[] data)
+            throws IOException, DataItemAlreadyExistsException, NoSuchContainerException, QuotaExceededException {
+
+        if ( hasData(containerID, dataID)) {
+            throw new DataItemAlreadyExistsException("The specified data item already exists. (ID: " + dataID + ")");
+        }
+
+        if ( _dataModel.getContainer(containerID)== null) {
+            throw new NoSuchContainerException("The specified container does not exist.");
+        }
+
+        checkQuota(containerID, data.length);
+
+        beginOperation();
+        return storeBlobAsync(dataID, dataHash, data).thenApply(stored -> {
+            try {
+                DataItemInfo dataItemInfo = createDataItemInfo(dataID, dataHash);
+                commitDataItems(containerID, Collections.singletonList(dataItemInfo));
+                return dataItemInfo.getSize();
+            } catch ( IOException | NoSuchDataItemException | DataItemAlreadyExistsException | NoSuchContainerException e ) {
+                throw new CompletionException(e);
+            }
+        }).whenComplete((size, throwable) -> endOperation());
+    }
+
+    /**
+     * Retrieves the data with the specified dataID and containerID without blocking while it is read.  The data item
+     * is verified according to the read integrity policy, as for a blocking fetch.
+     *
+     * @param containerID
+     * @param dataID      The ID of the data item that is being fetched.
+     *
+     * @return A future that completes with the raw bytes of the data item, or fails with a CorruptDataItemException if
+     * the data item doesn't match its hash.
+     *
+     * @throws NoSuchDataItemException  If the specified data item does not exist in the specified container.
+     * @throws CorruptDataItemException If the specified data item is quarantined.
+     * @throws IOException              If there is an exception checking the data item.
+     */
+    public CompletableFuture<byte[]> fetchDataAsync(String containerID, String dataID)
+            throws IOException, NoSuchDataItemException, CorruptDataItemException, NoSuchContainerException {
+
+        if (!hasData(containerID, dataID)) {
+            throw new NoSuchDataItemException("The requested Data Item does not exist in the specified container");
+        }
+        DataItemInfo dataItemInfo = _dataModel.getDataItem(dataID);
+        checkQuarantine(dataItemInfo);
+        String version = _dataStorageProvider.getDataVersion(dataID);
+
+        beginOperation();
+        return fetchAsync(dataID).thenApply(buffer -> {
+            byte[] data = toByteArray(buffer);
+            verifyData(dataItemInfo, version, data);
+            return data;
+        }).whenComplete((data, throwable) -> endOperation());
+    }
+
+    /**
+     * Retrieves a range of the data with the specified dataID and containerID without blocking while it is read.  If
+     * the read integrity policy requires the data item to be verified, the whole data item is read and verified, and
+     * the range is taken from it.  Otherwise only the range is read.
+     *
+     * @param containerID
+     * @param dataID      The ID of the data item that is being fetched.
+     * @param offset      The offset within the data item from which to read.
+     * @param length      The number of bytes within the data item to read.
+     *
+     * @return A future that completes with the raw bytes of the range, or fails with a CorruptDataItemException if the
+     * data item doesn't match its hash.
+     *
+     * @throws NoSuchDataItemException  If the specified data item does not exist in the specified container.
+     * @throws CorruptDataItemException If the specified data item is quarantined.
+     * @throws IOException              If there is an exception checking the data item, or the range extends past the
+     *                                  end of the data item.
+     */
+    public CompletableFuture<byte[]> fetchDataAsync(String containerID, String dataID, long offset, int length)
+            throws IOException, NoSuchDataItemException, CorruptDataItemException, NoSuchContainerException {
+
+        if (!hasData(containerID, dataID)) {
+            throw new NoSuchDataItemException("The requested Data Item does not exist in the specified container");
+        }
+        DataItemInfo dataItemInfo = _dataModel.getDataItem(dataID);
+        checkQuarantine(dataItemInfo);
+        String version = _dataStorageProvider.getDataVersion(dataID);
+
+        long size = _dataStorageProvider.getDataSize(dataID);
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw new IOException("The requested range is outside of the data item");
+        }
+
+        CompletableFuture<byte[]> future;
+        beginOperation();
+        if (isVerified(dataItemInfo, version)) {
+            future = fetchAsync(dataID, offset, length).thenApply(DataStorageManager::toByteArray);
+        } else {
+            future = fetchAsync(dataID).thenApply(buffer -> {
+                byte[] data = toByteArray(buffer);
+                verifyData(dataItemInfo, version, data);
+                return Arrays.copyOfRange(data, (int) offset, (int) offset + length);
+            });
+        }
+        return future.whenComplete((data, throwable) -> endOperation());
+    }
+
+    /**
+     * Removes the data item with the specified dataID and containerID without blocking while it is removed from
+     * storage.  The data model is updated before this method returns.
+     *
+     * @param containerID
+     * @param dataID      The ID of the data item that is being removed.
+     *
+     * @return A future that completes with true if the specified data item was removed, or false if it was not found.
+     */
+    public CompletableFuture<Boolean> removeDataAsync(String containerID, String dataID) {
+        boolean removed;
+        try {
+            removed = _dataModel.removeDataItemFromContainer(dataID, containerID);
+        } catch ( NoSuchContainerException e ) {
+            return CompletableFuture.completedFuture(false);
+        }
+        _membershipIndex.removed(containerID, dataID);
+
+        DataItemInfo dataItemInfo = _dataModel.getDataItem(dataID);
+        if ( removed && dataItemInfo != null ) {
+            _dataModel.adjustStorageUsage(containerID, -dataItemInfo.getSize(), -1);
+        }
+
+        // See if any other containers are using the specified data item
+        if ( _dataModel.isDataItemInAnyContainer(dataID) ) {
+            return CompletableFuture.completedFuture(removed);
+        }
+
+        return removeAsync(dataID).thenApply(storageRemoved -> {
+            _dataModel.removeDataItem(dataID);
+            if ( dataItemInfo != null ) {
+                try {
+                    releaseBlob(dataItemInfo.getDataHash());
+                } catch ( IOException e ) {
+                    throw new CompletionException(e);
+                }
+            }
+            return removed;
+        });
+    }
+
+    /**
+     * Checks whether the data item with the specified dataID and containerID is stored, without blocking while the
+     * Data Storage Provider is checked.
+     *
+     * @param containerID
+     * @param dataID      The ID of the data item whose existence is being queried.
+     *
+     * @return A future that completes with true if the data item exists in the specified container, or false if it does
+     * not.
+     *
+     * @throws NoSuchContainerException If the specified container does not exist.
+     */
+    public CompletableFuture<Boolean> hasDataAsync(String containerID, String dataID)
+            throws NoSuchContainerException {
+        ContainerInfo containerInfo = _dataModel.getContainer(containerID) ;
+        if ( containerInfo == null ) {
+            throw new NoSuchContainerException("The specified container does not exist");
+        }
+        return hasAsync(dataID);
+    }
+
+    /**
+     * Checks whether storing the given number of additional bytes in the specified container would exceed the
+     * container's quota or the node's quota.  Uploads can call this with their Content-Length to be rejected before
+     * any of their data is read.  Concurrent uploads are each checked against the usage before any of them is
+     * recorded, so together they may overshoot a quota by up to their combined size.
+     *
+     * @param containerID
+     * @param size        The number of bytes that are about to be stored.
+     *
+     * @throws QuotaExceededException If storing the bytes would exceed a quota.
+     */
+    public void checkQuota(String containerID, long size) throws QuotaExceededException {
+        if ( _containerQuota > 0 && _dataModel.getStorageUsage(containerID).getBytes() + size > _containerQuota ) {
+            throw new QuotaExceededException("The upload would exceed the container's storage quota");
+        }
+        if ( _nodeQuota > 0 && _dataModel.getNodeStorageUsage().getBytes() + size > _nodeQuota ) {
+            throw new QuotaExceededException("The upload would exceed the node's storage quota");
+        }
+    }
+
+    /**
+     * Returns the number of data items, and their total size, stored in the specified container.
+     */
+    public StorageUsage getStorageUsage(String containerID) {
+        return _dataModel.getStorageUsage(containerID);
+    }
+
+    /**
+     * Returns the number of distinct blobs, and their total size, stored on the node across all containers.  Data items
+     * that share a blob through deduplication are only counted once.
+     */
+    public StorageUsage getNodeStorageUsage() {
+        return _dataModel.getNodeStorageUsage();
+    }
+
+    // -------- Private Methods --------
+
+    /**
+     * Stores a data item, verified against its hash, without recording it in the data model.  Returns the data item's
+     * model entry, with its verification record filled in, ready to be committed.
+     */
+    private DataItemInfo storeDataItem(String dataID, String dataHash, InputStream dataStream, long expectedSize)
+            throws IOException, CorruptDataItemException, NoSuchDataItemException {
+
+        storeBlob(dataID, dataHash, dataStream, expectedSize);
+
+        return createDataItemInfo(dataID, dataHash);
+    }
+
+    /**
+     * Creates the model entry for a data item that has just been stored.
+     */
+    private DataItemInfo createDataItemInfo(String dataID, String dataHash)
+            throws IOException, NoSuchDataItemException {
+
+        DataItemInfo dataItemInfo = new DataItemInfo(dataID, _dataStorageProvider.getDataSize(dataID), dataHash);
+
+        // The data was verified on the way in, so there is no need to hash it again on the first read.
+        dataItemInfo.setVerifiedVersion(_dataStorageProvider.getDataVersion(dataID));
+        dataItemInfo.setVerifiedHash(dataHash);
+        dataItemInfo.setLastVerified(System.currentTimeMillis());
+
+        return dataItemInfo;
+    }
+
+    /**
+     * Creates the data model entries for stored data items in one transaction.  If that fails, the stored data items
+     * are discarded.
+     */
+    private void commitDataItems(String containerID, List<DataItemInfo> dataItems)
+            throws IOException, DataItemAlreadyExistsException, NoSuchContainerException {
+        try {
+            _dataModel.createDataItems(dataItems, containerID);
+        } catch ( DataItemAlreadyExistsException | NoSuchContainerException | RuntimeException e ) {
+            discardDataItems(dataItems);
+            throw e;
+        }
+        recordDataItemsAdded(containerID, dataItems);
+    }
+
+    /**
+     * Adds newly created data items to the membership index and the container's usage counters.
+     */
+    private void recordDataItemsAdded(String containerID, List<DataItemInfo> dataItems) {
+        _membershipIndex.added(containerID, getDataItemIDs(dataItems));
+
+        long bytes = 0;
+        for ( DataItemInfo dataItem : dataItems ) {
+            bytes += dataItem.getSize();
+        }
+        _dataModel.adjustStorageUsage(containerID, bytes, dataItems.size());
+    }
+
+    private List<String> getDataItemIDs(List<DataItemInfo> dataItems) {
+        List<String> dataIDs = new ArrayList<>(dataItems.size());
+        for ( DataItemInfo dataItem : dataItems ) {
+            dataIDs.add(dataItem.getId());
+        }
+        return dataIDs;
+    }
+
+    /**
+     * Removes stored data items whose data model entries could not be created.
+     */
+    private void discardDataItems(List<DataItemInfo> dataItems) throws IOException {
+        for ( DataItemInfo dataItem : dataItems ) {
+            // A data item that is already in the model was stored by another upload, so its data is in use.
+            if ( _dataModel.getDataItem(dataItem.getId()) == null ) {
+                removeStoredData(dataItem.getId());
+            }
+            releaseBlob(dataItem.getDataHash());
+        }
+    }
+
+    /**
+     * Verifies and stores one data item of a batch upload, capturing any failure as its result.
+     */
+    private StagedDataItem stageDataItem(DataItemUpload upload) {
+        String dataID = upload.getDataID();
+        StagedDataItem stagedItem = new StagedDataItem(dataID);
+
+        beginOperation();
+        try {
+            if ( _dataStorageProvider.hasData(dataID) ) {
+                stagedItem.fail(DataItemUploadResult.Status.ALREADY_EXISTS, "The specified data item already exists.");
+            } else {
+                byte[] data = upload.getData();
+                stagedItem.dataItemInfo = storeDataItem(dataID, upload.getDataHash(), new ByteArrayInputStream(data),
+                        data.length);
+            }
+        } catch ( CorruptDataItemException e ) {
+            stagedItem.fail(DataItemUploadResult.Status.CORRUPT, e.getMessage());
+        } catch ( IOException | NoSuchDataItemException | RuntimeException e ) {
+            _log.warn("Failed to save data item " + dataID, e);
+            stagedItem.fail(DataItemUploadResult.Status.FAILED, e.getMessage());
+        } finally {
+            endOperation();
+        }
+
+        return stagedItem;
+    }
+
+    /**
+     * Stores the data item with content-addressed deduplication.  Each distinct hash is stored once as a blob, and every
+     * data item with that hash is a link to it, with the number of links counted in the Data Model.
+     * <p>
+     * If a blob with the hash already exists, the data stream is still read in full and verified against the hash, so
+     * a client can't claim a data item it doesn't have just by knowing its hash.  The bytes are then discarded and the
+     * data item linked to the blob.  Otherwise the stream is saved (and verified) under the dataID, and then linked into
+     * place as the blob.  The blob is only reclaimed when the last data item referencing it is removed.  Each link is a
+     * full reference to the data, so removing a blob early never loses data, it only loses the sharing.
+     */
+    private void storeBlob(String dataID, String dataHash, InputStream dataStream, long expectedSize)
+            throws IOException, CorruptDataItemException, NoSuchDataItemException {
+
+        if ( pinExistingBlob(dataHash) ) {
+            linkPinnedBlob(dataID, dataHash, dataStream);
+            return;
+        }
+
+        // The provider hashes the data as it writes it and only commits it if the hash matches, so the stream is read
+        // exactly once.  This is done outside the lock so uploads of unrelated data aren't serialized.
+        _dataStorageProvider.saveData(dataID, dataHash, dataStream, expectedSize);
+
+        commitBlob(dataID, dataHash);
+    }
+
+    /**
+     * Stores the data item with content-addressed deduplication, as storeBlob() does, saving the data asynchronously
+     * if it isn't already stored as a blob.
+     */
+    private CompletableFuture<Void> storeBlobAsync(String dataID, String dataHash, byte[] data) {
+        try {
+            if ( pinExistingBlob(dataHash) ) {
+                return CompletableFuture.runAsync(() -> {
+                    try {
+                        linkPinnedBlob(dataID, dataHash, new ByteArrayInputStream(data));
+                    } catch ( IOException | CorruptDataItemException | NoSuchDataItemException e ) {
+                        throw new CompletionException(e);
+                    }
+                }, _batchExecutor);
+            }
+        } catch ( IOException | CorruptDataItemException e ) {
+            return failedFuture(e);
+        }
+
+        return saveAsync(dataID, dataHash, data).thenAccept(size -> {
+            try {
+                commitBlob(dataID, dataHash);
+            } catch ( IOException | CorruptDataItemException | NoSuchDataItemException e ) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Takes a reference to the existing blob with the given hash, if there is one, so it can't be removed while the
+     * data item's stream is verified.  Returns true if the blob was pinned, or false if the data needs to be saved.
+     */
+    private boolean pinExistingBlob(String dataHash) throws IOException, CorruptDataItemException {
+
+        String blobID = getBlobID(dataHash);
+
+        synchronized (getBlobLock(dataHash)) {
+            if ( _dataModel.getBlobReferenceCount(dataHash) > 0 && _dataStorageProvider.hasData(blobID) ) {
+                _dataModel.incrementBlobReferenceCount(dataHash);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Verifies the data stream against the hash of a pinned blob, then links the data item to the blob.  The pinned
+     * reference becomes the data item's reference, or is dropped if the data doesn't match.
+     */
+    private void linkPinnedBlob(String dataID, String dataHash, InputStream dataStream)
+            throws IOException, CorruptDataItemException, NoSuchDataItemException {
+
+        boolean linked = false;
+        try {
+            MessageDigest digest;
+            try {
+                digest = HashUtilities.getDigest(dataHash);
+            } catch ( NoSuchAlgorithmException e ) {
+                throw new CorruptDataItemException("Unable to verify the data hash.", e);
+            }
+            try (DigestOutputStream digestStream = new DigestOutputStream(NullOutputStream.NULL_OUTPUT_STREAM, digest)) {
+                IOUtils.copy(dataStream, digestStream);
+            }
+            if ( !HashUtilities.verifyDigest(dataHash, digest) ) {
+                throw new CorruptDataItemException("The specified data item does not match the specified hash");
+            }
+
+            synchronized (getBlobLock(dataHash)) {
+                _dataStorageProvider.linkData(getBlobID(dataHash), dataID);
+            }
+            linked = true;
+        } finally {
+            if ( !linked ) {
+                releaseBlob(dataHash);
+            }
+        }
+    }
+
+    /**
+     * Makes a newly saved data item the blob for its hash, or links it to the blob if another upload of the same data
+     * created one while it was being saved.
+     */
+    private void commitBlob(String dataID, String dataHash)
+            throws IOException, CorruptDataItemException, NoSuchDataItemException {
+
+        String blobID = getBlobID(dataHash);
+
+        synchronized (getBlobLock(dataHash)) {
+            if ( _dataModel.getBlobReferenceCount(dataHash) > 0 && _dataStorageProvider.hasData(blobID) ) {
+                // Another upload of the same data finished first.  Share its copy instead.
+                _dataStorageProvider.linkData(blobID, dataID);
+            } else {
+                _dataStorageProvider.linkData(dataID, blobID);
+            }
+            _dataModel.incrementBlobReferenceCount(dataHash);
+        }
+    }
+
+    /**
+     * Drops one reference to the blob with the given hash, removing the blob once nothing references it.
+     */
+    private void releaseBlob(String dataHash) throws IOException {
+        String blobID;
+        try {
+            blobID = getBlobID(dataHash);
+        } catch ( CorruptDataItemException e ) {
+            _log.warn("Unable to release the blob for hash " + dataHash, e);
+            return;
+        }
+
+        synchronized (getBlobLock(dataHash)) {
+            if ( _dataModel.decrementBlobReferenceCount(dataHash) == 0 ) {
+                removeStoredData(blobID);
+            }
+        }
+    }
+
+    /**
+     * Returns the storage ID of the blob holding the data with the given hash.  The ID is the hex encoded hash followed
+     * by the algorithm, so it spreads across the file system provider's directory tree like a data item ID.
+     */
+    private String getBlobID(String dataHash) throws CorruptDataItemException {
+        try {
+            HashUtilities.HashInfo hashInfo = new HashUtilities.HashInfo(dataHash);
+            if ( hashInfo.getHash().length == 0 ) {
+                throw new CorruptDataItemException("Unable to verify the data hash.");
+            }
+            return Hex.encodeHexString(hashInfo.getHash()) + "." + hashInfo.getAlgorithm().replace("-", "").toLowerCase();
+        } catch ( RuntimeException e ) {
+            throw new CorruptDataItemException("Unable to verify the data hash.", e);
+        }
+    }
+
+    /**
+     * Returns whether the provider already serves its data items from memory, so a cache in front of it would only
+     * hold a second copy.
+     */
+    private static boolean isMemoryResident(DataStorageProvider dataStorageProvider) {
+        return dataStorageProvider instanceof MemoryDataStorageProvider
+                || dataStorageProvider instanceof OffHeapDataStorageProvider
+                || dataStorageProvider instanceof TieredDataStorageProvider
+                || dataStorageProvider instanceof CachingDataStorageProvider;
+    }
+
+    private void beginOperation() {
+        _activeOperations.incrementAndGet();
+    }
+
+    private void endOperation() {
+        _lastOperationTime = System.currentTimeMillis();
+        _activeOperations.decrementAndGet();
+    }
+
+    private void checkQuarantine(DataItemInfo dataItemInfo) throws CorruptDataItemException {
+        if ( dataItemInfo.isQuarantined() ) {
+            throw new CorruptDataItemException("The requested data item is corrupt and awaiting repair.");
+        }
+    }
+
+    private Object getBlobLock(String dataHash) {
+        return _blobLocks[(dataHash.hashCode() & 0x7fffffff) % _blobLocks.length];
+    }
+
+    /**
+     * Verifies the stored data item against its hash, unless the read integrity policy trusts the verification record
+     * of the data item.  The data item is streamed through the digest without being buffered.  If the data doesn't
+     * match its hash, the data item is quarantined until it is repaired, as the Data Scrubber would have done.
+     */
+    private void verifyData(DataItemInfo dataItemInfo)
+            throws IOException, NoSuchDataItemException, CorruptDataItemException {
+
+        String dataID = dataItemInfo.getId();
+        String dataHash = dataItemInfo.getDataHash();
+        String version = _dataStorageProvider.getDataVersion(dataID);
+        if (isVerified(dataItemInfo, version)) {
+            return;
+        }
+
+        try {
+            MessageDigest digest = HashUtilities.getDigest(dataHash);
+            try (DigestOutputStream digestStream = new DigestOutputStream(NullOutputStream.NULL_OUTPUT_STREAM, digest)) {
+                _dataStorageProvider.fetchData(dataID, digestStream);
+            }
+            if (!HashUtilities.verifyDigest(dataHash, digest)) {
+                quarantineCorruptData(dataItemInfo);
+                throw new CorruptDataItemException("The requested data item is corrupt.");
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new CorruptDataItemException("Unable to verify the data integrity.", e);
+        }
+
+        recordVerification(dataItemInfo, version);
+    }
+
+    /**
+     * Marks a data item that failed verification as quarantined, so that it isn't served again until it is repaired.
+     */
+    private void quarantineCorruptData(DataItemInfo dataItemInfo) {
+        _log.warn("Data item " + dataItemInfo.getId() + " failed verification while being fetched.  Quarantining it.");
+        dataItemInfo.setQuarantined(true);
+        invalidateLeafHashes(dataItemInfo.getId());
+        try {
+            _dataModel.updateDataItem(dataItemInfo);
+        } catch (NoSuchDataItemException e) {
+            // NOOP - The data item was removed while it was being read.
+        }
+    }
+
+    /**
+     * Returns whether the data item can be read without re-hashing it.  The data item must have been verified against
+     * its current hash at its currently stored version, and the verification must be recent enough for the policy.
+     */
+    private boolean isVerified(DataItemInfo dataItemInfo, String version) {
+        if ( _readIntegrityPolicy == ReadIntegrityPolicy.ALWAYS ) {
+            return false;
+        }
+        if ( dataItemInfo.getVerifiedVersion() == null || !dataItemInfo.getVerifiedVersion().equals(version) ) {
+            return false;
+        }
+        if ( dataItemInfo.getVerifiedHash() == null || !dataItemInfo.getVerifiedHash().equals(dataItemInfo.getDataHash()) ) {
+            return false;
+        }
+        if ( _readIntegrityPolicy == ReadIntegrityPolicy.TRUST_RECENT ) {
+            return System.currentTimeMillis() - dataItemInfo.getLastVerified() < _trustPeriod;
+        }
+        return true;
+    }
+
+    /**
+     * Records in the Data Model that the given version of the data item has just been verified against its hash.
+     */
+    private void recordVerification(DataItemInfo dataItemInfo, String version) {
+        if ( dataItemInfo.getVerifiedVersion() != null && !dataItemInfo.getVerifiedVersion().equals(version) ) {
+            // The stored copy changed since it was last verified, so hashes of its ranges may be stale.
+            invalidateLeafHashes(dataItemInfo.getId());
+        }
+        dataItemInfo.setVerifiedVersion(version);
+        dataItemInfo.setVerifiedHash(dataItemInfo.getDataHash());
+        dataItemInfo.setLastVerified(System.currentTimeMillis());
+        try {
+            _dataModel.updateDataItem(dataItemInfo);
+        } catch ( NoSuchDataItemException e ) {
+            // NOOP - The data item was removed while it was being read.
+        }
+    }
+
+    /**
+     * Verifies data that has been read in full against the data item's hash, unless the read integrity policy trusts
+     * the verification record of the data item.  Failures are thrown as CompletionExceptions.
+     */
+    private void verifyData(DataItemInfo dataItemInfo, String version, byte[] data) {
+        if (isVerified(dataItemInfo, version)) {
+            return;
+        }
+
+        try {
+            if (!HashUtilities.verifyHash(dataItemInfo.getDataHash(), data)) {
+                throw new CompletionException(new CorruptDataItemException("The requested data item is corrupt."));
+            }
+        } catch ( NoSuchAlgorithmException e ) {
+            throw new CompletionException(new CorruptDataItemException("Unable to verify the data integrity.", e));
+        }
+        recordVerification(dataItemInfo, version);
+    }
+
+    // The asynchronous operations of the Data Storage Provider.  Providers without asynchronous methods have their
+    // blocking methods run on the batch executor instead.
+
+    private CompletableFuture<Long> saveAsync(String dataID, String dataHash, byte[] data) {
+        if ( _dataStorageProvider instanceof AsyncDataStorageProvider ) {
+            return ((AsyncDataStorageProvider) _dataStorageProvider).saveDataAsync(dataID, dataHash, data);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return _dataStorageProvider.saveData(dataID, dataHash, new ByteArrayInputStream(data));
+            } catch ( IOException | CorruptDataItemException e ) {
+                throw new CompletionException(e);
+            }
+        }, _batchExecutor);
+    }
+
+    private CompletableFuture<ByteBuffer> fetchAsync(String dataID) {
+        if ( _dataStorageProvider instanceof AsyncDataStorageProvider ) {
+            return ((AsyncDataStorageProvider) _dataStorageProvider).fetchDataAsync(dataID);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                _dataStorageProvider.fetchData(dataID, outputStream);
+                return ByteBuffer.wrap(outputStream.toByteArray());
+            } catch ( IOException | NoSuchDataItemException e ) {
+                throw new CompletionException(e);
+            }
+        }, _batchExecutor);
+    }
+
+    private CompletableFuture<ByteBuffer> fetchAsync(String dataID, long offset, int length) {
+        if ( _dataStorageProvider instanceof AsyncDataStorageProvider ) {
+            return ((AsyncDataStorageProvider) _dataStorageProvider).fetchDataAsync(dataID, offset, length);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream(length);
+                _dataStorageProvider.transferData(dataID, offset, length, Channels.newChannel(outputStream));
+                return ByteBuffer.wrap(outputStream.toByteArray());
+            } catch ( IOException | NoSuchDataItemException e ) {
+                throw new CompletionException(e);
+            }
+        }, _batchExecutor);
+    }
+
+    /**
+     * Removes a data item from storage, along with any cached hashes of its challenge ranges.
+     */
+    private boolean removeStoredData(String dataID) throws IOException {
+        invalidateLeafHashes(dataID);
+        return _dataStorageProvider.removeData(dataID);
+    }
+
+    private void invalidateLeafHashes(String dataID) {
+        if ( _leafHashCache != null ) {
+            _leafHashCache.invalidate(dataID);
+        }
+    }
+
+    private CompletableFuture<Boolean> removeAsync(String dataID) {
+        invalidateLeafHashes(dataID);
+        if ( _dataStorageProvider instanceof AsyncDataStorageProvider ) {
+            return ((AsyncDataStorageProvider) _dataStorageProvider).removeDataAsync(dataID);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return _dataStorageProvider.removeData(dataID);
+            } catch ( IOException e ) {
+                throw new CompletionException(e);
+            }
+        }, _batchExecutor);
+    }
+
+    private CompletableFuture<Boolean> hasAsync(String dataID) {
+        if ( _dataStorageProvider instanceof AsyncDataStorageProvider ) {
+            return ((AsyncDataStorageProvider) _dataStorageProvider).hasDataAsync(dataID);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return _dataStorageProvider.hasData(dataID);
+            } catch ( IOException e ) {
+                throw new CompletionException(e);
+            }
+        }, _batchExecutor);
+    }
+
+    private static byte[] toByteArray(ByteBuffer buffer) {
+        if ( buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 && buffer.remaining() == buffer.array().length ) {
+            return buffer.array();
+        }
+        byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return data;
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
+    // -------- Accessor Methods --------
+
+    /**
+     * Sets the number of worker threads that verify and store the data items of batch uploads.  Must be set before
+     * the manager is initialized.
+     */
+    public void setBatchThreads(int batchThreads) {
+        _batchThreads = batchThreads;
+    }
+
+    public void setDataStorageProvider(DataStorageProvider dataStorageProvider) {
+        _dataStorageProvider = dataStorageProvider;
+    }
+
+    public void setDataModel(DataModel dataModel) {
+        _dataModel = dataModel;
+    }
+
+    public void setLeafHashCache(LeafHashCache leafHashCache) {
+        _leafHashCache = leafHashCache;
+    }
+
+    public void setReadIntegrityPolicy(ReadIntegrityPolicy readIntegrityPolicy) {
+        _readIntegrityPolicy = readIntegrityPolicy;
+    }
+
+    /**
+     * Sets how long, in milliseconds, a verification is trusted under the TRUST_RECENT read integrity policy.
+     */
+    public void setTrustPeriod(long trustPeriod) {
+        _trustPeriod = trustPeriod;
+    }
+
+    /**
+     * Sets the number of bytes of hot data items to cache in memory.  Must be set before the manager is initialized.
+     */
+    public void setCacheSize(long cacheSize) {
+        _cacheSize = cacheSize;
+    }
+
+    /**
+     * Returns the cache in front of the Data Storage Provider, or null if caching is disabled.  Exposed for its hit,
+     * miss and eviction counts.
+     */
+    public CachingDataStorageProvider getCache() {
+        return _cachingDataStorageProvider;
+    }
+
+    /**
+     * Returns a snapshot of the cache's counters and size.  All zero if caching is disabled.
+     */
+    public CacheMetrics getCacheMetrics() {
+        CachingDataStorageProvider cache = _cachingDataStorageProvider;
+        return ( cache != null ? cache.getMetrics() : new CacheMetrics() );
+    }
+
+    /**
+     * Sets the most bytes of data items that may be stored in each container.  Zero means unlimited.
+     */
+    public void setContainerQuota(long containerQuota) {
+        _containerQuota = containerQuota;
+    }
+
+    /**
+     * Sets the most bytes of data items that may be stored on the node across all containers.  Zero means unlimited.
+     */
+    public void setNodeQuota(long nodeQuota) {
+        _nodeQuota = nodeQuota;
+    }
+
+    /**
+     * Sets the most containers whose data items are indexed in memory for existence queries at once.  Must be set
+     * before the manager is initialized.
+     */
+    public void setMembershipIndexContainers(int membershipIndexContainers) {
+        _membershipIndexContainers = membershipIndexContainers;
+    }
+
+    // ======== Staged Data Item ========
+
+    /**
+     * A data item from a batch upload that has been stored, or has failed, but not yet been committed to the model.
+     */
+    private static class StagedDataItem {
+        private final String dataID;
+        private DataItemInfo dataItemInfo;
+        private DataItemUploadResult.Status failureStatus;
+        private String failureMessage;
+
+        private StagedDataItem(String dataID) {
+            this.dataID = dataID;
+        }
+
+        private void fail(DataItemUploadResult.Status status, String message) {
+            dataItemInfo = null;
+            failureStatus = status;
+            failureMessage = message;
+        }
+
+        private DataItemUploadResult getResult() {
+            if ( dataItemInfo != null ) {
+                return new DataItemUploadResult(dataID, DataItemUploadResult.Status.STORED, dataItemInfo.getSize(), null);
+            }
+            return new DataItemUploadResult(dataID, failureStatus, 0, failureMessage);
+        }
     }
 }
@@ -0,0 +1,24 @@
+package io.topiacoin.node.storage;
+
+/**
+ * Controls how the Data Storage Manager verifies data items when they are read.  Whatever the policy, a data item is
+ * always re-verified if it has been modified since it was last verified, or if its recorded hash has changed.
+ */
+public enum ReadIntegrityPolicy {
+
+    /**
+     * Every read hashes the full data item.
+     */
+    ALWAYS,
+
+    /**
+     * Reads skip the hash if the data item is unchanged and was verified within the trust period.
+     */
+    TRUST_RECENT,
+
+    /**
+     * Reads skip the hash if the data item is unchanged since it was last verified, however long ago that was.
+     * Periodic re-verification is left to the background scrubber.
+     */
+    SCRUBBER_ONLY
+}
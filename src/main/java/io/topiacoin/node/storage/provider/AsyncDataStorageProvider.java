@@ -0,0 +1,72 @@
+package io.topiacoin.node.storage.provider;
+
+import io.topiacoin.node.exceptions.CorruptDataItemException;
+import io.topiacoin.node.exceptions.NoSuchDataItemException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A Data Storage Provider that can also perform its operations without blocking the calling thread.  Each method
+ * starts the operation and returns a future that is completed once the operation finishes, so a slow disk doesn't tie
+ * up a thread for every operation in flight.
+ * <p>
+ * Futures fail with the same exceptions that the blocking methods throw, e.g. an {@link IOException} if the data can't
+ * be read or written, a {@link NoSuchDataItemException} if the data item does not exist, and a
+ * {@link CorruptDataItemException} if the data does not match its hash.  The exception may be wrapped in a
+ * {@link java.util.concurrent.CompletionException}.
+ */
+public interface AsyncDataStorageProvider extends DataStorageProvider {
+
+    /**
+     * Saves the given data item to persistent storage, verifying it against the dataHash.  As with the blocking save,
+     * the data item only becomes visible once the hash has been verified, and nothing is stored if it doesn't match.
+     *
+     * @param dataID   The ID of the data item that is being saved.
+     * @param dataHash The cryptographic hash that the data item must match.
+     * @param data     The raw bytes of the data item.
+     *
+     * @return A future that completes with the size of the stored data item.
+     */
+    CompletableFuture<Long> saveDataAsync(String dataID, String dataHash, byte[] data);
+
+    /**
+     * Retrieves the data item from persistent storage.
+     *
+     * @param dataID The ID of the data item being fetched.
+     *
+     * @return A future that completes with a buffer containing the data item.
+     */
+    CompletableFuture<ByteBuffer> fetchDataAsync(String dataID);
+
+    /**
+     * Retrieves the requested portion of the data item from persistent storage.
+     *
+     * @param dataID The ID of the data item being fetched.
+     * @param offset The offset within the data item to start reading data.
+     * @param length The number of bytes of data to return, starting at the offset.  If the range extends past the end
+     *               of the data item, the future fails with an IOException.
+     *
+     * @return A future that completes with a buffer containing the requested range of the data item.
+     */
+    CompletableFuture<ByteBuffer> fetchDataAsync(String dataID, long offset, int length);
+
+    /**
+     * Removes the data item from persistent storage.
+     *
+     * @param dataID The ID of the data item that is to be removed from storage.
+     *
+     * @return A future that completes with true if the data item was removed, or false if it was not found.
+     */
+    CompletableFuture<Boolean> removeDataAsync(String dataID);
+
+    /**
+     * Checks whether a data item with the specified dataID has been persistently stored.
+     *
+     * @param dataID The ID of the data item whose existence is being checked.
+     *
+     * @return A future that completes with true if the data item exists in the storage, or false if it does not.
+     */
+    CompletableFuture<Boolean> hasDataAsync(String dataID);
+}
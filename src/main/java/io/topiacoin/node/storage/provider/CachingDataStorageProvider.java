@@ -0,0 +1,691 @@
+package io.topiacoin.node.storage.provider;
+
+import io.topiacoin.node.exceptions.CorruptDataItemException;
+import io.topiacoin.node.exceptions.NoSuchDataItemException;
+import io.topiacoin.node.model.CacheMetrics;
+import io.topiacoin.node.utilities.FrequencySketch;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Data Storage Provider that decorates another provider with a size-bounded, in-memory cache of hot data items.
+ * <p>
+ * The cache is bounded by the total number of bytes it holds and uses the W-TinyLFU eviction policy.  Newly loaded data
+ * items enter a small LRU admission window.  Items leaving the window only displace an item from the main cache if a
+ * frequency sketch shows they have been requested more often, so a scan of one-off reads can't flush out popular data
+ * items.  The main cache is a segmented LRU: items requested again while on probation are promoted to the protected
+ * segment.
+ * <p>
+ * Only reads of whole data items load the cache; range reads are served from the cache when the data item is already
+ * there, but otherwise go straight to the underlying provider.  Saving, linking or removing a data item through this
+ * provider invalidates its cache entry.  Every cache hit is also checked against the underlying provider's version
+ * stamp for the data item, so a data item changed directly in the underlying provider is reloaded rather than served
+ * stale.  Sizes, versions and existence are always answered by the underlying provider.
+ * <p>
+ * The asynchronous methods use the cache in the same way.  On a miss they call the underlying provider's asynchronous
+ * methods, so the cache doesn't hide them.  If the underlying provider only has blocking methods, they are run on the
+ * executor given when the cache was created.
+ */
+public class CachingDataStorageProvider implements AsyncDataStorageProvider {
+
+    private Log _log = LogFactory.getLog(this.getClass());
+
+    private static final int GENERATION_STRIPES = 64;
+
+    private final DataStorageProvider _delegate;
+
+    // Runs the blocking methods of an underlying provider that has no asynchronous methods.
+    private final Executor _asyncExecutor;
+
+    private final long _maximumSize;
+    private final long _maximumItemSize;
+    private final long _windowMaximum;
+    private final long _mainMaximum;
+    private final long _protectedMaximum;
+
+    private final FrequencySketch _sketch;
+
+    // Each segment is kept in LRU order, least recently used first.  All cache state is guarded by this.
+    private final LinkedHashMap<String, CacheEntry> _window = new LinkedHashMap<>();
+    private final LinkedHashMap<String, CacheEntry> _probation = new LinkedHashMap<>();
+    private final LinkedHashMap<String, CacheEntry> _protected = new LinkedHashMap<>();
+    private long _windowSize;
+    private long _probationSize;
+    private long _protectedSize;
+
+    // Incremented whenever a data item is changed, so a load that raced with the change is not cached.  Striped by
+    // dataID so unrelated writes don't prevent loads from being cached.
+    private final long[] _generations = new long[GENERATION_STRIPES];
+
+    private long _hitCount;
+    private long _missCount;
+    private long _evictionCount;
+
+    /**
+     * Creates a new caching provider in front of the given provider.  Data items larger than 1/64th of the cache size
+     * are never cached.
+     *
+     * @param delegate    The provider whose data items are being cached.
+     * @param maximumSize The maximum number of bytes of data to hold in the cache.
+     */
+    public CachingDataStorageProvider(DataStorageProvider delegate, long maximumSize) {
+        this(delegate, maximumSize, Math.max(1, maximumSize / 64));
+    }
+
+    /**
+     * Creates a new caching provider in front of the given provider.
+     *
+     * @param delegate        The provider whose data items are being cached.
+     * @param maximumSize     The maximum number of bytes of data to hold in the cache.
+     * @param maximumItemSize The size of the largest data item that will be cached.
+     */
+    public CachingDataStorageProvider(DataStorageProvider delegate, long maximumSize, long maximumItemSize) {
+        this(delegate, maximumSize, maximumItemSize, null);
+    }
+
+    /**
+     * Creates a new caching provider in front of the given provider.  Data items larger than 1/64th of the cache size
+     * are never cached.
+     *
+     * @param delegate      The provider whose data items are being cached.
+     * @param maximumSize   The maximum number of bytes of data to hold in the cache.
+     * @param asyncExecutor The executor on which the asynchronous methods run the underlying provider's blocking
+     *                      methods, if it has no asynchronous ones.  If null, they are run on the calling thread.
+     */
+    public CachingDataStorageProvider(DataStorageProvider delegate, long maximumSize, Executor asyncExecutor) {
+        this(delegate, maximumSize, Math.max(1, maximumSize / 64), asyncExecutor);
+    }
+
+    /**
+     * Creates a new caching provider in front of the given provider.
+     *
+     * @param delegate        The provider whose data items are being cached.
+     * @param maximumSize     The maximum number of bytes of data to hold in the cache.
+     * @param maximumItemSize The size of the largest data item that will be cached.
+     * @param asyncExecutor   The executor on which the asynchronous methods run the underlying provider's blocking
+     *                        methods, if it has no asynchronous ones.  If null, they are run on the calling thread.
+     */
+    public CachingDataStorageProvider(DataStorageProvider delegate, long maximumSize, long maximumItemSize,
+                                      Executor asyncExecutor) {
+        _delegate = delegate;
+        _asyncExecutor = ( asyncExecutor != null ? asyncExecutor : Runnable::run );
+        _maximumSize = maximumSize;
+        _maximumItemSize = Math.min(maximumItemSize, maximumSize);
+
+        // The window is 1% of the cache, but always large enough to hold the largest cacheable item.
+        _windowMaximum = Math.min(maximumSize, Math.max(maximumSize / 100, _maximumItemSize));
+        _mainMaximum = maximumSize - _windowMaximum;
+        _protectedMaximum = _mainMaximum * 8 / 10;
+
+        // Size the sketch for the number of items the cache would hold if they were all 16KB.
+        _sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE >> 4, Math.max(1024, maximumSize / 16384)));
+    }
+
+    @Override
+    public void initialize() {
+        _log.info ( "Initializing Caching Data Storage Provider" ) ;
+        _log.info ( "        Cache Size    : " + _maximumSize ) ;
+        _log.info ( "        Max Item Size : " + _maximumItemSize ) ;
+        _log.info ( "Initialized Caching Data Storage Provider" ) ;
+    }
+
+    @Override
+    public void shutdown() {
+        _log.info ( "Shutting Down Caching Data Storage Provider" ) ;
+
+        synchronized (this) {
+            _log.info ( "        Hits      : " + _hitCount ) ;
+            _log.info ( "        Misses    : " + _missCount ) ;
+            _log.info ( "        Evictions : " + _evictionCount ) ;
+
+            _window.clear();
+            _probation.clear();
+            _protected.clear();
+            _windowSize = 0;
+            _probationSize = 0;
+            _protectedSize = 0;
+        }
+
+        _log.info ( "Shut Down Caching Data Storage Provider" ) ;
+    }
+
+    @Override
+    public long saveData(String dataID, InputStream dataStream) throws IOException {
+        try {
+            return _delegate.saveData(dataID, dataStream);
+        } finally {
+            invalidate(dataID);
+        }
+    }
+
+    @Override
+    public long saveData(String dataID, String dataHash, InputStream dataStream) throws IOException, CorruptDataItemException {
+        try {
+            return _delegate.saveData(dataID, dataHash, dataStream);
+        } finally {
+            invalidate(dataID);
+        }
+    }
+
+    @Override
+    public long saveData(String dataID, String dataHash, InputStream dataStream, long expectedSize)
+            throws IOException, CorruptDataItemException {
+        try {
+            return _delegate.saveData(dataID, dataHash, dataStream, expectedSize);
+        } finally {
+            invalidate(dataID);
+        }
+    }
+
+    @Override
+    public void linkData(String existingDataID, String dataID) throws IOException, NoSuchDataItemException {
+        try {
+            _delegate.linkData(existingDataID, dataID);
+        } finally {
+            invalidate(dataID);
+        }
+    }
+
+    /**
+     * Writes the data item to the given outputStream from the cache.  On a miss, the data item is loaded into the cache
+     * if it is small enough.
+     */
+    @Override
+    public void fetchData(String dataID, OutputStream outputStream) throws IOException, NoSuchDataItemException {
+        CacheEntry entry = getOrLoad(dataID);
+
+        if ( entry == null ) {
+            _delegate.fetchData(dataID, outputStream);
+            return;
+        }
+
+        outputStream.write(entry.data);
+    }
+
+    @Override
+    public void fetchData(String dataID, int offset, int length, OutputStream outputStream) throws IOException, NoSuchDataItemException {
+        CacheEntry entry = getIfCurrent(dataID);
+
+        if ( entry == null ) {
+            _delegate.fetchData(dataID, offset, length, outputStream);
+            return;
+        }
+
+        if ( offset >= entry.data.length || offset < 0 ) {
+            throw new IOException("Invalid Offset") ;
+        }
+
+        if ( length > ( entry.data.length - offset) || length < 0) {
+            throw new IOException("Invalid Length") ;
+        }
+
+        outputStream.write(entry.data, offset, length);
+    }
+
+    /**
+     * Transfers the requested portion of the data item into the given channel from the cache.  On a miss, a transfer
+     * of the whole data item loads it into the cache if it is small enough.  Other ranges go straight to the underlying
+     * provider.
+     */
+    @Override
+    public long transferData(String dataID, long offset, long length, WritableByteChannel channel) throws IOException, NoSuchDataItemException {
+        CacheEntry entry = getIfCurrent(dataID);
+
+        if ( entry == null && offset == 0 && length <= _maximumItemSize && length == _delegate.getDataSize(dataID) ) {
+            entry = load(dataID);
+        }
+
+        if ( entry == null ) {
+            return _delegate.transferData(dataID, offset, length, channel);
+        }
+
+        if ( offset < 0 || length < 0 || offset + length > entry.data.length ) {
+            throw new IOException("Invalid Range") ;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(entry.data, (int) offset, (int) length);
+        while ( buffer.hasRemaining() ) {
+            channel.write(buffer);
+        }
+
+        return length;
+    }
+
+    @Override
+    public ByteBuffer getDataBuffer(String dataID, long offset, int length) throws IOException, NoSuchDataItemException {
+        CacheEntry entry = getIfCurrent(dataID);
+
+        if ( entry == null ) {
+            return _delegate.getDataBuffer(dataID, offset, length);
+        }
+
+        if ( offset < 0 || length < 0 || offset + length > entry.data.length ) {
+            throw new IOException("Invalid Range") ;
+        }
+
+        return ByteBuffer.wrap(entry.data, (int) offset, length).slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public boolean isDataBufferZeroCopy() {
+        // Cached data items are wrapped, so only a miss can copy.
+        return _delegate.isDataBufferZeroCopy();
+    }
+
+    @Override
+    public long getDataSize(String dataID) throws IOException, NoSuchDataItemException {
+        return _delegate.getDataSize(dataID);
+    }
+
+    /**
+     * Returns the underlying provider's version stamp for the data item.  The cached version is never used, as callers
+     * rely on the version to notice changes the cache hasn't seen.
+     */
+    @Override
+    public String getDataVersion(String dataID) throws IOException, NoSuchDataItemException {
+        return _delegate.getDataVersion(dataID);
+    }
+
+    @Override
+    public boolean removeData(String dataID) throws IOException {
+        try {
+            return _delegate.removeData(dataID);
+        } finally {
+            invalidate(dataID);
+        }
+    }
+
+    @Override
+    public boolean hasData(String dataID) throws IOException {
+        return _delegate.hasData(dataID);
+    }
+
+    // -------- Asynchronous Methods --------
+
+    @Override
+    public CompletableFuture<Long> saveDataAsync(String dataID, String dataHash, byte[] data) {
+        CompletableFuture<Long> future;
+        if ( _delegate instanceof AsyncDataStorageProvider ) {
+            future = ((AsyncDataStorageProvider) _delegate).saveDataAsync(dataID, dataHash, data);
+        } else {
+            future = runBlocking(() -> _delegate.saveData(dataID, dataHash, new ByteArrayInputStream(data)));
+        }
+        return future.whenComplete((size, throwable) -> invalidate(dataID));
+    }
+
+    /**
+     * Returns the data item from the cache.  On a miss, the data item is read from the underlying provider and loaded
+     * into the cache if it is small enough.
+     */
+    @Override
+    public CompletableFuture<ByteBuffer> fetchDataAsync(String dataID) {
+        CacheEntry entry;
+        try {
+            entry = getIfCurrent(dataID);
+        } catch ( IOException | NoSuchDataItemException e ) {
+            return failedFuture(e);
+        }
+
+        if ( entry != null ) {
+            return CompletableFuture.completedFuture(ByteBuffer.wrap(entry.data).asReadOnlyBuffer());
+        }
+
+        if ( !(_delegate instanceof AsyncDataStorageProvider) ) {
+            return runBlocking(() -> {
+                CacheEntry loaded = load(dataID);
+                if ( loaded != null ) {
+                    return ByteBuffer.wrap(loaded.data).asReadOnlyBuffer();
+                }
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                _delegate.fetchData(dataID, outputStream);
+                return ByteBuffer.wrap(outputStream.toByteArray());
+            });
+        }
+        return loadAsync(dataID);
+    }
+
+    @Override
+    public CompletableFuture<ByteBuffer> fetchDataAsync(String dataID, long offset, int length) {
+        CacheEntry entry;
+        try {
+            entry = getIfCurrent(dataID);
+        } catch ( IOException | NoSuchDataItemException e ) {
+            return failedFuture(e);
+        }
+
+        if ( entry != null ) {
+            if ( offset < 0 || length < 0 || offset + length > entry.data.length ) {
+                return failedFuture(new IOException("Invalid Range"));
+            }
+            return CompletableFuture.completedFuture(ByteBuffer.wrap(entry.data, (int) offset, length).slice().asReadOnlyBuffer());
+        }
+
+        if ( _delegate instanceof AsyncDataStorageProvider ) {
+            return ((AsyncDataStorageProvider) _delegate).fetchDataAsync(dataID, offset, length);
+        }
+        return runBlocking(() -> {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max(0, length));
+            _delegate.transferData(dataID, offset, length, Channels.newChannel(outputStream));
+            return ByteBuffer.wrap(outputStream.toByteArray());
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> removeDataAsync(String dataID) {
+        CompletableFuture<Boolean> future;
+        if ( _delegate instanceof AsyncDataStorageProvider ) {
+            future = ((AsyncDataStorageProvider) _delegate).removeDataAsync(dataID);
+        } else {
+            future = runBlocking(() -> _delegate.removeData(dataID));
+        }
+        return future.whenComplete((removed, throwable) -> invalidate(dataID));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> hasDataAsync(String dataID) {
+        if ( _delegate instanceof AsyncDataStorageProvider ) {
+            return ((AsyncDataStorageProvider) _delegate).hasDataAsync(dataID);
+        }
+        return runBlocking(() -> _delegate.hasData(dataID));
+    }
+
+    // -------- Statistics --------
+
+    public synchronized long getHitCount() {
+        return _hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return _missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return _evictionCount;
+    }
+
+    /**
+     * Returns the number of bytes of data currently held in the cache.
+     */
+    public synchronized long getWeightedSize() {
+        return _windowSize + _probationSize + _protectedSize;
+    }
+
+    public synchronized int getEntryCount() {
+        return _window.size() + _probation.size() + _protected.size();
+    }
+
+    public long getMaximumSize() {
+        return _maximumSize;
+    }
+
+    /**
+     * Returns a snapshot of the cache's counters and size.
+     */
+    public synchronized CacheMetrics getMetrics() {
+        return new CacheMetrics(_hitCount, _missCount, _evictionCount, getWeightedSize(), getEntryCount(), _maximumSize);
+    }
+
+    // -------- Private Methods --------
+
+    private CacheEntry getOrLoad(String dataID) throws IOException, NoSuchDataItemException {
+        CacheEntry entry = getIfCurrent(dataID);
+        if ( entry == null ) {
+            entry = load(dataID);
+        }
+        return entry;
+    }
+
+    /**
+     * Reads the whole data item from the underlying provider and admits it to the cache.  Returns null, without reading
+     * the data item, if it is too large to cache.
+     */
+    private CacheEntry load(String dataID) throws IOException, NoSuchDataItemException {
+        long generation;
+        synchronized (this) {
+            generation = _generations[stripe(dataID)];
+        }
+
+        long size = _delegate.getDataSize(dataID);
+        if ( size > _maximumItemSize ) {
+            return null;
+        }
+
+        String version = _delegate.getDataVersion(dataID);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream((int) size);
+        _delegate.fetchData(dataID, baos);
+        CacheEntry entry = new CacheEntry(dataID, baos.toByteArray(), version);
+
+        admitIfUnchanged(entry, generation);
+
+        return entry;
+    }
+
+    /**
+     * Reads the whole data item through the underlying provider's asynchronous fetch and admits it to the cache if it
+     * is small enough.
+     */
+    private CompletableFuture<ByteBuffer> loadAsync(String dataID) {
+        long generation;
+        synchronized (this) {
+            generation = _generations[stripe(dataID)];
+        }
+
+        long size;
+        String version;
+        try {
+            size = _delegate.getDataSize(dataID);
+            version = _delegate.getDataVersion(dataID);
+        } catch ( IOException | NoSuchDataItemException e ) {
+            return failedFuture(e);
+        }
+
+        CompletableFuture<ByteBuffer> future = ((AsyncDataStorageProvider) _delegate).fetchDataAsync(dataID);
+        if ( size > _maximumItemSize ) {
+            return future;
+        }
+
+        return future.thenApply(buffer -> {
+            byte[] data = new byte[buffer.remaining()];
+            buffer.duplicate().get(data);
+            admitIfUnchanged(new CacheEntry(dataID, data, version), generation);
+            return ByteBuffer.wrap(data).asReadOnlyBuffer();
+        });
+    }
+
+    /**
+     * Admits a newly loaded entry unless its data item was changed while it was being loaded.
+     */
+    private synchronized void admitIfUnchanged(CacheEntry entry, long generation) {
+        if ( generation == _generations[stripe(entry.dataID)] ) {
+            admit(entry);
+        }
+    }
+
+    /**
+     * Runs a blocking method of the underlying provider on the async executor.
+     */
+    private <T> CompletableFuture<T> runBlocking(BlockingOperation<T> operation) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return operation.run();
+            } catch ( IOException | CorruptDataItemException | NoSuchDataItemException e ) {
+                throw new CompletionException(e);
+            }
+        }, _asyncExecutor);
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
+    /**
+     * Returns the cached entry for a data read if it still matches the underlying provider's version of the data item.
+     * A stale entry is dropped and counted as a miss.
+     */
+    private CacheEntry getIfCurrent(String dataID) throws IOException, NoSuchDataItemException {
+        CacheEntry entry = getIfPresent(dataID);
+        if ( entry != null && !entry.version.equals(_delegate.getDataVersion(dataID)) ) {
+            synchronized (this) {
+                _hitCount--;
+                _missCount++;
+            }
+            invalidate(dataID);
+            entry = null;
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the cached entry for a data read, recording the access and updating the hit and miss counts.
+     */
+    private synchronized CacheEntry getIfPresent(String dataID) {
+        _sketch.increment(dataID);
+
+        CacheEntry entry = _window.remove(dataID);
+        if ( entry != null ) {
+            _window.put(dataID, entry);
+        } else if ( (entry = _probation.remove(dataID)) != null ) {
+            // Requested again while on probation, so promote it.
+            _probationSize -= entry.data.length;
+            _protected.put(dataID, entry);
+            _protectedSize += entry.data.length;
+            demoteProtected();
+        } else if ( (entry = _protected.remove(dataID)) != null ) {
+            _protected.put(dataID, entry);
+        }
+
+        if ( entry != null ) {
+            _hitCount++;
+        } else {
+            _missCount++;
+        }
+
+        return entry;
+    }
+
+    private synchronized void invalidate(String dataID) {
+        _generations[stripe(dataID)]++;
+        removeEntry(dataID);
+    }
+
+    private void removeEntry(String dataID) {
+        CacheEntry entry;
+        if ( (entry = _window.remove(dataID)) != null ) {
+            _windowSize -= entry.data.length;
+        } else if ( (entry = _probation.remove(dataID)) != null ) {
+            _probationSize -= entry.data.length;
+        } else if ( (entry = _protected.remove(dataID)) != null ) {
+            _protectedSize -= entry.data.length;
+        }
+    }
+
+    /**
+     * Adds a newly loaded entry to the admission window, then moves any overflow from the window into the main cache.
+     */
+    private void admit(CacheEntry entry) {
+        removeEntry(entry.dataID);
+
+        _window.put(entry.dataID, entry);
+        _windowSize += entry.data.length;
+
+        while ( _windowSize > _windowMaximum ) {
+            CacheEntry candidate = removeFirst(_window);
+            _windowSize -= candidate.data.length;
+            admitToMain(candidate);
+        }
+    }
+
+    /**
+     * Moves a candidate evicted from the window into the main cache's probation segment.  If the main cache is full, the
+     * candidate has to beat the least recently used items on its frequency to get in.
+     */
+    private void admitToMain(CacheEntry candidate) {
+        int candidateFrequency = _sketch.frequency(candidate.dataID);
+
+        while ( _probationSize + _protectedSize + candidate.data.length > _mainMaximum ) {
+            LinkedHashMap<String, CacheEntry> victimSegment = ( _probation.isEmpty() ? _protected : _probation );
+            if ( victimSegment.isEmpty() ) {
+                // The candidate won't fit even in an empty main cache.
+                _evictionCount++;
+                return;
+            }
+
+            CacheEntry victim = victimSegment.values().iterator().next();
+            if ( candidateFrequency <= _sketch.frequency(victim.dataID) ) {
+                _evictionCount++;
+                return;
+            }
+
+            removeEntry(victim.dataID);
+            _evictionCount++;
+        }
+
+        _probation.put(candidate.dataID, candidate);
+        _probationSize += candidate.data.length;
+    }
+
+    /**
+     * Demotes the least recently used protected items back to probation until the protected segment fits.
+     */
+    private void demoteProtected() {
+        while ( _protectedSize > _protectedMaximum && _protected.size() > 1 ) {
+            CacheEntry demoted = removeFirst(_protected);
+            _protectedSize -= demoted.data.length;
+            _probation.put(demoted.dataID, demoted);
+            _probationSize += demoted.data.length;
+        }
+    }
+
+    private static CacheEntry removeFirst(LinkedHashMap<String, CacheEntry> segment) {
+        Iterator<CacheEntry> iterator = segment.values().iterator();
+        CacheEntry entry = iterator.next();
+        iterator.remove();
+        return entry;
+    }
+
+    private static int stripe(String dataID) {
+        return (dataID.hashCode() & 0x7fffffff) % GENERATION_STRIPES;
+    }
+
+    // ======== Blocking Operation ========
+
+    /**
+     * A blocking method of the underlying provider, run on behalf of an asynchronous method.
+     */
+    private interface BlockingOperation<T> {
+        T run() throws IOException, CorruptDataItemException, NoSuchDataItemException;
+    }
+
+    // ======== Cache Entry ========
+
+    /**
+     * The bytes and version of a cached data item.  The byte array is never modified once cached.
+     */
+    private static class CacheEntry {
+        private final String dataID;
+        private final byte[] data;
+        private final String version;
+
+        private CacheEntry(String dataID, byte[] data, String version) {
+            this.dataID = dataID;
+            this.data = data;
+            this.version = version;
+        }
+    }
+}
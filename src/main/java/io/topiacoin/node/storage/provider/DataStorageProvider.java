@@ -1,10 +1,13 @@
 package io.topiacoin.node.storage.provider;
 
+import io.topiacoin.node.exceptions.CorruptDataItemException;
 import io.topiacoin.node.exceptions.NoSuchDataItemException;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 public interface DataStorageProvider {
 
@@ -22,6 +25,57 @@ public interface DataStorageProvider {
      */
     long saveData(String dataID, InputStream dataStream) throws IOException;
 
+    /**
+     * Saves the given data item to persistent storage, verifying it against the dataHash as it is written.  The data is
+     * hashed in the same pass that writes it, so the stream is only read once and is never buffered in its entirety.
+     * The data item only becomes visible once the hash has been verified.  If the data does not match the hash, nothing
+     * is stored.
+     *
+     * @param dataID     The ID of the data item that is being saved.
+     * @param dataHash   The cryptographic hash that the data item must match.
+     * @param dataStream The InputStream containing the raw bytes of the data item.
+     *
+     * @return The size of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to save the data.
+     * @throws CorruptDataItemException If the data does not match the dataHash.
+     */
+    long saveData(String dataID, String dataHash, InputStream dataStream) throws IOException, CorruptDataItemException;
+
+    /**
+     * Saves the given data item to persistent storage, verifying it against the dataHash as it is written.  The expected
+     * size lets providers that spread data items over several disks hold space for the data item before it is read, so
+     * that concurrent saves don't all pick the same nearly full disk.  Providers that don't place data items by free
+     * space ignore it.
+     *
+     * @param dataID       The ID of the data item that is being saved.
+     * @param dataHash     The cryptographic hash that the data item must match.
+     * @param dataStream   The InputStream containing the raw bytes of the data item.
+     * @param expectedSize The expected size of the data item in bytes, or -1 if it is not known.
+     *
+     * @return The size of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to save the data.
+     * @throws CorruptDataItemException If the data does not match the dataHash.
+     */
+    default long saveData(String dataID, String dataHash, InputStream dataStream, long expectedSize)
+            throws IOException, CorruptDataItemException {
+        return saveData(dataID, dataHash, dataStream);
+    }
+
+    /**
+     * Makes the data item with the given dataID refer to the same stored bytes as an existing data item, without
+     * copying them.  If a data item with the dataID already exists, it is replaced.  The two data items are
+     * independent afterwards: removing or replacing either one leaves the other intact.
+     *
+     * @param existingDataID The ID of the stored data item whose bytes are to be shared.
+     * @param dataID         The ID of the data item that is being created.
+     *
+     * @throws IOException If there is an exception trying to link the data.
+     * @throws NoSuchDataItemException If the existing Data Item does not exist.
+     */
+    void linkData(String existingDataID, String dataID) throws IOException, NoSuchDataItemException;
+
     /**
      * Retrieves the data item from persistent storage and writes to to the given outputStream.  If the data item is not
      * in storage, an exception is thrown.
@@ -49,6 +103,80 @@ public interface DataStorageProvider {
      */
     void fetchData(String dataID, int offset, int length, OutputStream outputStream) throws IOException, NoSuchDataItemException;
 
+    /**
+     * Transfers the requested portion of the data item from persistent storage directly into the given channel.  File
+     * backed providers hand the file region to the operating system (e.g. sendfile) instead of copying the data through
+     * the Java heap.  If the data item is not in storage, an exception is thrown.
+     *
+     * @param dataID  The ID of the data item being transferred.
+     * @param offset  The offset within the data item to start transferring data.
+     * @param length  The number of bytes of data to transfer, starting at the offset.  If the range extends past the end
+     *                of the data item, an IOException is thrown.
+     * @param channel The channel to which the data will be written.
+     *
+     * @return The number of bytes transferred.
+     *
+     * @throws IOException If there is an exception trying to transfer the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    long transferData(String dataID, long offset, long length, WritableByteChannel channel) throws IOException, NoSuchDataItemException;
+
+    /**
+     * Returns a read-only buffer containing the requested portion of the data item.  This is intended for callers that
+     * read many small ranges, such as the proof solver.  File backed providers may return a slice of a cached memory
+     * mapping, so no stream needs to be opened and skipped for each range.  The returned buffer is positioned at the
+     * start of the range and its limit is the end of the range.  If the data item is not in storage, an exception is
+     * thrown.
+     *
+     * @param dataID The ID of the data item being read.
+     * @param offset The offset within the data item to start reading data.
+     * @param length The number of bytes of data to return, starting at the offset.  If the range extends past the end
+     *               of the data item, an IOException is thrown.
+     *
+     * @return A read-only buffer containing the requested range of the data item.
+     *
+     * @throws IOException If there is an exception trying to read the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    ByteBuffer getDataBuffer(String dataID, long offset, int length) throws IOException, NoSuchDataItemException;
+
+    /**
+     * Returns whether getDataBuffer normally hands back the stored bytes themselves, e.g. a slice of a memory mapping or
+     * of an array the provider holds, rather than a copy.  Callers that read large ranges use transferData when it
+     * doesn't, so the range is never copied into a buffer of its own.
+     *
+     * @return True if getDataBuffer avoids copying the requested range.
+     */
+    default boolean isDataBufferZeroCopy() {
+        return false;
+    }
+
+    /**
+     * Returns the size, in bytes, of the stored data item.
+     *
+     * @param dataID The ID of the data item whose size is being requested.
+     *
+     * @return The size of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to access the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    long getDataSize(String dataID) throws IOException, NoSuchDataItemException;
+
+    /**
+     * Returns an opaque version stamp for the stored data item.  The stamp changes whenever the stored bytes may have
+     * changed, which allows callers to cache results computed over the data item (e.g. integrity verification) and
+     * detect when those results have gone stale.
+     *
+     * @param dataID The ID of the data item whose version is being requested.
+     *
+     * @return The version stamp of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to access the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    String getDataVersion(String dataID) throws IOException, NoSuchDataItemException;
+
     /**
      * Removes the data item from persistent storage.  Returns true if a matching data item was found and removed.
      * Returns false if no matching data item was found.
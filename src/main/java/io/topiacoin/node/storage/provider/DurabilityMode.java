@@ -0,0 +1,27 @@
+package io.topiacoin.node.storage.provider;
+
+/**
+ * How hard a Data Storage Provider works to make a saved data item survive a crash or power loss before reporting the
+ * save as complete.
+ */
+public enum DurabilityMode {
+
+    /**
+     * Saved data is left in the operating system's page cache, to be written out whenever the OS chooses.  The fastest
+     * mode, but the most recently saved data items may be lost or truncated on power loss.
+     */
+    NONE,
+
+    /**
+     * Each save fsyncs the data item's file, and the directory entries that point to it, before it completes.  Every
+     * save waits for its own disk flushes.
+     */
+    PER_CHUNK,
+
+    /**
+     * Saves are queued for a periodic barrier that fsyncs the files and directory entries of every save queued since
+     * the last one.  Each save still waits until its data is durable, but concurrent saves share the cost of the
+     * flushes.
+     */
+    GROUP_COMMIT
+}
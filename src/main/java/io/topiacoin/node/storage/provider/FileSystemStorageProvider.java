@@ -1,7 +1,10 @@
 package io.topiacoin.node.storage.provider;
 
+import io.topiacoin.node.exceptions.CorruptDataItemException;
 import io.topiacoin.node.exceptions.InitializationException;
 import io.topiacoin.node.exceptions.NoSuchDataItemException;
+import io.topiacoin.node.utilities.ConsistentHashRing;
+import io.topiacoin.node.utilities.HashUtilities;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -11,61 +14,179 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 @Component
 @Profile("filesystem")
-public class FileSystemStorageProvider implements DataStorageProvider {
+public class FileSystemStorageProvider implements AsyncDataStorageProvider {
 
     private Log _log = LogFactory.getLog(this.getClass());
 
+    // One or more directories, separated by the platform's path separator (':' on Unix), each normally on its own
+    // disk.  Data items are spread across the directories by consistent hashing of their IDs.
     @Autowired
     private String storageBasePath;
 
-    private File storageBaseFile;
+    private static final String TEMP_DIRECTORY_NAME = "tmp";
 
+    // Records, in each storage root, the set of roots that data items were last balanced across.
+    private static final String ROOTS_FILE_NAME = ".roots";
 
-    public FileSystemStorageProvider() {
+    private static final int VIRTUAL_NODES_PER_ROOT = 128;
 
-    }
+    // Data item files are four directory levels below their root, e.g. ab/cd/ef/01/abcdef01...
+    private static final int DATA_FILE_DEPTH = 5;
 
-    @PostConstruct
-    public void initialize() {
-        _log.info ( "Initializing File System Storage Provider");
+    // Synchronous reads and writes move data between the file and the caller's stream in buffers of this size.
+    private static final int COPY_BUFFER_SIZE = 65536;
 
+    // The storage roots and the ring that places data items on them.  Both are replaced, never modified, when a root
+    // is added, so readers can use them without locking.
+    private volatile List<StorageRoot> _roots;
+    private volatile ConsistentHashRing<StorageRoot> _ring;
 
-        storageBaseFile = new File(storageBasePath) ;
+    // Serializes the placement of a data item between saves, removals and the rebalancer.  Striped by dataID.
+    private final Object[] _placementLocks = new Object[64];
 
-        boolean exists = storageBaseFile.exists() || storageBaseFile.mkdirs();
-        boolean readable = storageBaseFile.canRead();
-        boolean writable = storageBaseFile.canWrite();
+    // Space, in bytes, to leave free on each disk.  A data item goes to the next root on the ring when its own root is
+    // this full.
+    private long _minFreeSpace = 64 * 1024 * 1024L;
 
-        _log.info ( "Storage Base Path: " + storageBasePath);
-        _log.info ( "        Exists   : " + exists);
-        _log.info ( "        Readable : " + readable);
-        _log.info ( "        Writable : " + writable);
+    // Data items are moved to their new roots in the background when a root is added.  The moves are throttled to this
+    // many bytes per second so that rebalancing doesn't starve foreground I/O.
+    private long _rebalanceRate = 32 * 1024 * 1024L;
 
+    private ExecutorService _rebalanceExecutor;
 
-        // Attempt to create the storage base path if it doesn't exist.
-        if ( !exists) {
-            _log.warn ( "Unable to access or create the Storage Base Path" );
-            throw new InitializationException( "Failed to create the Storage Base Path Directory" ) ;
+    private final AtomicInteger _pendingRebalances = new AtomicInteger();
+
+    private final AtomicLong _rebalancedCount = new AtomicLong();
+
+    // Compressed data item files start with this magic number ("TPCZDATA"), followed by the rest of the header.
+    private static final long COMPRESSED_MAGIC = 0x5450435A44415441L;
+
+    // Header: magic (8), codec (4), block size (4), original size (8), block index offset (8).
+    private static final int HEADER_SIZE = 32;
+
+    private static final int CODEC_DEFLATE = 1;
+
+    // Data items smaller than this aren't worth the header and block index.
+    private static final int MIN_COMPRESSED_SIZE = 1024;
+
+    // The most bytes of data item files kept mapped by the mapping cache.
+    private long _maxMappedBytes = 256L * 1024 * 1024;
+
+    private boolean _compressionEnabled = false;
+
+    private int _compressionBlockSize = 65536;
+
+    // The size of each storage root's I/O pool, which runs the asynchronous file channels' I/O and completion handlers,
+    // along with the in-memory hashing and compression of asynchronous saves.  Asynchronous operations in flight don't
+    // hold a thread while they wait, and each disk has its own pool so a slow disk can't hold up the others.  It is also
+    // the number of synchronous file reads and writes that may run on a root at once.
+    private int _ioThreads = 4;
+
+    // How saves make their data durable before they complete.  See DurabilityMode.
+    private DurabilityMode _durabilityMode = DurabilityMode.NONE;
+
+    // How long a group commit barrier waits, in milliseconds, for other saves to join it.
+    private long _groupCommitInterval = 5;
+
+    private GroupCommitter _groupCommitter;
+
+    // LRU cache of read-only mappings of recently read data items, guarded by itself.  Data items are only ever
+    // replaced by renaming a new file into place, so an existing mapping never sees the file change underneath it.
+    // The cache is bounded by the total size of the mappings it holds, tracked in _mappedBytes.
+    private Map<String, MappedByteBuffer> _mappingCache;
+    private long _mappedBytes;
+
+    // Incremented whenever a data item is saved or removed, so a mapping created concurrently is not cached stale.
+    private long _mappingGeneration;
+
+
+    public FileSystemStorageProvider() {
+        for ( int i = 0 ; i < _placementLocks.length ; i++ ) {
+            _placementLocks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void initialize() {
+        _log.info ( "Initializing File System Storage Provider");
+
+
+        List<StorageRoot> roots = new ArrayList<>();
+        for ( String rootPath : storageBasePath.split(File.pathSeparator) ) {
+            if ( !rootPath.trim().isEmpty() ) {
+                roots.add(initializeRoot(rootPath.trim()));
+            }
         }
+        if ( roots.isEmpty() ) {
+            _log.warn ( "No Storage Base Path was configured" );
+            throw new InitializationException("No Storage Base Path was configured") ;
+        }
+        setRoots(roots);
 
+        _mappingCache = new LinkedHashMap<String, MappedByteBuffer>(16, 0.75f, true);
+        _mappedBytes = 0;
 
-        // Verify that we have read and write access to the storage base path.
-        if ( !readable ) {
-            _log.warn ( "Unable to read from the Storage Base Path" );
-            throw new InitializationException("Unable to read from the Storage Base Path") ;
+        if ( _durabilityMode == DurabilityMode.GROUP_COMMIT ) {
+            _groupCommitter = new GroupCommitter(_groupCommitInterval);
+            _groupCommitter.start();
         }
-        if ( !writable ) {
-            _log.warn ( "Unable to write to the Storage Base Path" );
-            throw new InitializationException("Unable to write to the Storage Base Path") ;
+        _log.info ( "Durability Mode: " + _durabilityMode);
+
+        // Rebalancing is only needed when data items are spread across more than one root, and the roots have changed
+        // since they were last balanced.
+        _rebalanceExecutor = Executors.newSingleThreadExecutor();
+        if ( roots.size() > 1 && !isBalanced() ) {
+            _log.info ( "The Storage Roots have changed.  Rebalancing Data Items in the background.");
+            scheduleRebalance();
         }
 
         _log.info ( "Initialized File System Storage Provider");
@@ -74,6 +195,30 @@ public class FileSystemStorageProvider implements DataStorageProvider {
     @PreDestroy
     public void shutdown() {
         _log.info ( "Shutting Down File System Storage Provider");
+
+        if ( _rebalanceExecutor != null ) {
+            _rebalanceExecutor.shutdownNow();
+            _rebalanceExecutor = null;
+        }
+        if ( _roots != null ) {
+            for ( StorageRoot root : _roots ) {
+                root.ioExecutor.shutdown();
+            }
+        }
+        // Flushes the saves still waiting on a barrier.
+        if ( _groupCommitter != null ) {
+            _groupCommitter.stop();
+            _groupCommitter = null;
+        }
+
+        // Mappings are released when they are garbage collected.
+        if ( _mappingCache != null ) {
+            synchronized (_mappingCache) {
+                _mappingCache.clear();
+                _mappedBytes = 0;
+            }
+        }
+
         _log.info ( "Shut Down File System Storage Provider");
     }
 
@@ -87,16 +232,110 @@ public class FileSystemStorageProvider implements DataStorageProvider {
      */
     @Override
     public long saveData(String dataID, InputStream dataStream) throws IOException {
+        try {
+            return writeData(dataID, dataStream, -1, null);
+        } catch ( CorruptDataItemException e ) {
+            // Without a verifier the data is never checked, so this can't happen.
+            throw new IOException("Unexpected verification failure", e);
+        }
+    }
 
-        String path = generatePathForDataID(dataID);
-        File dataPath = new File(storageBaseFile, path);
-        dataPath.getParentFile().mkdirs();
+    /**
+     * Saves the given data item to persistent storage, verifying it against the dataHash as it is written.  The data is
+     * written to a temp file while a digest is updated from the same buffers.  If the hash matches, the temp file is
+     * atomically renamed into place.  Otherwise it is discarded and nothing is stored.  The hash is always computed over
+     * the uncompressed data, whether or not the data item is stored compressed.
+     *
+     * @param dataID     The ID of the data item that is being saved.
+     * @param dataHash   The cryptographic hash that the data item must match.
+     * @param dataStream The InputStream containing the raw bytes of the data item.
+     *
+     * @return The size of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to save the data.
+     * @throws CorruptDataItemException If the data does not match the dataHash.
+     */
+    @Override
+    public long saveData(String dataID, String dataHash, InputStream dataStream) throws IOException, CorruptDataItemException {
+        return saveData(dataID, dataHash, dataStream, -1);
+    }
+
+    /**
+     * Saves the given data item to persistent storage, verifying it against the dataHash as it is written.  The expected
+     * size is held on the chosen root until the save completes, so that concurrent saves see the space as taken and
+     * spread over the other roots rather than all picking the same nearly full one.
+     *
+     * @param dataID       The ID of the data item that is being saved.
+     * @param dataHash     The cryptographic hash that the data item must match.
+     * @param dataStream   The InputStream containing the raw bytes of the data item.
+     * @param expectedSize The expected size of the data item in bytes, or -1 if it is not known.
+     *
+     * @return The size of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to save the data.
+     * @throws CorruptDataItemException If the data does not match the dataHash.
+     */
+    @Override
+    public long saveData(String dataID, String dataHash, InputStream dataStream, long expectedSize)
+            throws IOException, CorruptDataItemException {
+        MessageDigest digest;
+        try {
+            digest = HashUtilities.getDigest(dataHash);
+        } catch ( NoSuchAlgorithmException e ) {
+            throw new CorruptDataItemException("Unable to verify the data hash.", e);
+        }
+
+        return writeData(dataID, dataStream, expectedSize, new HashVerifier(dataHash, digest));
+    }
 
-        try (FileOutputStream fos = new FileOutputStream(dataPath)) {
-            IOUtils.copy(dataStream, fos);
+    /**
+     * Makes the data item with the given dataID refer to the same stored bytes as an existing data item by creating a
+     * hard link to its file.  The link is created in the temp directory and renamed into place, so an existing data
+     * item with the dataID is atomically replaced.  Data item files are never modified in place, so the linked data
+     * items stay independent.
+     * <p>
+     * The link is always placed on the root holding the existing data item, whichever root the new dataID would
+     * otherwise be placed on, as a hard link can't cross disks.
+     *
+     * @param existingDataID The ID of the stored data item whose bytes are to be shared.
+     * @param dataID         The ID of the data item that is being created.
+     *
+     * @throws IOException If there is an exception trying to link the data.
+     * @throws NoSuchDataItemException If the existing Data Item does not exist.
+     */
+    @Override
+    public void linkData(String existingDataID, String dataID) throws IOException, NoSuchDataItemException {
+        StorageRoot root = locate(existingDataID);
+        if ( root == null ) {
+            throw new NoSuchDataItemException("The requested Data Item does not exist");
         }
+        File existingPath = root.getDataFile(existingDataID);
+        File tempPath = root.createTempFile(dataID);
+
+        boolean committed = false;
+        try {
+            try {
+                Files.createLink(tempPath.toPath(), existingPath.toPath());
+            } catch ( NoSuchFileException e ) {
+                throw new NoSuchDataItemException("The requested Data Item does not exist");
+            } catch ( FileSystemException | UnsupportedOperationException e ) {
+                // The file system doesn't support hard links, so the data item is copied instead.
+                try {
+                    Files.copy(existingPath.toPath(), tempPath.toPath());
+                } catch ( NoSuchFileException nsfe ) {
+                    throw new NoSuchDataItemException("The requested Data Item does not exist");
+                }
+            }
 
-        return dataPath.length();
+            awaitDurable(makeDurable(Collections.singletonList(tempPath.toPath())));
+            List<Path> changedDirectories = commitData(dataID, root, tempPath);
+            committed = true;
+            awaitDurable(makeDurable(changedDirectories));
+        } finally {
+            if ( !committed ) {
+                tempPath.delete();
+            }
+        }
     }
 
     /**
@@ -111,15 +350,22 @@ public class FileSystemStorageProvider implements DataStorageProvider {
      */
     @Override
     public void fetchData(String dataID, OutputStream outputStream) throws IOException, NoSuchDataItemException {
-        String path = generatePathForDataID(dataID) ;
-        File dataPath = new File(storageBaseFile, path);
+        StorageRoot root = getDataRoot(dataID);
+        File dataPath = root.getDataFile(dataID);
 
         if (! dataPath.exists() ) {
             throw new NoSuchDataItemException("The requested Data Item does not exist");
         }
 
-        try (FileInputStream fis = new FileInputStream(dataPath)) {
-            IOUtils.copy(fis, outputStream);
+        try (FileChannel fileChannel = FileChannel.open(dataPath.toPath(), StandardOpenOption.READ)) {
+            if ( isCompressed(fileChannel) ) {
+                CompressedData data = getCompressedData(dataID);
+                inflateRange(root, data, 0, data.originalSize, outputStream::write);
+            } else {
+                copyFromFile(root, fileChannel, 0, fileChannel.size(), outputStream::write);
+            }
+        } catch ( NoSuchFileException e ) {
+            throw new NoSuchDataItemException("The requested Data Item does not exist");
         }
     }
 
@@ -138,27 +384,210 @@ public class FileSystemStorageProvider implements DataStorageProvider {
      */
     @Override
     public void fetchData(String dataID, int offset, int length, OutputStream outputStream) throws IOException, NoSuchDataItemException {
-        String path = generatePathForDataID(dataID) ;
-        File dataPath = new File(storageBaseFile, path);
+        StorageRoot root = getDataRoot(dataID);
+        File dataPath = root.getDataFile(dataID);
 
         if (! dataPath.exists() ) {
             throw new NoSuchDataItemException("The requested Data Item does not exist");
         }
 
-        long fileSize = dataPath.length();
-        if ( offset >= fileSize || offset < 0 ) {
-            throw new IOException("Invalid Offset") ;
+        try (FileChannel fileChannel = FileChannel.open(dataPath.toPath(), StandardOpenOption.READ)) {
+            CompressedData data = isCompressed(fileChannel) ? getCompressedData(dataID) : null;
+
+            long fileSize = ( data != null ? data.originalSize : fileChannel.size() );
+            if ( offset >= fileSize || offset < 0 ) {
+                throw new IOException("Invalid Offset") ;
+            }
+
+            if ( length > ( fileSize - offset) || length < 0) {
+                throw new IOException("Invalid Offset") ;
+            }
+
+            if ( data != null ) {
+                // Only the blocks covering the requested range are inflated.
+                inflateRange(root, data, offset, length, outputStream::write);
+            } else {
+                copyFromFile(root, fileChannel, offset, length, outputStream::write);
+            }
+        } catch ( NoSuchFileException e ) {
+            throw new NoSuchDataItemException("The requested Data Item does not exist");
+        }
+    }
+
+    /**
+     * Transfers the requested portion of the data item from persistent storage directly into the given channel.  When
+     * the target is a file channel, the file region is handed to {@link FileChannel#transferTo} a piece at a time.
+     * Otherwise the target is usually a client connection, so the region is read into a small buffer and written from
+     * the calling thread without holding the root's I/O permit, leaving a slow client unable to hold up the disk.
+     * Either way the data item is never copied into the Java heap in its entirety.  Compressed data items can't be sent
+     * straight from the file, so the blocks covering the range are inflated and written to the channel one at a time.
+     *
+     * @param dataID  The ID of the data item being transferred.
+     * @param offset  The offset within the data item to start transferring data.
+     * @param length  The number of bytes of data to transfer, starting at the offset.  If the range extends past the end
+     *                of the data item, an IOException is thrown.
+     * @param channel The channel to which the data will be written.
+     *
+     * @return The number of bytes transferred.
+     *
+     * @throws IOException If there is an exception trying to transfer the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public long transferData(String dataID, long offset, long length, WritableByteChannel channel) throws IOException, NoSuchDataItemException {
+        StorageRoot root = getDataRoot(dataID);
+        File dataPath = root.getDataFile(dataID);
+
+        BlockConsumer writer = (bytes, start, count) -> {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, start, count);
+            while ( buffer.hasRemaining() ) {
+                channel.write(buffer);
+            }
+        };
+
+        try (FileChannel fileChannel = FileChannel.open(dataPath.toPath(), StandardOpenOption.READ)) {
+            if ( isCompressed(fileChannel) ) {
+                CompressedData data = getCompressedData(dataID);
+                if ( offset < 0 || length < 0 || offset + length > data.originalSize ) {
+                    throw new IOException("Invalid Range") ;
+                }
+                inflateRange(root, data, offset, length, writer);
+                return length;
+            }
+
+            long fileSize = fileChannel.size();
+            if ( offset < 0 || length < 0 || offset + length > fileSize ) {
+                throw new IOException("Invalid Range") ;
+            }
+
+            if ( !(channel instanceof FileChannel) ) {
+                copyFromFile(root, fileChannel, offset, length, writer);
+                return length;
+            }
+
+            // transferTo() may move fewer bytes than requested, so keep going until the whole region is written.
+            long transferred = 0 ;
+            while ( transferred < length ) {
+                long count;
+                root.acquirePermit();
+                try {
+                    count = fileChannel.transferTo(offset + transferred, Math.min(length - transferred, COPY_BUFFER_SIZE * 16), channel);
+                } finally {
+                    root.releasePermit();
+                }
+                if ( count <= 0 ) {
+                    throw new IOException("Unable to transfer the requested Data Item") ;
+                }
+                transferred += count ;
+            }
+            return transferred;
+        } catch ( NoSuchFileException e ) {
+            throw new NoSuchDataItemException("The requested Data Item does not exist");
+        }
+    }
+
+    /**
+     * Returns a read-only buffer containing the requested portion of the data item.  The buffer is a slice of a
+     * read-only memory mapping of the data item's file.  Mappings are kept in a bounded LRU cache, so repeated range
+     * reads of the same data item don't need to open the file again.  For a compressed data item, the blocks covering
+     * the range are inflated from the mapping into a new heap buffer.
+     *
+     * @param dataID The ID of the data item being read.
+     * @param offset The offset within the data item to start reading data.
+     * @param length The number of bytes of data to return, starting at the offset.  If the range extends past the end
+     *               of the data item, an IOException is thrown.
+     *
+     * @return A read-only buffer containing the requested range of the data item.
+     *
+     * @throws IOException If there is an exception trying to read the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public ByteBuffer getDataBuffer(String dataID, long offset, int length) throws IOException, NoSuchDataItemException {
+        MappedByteBuffer mapping = getMapping(dataID);
+
+        CompressedData data = readCompressedData(mapping);
+        if ( data != null ) {
+            if ( offset < 0 || length < 0 || offset + length > data.originalSize ) {
+                throw new IOException("Invalid Range") ;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            inflateRange(data, offset, length, buffer::put);
+            buffer.flip();
+            return buffer.asReadOnlyBuffer();
         }
 
-        if ( length > ( fileSize - offset) || length < 0) {
-            throw new IOException("Invalid Offset") ;
+        if ( offset < 0 || length < 0 || offset + length > mapping.capacity() ) {
+            throw new IOException("Invalid Range") ;
         }
 
-        try (FileInputStream fis = new FileInputStream(dataPath)) {
-            IOUtils.copyLarge(fis, outputStream, offset, length);
+        ByteBuffer buffer = mapping.duplicate();
+        buffer.position((int) offset);
+        buffer.limit((int) offset + length);
+        return buffer.slice();
+    }
+
+    /**
+     * Returns true unless compression is enabled.  An uncompressed data item is returned as a slice of its mapping, while
+     * a compressed one has to be inflated into a new buffer.
+     */
+    @Override
+    public boolean isDataBufferZeroCopy() {
+        return !_compressionEnabled;
+    }
+
+    /**
+     * Returns the size, in bytes, of the stored data item.  For a compressed data item, this is the size of the
+     * uncompressed data recorded in its header.
+     *
+     * @param dataID The ID of the data item whose size is being requested.
+     *
+     * @return The size of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to access the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public long getDataSize(String dataID) throws IOException, NoSuchDataItemException {
+        File dataPath = getDataFile(dataID);
+
+        try (FileChannel fileChannel = FileChannel.open(dataPath.toPath(), StandardOpenOption.READ)) {
+            if ( isCompressed(fileChannel) ) {
+                ByteBuffer originalSize = ByteBuffer.allocate(8);
+                readFully(fileChannel, originalSize, 16);
+                return originalSize.getLong(0);
+            }
+            return fileChannel.size();
+        } catch ( NoSuchFileException e ) {
+            throw new NoSuchDataItemException("The requested Data Item does not exist");
         }
     }
 
+    /**
+     * Returns an opaque version stamp for the stored data item.  The stamp is built from the file's identity (inode),
+     * size and modification time, so rewriting or replacing the file produces a new stamp.
+     *
+     * @param dataID The ID of the data item whose version is being requested.
+     *
+     * @return The version stamp of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to access the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public String getDataVersion(String dataID) throws IOException, NoSuchDataItemException {
+        BasicFileAttributes attributes = readAttributes(dataID);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(attributes.fileKey());
+        sb.append(":");
+        sb.append(attributes.size());
+        sb.append(":");
+        sb.append(attributes.lastModifiedTime().toMillis());
+
+        return sb.toString();
+    }
+
     /**
      * Removes the data item from persistent storage.  Returns true if a matching data item was found and removed.
      * Returns false if no matching data item was found.
@@ -171,21 +600,15 @@ public class FileSystemStorageProvider implements DataStorageProvider {
      */
     @Override
     public boolean removeData(String dataID) throws IOException {
-        String path = generatePathForDataID(dataID) ;
-        File dataPath = new File(storageBaseFile, path);
+        boolean deleted = false;
 
-        boolean deleted = dataPath.delete();
-
-        // Remove empty parent dirs
-        dataPath = dataPath.getParentFile();
-        do {
-            if ( ! dataPath.delete() ) {
-                // We couldn't delete this dir.  This means there are other files/directories in here.
-                // Thus, we also can't delete anything else up the tree either.
-                break;
+        // The data item may briefly have a copy on a second root while the roots are being rebalanced.
+        synchronized (getPlacementLock(dataID)) {
+            for ( StorageRoot root : _roots ) {
+                deleted |= root.removeDataFile(dataID);
             }
-            dataPath = dataPath.getParentFile();
-        } while ( !dataPath.equals(storageBaseFile)) ;
+            invalidateMapping(dataID);
+        }
 
         return deleted;
     }
@@ -201,38 +624,1406 @@ public class FileSystemStorageProvider implements DataStorageProvider {
      */
     @Override
     public boolean hasData(String dataID) throws IOException {
-        String path = generatePathForDataID(dataID) ;
-        File dataPath = new File(storageBaseFile, path);
-
-        boolean exists = dataPath.exists();
+        boolean exists = locate(dataID) != null;
 
         return exists;
     }
 
-    // -------- Private Methods --------
+    /**
+     * Saves the given data item to persistent storage, verifying it against the dataHash.  The data is hashed, and
+     * compressed if compression is enabled, on the I/O thread pool, then written to a temp file through an
+     * AsynchronousFileChannel.  The temp file is renamed into place once the write completes, and the future completes
+     * once the data item is as durable as the durability mode requires.
+     *
+     * @param dataID   The ID of the data item that is being saved.
+     * @param dataHash The cryptographic hash that the data item must match.
+     * @param data     The raw bytes of the data item.
+     *
+     * @return A future that completes with the size of the stored data item.
+     */
+    @Override
+    public CompletableFuture<Long> saveDataAsync(String dataID, String dataHash, byte[] data) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        StorageRoot root = choosePlacement(dataID, data.length);
+        File tempPath = root.createTempFile(dataID);
 
-    private String generatePathForDataID(String dataID) {
-        StringBuilder sb = new StringBuilder();
+        // Hold the space on the root until the data item is written, so that concurrent saves don't overfill it.
+        root.reservedBytes.addAndGet(data.length);
+        future.whenComplete((size, throwable) -> root.reservedBytes.addAndGet(-data.length));
 
-        sb.append ( dataID.substring(0,2)) ;
-        sb.append ( File.separator) ;
-        sb.append (dataID.substring(2, 4));
-        sb.append (File.separator);
-        sb.append ( dataID.substring(4, 6));
-        sb.append ( File.separator);
-        sb.append ( dataID.substring(6, 8)) ;
-        sb.append(File.separator);
-        sb.append ( dataID);
+        root.ioExecutor.execute(() -> {
+            try {
+                MessageDigest digest;
+                try {
+                    digest = HashUtilities.getDigest(dataHash);
+                } catch ( NoSuchAlgorithmException e ) {
+                    throw new CorruptDataItemException("Unable to verify the data hash.", e);
+                }
+                HashVerifier verifier = new HashVerifier(dataHash, digest);
 
-        return sb.toString();
+                ByteArrayOutputStream encoded = new ByteArrayOutputStream(data.length + HEADER_SIZE);
+                ByteBuffer header = encodeData(new ByteArrayInputStream(data), verifier, encoded);
+                if ( !HashUtilities.verifyDigest(verifier.dataHash, verifier.digest) ) {
+                    throw new CorruptDataItemException("The specified data item does not match the specified hash");
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(encoded.toByteArray());
+                if ( header != null ) {
+                    buffer.duplicate().put(header);
+                }
+
+                AsynchronousFileChannel channel = AsynchronousFileChannel.open(tempPath.toPath(),
+                        EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW), root.ioExecutor);
+                writeAsync(channel, buffer, 0).whenComplete((result, throwable) -> {
+                    try {
+                        channel.close();
+                    } catch ( IOException e ) {
+                        if ( throwable == null ) {
+                            throwable = e;
+                        }
+                    }
+                    if ( throwable != null ) {
+                        tempPath.delete();
+                        future.completeExceptionally(unwrap(throwable));
+                        return;
+                    }
+
+                    makeDurable(Collections.singletonList(tempPath.toPath()))
+                            .thenApplyAsync(v -> {
+                                try {
+                                    return commitData(dataID, root, tempPath);
+                                } catch ( IOException e ) {
+                                    throw new CompletionException(e);
+                                }
+                            }, root.ioExecutor)
+                            .whenComplete((changedDirectories, commitThrowable) -> {
+                                if ( commitThrowable != null ) {
+                                    tempPath.delete();
+                                    future.completeExceptionally(unwrap(commitThrowable));
+                                    return;
+                                }
+                                makeDurable(changedDirectories).whenComplete((v, syncThrowable) -> {
+                                    if ( syncThrowable != null ) {
+                                        future.completeExceptionally(unwrap(syncThrowable));
+                                    } else {
+                                        future.complete((long) data.length);
+                                    }
+                                });
+                            });
+                });
+            } catch ( IOException | CorruptDataItemException | RuntimeException e ) {
+                tempPath.delete();
+                future.completeExceptionally(e);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Retrieves the data item from persistent storage through an AsynchronousFileChannel.
+     *
+     * @param dataID The ID of the data item being fetched.
+     *
+     * @return A future that completes with a buffer containing the data item.
+     */
+    @Override
+    public CompletableFuture<ByteBuffer> fetchDataAsync(String dataID) {
+        return readDataAsync(dataID, 0, -1);
     }
 
+    /**
+     * Retrieves the requested portion of the data item from persistent storage through an AsynchronousFileChannel.
+     * Only the requested range of a raw data item is read.  A compressed data item is read in its entirety, and the
+     * blocks covering the range are inflated.
+     *
+     * @param dataID The ID of the data item being fetched.
+     * @param offset The offset within the data item to start reading data.
+     * @param length The number of bytes of data to return, starting at the offset.  If the range extends past the end
+     *               of the data item, the future fails with an IOException.
+     *
+     * @return A future that completes with a buffer containing the requested range of the data item.
+     */
+    @Override
+    public CompletableFuture<ByteBuffer> fetchDataAsync(String dataID, long offset, int length) {
+        if ( length < 0 ) {
+            CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+            future.completeExceptionally(new IOException("Invalid Range"));
+            return future;
+        }
+        return readDataAsync(dataID, offset, length);
+    }
 
+    /**
+     * Removes the data item from persistent storage.  File system metadata operations can't be performed
+     * asynchronously, so the removal is run on the I/O thread pool.
+     *
+     * @param dataID The ID of the data item that is to be removed from storage.
+     *
+     * @return A future that completes with true if the data item was removed, or false if it was not found.
+     */
+    @Override
+    public CompletableFuture<Boolean> removeDataAsync(String dataID) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return removeData(dataID);
+            } catch ( IOException e ) {
+                throw new CompletionException(e);
+            }
+        }, _ring.get(dataID).ioExecutor);
+    }
 
-    // -------- Accessor Methods --------
+    /**
+     * Checks whether the data item has been persistently stored.  The check is run on the I/O thread pool.
+     *
+     * @param dataID The ID of the data item whose existence is being checked.
+     *
+     * @return A future that completes with true if the data item exists in the storage, or false if it does not.
+     */
+    @Override
+    public CompletableFuture<Boolean> hasDataAsync(String dataID) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return hasData(dataID);
+            } catch ( IOException e ) {
+                throw new CompletionException(e);
+            }
+        }, _ring.get(dataID).ioExecutor);
+    }
 
+    /**
+     * Adds a storage root while the provider is running.  New data items are placed across the new set of roots
+     * straight away, and the existing data items that now belong on the new root are moved there in the background.
+     * The root should also be added to the configured Storage Base Path so that it is used after a restart.
+     *
+     * @param rootPath The directory to add.  It is created if it doesn't exist.
+     *
+     * @throws InitializationException If the directory can't be created, read or written.
+     */
+    public synchronized void addStorageRoot(String rootPath) {
+        _log.info ( "Adding Storage Root: " + rootPath);
 
-    public void setStorageBasePath(String storageBasePath) {
-        this.storageBasePath = storageBasePath;
+        StorageRoot newRoot = initializeRoot(rootPath);
+        for ( StorageRoot root : _roots ) {
+            if ( root.key.equals(newRoot.key) ) {
+                newRoot.ioExecutor.shutdown();
+                throw new IllegalArgumentException("The Storage Root is already in use: " + rootPath);
+            }
+        }
+
+        List<StorageRoot> roots = new ArrayList<>(_roots);
+        roots.add(newRoot);
+        setRoots(roots);
+
+        scheduleRebalance();
+    }
+
+    /**
+     * Moves every data item that isn't on the root it would now be placed on to that root.  Data items stay readable
+     * throughout, and saves and removals may continue while the rebalance runs.  The moves are throttled to the
+     * rebalance rate.  Once done, each root records the set of roots it was balanced across, so the rebalance isn't
+     * repeated on the next start.
+     *
+     * @throws IOException If a storage root can't be listed, or a data item can't be moved.
+     * @throws InterruptedException If the thread is interrupted, e.g. because the provider is shutting down.
+     */
+    public void rebalance() throws IOException, InterruptedException {
+        long startTime = System.currentTimeMillis();
+        long bytesMoved = 0;
+        long itemsMoved = 0;
+
+        for ( StorageRoot source : _roots ) {
+            List<Path> dataFiles;
+            try (Stream<Path> paths = Files.walk(source.baseDir.toPath(), DATA_FILE_DEPTH)) {
+                dataFiles = paths
+                        .filter(path -> source.baseDir.toPath().relativize(path).getNameCount() == DATA_FILE_DEPTH)
+                        .filter(path -> Files.isRegularFile(path))
+                        .collect(Collectors.toList());
+            }
+
+            for ( Path dataFile : dataFiles ) {
+                if ( Thread.interrupted() ) {
+                    throw new InterruptedException();
+                }
+
+                // A linked data item shares its file with other data items, and moving it to another disk would copy
+                // the shared bytes for each of them, so it stays on the root it was linked on.
+                if ( getLinkCount(dataFile) > 1 ) {
+                    continue;
+                }
+
+                String dataID = dataFile.getFileName().toString();
+                StorageRoot target = choosePlacement(dataID, Files.size(dataFile));
+                if ( target == source ) {
+                    continue;
+                }
+
+                long moved = moveDataItem(dataID, source, target);
+                if ( moved > 0 ) {
+                    bytesMoved += moved;
+                    itemsMoved++;
+                    _rebalancedCount.incrementAndGet();
+                }
+
+                // Sleep off any time the moves are ahead of the rebalance rate.
+                long aheadBy = startTime + bytesMoved * 1000 / _rebalanceRate - System.currentTimeMillis();
+                if ( aheadBy > 0 ) {
+                    Thread.sleep(aheadBy);
+                }
+            }
+        }
+
+        markBalanced();
+
+        _log.info ( "Rebalanced the Storage Roots, moving " + itemsMoved + " Data Items (" + bytesMoved + " bytes)");
+    }
+
+    /**
+     * Returns true while a rebalance of the storage roots is scheduled or running.
+     */
+    public boolean isRebalancing() {
+        return _pendingRebalances.get() > 0;
+    }
+
+    /**
+     * Returns the number of data items moved between roots by rebalancing since the provider was started.
+     */
+    public long getRebalancedCount() {
+        return _rebalancedCount.get();
+    }
+
+    /**
+     * Returns the space, in bytes, available for new data items on each storage root, keyed by the root's path.  This
+     * is the disk's usable space less the space held by saves in progress and the minimum free space.
+     */
+    public Map<String, Long> getFreeSpace() {
+        Map<String, Long> freeSpace = new LinkedHashMap<>();
+        for ( StorageRoot root : _roots ) {
+            freeSpace.put(root.key, Math.max(0, root.getFreeSpace() - _minFreeSpace));
+        }
+        return freeSpace;
+    }
+
+    // -------- Private Methods --------
+
+    /**
+     * Writes the data stream to a temp file, then renames it into the data item's location.  If a verifier is given,
+     * every buffer read is also run through its digest, and the data item is only committed if the hash matches.
+     * <p>
+     * Unless the durability mode is NONE, the temp file is flushed before it is renamed, so that a crash can't leave a
+     * data item whose name is durable but whose contents are not.  The directory entries are flushed after the rename,
+     * and the save doesn't return until both are durable.
+     * <p>
+     * When compression is enabled, the first block is deflated as a sample.  If it doesn't shrink by at least an eighth,
+     * the data item is treated as incompressible and written raw.  Raw data that happens to start with the compressed
+     * magic number is always stored compressed, so that the two formats can't be confused when the data is read.
+     * <p>
+     * The data stream is read on the calling thread, and each buffer is written to the file under one of the chosen
+     * root's I/O permits, so the number of writes hitting a disk at once is bounded without letting a slow upload hold a
+     * permit while it waits for more data.  The expected size, if known, is held on the root until the write completes.
+     */
+    private long writeData(String dataID, InputStream dataStream, long expectedSize, HashVerifier verifier)
+            throws IOException, CorruptDataItemException {
+
+        // Without an expected size, the root only needs the minimum free space.
+        long reservedSize = Math.max(expectedSize, 0);
+        StorageRoot root = choosePlacement(dataID, reservedSize);
+
+        root.reservedBytes.addAndGet(reservedSize);
+        try {
+            return writeDataToRoot(dataID, root, dataStream, verifier);
+        } finally {
+            root.reservedBytes.addAndGet(-reservedSize);
+        }
+    }
+
+    private long writeDataToRoot(String dataID, StorageRoot root, InputStream dataStream, HashVerifier verifier)
+            throws IOException, CorruptDataItemException {
+        File tempPath = root.createTempFile(dataID);
+
+        boolean committed = false;
+        try {
+            long size;
+            try (FileOutputStream fos = new FileOutputStream(tempPath)) {
+                ByteBuffer header = encodeData(dataStream, verifier, new PermitOutputStream(fos, root));
+                if ( header != null ) {
+                    size = header.getLong(16);
+                    FileChannel channel = fos.getChannel();
+                    root.acquirePermit();
+                    try {
+                        while ( header.hasRemaining() ) {
+                            channel.write(header, header.position());
+                        }
+                    } finally {
+                        root.releasePermit();
+                    }
+                } else {
+                    size = fos.getChannel().size();
+                }
+            }
+
+            if ( verifier != null && !HashUtilities.verifyDigest(verifier.dataHash, verifier.digest) ) {
+                throw new CorruptDataItemException("The specified data item does not match the specified hash");
+            }
+
+            awaitDurable(makeDurable(Collections.singletonList(tempPath.toPath())));
+            List<Path> changedDirectories = commitData(dataID, root, tempPath);
+            committed = true;
+            awaitDurable(makeDurable(changedDirectories));
+
+            return size;
+        } finally {
+            if ( !committed ) {
+                tempPath.delete();
+            }
+        }
+    }
+
+    /**
+     * Renames a completely written temp file into the data item's location on the given root.  Any copy of the data
+     * item on another root is removed, so that the old data can't shadow the new.
+     *
+     * @return The directories whose entries were changed, i.e. the data item's directory and the parents of any
+     * directories that had to be created.  These must be flushed for the rename to be durable.
+     */
+    private List<Path> commitData(String dataID, StorageRoot root, File tempPath) throws IOException {
+        File dataPath = root.getDataFile(dataID);
+
+        synchronized (getPlacementLock(dataID)) {
+            List<Path> changedDirectories = createParentDirectories(dataPath);
+            Files.move(tempPath.toPath(), dataPath.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+            for ( StorageRoot otherRoot : _roots ) {
+                if ( otherRoot != root ) {
+                    otherRoot.removeDataFile(dataID);
+                }
+            }
+
+            invalidateMapping(dataID);
+
+            return changedDirectories;
+        }
+    }
+
+    /**
+     * Creates the parent directories of a data item's file.
+     *
+     * @return The file's parent directory, followed by the parent of each directory that was created.
+     */
+    private List<Path> createParentDirectories(File dataPath) {
+        List<Path> changedDirectories = new ArrayList<>();
+
+        File directory = dataPath.getParentFile();
+        changedDirectories.add(directory.toPath());
+        while ( !directory.exists() && directory.getParentFile() != null ) {
+            directory = directory.getParentFile();
+            changedDirectories.add(directory.toPath());
+        }
+        dataPath.getParentFile().mkdirs();
+
+        return changedDirectories;
+    }
+
+    /**
+     * Flushes the given files and directories as the durability mode requires.  With group commit they are queued for
+     * the next barrier, and the returned future completes once it has run.  Otherwise the future is already complete.
+     */
+    private CompletableFuture<Void> makeDurable(List<Path> paths) {
+        switch ( _durabilityMode ) {
+            case PER_CHUNK:
+                CompletableFuture<Void> future = new CompletableFuture<>();
+                try {
+                    for ( Path path : paths ) {
+                        GroupCommitter.fsync(path);
+                    }
+                    future.complete(null);
+                } catch ( IOException e ) {
+                    future.completeExceptionally(e);
+                }
+                return future;
+            case GROUP_COMMIT:
+                return _groupCommitter.sync(paths);
+            default:
+                return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void awaitDurable(CompletableFuture<Void> durable) throws IOException {
+        try {
+            durable.join();
+        } catch ( CompletionException e ) {
+            Throwable cause = unwrap(e);
+            if ( cause instanceof IOException ) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to make the Data Item durable", cause);
+        }
+    }
+
+    /**
+     * Encodes the data stream into the output stream in the form it is stored in, either raw or compressed.  For a
+     * compressed data item, the space for the header is left blank, and the header is returned to be written over it.
+     * Returns null if the data item was written raw.
+     */
+    private ByteBuffer encodeData(InputStream dataStream, HashVerifier verifier, OutputStream out) throws IOException {
+        Deflater deflater = null;
+        try {
+            byte[] block = new byte[_compressionBlockSize];
+            int length = readBlock(dataStream, block, verifier);
+
+            ByteArrayOutputStream compressed = null;
+            boolean magic = length >= 8 && ByteBuffer.wrap(block).getLong(0) == COMPRESSED_MAGIC;
+            if ( magic || ( _compressionEnabled && length >= MIN_COMPRESSED_SIZE ) ) {
+                deflater = new Deflater(Deflater.BEST_SPEED, true);
+                compressed = new ByteArrayOutputStream(_compressionBlockSize);
+                deflateBlock(deflater, block, length, compressed);
+                if ( !magic && compressed.size() > length - length / 8 ) {
+                    compressed = null;
+                }
+            }
+
+            if ( compressed != null ) {
+                return writeCompressed(out, dataStream, verifier, deflater, block, length, compressed);
+            }
+
+            while ( length > 0 ) {
+                out.write(block, 0, length);
+                length = readBlock(dataStream, block, verifier);
+            }
+            return null;
+        } finally {
+            if ( deflater != null ) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Fills the block from the data stream, updating the verifier's digest with the bytes read.  Returns the number of
+     * bytes read, which is less than the block size only at the end of the stream.
+     */
+    private int readBlock(InputStream dataStream, byte[] block, HashVerifier verifier) throws IOException {
+        int length = IOUtils.read(dataStream, block);
+        if ( verifier != null ) {
+            verifier.digest.update(block, 0, length);
+        }
+        return length;
+    }
+
+    /**
+     * Writes a compressed data item.  The header is written as a placeholder, followed by the independently deflated
+     * blocks and an index of where each block ends.  The header is returned once the original size and the location of
+     * the index are known.
+     */
+    private ByteBuffer writeCompressed(OutputStream fos, InputStream dataStream, HashVerifier verifier, Deflater deflater,
+                                 byte[] block, int length, ByteArrayOutputStream compressed) throws IOException {
+        fos.write(new byte[HEADER_SIZE]);
+
+        List<Long> blockEnds = new ArrayList<>();
+        long position = HEADER_SIZE;
+        long size = 0;
+        while ( length > 0 ) {
+            compressed.writeTo(fos);
+            position += compressed.size();
+            blockEnds.add(position);
+            size += length;
+
+            length = readBlock(dataStream, block, verifier);
+            if ( length > 0 ) {
+                deflateBlock(deflater, block, length, compressed);
+            }
+        }
+
+        ByteBuffer index = ByteBuffer.allocate(blockEnds.size() * 8);
+        for ( long blockEnd : blockEnds ) {
+            index.putLong(blockEnd);
+        }
+        fos.write(index.array());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putLong(COMPRESSED_MAGIC);
+        header.putInt(CODEC_DEFLATE);
+        header.putInt(block.length);
+        header.putLong(size);
+        header.putLong(position);
+        header.flip();
+
+        return header;
+    }
+
+    private void deflateBlock(Deflater deflater, byte[] block, int length, ByteArrayOutputStream compressed) {
+        compressed.reset();
+        deflater.reset();
+        deflater.setInput(block, 0, length);
+        deflater.finish();
+
+        byte[] buffer = new byte[8192];
+        while ( !deflater.finished() ) {
+            int count = deflater.deflate(buffer);
+            compressed.write(buffer, 0, count);
+        }
+    }
+
+    /**
+     * Inflates the blocks covering the given range of a compressed data item under one of the root's I/O permits.  The
+     * permit is given up while each block is passed to the consumer, so that a slow consumer doesn't hold up the disk.
+     */
+    private void inflateRange(StorageRoot root, CompressedData data, long offset, long length, BlockConsumer consumer)
+            throws IOException {
+        root.acquirePermit();
+        try {
+            inflateRange(data, offset, length, (bytes, start, count) -> {
+                root.releasePermit();
+                try {
+                    consumer.accept(bytes, start, count);
+                } finally {
+                    root.permits.acquireUninterruptibly();
+                }
+            });
+        } finally {
+            root.releasePermit();
+        }
+    }
+
+    /**
+     * Reads the given region of a data item's file a buffer at a time, passing each buffer to the consumer.  Only the
+     * reads are done under the root's I/O permit.  The consumer runs on the calling thread without one.
+     */
+    private void copyFromFile(StorageRoot root, FileChannel fileChannel, long offset, long length, BlockConsumer consumer)
+            throws IOException {
+        byte[] bytes = new byte[(int) Math.min(length, COPY_BUFFER_SIZE)];
+        long copied = 0;
+        while ( copied < length ) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, (int) Math.min(length - copied, bytes.length));
+            root.acquirePermit();
+            try {
+                while ( buffer.hasRemaining() ) {
+                    if ( fileChannel.read(buffer, offset + copied + buffer.position()) < 0 ) {
+                        throw new IOException("The Data Item ended before the requested range") ;
+                    }
+                }
+            } finally {
+                root.releasePermit();
+            }
+            consumer.accept(bytes, 0, buffer.position());
+            copied += buffer.position();
+        }
+    }
+
+    /**
+     * Inflates the blocks covering the given range of a compressed data item, passing the requested part of each block
+     * to the consumer in order.
+     */
+    private void inflateRange(CompressedData data, long offset, long length, BlockConsumer consumer) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            byte[] block = new byte[data.blockSize];
+            byte[] input = new byte[0];
+            long end = offset + length;
+
+            for ( int i = (int) (offset / data.blockSize); (long) i * data.blockSize < end; i++ ) {
+                long blockStart = (long) i * data.blockSize;
+                int blockLength = (int) Math.min(data.blockSize, data.originalSize - blockStart);
+
+                // Inflaters in nowrap mode need an extra byte of input past the end of the compressed data.
+                long inputStart = ( i == 0 ? HEADER_SIZE : data.blockEnds[i - 1] );
+                int inputLength = (int) (data.blockEnds[i] - inputStart);
+                if ( input.length < inputLength + 1 ) {
+                    input = new byte[inputLength + 1];
+                }
+                ByteBuffer source = data.mapping.duplicate();
+                source.position((int) inputStart);
+                source.get(input, 0, inputLength);
+
+                inflater.reset();
+                inflater.setInput(input, 0, inputLength + 1);
+                int inflated = 0;
+                while ( inflated < blockLength ) {
+                    int count = inflater.inflate(block, inflated, blockLength - inflated);
+                    if ( count == 0 && ( inflater.finished() || inflater.needsInput() ) ) {
+                        throw new IOException("The compressed Data Item is corrupt");
+                    }
+                    inflated += count;
+                }
+
+                int from = (int) Math.max(0, offset - blockStart);
+                int to = (int) Math.min(blockLength, end - blockStart);
+                consumer.accept(block, from, to - from);
+            }
+        } catch ( DataFormatException e ) {
+            throw new IOException("The compressed Data Item is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Reads a range of a data item through an AsynchronousFileChannel.  The header is read first to find out whether
+     * the data item is compressed.  A length of -1 reads from the offset to the end of the data item.
+     */
+    private CompletableFuture<ByteBuffer> readDataAsync(String dataID, long offset, int length) {
+        CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+        StorageRoot root = locate(dataID);
+        if ( root == null ) {
+            future.completeExceptionally(new NoSuchDataItemException("The requested Data Item does not exist"));
+            return future;
+        }
+
+        AsynchronousFileChannel channel;
+        long fileSize;
+        try {
+            channel = AsynchronousFileChannel.open(root.getDataFile(dataID).toPath(), EnumSet.of(StandardOpenOption.READ), root.ioExecutor);
+            fileSize = channel.size();
+        } catch ( NoSuchFileException e ) {
+            future.completeExceptionally(new NoSuchDataItemException("The requested Data Item does not exist"));
+            return future;
+        } catch ( IOException e ) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate((int) Math.min(HEADER_SIZE, fileSize));
+        readAsync(channel, header, 0).thenCompose(headerRead -> {
+            if ( fileSize > Integer.MAX_VALUE ) {
+                throw new CompletionException(new IOException("The requested Data Item is too large to read"));
+            }
+
+            if ( fileSize >= HEADER_SIZE && header.getLong(0) == COMPRESSED_MAGIC ) {
+                ByteBuffer file = ByteBuffer.allocate((int) fileSize);
+                return readAsync(channel, file, 0).thenApply(fileRead -> {
+                    try {
+                        return inflateToBuffer(readCompressedData(file), offset, length);
+                    } catch ( IOException e ) {
+                        throw new CompletionException(e);
+                    }
+                });
+            }
+
+            long end = ( length < 0 ? fileSize : offset + length );
+            if ( offset < 0 || offset > end || end > fileSize ) {
+                throw new CompletionException(new IOException("Invalid Range"));
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) (end - offset));
+            return readAsync(channel, buffer, offset).thenApply(rangeRead -> {
+                buffer.flip();
+                return buffer;
+            });
+        }).whenComplete((buffer, throwable) -> {
+            try {
+                channel.close();
+            } catch ( IOException e ) {
+                _log.warn("Failed to close the Data Item file", e);
+            }
+            if ( throwable != null ) {
+                future.completeExceptionally(unwrap(throwable));
+            } else {
+                future.complete(buffer);
+            }
+        });
+
+        return future;
+    }
+
+    private ByteBuffer inflateToBuffer(CompressedData data, long offset, int length) throws IOException {
+        long end = ( length < 0 ? data.originalSize : offset + length );
+        if ( offset < 0 || offset > end || end > data.originalSize ) {
+            throw new IOException("Invalid Range");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - offset));
+        inflateRange(data, offset, end - offset, buffer::put);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reads from the channel until the buffer is full, starting at the given position in the file.
+     */
+    private CompletableFuture<Void> readAsync(AsynchronousFileChannel channel, ByteBuffer buffer, long position) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if ( !buffer.hasRemaining() ) {
+            future.complete(null);
+            return future;
+        }
+
+        channel.read(buffer, position, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer count, Void attachment) {
+                if ( count < 0 ) {
+                    future.completeExceptionally(new IOException("Unexpected end of the Data Item file"));
+                } else if ( buffer.hasRemaining() ) {
+                    channel.read(buffer, position + buffer.position(), null, this);
+                } else {
+                    future.complete(null);
+                }
+            }
+
+            @Override
+            public void failed(Throwable throwable, Void attachment) {
+                future.completeExceptionally(throwable);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Writes the whole buffer to the channel, starting at the given position in the file.
+     */
+    private CompletableFuture<Void> writeAsync(AsynchronousFileChannel channel, ByteBuffer buffer, long position) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if ( !buffer.hasRemaining() ) {
+            future.complete(null);
+            return future;
+        }
+
+        channel.write(buffer, position, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer count, Void attachment) {
+                if ( buffer.hasRemaining() ) {
+                    channel.write(buffer, position + buffer.position(), null, this);
+                } else {
+                    future.complete(null);
+                }
+            }
+
+            @Override
+            public void failed(Throwable throwable, Void attachment) {
+                future.completeExceptionally(throwable);
+            }
+        });
+
+        return future;
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        if ( throwable instanceof CompletionException && throwable.getCause() != null ) {
+            return throwable.getCause();
+        }
+        return throwable;
+    }
+
+    /**
+     * Returns true if the file starts with the compressed magic number.  The channel's position is not changed.
+     */
+    private boolean isCompressed(FileChannel fileChannel) throws IOException {
+        if ( fileChannel.size() < HEADER_SIZE ) {
+            return false;
+        }
+        ByteBuffer magic = ByteBuffer.allocate(8);
+        readFully(fileChannel, magic, 0);
+        return magic.getLong(0) == COMPRESSED_MAGIC;
+    }
+
+    private void readFully(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException {
+        while ( buffer.hasRemaining() ) {
+            if ( fileChannel.read(buffer, position + buffer.position()) < 0 ) {
+                throw new IOException("Unexpected end of the Data Item file");
+            }
+        }
+    }
+
+    private CompressedData getCompressedData(String dataID) throws IOException, NoSuchDataItemException {
+        CompressedData data = readCompressedData(getMapping(dataID));
+        if ( data == null ) {
+            // The data item was replaced by an uncompressed one since it was checked.
+            throw new IOException("The Data Item changed while it was being read");
+        }
+        return data;
+    }
+
+    /**
+     * Parses the header and block index of a compressed data item from its mapping.  Returns null if the mapped file is
+     * not compressed.
+     */
+    private CompressedData readCompressedData(ByteBuffer mapping) throws IOException {
+        if ( mapping.capacity() < HEADER_SIZE || mapping.getLong(0) != COMPRESSED_MAGIC ) {
+            return null;
+        }
+
+        int codec = mapping.getInt(8);
+        if ( codec != CODEC_DEFLATE ) {
+            throw new IOException("Unsupported compression codec: " + codec);
+        }
+        int blockSize = mapping.getInt(12);
+        long originalSize = mapping.getLong(16);
+        long indexOffset = mapping.getLong(24);
+
+        int blockCount = (int) ((originalSize + blockSize - 1) / blockSize);
+        if ( blockSize <= 0 || indexOffset + blockCount * 8L != mapping.capacity() ) {
+            throw new IOException("The compressed Data Item is corrupt");
+        }
+        long[] blockEnds = new long[blockCount];
+        for ( int i = 0; i < blockCount; i++ ) {
+            blockEnds[i] = mapping.getLong((int) indexOffset + i * 8);
+        }
+
+        return new CompressedData(mapping, blockSize, originalSize, blockEnds);
+    }
+
+    /**
+     * Returns the cached mapping of the data item's file, mapping it if necessary.
+     */
+    private MappedByteBuffer getMapping(String dataID) throws IOException, NoSuchDataItemException {
+        long generation;
+        synchronized (_mappingCache) {
+            MappedByteBuffer mapping = _mappingCache.get(dataID);
+            if ( mapping != null ) {
+                return mapping;
+            }
+            generation = _mappingGeneration;
+        }
+
+        File dataPath = getDataFile(dataID);
+
+        MappedByteBuffer mapping;
+        try (FileChannel fileChannel = FileChannel.open(dataPath.toPath(), StandardOpenOption.READ)) {
+            long fileSize = fileChannel.size();
+            if ( fileSize > Integer.MAX_VALUE ) {
+                throw new IOException("The requested Data Item is too large to map") ;
+            }
+            // The mapping stays valid after the channel is closed.
+            mapping = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        } catch ( NoSuchFileException e ) {
+            throw new NoSuchDataItemException("The requested Data Item does not exist");
+        }
+
+        synchronized (_mappingCache) {
+            // A mapping larger than the whole cache is used once and not cached.
+            if ( generation == _mappingGeneration && mapping.capacity() <= _maxMappedBytes ) {
+                MappedByteBuffer previous = _mappingCache.put(dataID, mapping);
+                if ( previous != null ) {
+                    _mappedBytes -= previous.capacity();
+                }
+                _mappedBytes += mapping.capacity();
+
+                // Evict the least recently read mappings until the cache is back under its limit.  The new mapping is
+                // the most recently read, so it is never evicted here.
+                Iterator<MappedByteBuffer> iterator = _mappingCache.values().iterator();
+                while ( _mappedBytes > _maxMappedBytes ) {
+                    _mappedBytes -= iterator.next().capacity();
+                    iterator.remove();
+                }
+            }
+        }
+
+        return mapping;
+    }
+
+    private void invalidateMapping(String dataID) {
+        synchronized (_mappingCache) {
+            MappedByteBuffer mapping = _mappingCache.remove(dataID);
+            if ( mapping != null ) {
+                _mappedBytes -= mapping.capacity();
+            }
+            _mappingGeneration++;
+        }
+    }
+
+    private BasicFileAttributes readAttributes(String dataID) throws IOException, NoSuchDataItemException {
+        File dataPath = getDataFile(dataID);
+
+        try {
+            return Files.readAttributes(dataPath.toPath(), BasicFileAttributes.class);
+        } catch ( NoSuchFileException e ) {
+            throw new NoSuchDataItemException("The requested Data Item does not exist");
+        }
+    }
+
+    /**
+     * Checks that a storage root is usable, creating it if necessary, and clears out its temp directory.  Each root has
+     * its own temp directory so that completed data items can be renamed into place without crossing file systems.
+     */
+    private StorageRoot initializeRoot(String rootPath) {
+        File baseFile = new File(rootPath) ;
+
+        boolean exists = baseFile.exists() || baseFile.mkdirs();
+        boolean readable = baseFile.canRead();
+        boolean writable = baseFile.canWrite();
+
+        _log.info ( "Storage Base Path: " + rootPath);
+        _log.info ( "        Exists   : " + exists);
+        _log.info ( "        Readable : " + readable);
+        _log.info ( "        Writable : " + writable);
+
+
+        // Attempt to create the storage base path if it doesn't exist.
+        if ( !exists) {
+            _log.warn ( "Unable to access or create the Storage Base Path" );
+            throw new InitializationException( "Failed to create the Storage Base Path Directory" ) ;
+        }
+
+
+        // Verify that we have read and write access to the storage base path.
+        if ( !readable ) {
+            _log.warn ( "Unable to read from the Storage Base Path" );
+            throw new InitializationException("Unable to read from the Storage Base Path") ;
+        }
+        if ( !writable ) {
+            _log.warn ( "Unable to write to the Storage Base Path" );
+            throw new InitializationException("Unable to write to the Storage Base Path") ;
+        }
+
+        // Data items are written to the temp directory and renamed into place once complete.  Anything left in there
+        // is from an interrupted save and can be discarded.
+        File tempFile = new File(baseFile, TEMP_DIRECTORY_NAME);
+        if ( tempFile.exists() ) {
+            File[] leftovers = tempFile.listFiles();
+            if ( leftovers != null ) {
+                for ( File leftover : leftovers ) {
+                    leftover.delete();
+                }
+            }
+        } else if ( !tempFile.mkdirs() ) {
+            _log.warn ( "Unable to create the Storage Temp Directory" );
+            throw new InitializationException("Failed to create the Storage Temp Directory") ;
+        }
+
+        ExecutorService ioExecutor = Executors.newFixedThreadPool(_ioThreads);
+
+        return new StorageRoot(baseFile, tempFile, ioExecutor, _ioThreads);
+    }
+
+    /**
+     * Replaces the storage roots and rebuilds the ring that places data items on them.
+     */
+    private void setRoots(List<StorageRoot> roots) {
+        ConsistentHashRing<StorageRoot> ring = new ConsistentHashRing<>(VIRTUAL_NODES_PER_ROOT);
+        for ( StorageRoot root : roots ) {
+            ring.add(root, root.key);
+        }
+
+        _ring = ring;
+        _roots = Collections.unmodifiableList(roots);
+    }
+
+    /**
+     * Chooses the root that a data item of the given size is saved to.  This is the data item's own root on the ring,
+     * unless that root is too full, in which case the next root around the ring with enough space is chosen.  If every
+     * root is full, the data item's own root is chosen and the write is left to fail.
+     */
+    private StorageRoot choosePlacement(String dataID, long size) {
+        List<StorageRoot> preferences = _ring.getPreferenceList(dataID);
+        for ( StorageRoot root : preferences ) {
+            if ( root.getFreeSpace() - _minFreeSpace >= size ) {
+                return root;
+            }
+        }
+        return preferences.get(0);
+    }
+
+    /**
+     * Returns the root that holds the data item, or null if it isn't stored.  The roots are searched in the order the
+     * data item would be placed on them, so an item is normally found on the first root checked.
+     */
+    private StorageRoot locate(String dataID) {
+        List<StorageRoot> roots = _roots;
+        if ( roots.size() == 1 ) {
+            StorageRoot root = roots.get(0);
+            return root.getDataFile(dataID).exists() ? root : null;
+        }
+
+        for ( StorageRoot root : _ring.getPreferenceList(dataID) ) {
+            if ( root.getDataFile(dataID).exists() ) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the file holding the data item.  If the data item isn't stored, the file it would have on its own root is
+     * returned, so that opening it fails with a NoSuchFileException.
+     */
+    private File getDataFile(String dataID) {
+        return getDataRoot(dataID).getDataFile(dataID);
+    }
+
+    /**
+     * Returns the root that holds the data item, or the data item's own root on the ring if it isn't stored.
+     */
+    private StorageRoot getDataRoot(String dataID) {
+        StorageRoot root = locate(dataID);
+        if ( root == null ) {
+            root = _ring.get(dataID);
+        }
+        return root;
+    }
+
+    /**
+     * Returns the number of hard links to the file, or 1 if the file system doesn't report it.
+     */
+    private static int getLinkCount(Path path) throws IOException {
+        try {
+            return (Integer) Files.getAttribute(path, "unix:nlink");
+        } catch ( UnsupportedOperationException | IllegalArgumentException e ) {
+            return 1;
+        }
+    }
+
+    private Object getPlacementLock(String dataID) {
+        return _placementLocks[(dataID.hashCode() & 0x7fffffff) % _placementLocks.length];
+    }
+
+    private void scheduleRebalance() {
+        _pendingRebalances.incrementAndGet();
+        _rebalanceExecutor.execute(() -> {
+            try {
+                rebalance();
+            } catch ( IOException e ) {
+                _log.warn ( "Failed to rebalance the Storage Roots", e);
+            } catch ( InterruptedException e ) {
+                _log.info ( "Rebalancing the Storage Roots was interrupted");
+            } finally {
+                _pendingRebalances.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Moves a data item from the root it is on to the given root.  The data is copied into the target root's temp
+     * directory first, so the data item stays readable from its old root throughout.  The copy is only committed if the
+     * data item wasn't saved again or removed in the meantime.
+     *
+     * @return The number of bytes moved, or 0 if the data item was changed while it was being copied.
+     */
+    private long moveDataItem(String dataID, StorageRoot source, StorageRoot target) throws IOException {
+        File sourcePath = source.getDataFile(dataID);
+        File targetPath = target.getDataFile(dataID);
+        File tempPath = target.createTempFile(dataID);
+
+        try {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(sourcePath.toPath(), BasicFileAttributes.class);
+                Files.copy(sourcePath.toPath(), tempPath.toPath());
+            } catch ( NoSuchFileException e ) {
+                // The data item was removed or moved by a save since the root was listed.
+                return 0;
+            }
+
+            // The copy must be durable before the source is removed.  Rebalancing isn't latency sensitive, so it
+            // flushes directly rather than holding the placement lock while it waits on a barrier.
+            boolean durable = _durabilityMode != DurabilityMode.NONE;
+            if ( durable ) {
+                GroupCommitter.fsync(tempPath.toPath());
+            }
+
+            synchronized (getPlacementLock(dataID)) {
+                BasicFileAttributes current;
+                try {
+                    current = Files.readAttributes(sourcePath.toPath(), BasicFileAttributes.class);
+                } catch ( NoSuchFileException e ) {
+                    return 0;
+                }
+                if ( !Objects.equals(current.fileKey(), attributes.fileKey())
+                        || !current.lastModifiedTime().equals(attributes.lastModifiedTime()) ) {
+                    return 0;
+                }
+
+                // A newer save may already have committed the data item on the target root.
+                if ( !targetPath.exists() ) {
+                    List<Path> changedDirectories = createParentDirectories(targetPath);
+                    Files.move(tempPath.toPath(), targetPath.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                    if ( durable ) {
+                        for ( Path directory : changedDirectories ) {
+                            GroupCommitter.fsync(directory);
+                        }
+                    }
+                }
+                source.removeDataFile(dataID);
+                invalidateMapping(dataID);
+            }
+
+            return attributes.size();
+        } finally {
+            tempPath.delete();
+        }
+    }
+
+    /**
+     * Returns true if every storage root records the current set of roots, i.e. the data items were balanced across
+     * them and no root has been added since.
+     */
+    private boolean isBalanced() {
+        String rootKeys = getRootKeys();
+        for ( StorageRoot root : _roots ) {
+            File rootsFile = new File(root.baseDir, ROOTS_FILE_NAME);
+            try {
+                if ( !rootKeys.equals(new String(Files.readAllBytes(rootsFile.toPath()), StandardCharsets.UTF_8)) ) {
+                    return false;
+                }
+            } catch ( IOException e ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void markBalanced() throws IOException {
+        byte[] rootKeys = getRootKeys().getBytes(StandardCharsets.UTF_8);
+        for ( StorageRoot root : _roots ) {
+            Files.write(new File(root.baseDir, ROOTS_FILE_NAME).toPath(), rootKeys);
+        }
+    }
+
+    private String getRootKeys() {
+        List<String> rootKeys = new ArrayList<>();
+        for ( StorageRoot root : _roots ) {
+            rootKeys.add(root.key);
+        }
+        Collections.sort(rootKeys);
+        return String.join("\n", rootKeys);
+    }
+
+    private static String generatePathForDataID(String dataID) {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append ( dataID.substring(0,2)) ;
+        sb.append ( File.separator) ;
+        sb.append (dataID.substring(2, 4));
+        sb.append (File.separator);
+        sb.append ( dataID.substring(4, 6));
+        sb.append ( File.separator);
+        sb.append ( dataID.substring(6, 8)) ;
+        sb.append(File.separator);
+        sb.append ( dataID);
+
+        return sb.toString();
+    }
+
+
+
+    // -------- Accessor Methods --------
+
+
+    public void setStorageBasePath(String storageBasePath) {
+        this.storageBasePath = storageBasePath;
+    }
+
+    /**
+     * Sets the most bytes of data item files that are kept mapped for reads.  The least recently read mappings are
+     * released first.
+     */
+    public void setMaxMappedBytes(long maxMappedBytes) {
+        _maxMappedBytes = maxMappedBytes;
+    }
+
+    public long getMappedBytes() {
+        synchronized (_mappingCache) {
+            return _mappedBytes;
+        }
+    }
+
+    /**
+     * Enables or disables compression of newly saved data items.  Data items already stored are read correctly either
+     * way, as each compressed file records its own codec and size in its header.
+     */
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        _compressionEnabled = compressionEnabled;
+    }
+
+    /**
+     * Sets the number of threads that perform asynchronous I/O on each storage root, which is also the number of
+     * synchronous reads and writes allowed on a root at once.  Must be set before the provider is initialized.
+     */
+    public void setIoThreads(int ioThreads) {
+        _ioThreads = ioThreads;
+    }
+
+    /**
+     * Sets the size, in bytes, of the uncompressed blocks that are deflated independently.  Range reads only inflate the
+     * blocks they cover, so smaller blocks make small reads cheaper at some cost in compression ratio.
+     */
+    public void setCompressionBlockSize(int compressionBlockSize) {
+        _compressionBlockSize = compressionBlockSize;
+    }
+
+    /**
+     * Sets how saves make their data durable before they complete.  Must be set before the provider is initialized.
+     */
+    public void setDurabilityMode(DurabilityMode durabilityMode) {
+        _durabilityMode = durabilityMode;
+    }
+
+    /**
+     * Sets how long, in milliseconds, a group commit barrier waits after its first save for others to join it.  Longer
+     * intervals batch more saves into each flush, at the cost of a longer wait for each save.
+     */
+    public void setGroupCommitInterval(long groupCommitInterval) {
+        _groupCommitInterval = groupCommitInterval;
+    }
+
+    /**
+     * Returns the number of group commit barriers that have run, or 0 if group commit is not enabled.
+     */
+    public long getGroupCommitCount() {
+        GroupCommitter groupCommitter = _groupCommitter;
+        return groupCommitter != null ? groupCommitter.getBarrierCount() : 0;
+    }
+
+    /**
+     * Sets the space, in bytes, to leave free on each storage root's disk.  Data items that would eat into it are placed
+     * on the next root around the ring instead.
+     */
+    public void setMinFreeSpace(long minFreeSpace) {
+        _minFreeSpace = minFreeSpace;
+    }
+
+    /**
+     * Sets the most bytes per second that rebalancing moves between storage roots.
+     */
+    public void setRebalanceRate(long rebalanceRate) {
+        _rebalanceRate = rebalanceRate;
+    }
+
+    // ======== Storage Root ========
+
+    /**
+     * One of the directories that data items are stored in, normally on a disk of its own, along with the thread pool
+     * that performs its asynchronous I/O, the permits that limit its synchronous I/O, and the space held for saves that
+     * are in progress.
+     */
+    private static class StorageRoot {
+        private final String key;
+        private final File baseDir;
+        private final File tempDir;
+        private final ExecutorService ioExecutor;
+        private final Semaphore permits;
+        private final AtomicLong reservedBytes = new AtomicLong();
+
+        private StorageRoot(File baseDir, File tempDir, ExecutorService ioExecutor, int ioPermits) {
+            this.key = baseDir.getAbsoluteFile().toPath().normalize().toString();
+            this.baseDir = baseDir;
+            this.tempDir = tempDir;
+            this.ioExecutor = ioExecutor;
+            this.permits = new Semaphore(ioPermits);
+        }
+
+        /**
+         * Waits for one of the root's I/O permits.  Every synchronous file read or write holds one while it touches the
+         * disk, and releases it before handing the data to the caller.
+         */
+        private void acquirePermit() throws InterruptedIOException {
+            try {
+                permits.acquire();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the Storage Root");
+            }
+        }
+
+        private void releasePermit() {
+            permits.release();
+        }
+
+        private File getDataFile(String dataID) {
+            return new File(baseDir, generatePathForDataID(dataID));
+        }
+
+        private File createTempFile(String dataID) {
+            return new File(tempDir, dataID + "-" + UUID.randomUUID().toString());
+        }
+
+        /**
+         * Returns the disk's usable space, less the space held for saves in progress.
+         */
+        private long getFreeSpace() {
+            return baseDir.getUsableSpace() - reservedBytes.get();
+        }
+
+        /**
+         * Deletes the data item's file from this root, along with any parent directories left empty.
+         *
+         * @return True if the file was deleted, or false if it wasn't on this root.
+         */
+        private boolean removeDataFile(String dataID) {
+            File dataPath = getDataFile(dataID);
+
+            boolean deleted = dataPath.delete();
+
+            // Remove empty parent dirs
+            dataPath = dataPath.getParentFile();
+            do {
+                if ( ! dataPath.delete() ) {
+                    // We couldn't delete this dir.  This means there are other files/directories in here.
+                    // Thus, we also can't delete anything else up the tree either.
+                    break;
+                }
+                dataPath = dataPath.getParentFile();
+            } while ( !dataPath.equals(baseDir)) ;
+
+            return deleted;
+        }
+    }
+
+    // ======== Hash Verifier ========
+
+    /**
+     * Pairs the expected hash of a data item with the digest being updated as it is written.
+     */
+    private static class HashVerifier {
+        private final String dataHash;
+        private final MessageDigest digest;
+
+        private HashVerifier(String dataHash, MessageDigest digest) {
+            this.dataHash = dataHash;
+            this.digest = digest;
+        }
+    }
+
+    // ======== Compressed Data ========
+
+    /**
+     * The parsed header and block index of a compressed data item, along with the mapping they were read from.  Block i
+     * covers the uncompressed bytes from i * blockSize, and its compressed bytes end at blockEnds[i].  The first block
+     * starts right after the header, and each later block starts where the previous one ends.
+     */
+    private static class CompressedData {
+        private final ByteBuffer mapping;
+        private final int blockSize;
+        private final long originalSize;
+        private final long[] blockEnds;
+
+        private CompressedData(ByteBuffer mapping, int blockSize, long originalSize, long[] blockEnds) {
+            this.mapping = mapping;
+            this.blockSize = blockSize;
+            this.originalSize = originalSize;
+            this.blockEnds = blockEnds;
+        }
+    }
+
+    // ======== Permit Output Stream ========
+
+    /**
+     * Writes to a data item's file under one of its root's I/O permits, one write at a time.
+     */
+    private static class PermitOutputStream extends FilterOutputStream {
+        private final StorageRoot root;
+
+        private PermitOutputStream(OutputStream out, StorageRoot root) {
+            super(out);
+            this.root = root;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            root.acquirePermit();
+            try {
+                out.write(b, off, len);
+            } finally {
+                root.releasePermit();
+            }
+        }
+    }
+
+    // ======== Block Consumer ========
+
+    private interface BlockConsumer {
+        void accept(byte[] bytes, int offset, int length) throws IOException;
     }
 }
@@ -0,0 +1,208 @@
+package io.topiacoin.node.storage.provider;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batches the fsyncs of many concurrent writers into periodic barriers.  Each writer queues the files and directories
+ * it needs flushed, and is given a future that completes once they are durable.  A single thread waits for the first
+ * request of a batch, lingers for the commit interval so that other writers can join it, then fsyncs every distinct
+ * path in the batch and completes the batch's futures.  Requests that arrive while a barrier is running are held for
+ * the next one.
+ */
+public class GroupCommitter {
+
+    private final Log _log = LogFactory.getLog(this.getClass());
+
+    private final long _intervalMillis;
+
+    private final Object _lock = new Object();
+
+    // Requests waiting for the next barrier, guarded by _lock.
+    private List<SyncRequest> _pending = new ArrayList<>();
+
+    private boolean _running;
+
+    private Thread _thread;
+
+    private volatile long _barrierCount;
+
+    private volatile long _syncCount;
+
+    /**
+     * Creates a new group committer.
+     *
+     * @param intervalMillis How long, in milliseconds, a barrier waits after its first request for others to join.
+     */
+    public GroupCommitter(long intervalMillis) {
+        _intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Starts the thread that runs the barriers.
+     */
+    public void start() {
+        synchronized (_lock) {
+            _running = true;
+        }
+        _thread = new Thread(this::run, "group-commit");
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    /**
+     * Stops the barrier thread once the requests already queued have been flushed.
+     */
+    public void stop() {
+        synchronized (_lock) {
+            _running = false;
+            _lock.notifyAll();
+        }
+        if (_thread != null) {
+            try {
+                _thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            _thread = null;
+        }
+    }
+
+    /**
+     * Queues the given files and directories to be flushed by the next barrier.
+     *
+     * @return A future that completes once every path has been fsynced, or fails with the IOException of the first
+     * path that couldn't be.
+     */
+    public CompletableFuture<Void> sync(Collection<Path> paths) {
+        SyncRequest request = new SyncRequest(paths);
+        synchronized (_lock) {
+            if (!_running) {
+                request.future.completeExceptionally(new IOException("The group committer is not running"));
+                return request.future;
+            }
+            _pending.add(request);
+            _lock.notifyAll();
+        }
+        return request.future;
+    }
+
+    /**
+     * Returns the number of barriers that have run.
+     */
+    public long getBarrierCount() {
+        return _barrierCount;
+    }
+
+    /**
+     * Returns the number of requests that have been flushed.
+     */
+    public long getSyncCount() {
+        return _syncCount;
+    }
+
+    /**
+     * Flushes a file's data and metadata to disk.  Directories are flushed so that the entries created or renamed in
+     * them are durable.  Some platforms can't open a directory to flush it, in which case the directory is skipped.
+     */
+    public static void fsync(Path path) throws IOException {
+        boolean isDirectory = Files.isDirectory(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            if (!isDirectory) {
+                throw e;
+            }
+        }
+    }
+
+    // -------- Private Methods --------
+
+    private void run() {
+        while (true) {
+            List<SyncRequest> batch;
+            synchronized (_lock) {
+                try {
+                    while (_pending.isEmpty() && _running) {
+                        _lock.wait();
+                    }
+                    // Give other writers the commit interval to join the batch.
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(_intervalMillis);
+                    long remaining;
+                    while (_running && (remaining = deadline - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(_lock, remaining);
+                    }
+                } catch (InterruptedException e) {
+                    _running = false;
+                }
+                if (_pending.isEmpty()) {
+                    return;
+                }
+                batch = _pending;
+                _pending = new ArrayList<>();
+            }
+
+            runBarrier(batch);
+        }
+    }
+
+    private void runBarrier(List<SyncRequest> batch) {
+        Set<Path> paths = new LinkedHashSet<>();
+        for (SyncRequest request : batch) {
+            paths.addAll(request.paths);
+        }
+
+        Map<Path, IOException> failures = new HashMap<>();
+        for (Path path : paths) {
+            try {
+                fsync(path);
+            } catch (IOException e) {
+                _log.warn("Failed to fsync " + path, e);
+                failures.put(path, e);
+            }
+        }
+
+        _barrierCount++;
+        _syncCount += batch.size();
+
+        for (SyncRequest request : batch) {
+            IOException failure = null;
+            for (Path path : request.paths) {
+                if (failure == null) {
+                    failure = failures.get(path);
+                }
+            }
+            if (failure != null) {
+                request.future.completeExceptionally(failure);
+            } else {
+                request.future.complete(null);
+            }
+        }
+    }
+
+    // ======== Sync Request ========
+
+    private static class SyncRequest {
+        private final List<Path> paths;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private SyncRequest(Collection<Path> paths) {
+            this.paths = new ArrayList<>(paths);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package io.topiacoin.node.storage.provider;
 
+import io.topiacoin.node.exceptions.CorruptDataItemException;
 import io.topiacoin.node.exceptions.NoSuchDataItemException;
+import io.topiacoin.node.utilities.HashUtilities;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.context.annotation.Profile;
@@ -12,6 +14,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -20,11 +26,14 @@ import java.util.Map;
 public class MemoryDataStorageProvider implements DataStorageProvider {
 
     private Map<String, byte[]> _dataMap ;
+    private Map<String, Long> _versionMap ;
+    private long _nextVersion ;
 
     private Log _log = LogFactory.getLog(this.getClass());
 
     public MemoryDataStorageProvider() {
         _dataMap = new HashMap<>();
+        _versionMap = new HashMap<>();
     }
 
     @Override
@@ -63,9 +72,75 @@ public class MemoryDataStorageProvider implements DataStorageProvider {
         byte[] data = baos.toByteArray();
 
         _dataMap.put (dataID, data) ;
+        _versionMap.put (dataID, _nextVersion++) ;
         return bytesRead;
     }
 
+    /**
+     * Saves the given data item to persistent storage, verifying it against the dataHash as it is buffered.  The data
+     * item is only stored if the hash matches.
+     *
+     * @param dataID     The ID of the data item that is being saved.
+     * @param dataHash   The cryptographic hash that the data item must match.
+     * @param dataStream The InputStream containing the raw bytes of the data item.
+     *
+     * @return The size of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to save the data.
+     * @throws CorruptDataItemException If the data does not match the dataHash.
+     */
+    @Override
+    public long saveData(String dataID, String dataHash, InputStream dataStream) throws IOException, CorruptDataItemException {
+        MessageDigest digest;
+        try {
+            digest = HashUtilities.getDigest(dataHash);
+        } catch ( NoSuchAlgorithmException e ) {
+            throw new CorruptDataItemException("Unable to verify the data hash.", e);
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        byte[] buffer = new byte[16384] ;
+        int bytesRead = 0 ;
+        while ( (bytesRead = dataStream.read(buffer)) > 0 ) {
+            digest.update(buffer, 0, bytesRead);
+            baos.write(buffer, 0, bytesRead);
+        }
+        baos.close();
+
+        if ( !HashUtilities.verifyDigest(dataHash, digest) ) {
+            throw new CorruptDataItemException("The specified data item does not match the specified hash");
+        }
+
+        byte[] data = baos.toByteArray();
+
+        _dataMap.put (dataID, data) ;
+        _versionMap.put (dataID, _nextVersion++) ;
+        return data.length;
+    }
+
+    /**
+     * Makes the data item with the given dataID refer to the same stored bytes as an existing data item.  Stored arrays
+     * are never modified, so the two data items simply share the array.
+     *
+     * @param existingDataID The ID of the stored data item whose bytes are to be shared.
+     * @param dataID         The ID of the data item that is being created.
+     *
+     * @throws IOException If there is an exception trying to link the data.
+     * @throws NoSuchDataItemException If the existing Data Item does not exist.
+     */
+    @Override
+    public void linkData(String existingDataID, String dataID) throws IOException, NoSuchDataItemException {
+        byte[] data = _dataMap.get(existingDataID) ;
+
+        if ( data == null ) {
+            throw new NoSuchDataItemException("Unable to fetch data item '" + existingDataID + "'");
+        }
+
+        _dataMap.put (dataID, data) ;
+        _versionMap.put (dataID, _nextVersion++) ;
+    }
+
     /**
      * Retrieves the data item from persistent storage and writes to to the given outputStream.  If the data item is not
      * in storage, an exception is thrown.
@@ -119,6 +194,120 @@ public class MemoryDataStorageProvider implements DataStorageProvider {
         outputStream.write(data, offset, length);
     }
 
+    /**
+     * Transfers the requested portion of the data item from persistent storage directly into the given channel.  If
+     * the data item is not in storage, an exception is thrown.
+     *
+     * @param dataID  The ID of the data item being transferred.
+     * @param offset  The offset within the data item to start transferring data.
+     * @param length  The number of bytes of data to transfer, starting at the offset.  If the range extends past the end
+     *                of the data item, an IOException is thrown.
+     * @param channel The channel to which the data will be written.
+     *
+     * @return The number of bytes transferred.
+     *
+     * @throws IOException If there is an exception trying to transfer the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public long transferData(String dataID, long offset, long length, WritableByteChannel channel) throws IOException, NoSuchDataItemException {
+        byte[] data = _dataMap.get(dataID) ;
+
+        if ( data == null ) {
+            throw new NoSuchDataItemException("Unable to fetch data item '" + dataID + "'");
+        }
+
+        if ( offset < 0 || length < 0 || offset + length > data.length ) {
+            throw new IOException("Range is invalid");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(data, (int) offset, (int) length);
+        while ( buffer.hasRemaining() ) {
+            channel.write(buffer);
+        }
+
+        return length;
+    }
+
+    /**
+     * Returns a read-only buffer containing the requested portion of the data item.  The buffer wraps the stored data
+     * directly, so no copy is made.
+     *
+     * @param dataID The ID of the data item being read.
+     * @param offset The offset within the data item to start reading data.
+     * @param length The number of bytes of data to return, starting at the offset.  If the range extends past the end
+     *               of the data item, an IOException is thrown.
+     *
+     * @return A read-only buffer containing the requested range of the data item.
+     *
+     * @throws IOException If there is an exception trying to read the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public ByteBuffer getDataBuffer(String dataID, long offset, int length) throws IOException, NoSuchDataItemException {
+        byte[] data = _dataMap.get(dataID) ;
+
+        if ( data == null ) {
+            throw new NoSuchDataItemException("Unable to fetch data item '" + dataID + "'");
+        }
+
+        if ( offset < 0 || length < 0 || offset + length > data.length ) {
+            throw new IOException("Range is invalid");
+        }
+
+        return ByteBuffer.wrap(data, (int) offset, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns true, as getDataBuffer wraps the stored data.
+     */
+    @Override
+    public boolean isDataBufferZeroCopy() {
+        return true;
+    }
+
+    /**
+     * Returns the size, in bytes, of the stored data item.
+     *
+     * @param dataID The ID of the data item whose size is being requested.
+     *
+     * @return The size of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to access the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public long getDataSize(String dataID) throws IOException, NoSuchDataItemException {
+        byte[] data = _dataMap.get(dataID) ;
+
+        if ( data == null ) {
+            throw new NoSuchDataItemException("Unable to fetch data item '" + dataID + "'");
+        }
+
+        return data.length;
+    }
+
+    /**
+     * Returns an opaque version stamp for the stored data item.  Every save of a data item is assigned a new version.
+     *
+     * @param dataID The ID of the data item whose version is being requested.
+     *
+     * @return The version stamp of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to access the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public String getDataVersion(String dataID) throws IOException, NoSuchDataItemException {
+        Long version = _versionMap.get(dataID) ;
+
+        if ( version == null ) {
+            throw new NoSuchDataItemException("Unable to fetch data item '" + dataID + "'");
+        }
+
+        return Long.toString(version);
+    }
+
     /**
      * Removes the data item from persistent storage.  Returns true if a matching data item was found and removed.
      * Returns false if no matching data item was found.
@@ -132,6 +321,7 @@ public class MemoryDataStorageProvider implements DataStorageProvider {
     @Override
     public boolean removeData(String dataID) throws IOException {
         byte[] bytes = _dataMap.remove(dataID);
+        _versionMap.remove(dataID);
         return bytes != null;
     }
 
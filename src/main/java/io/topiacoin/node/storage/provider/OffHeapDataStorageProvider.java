@@ -0,0 +1,657 @@
+package io.topiacoin.node.storage.provider;
+
+import io.topiacoin.node.exceptions.CorruptDataItemException;
+import io.topiacoin.node.exceptions.NoSuchDataItemException;
+import io.topiacoin.node.utilities.HashUtilities;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Storage Provider that holds data items in memory outside of the Java heap.  Data items are written into blocks
+ * handed out by a SlabAllocator, so large amounts of data can be held without growing the heap or lengthening garbage
+ * collection pauses, and the memory used is bounded by a fixed capacity.  Saves that would exceed the capacity fail with
+ * an IOException.
+ * <p>
+ * A data item is stored as a run of blocks of the largest size class, with the remainder split across blocks of the
+ * smaller size classes so that less than the smallest block size is left unused.  Linked data items share their blocks, which are freed once the last data item using
+ * them is removed.  Nothing is persisted, so the store is empty after a restart.
+ * <p>
+ * The "offheap" profile brings in the Memory Data Model Provider, which is just as volatile, so it can be activated on
+ * its own.  The provider is the primary Data Storage Provider, so if the profile is combined with "memory", the off-heap
+ * store is the one used.
+ */
+@Component
+@Primary
+@Profile("offheap")
+public class OffHeapDataStorageProvider implements DataStorageProvider {
+
+    private Log _log = LogFactory.getLog(this.getClass());
+
+    private static final int BUFFER_SIZE = 16384;
+    private static final int MIN_BLOCK_SIZE = 4 * 1024;
+    private static final int MAX_BLOCK_SIZE = 1024 * 1024;
+
+    private long _capacity = 1024L * 1024 * 1024;
+    private int _slabSize = 4 * 1024 * 1024;
+
+    // Guards the data map and the allocator.
+    private final Object _lock = new Object();
+
+    private SlabAllocator _allocator;
+    private Map<String, DataEntry> _dataMap;
+    private long _nextVersion;
+    private long _storedBytes;
+
+    public OffHeapDataStorageProvider() {
+
+    }
+
+    @Override
+    @PostConstruct
+    public void initialize() {
+        _log.info ( "Initializing Off-Heap Data Storage Provider" ) ;
+
+        synchronized (_lock) {
+            _allocator = new SlabAllocator(_capacity, _slabSize, MIN_BLOCK_SIZE, MAX_BLOCK_SIZE);
+            _dataMap = new HashMap<>();
+            _storedBytes = 0;
+        }
+
+        _log.info ( "        Capacity  : " + _capacity );
+        _log.info ( "        Slab Size : " + _slabSize );
+
+        _log.info ( "Initialized Off-Heap Data Storage Provider" ) ;
+    }
+
+    @Override
+    @PreDestroy
+    public void shutdown() {
+        _log.info ( "Shutting Down Off-Heap Data Storage Provider" ) ;
+
+        synchronized (_lock) {
+            // Dropping the slabs lets the garbage collector return their memory.
+            _dataMap = new HashMap<>();
+            _allocator = new SlabAllocator(_capacity, _slabSize, MIN_BLOCK_SIZE, MAX_BLOCK_SIZE);
+            _storedBytes = 0;
+        }
+
+        _log.info ( "Shut Down Off-Heap Data Storage Provider" ) ;
+    }
+
+    /**
+     * Saves the given data item to off-heap memory.
+     *
+     * @param dataID     The ID of the data item that is being saved.
+     * @param dataStream The InputStream containing the raw bytes of the data item.
+     *
+     * @throws IOException If there is an exception trying to save the data, or the store is full.
+     */
+    @Override
+    public long saveData(String dataID, InputStream dataStream) throws IOException {
+        StoredData storedData = writeBlocks(dataStream, null);
+        putEntry(dataID, storedData);
+        return storedData.size;
+    }
+
+    /**
+     * Saves the given data item to off-heap memory, verifying it against the dataHash as it is written.  If the hash does
+     * not match, the blocks are freed and nothing is stored.
+     *
+     * @param dataID     The ID of the data item that is being saved.
+     * @param dataHash   The cryptographic hash that the data item must match.
+     * @param dataStream The InputStream containing the raw bytes of the data item.
+     *
+     * @return The size of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to save the data, or the store is full.
+     * @throws CorruptDataItemException If the data does not match the dataHash.
+     */
+    @Override
+    public long saveData(String dataID, String dataHash, InputStream dataStream) throws IOException, CorruptDataItemException {
+        MessageDigest digest;
+        try {
+            digest = HashUtilities.getDigest(dataHash);
+        } catch ( NoSuchAlgorithmException e ) {
+            throw new CorruptDataItemException("Unable to verify the data hash.", e);
+        }
+
+        StoredData storedData = writeBlocks(dataStream, digest);
+
+        if ( !HashUtilities.verifyDigest(dataHash, digest) ) {
+            release(storedData);
+            throw new CorruptDataItemException("The specified data item does not match the specified hash");
+        }
+
+        putEntry(dataID, storedData);
+        return storedData.size;
+    }
+
+    /**
+     * Makes the data item with the given dataID share the blocks of an existing data item.  Stored blocks are never
+     * modified, so the data items stay independent.
+     *
+     * @param existingDataID The ID of the stored data item whose bytes are to be shared.
+     * @param dataID         The ID of the data item that is being created.
+     *
+     * @throws IOException If there is an exception trying to link the data.
+     * @throws NoSuchDataItemException If the existing Data Item does not exist.
+     */
+    @Override
+    public void linkData(String existingDataID, String dataID) throws IOException, NoSuchDataItemException {
+        synchronized (_lock) {
+            DataEntry entry = _dataMap.get(existingDataID);
+            if ( entry == null ) {
+                throw new NoSuchDataItemException("The requested Data Item does not exist");
+            }
+            entry.storedData.references++;
+            putEntry(dataID, entry.storedData);
+        }
+    }
+
+    /**
+     * Retrieves the data item and writes to to the given outputStream.  If the data item is not in storage, an
+     * exception is thrown.
+     *
+     * @param dataID       The ID of the data item being fetched
+     * @param outputStream The OutputStream to which the fetched item will be written.
+     *
+     * @throws IOException If there is an exception trying to fetch the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public void fetchData(String dataID, OutputStream outputStream) throws IOException, NoSuchDataItemException {
+        StoredData storedData = acquire(dataID);
+        try {
+            writeRange(storedData, 0, storedData.size, Channels.newChannel(outputStream));
+        } finally {
+            release(storedData);
+        }
+    }
+
+    /**
+     * Retrieves the requested portion of the data item and writes to to the given outputStream.  If the data item is
+     * not in storage, an exception is thrown.
+     *
+     * @param dataID       The ID of the data item being fetched.
+     * @param offset       The offset within the data item to start reading data.
+     * @param length       The number of bytes of data to return, starting at the offset.  If length is larger than the
+     *                     size of the data item, an IOException is thrown.
+     * @param outputStream The OutputStream to which the fetched data will be written.
+     *
+     * @throws IOException If there is an exception trying to fetch the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public void fetchData(String dataID, int offset, int length, OutputStream outputStream) throws IOException, NoSuchDataItemException {
+        StoredData storedData = acquire(dataID);
+        try {
+            if ( offset >= storedData.size || offset < 0 ) {
+                throw new IOException("Invalid Offset") ;
+            }
+
+            if ( length > ( storedData.size - offset) || length < 0) {
+                throw new IOException("Invalid Length") ;
+            }
+
+            writeRange(storedData, offset, length, Channels.newChannel(outputStream));
+        } finally {
+            release(storedData);
+        }
+    }
+
+    /**
+     * Transfers the requested portion of the data item into the given channel, straight from off-heap memory.  If the
+     * data item is not in storage, an exception is thrown.
+     *
+     * @param dataID  The ID of the data item being transferred.
+     * @param offset  The offset within the data item to start transferring data.
+     * @param length  The number of bytes of data to transfer, starting at the offset.  If the range extends past the end
+     *                of the data item, an IOException is thrown.
+     * @param channel The channel to which the data will be written.
+     *
+     * @return The number of bytes transferred.
+     *
+     * @throws IOException If there is an exception trying to transfer the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public long transferData(String dataID, long offset, long length, WritableByteChannel channel) throws IOException, NoSuchDataItemException {
+        StoredData storedData = acquire(dataID);
+        try {
+            if ( offset < 0 || length < 0 || offset + length > storedData.size ) {
+                throw new IOException("Invalid Range") ;
+            }
+
+            writeRange(storedData, offset, length, channel);
+        } finally {
+            release(storedData);
+        }
+
+        return length;
+    }
+
+    /**
+     * Returns a read-only buffer containing the requested portion of the data item.  The range is copied onto the heap,
+     * as the blocks holding it may be reused once the data item is removed.
+     *
+     * @param dataID The ID of the data item being read.
+     * @param offset The offset within the data item to start reading data.
+     * @param length The number of bytes of data to return, starting at the offset.  If the range extends past the end
+     *               of the data item, an IOException is thrown.
+     *
+     * @return A read-only buffer containing the requested range of the data item.
+     *
+     * @throws IOException If there is an exception trying to read the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public ByteBuffer getDataBuffer(String dataID, long offset, int length) throws IOException, NoSuchDataItemException {
+        StoredData storedData = acquire(dataID);
+        try {
+            if ( offset < 0 || length < 0 || offset + length > storedData.size ) {
+                throw new IOException("Invalid Range") ;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            long position = offset;
+            while ( buffer.hasRemaining() ) {
+                ByteBuffer blockBuffer = getBlockBuffer(storedData, position, buffer.remaining());
+                position += blockBuffer.remaining();
+                buffer.put(blockBuffer);
+            }
+            buffer.flip();
+
+            return buffer.asReadOnlyBuffer();
+        } finally {
+            release(storedData);
+        }
+    }
+
+    /**
+     * Returns the size, in bytes, of the stored data item.
+     *
+     * @param dataID The ID of the data item whose size is being requested.
+     *
+     * @return The size of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to access the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public long getDataSize(String dataID) throws IOException, NoSuchDataItemException {
+        synchronized (_lock) {
+            return getEntry(dataID).storedData.size;
+        }
+    }
+
+    /**
+     * Returns an opaque version stamp for the stored data item.  Every save or link of a data item is assigned a new
+     * version.
+     *
+     * @param dataID The ID of the data item whose version is being requested.
+     *
+     * @return The version stamp of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to access the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public String getDataVersion(String dataID) throws IOException, NoSuchDataItemException {
+        synchronized (_lock) {
+            return Long.toString(getEntry(dataID).version);
+        }
+    }
+
+    /**
+     * Removes the data item from storage.  Its blocks are freed once no other data item shares them.  Returns true if a
+     * matching data item was found and removed.  Returns false if no matching data item was found.
+     *
+     * @param dataID The ID of the data item that is to be removed from storage.
+     *
+     * @return True if the specified data item was removed from storage.  False if it was not found.
+     *
+     * @throws IOException If there is an exception trying to remove the data.
+     */
+    @Override
+    public boolean removeData(String dataID) throws IOException {
+        synchronized (_lock) {
+            DataEntry entry = _dataMap.remove(dataID);
+            if ( entry == null ) {
+                return false;
+            }
+            release(entry.storedData);
+            return true;
+        }
+    }
+
+    /**
+     * Returns true if a data item with the specified dataID has been stored.
+     *
+     * @param dataID The ID of the data item whose existence is being checked.
+     *
+     * @return True if the specified data item exists in the storage.  False if it does not.
+     *
+     * @throws IOException If there is an exception trying to check for the data.
+     */
+    @Override
+    public boolean hasData(String dataID) throws IOException {
+        synchronized (_lock) {
+            return _dataMap.containsKey(dataID);
+        }
+    }
+
+    /**
+     * Returns the most off-heap memory, in bytes, that the store may use.
+     */
+    public long getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * Returns the off-heap memory, in bytes, currently reserved by the store's slabs.
+     */
+    public long getAllocatedBytes() {
+        synchronized (_lock) {
+            return _allocator.getAllocatedBytes();
+        }
+    }
+
+    /**
+     * Returns the off-heap memory, in bytes, occupied by the blocks holding data.  The difference from the allocated
+     * bytes is the free space in partially used slabs.
+     */
+    public long getUsedBytes() {
+        synchronized (_lock) {
+            return _allocator.getUsedBytes();
+        }
+    }
+
+    /**
+     * Returns the number of bytes of data held by the store.  Data shared by linked data items is counted once.  The
+     * difference from the used bytes is the unused space at the end of each data item's last block.
+     */
+    public long getStoredBytes() {
+        synchronized (_lock) {
+            return _storedBytes;
+        }
+    }
+
+    /**
+     * Returns the number of data items in the store.
+     */
+    public int getDataItemCount() {
+        synchronized (_lock) {
+            return _dataMap.size();
+        }
+    }
+
+    /**
+     * Returns the fraction of the capacity that is reserved by slabs, between 0 and 1.
+     */
+    public double getOccupancy() {
+        synchronized (_lock) {
+            return (double) _allocator.getAllocatedBytes() / _capacity;
+        }
+    }
+
+    // -------- Private Methods --------
+
+    /**
+     * Copies the data stream into newly allocated blocks, updating the digest as it goes.  The blocks are owned by the
+     * caller until they are published with putEntry().
+     */
+    private StoredData writeBlocks(InputStream dataStream, MessageDigest digest) throws IOException {
+        StoredData storedData = new StoredData();
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            ByteBuffer blockBuffer = null;
+            int bytesRead;
+            while ( (bytesRead = dataStream.read(buffer)) > 0 ) {
+                if ( digest != null ) {
+                    digest.update(buffer, 0, bytesRead);
+                }
+
+                int written = 0;
+                while ( written < bytesRead ) {
+                    if ( blockBuffer == null || !blockBuffer.hasRemaining() ) {
+                        SlabAllocator.Block block = allocateBlock(MAX_BLOCK_SIZE);
+                        storedData.blocks.add(block);
+                        blockBuffer = block.getBuffer();
+                    }
+                    int count = Math.min(blockBuffer.remaining(), bytesRead - written);
+                    blockBuffer.put(buffer, written, count);
+                    written += count;
+                    storedData.size += count;
+                }
+            }
+
+            shrinkLastBlock(storedData);
+        } catch ( IOException | RuntimeException e ) {
+            release(storedData);
+            throw e;
+        }
+
+        return storedData;
+    }
+
+    /**
+     * Moves the end of the data item out of its block of the largest size class and into smaller blocks, so small data
+     * items, and the tails of large ones, don't each occupy a block of the largest size class.  The tail is split
+     * across the largest blocks that it fills, finishing with the smallest block that holds what is left, so less than
+     * the smallest block size is left unused.
+     */
+    private void shrinkLastBlock(StoredData storedData) throws IOException {
+        if ( storedData.blocks.isEmpty() ) {
+            return;
+        }
+
+        int lastIndex = storedData.blocks.size() - 1;
+        SlabAllocator.Block lastBlock = storedData.blocks.get(lastIndex);
+        int tailLength = (int) (storedData.size - (long) lastIndex * MAX_BLOCK_SIZE);
+
+        List<SlabAllocator.Block> tailBlocks = new ArrayList<>();
+        synchronized (_lock) {
+            int remaining = Math.max(tailLength, 1);
+            while ( remaining > 0 ) {
+                int blockSize = _allocator.getBlockSize(remaining);
+                if ( blockSize - remaining >= MIN_BLOCK_SIZE ) {
+                    // The smallest block that holds the rest would leave too much unused.  Fill a smaller one first.
+                    blockSize = _allocator.getFloorBlockSize(remaining);
+                }
+                SlabAllocator.Block block = null;
+                if ( blockSize < lastBlock.getSize() ) {
+                    block = _allocator.allocate(blockSize);
+                }
+                if ( block == null ) {
+                    // The tail fills the large block, or there is no room for another slab.  Keep the data in the
+                    // large block.
+                    for ( SlabAllocator.Block tailBlock : tailBlocks ) {
+                        _allocator.free(tailBlock);
+                    }
+                    return;
+                }
+                tailBlocks.add(block);
+                remaining -= blockSize;
+            }
+        }
+
+        ByteBuffer tail = lastBlock.getBuffer();
+        tail.limit(tailLength);
+        for ( SlabAllocator.Block tailBlock : tailBlocks ) {
+            ByteBuffer blockBuffer = tailBlock.getBuffer();
+            ByteBuffer piece = tail.slice();
+            piece.limit(Math.min(piece.remaining(), blockBuffer.remaining()));
+            blockBuffer.put(piece);
+            tail.position(tail.position() + piece.limit());
+        }
+
+        storedData.blocks.remove(lastIndex);
+        storedData.blocks.addAll(tailBlocks);
+        synchronized (_lock) {
+            _allocator.free(lastBlock);
+        }
+    }
+
+    private SlabAllocator.Block allocateBlock(int size) throws IOException {
+        synchronized (_lock) {
+            SlabAllocator.Block block = _allocator.allocate(size);
+            if ( block == null ) {
+                throw new IOException("The Off-Heap Data Store is full (capacity " + _capacity + " bytes)");
+            }
+            return block;
+        }
+    }
+
+    /**
+     * Returns a buffer over the bytes of the data item starting at the given position, up to the end of the block that
+     * holds them or the given length, whichever comes first.
+     */
+    private ByteBuffer getBlockBuffer(StoredData storedData, long position, long length) {
+        int blockIndex = (int) (position / MAX_BLOCK_SIZE);
+        long blockStart = (long) blockIndex * MAX_BLOCK_SIZE;
+
+        // The blocks holding the tail are smaller than the largest size class, so step through them.
+        SlabAllocator.Block block = storedData.blocks.get(blockIndex);
+        while ( position >= blockStart + block.getSize() ) {
+            blockStart += block.getSize();
+            block = storedData.blocks.get(++blockIndex);
+        }
+        int blockOffset = (int) (position - blockStart);
+        long blockEnd = Math.min(storedData.size, blockStart + block.getSize());
+
+        ByteBuffer buffer = block.getBuffer();
+        buffer.position(blockOffset);
+        buffer.limit(blockOffset + (int) Math.min(length, blockEnd - position));
+        return buffer;
+    }
+
+    private void writeRange(StoredData storedData, long offset, long length, WritableByteChannel channel) throws IOException {
+        long position = offset;
+        long end = offset + length;
+        while ( position < end ) {
+            ByteBuffer buffer = getBlockBuffer(storedData, position, end - position);
+            position += buffer.remaining();
+            while ( buffer.hasRemaining() ) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Records the stored data under the given dataID, releasing whatever the dataID previously held.  The caller's
+     * reference to the stored data is handed over to the entry.
+     */
+    private void putEntry(String dataID, StoredData storedData) {
+        synchronized (_lock) {
+            if ( storedData.references == 0 ) {
+                // Newly written data is counted when it is first published.
+                storedData.references = 1;
+                _storedBytes += storedData.size;
+            }
+            DataEntry oldEntry = _dataMap.put(dataID, new DataEntry(storedData, _nextVersion++));
+            if ( oldEntry != null ) {
+                release(oldEntry.storedData);
+            }
+        }
+    }
+
+    private DataEntry getEntry(String dataID) throws NoSuchDataItemException {
+        DataEntry entry = _dataMap.get(dataID);
+        if ( entry == null ) {
+            throw new NoSuchDataItemException("The requested Data Item does not exist");
+        }
+        return entry;
+    }
+
+    /**
+     * Takes a reference to the stored data of a data item, so its blocks can be read outside of the lock without being
+     * freed by a concurrent remove.
+     */
+    private StoredData acquire(String dataID) throws NoSuchDataItemException {
+        synchronized (_lock) {
+            StoredData storedData = getEntry(dataID).storedData;
+            storedData.references++;
+            return storedData;
+        }
+    }
+
+    /**
+     * Drops a reference to stored data, freeing its blocks when it was the last one.  Data that was never published
+     * has no references, and is freed immediately.
+     */
+    private void release(StoredData storedData) {
+        synchronized (_lock) {
+            if ( storedData.references > 1 ) {
+                storedData.references--;
+                return;
+            }
+            if ( storedData.references == 1 ) {
+                _storedBytes -= storedData.size;
+            }
+            storedData.references = 0;
+            for ( SlabAllocator.Block block : storedData.blocks ) {
+                _allocator.free(block);
+            }
+            storedData.blocks.clear();
+        }
+    }
+
+    // -------- Accessor Methods --------
+
+    /**
+     * Sets the most off-heap memory, in bytes, that the store may use.  Takes effect when the provider is initialized.
+     */
+    public void setCapacity(long capacity) {
+        _capacity = capacity;
+    }
+
+    /**
+     * Sets the size, in bytes, of the slabs that memory is reserved in.  Must be at least 1MB, the largest block size.
+     * Takes effect when the provider is initialized.
+     */
+    public void setSlabSize(int slabSize) {
+        _slabSize = slabSize;
+    }
+
+    // ======== Stored Data ========
+
+    /**
+     * The blocks holding one copy of data, shared by every data item linked to it.  Every block is full but the last.
+     * The blocks holding the tail are of the smaller size classes, and the rest are of the largest.
+     */
+    private static class StoredData {
+        private final List<SlabAllocator.Block> blocks = new ArrayList<>();
+        private long size;
+        private int references;
+    }
+
+    // ======== Data Entry ========
+
+    private static class DataEntry {
+        private final StoredData storedData;
+        private final long version;
+
+        private DataEntry(StoredData storedData, long version) {
+            this.storedData = storedData;
+            this.version = version;
+        }
+    }
+}
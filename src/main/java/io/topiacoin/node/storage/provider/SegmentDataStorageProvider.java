@@ -0,0 +1,985 @@
+package io.topiacoin.node.storage.provider;
+
+import io.topiacoin.node.exceptions.CorruptDataItemException;
+import io.topiacoin.node.exceptions.InitializationException;
+import io.topiacoin.node.exceptions.NoSuchDataItemException;
+import io.topiacoin.node.utilities.HashUtilities;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Data Storage Provider that appends data items into large segment files instead of storing each data item in its own
+ * file.  This keeps the number of files (and inodes) proportional to the amount of data stored rather than the number
+ * of data items, and saves no longer need to create directories.
+ * <p>
+ * The location of every data item is recorded in an append-only index log which is replayed on startup.  Removing a
+ * data item only drops it from the index, leaving dead bytes in its segment.  A background compactor copies the live
+ * data items out of segments that are mostly dead into the active segment, then deletes the old segment files.
+ * <p>
+ * Each save first spools its data to a temp file, so a slow client never holds up other saves.  The spooled data item
+ * then reserves its place at the end of the active segment and is copied there without holding any lock, so only the
+ * reservation and the index update are serialized.  Reads are positional and may run concurrently with saves, removals,
+ * and compaction.
+ * <p>
+ * The "segment" profile brings in the SQLite Data Model Provider, so it can be activated on its own.  The provider is
+ * the primary Data Storage Provider, so if the profile is combined with "filesystem", the segment store is the one used.
+ */
+@Component
+@Primary
+@Profile("segment")
+public class SegmentDataStorageProvider implements DataStorageProvider {
+
+    private Log _log = LogFactory.getLog(this.getClass());
+
+    private static final String SEGMENT_DIRECTORY_NAME = "segments";
+    private static final String SPOOL_DIRECTORY_NAME = "spool";
+    private static final String SEGMENT_FILE_PREFIX = "segment-";
+    private static final String SEGMENT_FILE_SUFFIX = ".dat";
+    private static final String INDEX_FILE_NAME = "index.log";
+
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_DELETE = 2;
+
+    private static final int BUFFER_SIZE = 16384;
+
+    @Autowired
+    private String storageBasePath;
+
+    private long _maxSegmentSize = 256L * 1024 * 1024;
+    private double _compactionThreshold = 0.5;
+    private long _compactionInterval = 60;
+
+    private File _storageBaseFile;
+    private File _segmentDirectory;
+    private File _spoolDirectory;
+    private File _indexFile;
+
+    // Guards the index, the segment table, and the index log.
+    private final Object _lock = new Object();
+
+    // Serializes space reservations in the active segment and compaction copies.
+    private final ReentrantLock _appendLock = new ReentrantLock();
+
+    private Map<String, SegmentEntry> _index;
+    private Map<Integer, Segment> _segments;
+    private Segment _activeSegment;
+    private int _nextSegmentID;
+
+    private DataOutputStream _indexOut;
+    private long _indexRecordCount;
+
+    private ScheduledExecutorService _compactionExecutor;
+
+    public SegmentDataStorageProvider() {
+
+    }
+
+    @PostConstruct
+    public void initialize() {
+        _log.info ( "Initializing Segment Data Storage Provider");
+
+        _storageBaseFile = new File(storageBasePath);
+        _segmentDirectory = new File(_storageBaseFile, SEGMENT_DIRECTORY_NAME);
+        _spoolDirectory = new File(_storageBaseFile, SPOOL_DIRECTORY_NAME);
+        _indexFile = new File(_storageBaseFile, INDEX_FILE_NAME);
+
+        if ( !_segmentDirectory.exists() && !_segmentDirectory.mkdirs() ) {
+            _log.warn ( "Unable to access or create the Segment Directory" );
+            throw new InitializationException( "Failed to create the Segment Directory" ) ;
+        }
+
+        if ( !_spoolDirectory.exists() && !_spoolDirectory.mkdirs() ) {
+            _log.warn ( "Unable to access or create the Spool Directory" );
+            throw new InitializationException( "Failed to create the Spool Directory" ) ;
+        }
+
+        // Spool files left behind by interrupted saves are never committed.
+        File[] spoolFiles = _spoolDirectory.listFiles();
+        if ( spoolFiles != null ) {
+            for ( File spoolFile : spoolFiles ) {
+                if ( !spoolFile.delete() ) {
+                    _log.warn ( "Failed to delete spool file " + spoolFile );
+                }
+            }
+        }
+
+        _log.info ( "Storage Base Path: " + storageBasePath);
+
+        try {
+            _index = new HashMap<>();
+            _segments = new TreeMap<>();
+            _nextSegmentID = 0;
+
+            openSegments();
+            replayIndex();
+
+            // Always start appending to a fresh segment.  Anything written past the last index record of the old
+            // active segment is from an interrupted save and will be reclaimed by compaction.
+            _activeSegment = createSegment();
+
+            // Rewrite the index so startup doesn't have to replay the history of removed data items.
+            rewriteIndex();
+        } catch ( IOException e ) {
+            _log.warn ( "Unable to load the Segment Store", e );
+            throw new InitializationException( "Failed to load the Segment Store", e ) ;
+        }
+
+        _log.info ( "        Data Items : " + _index.size());
+        _log.info ( "        Segments   : " + _segments.size());
+
+        _compactionExecutor = Executors.newSingleThreadScheduledExecutor();
+        _compactionExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compact();
+                } catch ( Exception e ) {
+                    _log.warn ( "Segment compaction failed", e );
+                }
+            }
+        }, _compactionInterval, _compactionInterval, TimeUnit.SECONDS);
+
+        _log.info ( "Initialized Segment Data Storage Provider");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        _log.info ( "Shutting Down Segment Data Storage Provider");
+
+        if ( _compactionExecutor != null ) {
+            // Let a running compaction finish rather than interrupting it, as an interrupt closes the segment channels.
+            _compactionExecutor.shutdown();
+            try {
+                _compactionExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+            _compactionExecutor = null;
+        }
+
+        synchronized (_lock) {
+            try {
+                if ( _indexOut != null ) {
+                    _indexOut.close();
+                    _indexOut = null;
+                }
+            } catch ( IOException e ) {
+                _log.warn ( "Failed to close the Segment Index", e );
+            }
+
+            if ( _segments != null ) {
+                for ( Segment segment : _segments.values() ) {
+                    segment.close();
+                }
+                _segments.clear();
+            }
+        }
+
+        _log.info ( "Shut Down Segment Data Storage Provider");
+    }
+
+    /**
+     * Saves the given data item to persistent storage.  The data is appended to the active segment.
+     *
+     * @param dataID     The ID of the data item that is being saved.
+     * @param dataStream The InputStream containing the raw bytes of the data item.
+     *
+     * @throws IOException If there is an exception trying to save the data.
+     */
+    @Override
+    public long saveData(String dataID, InputStream dataStream) throws IOException {
+        try {
+            return appendData(dataID, dataStream, null, null);
+        } catch ( CorruptDataItemException e ) {
+            // Without a digest the data is never checked, so this can't happen.
+            throw new IOException("Unexpected verification failure", e);
+        }
+    }
+
+    /**
+     * Saves the given data item to persistent storage, verifying it against the dataHash as it is spooled.  If the hash
+     * does not match, the data item is never appended to the active segment and nothing is recorded in the index.
+     *
+     * @param dataID     The ID of the data item that is being saved.
+     * @param dataHash   The cryptographic hash that the data item must match.
+     * @param dataStream The InputStream containing the raw bytes of the data item.
+     *
+     * @return The size of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to save the data.
+     * @throws CorruptDataItemException If the data does not match the dataHash.
+     */
+    @Override
+    public long saveData(String dataID, String dataHash, InputStream dataStream) throws IOException, CorruptDataItemException {
+        MessageDigest digest;
+        try {
+            digest = HashUtilities.getDigest(dataHash);
+        } catch ( NoSuchAlgorithmException e ) {
+            throw new CorruptDataItemException("Unable to verify the data hash.", e);
+        }
+
+        return appendData(dataID, dataStream, dataHash, digest);
+    }
+
+    /**
+     * Makes the data item with the given dataID refer to the same stored bytes as an existing data item by pointing its
+     * index entry at the same segment location.  Segments are append-only, so the linked data items stay independent.
+     *
+     * @param existingDataID The ID of the stored data item whose bytes are to be shared.
+     * @param dataID         The ID of the data item that is being created.
+     *
+     * @throws IOException If there is an exception trying to link the data.
+     * @throws NoSuchDataItemException If the existing Data Item does not exist.
+     */
+    @Override
+    public void linkData(String existingDataID, String dataID) throws IOException, NoSuchDataItemException {
+        synchronized (_lock) {
+            SegmentEntry entry = _index.get(existingDataID);
+            if ( entry == null ) {
+                throw new NoSuchDataItemException("The requested Data Item does not exist");
+            }
+            putEntry(dataID, new SegmentEntry(entry.segmentID, entry.offset, entry.length));
+        }
+    }
+
+    /**
+     * Retrieves the data item from persistent storage and writes to to the given outputStream.  If the data item is not
+     * in storage, an exception is thrown.
+     *
+     * @param dataID       The ID of the data item being fetched
+     * @param outputStream The OutputStream to which the fetched item will be written.
+     *
+     * @throws IOException If there is an exception trying to fetch the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public void fetchData(String dataID, OutputStream outputStream) throws IOException, NoSuchDataItemException {
+        long size = getDataSize(dataID);
+        transferData(dataID, 0, size, Channels.newChannel(outputStream));
+    }
+
+    /**
+     * Retrieves the requested portion of the data item from persistent storage and writes to to the given outputStream.
+     * If the data item is not in storage, an exception is thrown.
+     *
+     * @param dataID       The ID of the data item being fetched.
+     * @param offset       The offset within the data item to start reading data.
+     * @param length       The number of bytes of data to return, starting at the offset.  If length is larger than the
+     *                     size of the data item, an IOException is thrown.
+     * @param outputStream The OutputStream to which the fetched data will be written.
+     *
+     * @throws IOException If there is an exception trying to fetch the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public void fetchData(String dataID, int offset, int length, OutputStream outputStream) throws IOException, NoSuchDataItemException {
+        long size = getDataSize(dataID);
+
+        if ( offset >= size || offset < 0 ) {
+            throw new IOException("Invalid Offset") ;
+        }
+
+        if ( length > ( size - offset) || length < 0) {
+            throw new IOException("Invalid Length") ;
+        }
+
+        transferData(dataID, offset, length, Channels.newChannel(outputStream));
+    }
+
+    /**
+     * Transfers the requested portion of the data item from its segment directly into the given channel.  The segment
+     * region is handed to {@link FileChannel#transferTo}, so the data item is never copied into the Java heap in its
+     * entirety.
+     *
+     * @param dataID  The ID of the data item being transferred.
+     * @param offset  The offset within the data item to start transferring data.
+     * @param length  The number of bytes of data to transfer, starting at the offset.  If the range extends past the end
+     *                of the data item, an IOException is thrown.
+     * @param channel The channel to which the data will be written.
+     *
+     * @return The number of bytes transferred.
+     *
+     * @throws IOException If there is an exception trying to transfer the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public long transferData(String dataID, long offset, long length, WritableByteChannel channel) throws IOException, NoSuchDataItemException {
+        SegmentEntry entry;
+        Segment segment;
+        synchronized (_lock) {
+            entry = _index.get(dataID);
+            if ( entry == null ) {
+                throw new NoSuchDataItemException("The requested Data Item does not exist");
+            }
+            segment = _segments.get(entry.segmentID);
+            segment.acquire();
+        }
+
+        try {
+            if ( offset < 0 || length < 0 || offset + length > entry.length ) {
+                throw new IOException("Invalid Range") ;
+            }
+
+            // transferTo() may move fewer bytes than requested, so keep going until the whole region is written.
+            long start = entry.offset + offset;
+            long transferred = 0 ;
+            while ( transferred < length ) {
+                long count = segment.channel.transferTo(start + transferred, length - transferred, channel);
+                if ( count <= 0 ) {
+                    throw new IOException("Unable to transfer the requested Data Item") ;
+                }
+                transferred += count ;
+            }
+            return transferred;
+        } finally {
+            release(segment);
+        }
+    }
+
+    /**
+     * Returns a buffer containing the requested portion of the data item.  Segments are kept open, so this is a single
+     * positional read with no per-range open or skip.
+     *
+     * @param dataID The ID of the data item being read.
+     * @param offset The offset within the data item to start reading data.
+     * @param length The number of bytes of data to return, starting at the offset.  If the range extends past the end
+     *               of the data item, an IOException is thrown.
+     *
+     * @return A read-only buffer containing the requested range of the data item.
+     *
+     * @throws IOException If there is an exception trying to read the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public ByteBuffer getDataBuffer(String dataID, long offset, int length) throws IOException, NoSuchDataItemException {
+        SegmentEntry entry;
+        Segment segment;
+        synchronized (_lock) {
+            entry = _index.get(dataID);
+            if ( entry == null ) {
+                throw new NoSuchDataItemException("The requested Data Item does not exist");
+            }
+            segment = _segments.get(entry.segmentID);
+            segment.acquire();
+        }
+
+        try {
+            if ( offset < 0 || length < 0 || offset + length > entry.length ) {
+                throw new IOException("Invalid Range") ;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            long start = entry.offset + offset;
+            while ( buffer.hasRemaining() ) {
+                if ( segment.channel.read(buffer, start + buffer.position()) < 0 ) {
+                    throw new IOException("Unexpected end of segment") ;
+                }
+            }
+            buffer.flip();
+            return buffer.asReadOnlyBuffer();
+        } finally {
+            release(segment);
+        }
+    }
+
+    /**
+     * Returns the size, in bytes, of the stored data item.
+     *
+     * @param dataID The ID of the data item whose size is being requested.
+     *
+     * @return The size of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to access the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public long getDataSize(String dataID) throws IOException, NoSuchDataItemException {
+        return getEntry(dataID).length;
+    }
+
+    /**
+     * Returns an opaque version stamp for the stored data item.  The stamp is the data item's location in the segment
+     * store.  Segments are append-only, so every save (and every move by the compactor) produces a new stamp.
+     *
+     * @param dataID The ID of the data item whose version is being requested.
+     *
+     * @return The version stamp of the stored data item.
+     *
+     * @throws IOException If there is an exception trying to access the data.
+     * @throws NoSuchDataItemException If the specified Data Item does not exist.
+     */
+    @Override
+    public String getDataVersion(String dataID) throws IOException, NoSuchDataItemException {
+        SegmentEntry entry = getEntry(dataID);
+        return entry.segmentID + ":" + entry.offset;
+    }
+
+    /**
+     * Removes the data item from persistent storage.  Returns true if a matching data item was found and removed.
+     * Returns false if no matching data item was found.  The space used by the data item is reclaimed when its segment
+     * is compacted.
+     *
+     * @param dataID The ID of the data item that is to be removed from storage.
+     *
+     * @return True if the specified data item was removed from storage.  False if it was not found.
+     *
+     * @throws IOException If there is an exception trying to remove the data.
+     */
+    @Override
+    public boolean removeData(String dataID) throws IOException {
+        synchronized (_lock) {
+            SegmentEntry entry = _index.remove(dataID);
+            if ( entry == null ) {
+                return false;
+            }
+
+            _segments.get(entry.segmentID).liveBytes -= entry.length;
+            writeDeleteRecord(dataID);
+            return true;
+        }
+    }
+
+    /**
+     * Returns true if a data item with the specified dataID has been persistently stored.
+     *
+     * @param dataID The ID of the data item whose existence is being checked.
+     *
+     * @return True if the specified data item exists in the storage.  False if it does not.
+     *
+     * @throws IOException If there is an exception trying to check for the data.
+     */
+    @Override
+    public boolean hasData(String dataID) throws IOException {
+        synchronized (_lock) {
+            return _index.containsKey(dataID);
+        }
+    }
+
+    /**
+     * Compacts every sealed segment whose fraction of live bytes has fallen below the compaction threshold.  The live
+     * data items in each such segment are copied into the active segment, after which the old segment file is deleted.
+     * This is run periodically in the background, but may also be called directly.
+     *
+     * @return The number of segments that were reclaimed.
+     *
+     * @throws IOException If there is an exception trying to compact the segments.
+     */
+    public int compact() throws IOException {
+        List<Segment> candidates = new ArrayList<>();
+        synchronized (_lock) {
+            for ( Segment segment : _segments.values() ) {
+                // A sealed segment may still be receiving a save that reserved its space before the segment was sealed.
+                if ( segment != _activeSegment && segment.pendingWrites == 0
+                        && (segment.liveBytes == 0 || segment.liveBytes < segment.size * _compactionThreshold) ) {
+                    candidates.add(segment);
+                }
+            }
+        }
+
+        int reclaimed = 0;
+        for ( Segment segment : candidates ) {
+            if ( Thread.currentThread().isInterrupted() ) {
+                break;
+            }
+            compactSegment(segment);
+            reclaimed++;
+        }
+
+        synchronized (_lock) {
+            // Once the index log is mostly history, replace it with a snapshot of the live index.
+            if ( _indexRecordCount > 2L * _index.size() + 1000 ) {
+                rewriteIndex();
+            }
+        }
+
+        if ( reclaimed > 0 ) {
+            _log.info ( "Compacted " + reclaimed + " segment(s)" );
+        }
+
+        return reclaimed;
+    }
+
+    // -------- Private Methods --------
+
+    /**
+     * Appends the data stream to the active segment and records it in the index.  The stream is first spooled to a temp
+     * file, with no lock held.  If a digest is given, the spooled data is run through it, and the data item is only
+     * appended if the hash matches.  The spooled data item then reserves space at the end of the active segment under
+     * the append lock, and is copied into the reserved space without any lock held.
+     * <p>
+     * If the copy fails, the reserved space is left as dead bytes, since later saves may already have reserved the space
+     * after it.  Compaction reclaims it along with the space of removed data items.
+     */
+    private long appendData(String dataID, InputStream dataStream, String dataHash, MessageDigest digest)
+            throws IOException, CorruptDataItemException {
+
+        File spoolFile = File.createTempFile("save-", ".tmp", _spoolDirectory);
+        try {
+            long length = 0;
+            try (OutputStream spoolStream = new FileOutputStream(spoolFile)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int bytesRead;
+                while ( (bytesRead = dataStream.read(buffer)) != -1 ) {
+                    if ( digest != null ) {
+                        digest.update(buffer, 0, bytesRead);
+                    }
+                    spoolStream.write(buffer, 0, bytesRead);
+                    length += bytesRead;
+                }
+            }
+
+            if ( digest != null && !HashUtilities.verifyDigest(dataHash, digest) ) {
+                throw new CorruptDataItemException("The specified data item does not match the specified hash");
+            }
+
+            Segment segment;
+            long start;
+            _appendLock.lock();
+            try {
+                segment = rollSegmentIfFull();
+                synchronized (_lock) {
+                    start = segment.size;
+                    segment.size = start + length;
+                    segment.pendingWrites++;
+                }
+            } finally {
+                _appendLock.unlock();
+            }
+
+            try (FileChannel spoolChannel = FileChannel.open(spoolFile.toPath(), StandardOpenOption.READ)) {
+                // Positional writes may land past the end of the file while an earlier reservation is still being
+                // copied, so the spooled data is written buffer by buffer rather than with transferFrom().
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                long copied = 0;
+                while ( copied < length ) {
+                    buffer.clear();
+                    if ( spoolChannel.read(buffer, copied) < 0 ) {
+                        throw new IOException("Unable to append data item '" + dataID + "' to its segment");
+                    }
+                    buffer.flip();
+                    int count = buffer.remaining();
+                    writeFully(segment.channel, buffer, start + copied);
+                    copied += count;
+                }
+
+                synchronized (_lock) {
+                    putEntry(dataID, new SegmentEntry(segment.id, start, length));
+                }
+            } finally {
+                synchronized (_lock) {
+                    segment.pendingWrites--;
+                }
+            }
+
+            return length;
+        } finally {
+            if ( !spoolFile.delete() ) {
+                _log.warn ( "Failed to delete spool file " + spoolFile );
+            }
+        }
+    }
+
+    /**
+     * Copies the live data items out of the given segment into the active segment, then retires the segment.  Each
+     * data item is moved under the append lock individually so saves are not blocked for the whole segment.
+     * <p>
+     * Data items linked to the segment while it is being compacted are picked up by rescanning the index.  The segment
+     * is only retired once a scan, under the lock that links are made under, finds nothing left pointing at it.
+     */
+    private void compactSegment(Segment segment) throws IOException {
+        // Linked data items share a location, so track where each location was moved to and only copy it once.
+        Map<Long, SegmentEntry> movedLocations = new HashMap<>();
+
+        while ( true ) {
+            List<String> dataIDs = new ArrayList<>();
+            synchronized (_lock) {
+                for ( Map.Entry<String, SegmentEntry> mapEntry : _index.entrySet() ) {
+                    if ( mapEntry.getValue().segmentID == segment.id ) {
+                        dataIDs.add(mapEntry.getKey());
+                    }
+                }
+                if ( dataIDs.isEmpty() ) {
+                    _segments.remove(segment.id);
+                    segment.retired = true;
+                    if ( segment.refCount == 0 ) {
+                        segment.closeAndDelete();
+                    }
+                    return;
+                }
+            }
+
+            moveDataItems(segment, dataIDs, movedLocations);
+        }
+    }
+
+    /**
+     * Moves the given data items out of the segment being compacted, if they are still stored in it.
+     */
+    private void moveDataItems(Segment segment, List<String> dataIDs, Map<Long, SegmentEntry> movedLocations)
+            throws IOException {
+        for ( String dataID : dataIDs ) {
+            _appendLock.lock();
+            try {
+                SegmentEntry entry;
+                synchronized (_lock) {
+                    entry = _index.get(dataID);
+                }
+                if ( entry == null || entry.segmentID != segment.id ) {
+                    // Removed or replaced since we looked.
+                    continue;
+                }
+
+                SegmentEntry moved = movedLocations.get(entry.offset);
+                if ( moved != null && moved.length == entry.length ) {
+                    synchronized (_lock) {
+                        if ( _index.get(dataID) == entry && _segments.containsKey(moved.segmentID) ) {
+                            putEntry(dataID, new SegmentEntry(moved.segmentID, moved.offset, moved.length));
+                            continue;
+                        }
+                    }
+                }
+
+                Segment target = rollSegmentIfFull();
+                long start = target.size;
+                target.channel.position(start);
+
+                long copied = 0;
+                while ( copied < entry.length ) {
+                    long count = segment.channel.transferTo(entry.offset + copied, entry.length - copied, target.channel);
+                    if ( count <= 0 ) {
+                        target.channel.truncate(start);
+                        throw new IOException("Unable to copy data item '" + dataID + "' during compaction");
+                    }
+                    copied += count;
+                }
+
+                synchronized (_lock) {
+                    target.size = start + copied;
+                    if ( _index.get(dataID) == entry ) {
+                        SegmentEntry newEntry = new SegmentEntry(target.id, start, entry.length);
+                        putEntry(dataID, newEntry);
+                        movedLocations.put(entry.offset, newEntry);
+                    } else {
+                        // Removed while it was being copied.  The copy is simply dead space in the target.
+                    }
+                }
+            } finally {
+                _appendLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the active segment, first sealing it and starting a new one if it has reached the maximum segment size.
+     * Must be called with the append lock held.
+     */
+    private Segment rollSegmentIfFull() throws IOException {
+        synchronized (_lock) {
+            if ( _activeSegment.size >= _maxSegmentSize ) {
+                _activeSegment = createSegment();
+            }
+            return _activeSegment;
+        }
+    }
+
+    private Segment createSegment() throws IOException {
+        synchronized (_lock) {
+            int id = _nextSegmentID++;
+            Segment segment = new Segment(id, new File(_segmentDirectory, segmentFileName(id)));
+            _segments.put(id, segment);
+            return segment;
+        }
+    }
+
+    private void putEntry(String dataID, SegmentEntry entry) throws IOException {
+        SegmentEntry previous = _index.put(dataID, entry);
+        if ( previous != null ) {
+            _segments.get(previous.segmentID).liveBytes -= previous.length;
+        }
+        _segments.get(entry.segmentID).liveBytes += entry.length;
+        writePutRecord(dataID, entry);
+    }
+
+    private SegmentEntry getEntry(String dataID) throws NoSuchDataItemException {
+        synchronized (_lock) {
+            SegmentEntry entry = _index.get(dataID);
+            if ( entry == null ) {
+                throw new NoSuchDataItemException("The requested Data Item does not exist");
+            }
+            return entry;
+        }
+    }
+
+    private void release(Segment segment) {
+        synchronized (_lock) {
+            segment.refCount--;
+            if ( segment.retired && segment.refCount == 0 ) {
+                segment.closeAndDelete();
+            }
+        }
+    }
+
+    private void writePutRecord(String dataID, SegmentEntry entry) throws IOException {
+        writePutRecord(_indexOut, dataID, entry);
+        _indexOut.flush();
+        _indexRecordCount++;
+    }
+
+    private void writePutRecord(DataOutputStream out, String dataID, SegmentEntry entry) throws IOException {
+        out.writeByte(RECORD_PUT);
+        out.writeUTF(dataID);
+        out.writeInt(entry.segmentID);
+        out.writeLong(entry.offset);
+        out.writeLong(entry.length);
+    }
+
+    private void writeDeleteRecord(String dataID) throws IOException {
+        _indexOut.writeByte(RECORD_DELETE);
+        _indexOut.writeUTF(dataID);
+        _indexOut.flush();
+        _indexRecordCount++;
+    }
+
+    /**
+     * Opens every segment file in the segment directory.
+     */
+    private void openSegments() throws IOException {
+        File[] segmentFiles = _segmentDirectory.listFiles();
+        if ( segmentFiles == null ) {
+            return;
+        }
+
+        for ( File segmentFile : segmentFiles ) {
+            String name = segmentFile.getName();
+            if ( !name.startsWith(SEGMENT_FILE_PREFIX) || !name.endsWith(SEGMENT_FILE_SUFFIX) ) {
+                continue;
+            }
+
+            int id = Integer.parseInt(name.substring(SEGMENT_FILE_PREFIX.length(), name.length() - SEGMENT_FILE_SUFFIX.length()));
+            Segment segment = new Segment(id, segmentFile);
+            segment.size = segment.channel.size();
+            _segments.put(id, segment);
+            _nextSegmentID = Math.max(_nextSegmentID, id + 1);
+        }
+    }
+
+    /**
+     * Rebuilds the in-memory index by replaying the index log.  A partially written record at the end of the log is
+     * discarded.
+     */
+    private void replayIndex() throws IOException {
+        if ( !_indexFile.exists() ) {
+            return;
+        }
+
+        long goodLength = 0;
+        try (CountingInputStream cis = new CountingInputStream(new BufferedInputStream(new FileInputStream(_indexFile)));
+             DataInputStream in = new DataInputStream(cis)) {
+            while ( true ) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch ( EOFException e ) {
+                    break;
+                }
+
+                try {
+                    String dataID = in.readUTF();
+                    if ( type == RECORD_PUT ) {
+                        SegmentEntry entry = new SegmentEntry(in.readInt(), in.readLong(), in.readLong());
+                        Segment segment = _segments.get(entry.segmentID);
+                        if ( segment == null || entry.offset + entry.length > segment.size ) {
+                            _log.warn ( "Dropping index entry for data item '" + dataID + "' with missing segment data" );
+                            removeEntry(dataID);
+                        } else {
+                            removeEntry(dataID);
+                            _index.put(dataID, entry);
+                            segment.liveBytes += entry.length;
+                        }
+                    } else if ( type == RECORD_DELETE ) {
+                        removeEntry(dataID);
+                    } else {
+                        throw new IOException("Unknown index record type: " + type);
+                    }
+                } catch ( EOFException e ) {
+                    _log.warn ( "Discarding partial record at the end of the Segment Index" );
+                    break;
+                }
+
+                goodLength = cis.getByteCount();
+            }
+        }
+
+        if ( goodLength < _indexFile.length() ) {
+            try (RandomAccessFile raf = new RandomAccessFile(_indexFile, "rw")) {
+                raf.setLength(goodLength);
+            }
+        }
+    }
+
+    private void removeEntry(String dataID) {
+        SegmentEntry previous = _index.remove(dataID);
+        if ( previous != null ) {
+            _segments.get(previous.segmentID).liveBytes -= previous.length;
+        }
+    }
+
+    /**
+     * Replaces the index log with a snapshot of the live index.  The snapshot is written to a temp file and atomically
+     * renamed over the index log.
+     */
+    private void rewriteIndex() throws IOException {
+        synchronized (_lock) {
+            if ( _indexOut != null ) {
+                _indexOut.close();
+                _indexOut = null;
+            }
+
+            File tempIndexFile = new File(_storageBaseFile, INDEX_FILE_NAME + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempIndexFile)))) {
+                for ( Map.Entry<String, SegmentEntry> mapEntry : _index.entrySet() ) {
+                    writePutRecord(out, mapEntry.getKey(), mapEntry.getValue());
+                }
+            }
+            Files.move(tempIndexFile.toPath(), _indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+            _indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_indexFile, true)));
+            _indexRecordCount = _index.size();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while ( buffer.hasRemaining() ) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static String segmentFileName(int id) {
+        return String.format("%s%08d%s", SEGMENT_FILE_PREFIX, id, SEGMENT_FILE_SUFFIX);
+    }
+
+    // -------- Accessor Methods --------
+
+
+    public void setStorageBasePath(String storageBasePath) {
+        this.storageBasePath = storageBasePath;
+    }
+
+    /**
+     * Sets the size, in bytes, at which the active segment is sealed and a new one started.
+     */
+    public void setMaxSegmentSize(long maxSegmentSize) {
+        _maxSegmentSize = maxSegmentSize;
+    }
+
+    /**
+     * Sets the fraction of live bytes below which a sealed segment is compacted.
+     */
+    public void setCompactionThreshold(double compactionThreshold) {
+        _compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Sets the number of seconds between background compaction runs.
+     */
+    public void setCompactionInterval(long compactionInterval) {
+        _compactionInterval = compactionInterval;
+    }
+
+    // ======== Segment Entry ========
+
+    /**
+     * Location of a data item within the segment store.
+     */
+    private static class SegmentEntry {
+        private final int segmentID;
+        private final long offset;
+        private final long length;
+
+        private SegmentEntry(int segmentID, long offset, long length) {
+            this.segmentID = segmentID;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    // ======== Segment ========
+
+    /**
+     * An open segment file.  Readers hold a reference while transferring so a segment retired by the compactor is not
+     * closed out from under them.
+     */
+    private class Segment {
+        private final int id;
+        private final File file;
+        private final FileChannel channel;
+        private long size;
+        private long liveBytes;
+        private int refCount;
+        private int pendingWrites;
+        private boolean retired;
+
+        private Segment(int id, File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        private void acquire() {
+            refCount++;
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch ( IOException e ) {
+                _log.warn ( "Failed to close segment " + file, e );
+            }
+        }
+
+        private void closeAndDelete() {
+            close();
+            if ( !file.delete() ) {
+                _log.warn ( "Failed to delete segment " + file );
+            }
+        }
+    }
+}
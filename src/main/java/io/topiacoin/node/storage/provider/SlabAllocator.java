@@ -0,0 +1,245 @@
+package io.topiacoin.node.storage.provider;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Allocates fixed size blocks of off-heap memory out of large direct ByteBuffer slabs.  Blocks come in a small number of
+ * size classes, each a power of four larger than the last, and every slab is carved into blocks of a single size class.
+ * Freed blocks are reused by later allocations of the same class, and a slab whose blocks are all free is released so
+ * its memory can be used by another class.
+ * <p>
+ * The total size of the slabs is held under a fixed capacity.  Direct memory is only returned to the operating system
+ * once a released slab is garbage collected, so the JVM's -XX:MaxDirectMemorySize should allow some headroom above the
+ * capacity.
+ * <p>
+ * The allocator is not thread safe.
+ */
+public class SlabAllocator {
+
+    private final SizeClass[] _sizeClasses;
+    private final long _capacity;
+    private final int _slabSize;
+
+    private long _allocatedBytes;
+    private long _usedBytes;
+    private int _slabCount;
+
+    /**
+     * Creates a new allocator.
+     *
+     * @param capacity     The most memory, in bytes, that the allocator's slabs may occupy.
+     * @param slabSize     The size, in bytes, of each slab.  Must be at least as large as the largest block size.
+     * @param minBlockSize The block size, in bytes, of the smallest size class.
+     * @param maxBlockSize The block size, in bytes, of the largest size class.
+     */
+    public SlabAllocator(long capacity, int slabSize, int minBlockSize, int maxBlockSize) {
+        if (minBlockSize <= 0 || maxBlockSize < minBlockSize || slabSize < maxBlockSize) {
+            throw new IllegalArgumentException("Invalid block or slab size");
+        }
+
+        int classCount = 1;
+        for (long blockSize = minBlockSize; blockSize * 4 <= maxBlockSize; blockSize *= 4) {
+            classCount++;
+        }
+        _sizeClasses = new SizeClass[classCount];
+        int blockSize = minBlockSize;
+        for (int i = 0; i < classCount; i++) {
+            _sizeClasses[i] = new SizeClass(blockSize);
+            blockSize *= 4;
+        }
+
+        _capacity = capacity;
+        _slabSize = slabSize;
+    }
+
+    /**
+     * Allocates a block from the smallest size class that can hold the given number of bytes.
+     *
+     * @param size The number of bytes that must fit in the block.  Must not be larger than the largest block size.
+     *
+     * @return The allocated block, or null if the allocator is at capacity.
+     */
+    public Block allocate(int size) {
+        for (SizeClass sizeClass : _sizeClasses) {
+            if (size <= sizeClass.blockSize) {
+                return allocate(sizeClass);
+            }
+        }
+        throw new IllegalArgumentException("Size is larger than the largest block size: " + size);
+    }
+
+    /**
+     * Returns a block to the allocator.  The block must not be used afterwards.
+     */
+    public void free(Block block) {
+        Slab slab = block.slab;
+        SizeClass sizeClass = slab.sizeClass;
+
+        slab.freeBlocks.push(block.index);
+        _usedBytes -= sizeClass.blockSize;
+
+        if (slab.freeBlocks.size() == slab.blockCount) {
+            // Every block in the slab is free, so release it.
+            sizeClass.partialSlabs.remove(slab);
+            _allocatedBytes -= _slabSize;
+            _slabCount--;
+        } else if (slab.freeBlocks.size() == 1) {
+            sizeClass.partialSlabs.push(slab);
+        }
+    }
+
+    /**
+     * Returns the block size, in bytes, of the smallest size class that can hold the given number of bytes, or 0 if
+     * the size is larger than the largest block size.
+     */
+    public int getBlockSize(int size) {
+        for (SizeClass sizeClass : _sizeClasses) {
+            if (size <= sizeClass.blockSize) {
+                return sizeClass.blockSize;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the block size, in bytes, of the largest size class whose blocks are no larger than the given number of
+     * bytes, or 0 if the size is smaller than the smallest block size.
+     */
+    public int getFloorBlockSize(int size) {
+        for (int i = _sizeClasses.length - 1; i >= 0; i--) {
+            if (_sizeClasses[i].blockSize <= size) {
+                return _sizeClasses[i].blockSize;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the size, in bytes, of the blocks in the largest size class.
+     */
+    public int getMaxBlockSize() {
+        return _sizeClasses[_sizeClasses.length - 1].blockSize;
+    }
+
+    /**
+     * Returns the most memory, in bytes, that the allocator's slabs may occupy.
+     */
+    public long getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * Returns the memory, in bytes, occupied by the allocator's slabs.
+     */
+    public long getAllocatedBytes() {
+        return _allocatedBytes;
+    }
+
+    /**
+     * Returns the memory, in bytes, occupied by allocated blocks.
+     */
+    public long getUsedBytes() {
+        return _usedBytes;
+    }
+
+    /**
+     * Returns the number of slabs that are currently allocated.
+     */
+    public int getSlabCount() {
+        return _slabCount;
+    }
+
+    // -------- Private Methods --------
+
+    private Block allocate(SizeClass sizeClass) {
+        Slab slab = sizeClass.partialSlabs.peek();
+        if (slab == null) {
+            if (_allocatedBytes + _slabSize > _capacity) {
+                return null;
+            }
+            slab = new Slab(sizeClass, ByteBuffer.allocateDirect(_slabSize), _slabSize / sizeClass.blockSize);
+            sizeClass.partialSlabs.push(slab);
+            _allocatedBytes += _slabSize;
+            _slabCount++;
+        }
+
+        int index = slab.freeBlocks.pop();
+        if (slab.freeBlocks.isEmpty()) {
+            sizeClass.partialSlabs.pop();
+        }
+        _usedBytes += sizeClass.blockSize;
+
+        return new Block(slab, index);
+    }
+
+    // ======== Block ========
+
+    /**
+     * A block of memory within a slab.
+     */
+    public static class Block {
+
+        private final Slab slab;
+        private final int index;
+
+        private Block(Slab slab, int index) {
+            this.slab = slab;
+            this.index = index;
+        }
+
+        /**
+         * Returns the capacity of the block, in bytes.
+         */
+        public int getSize() {
+            return slab.sizeClass.blockSize;
+        }
+
+        /**
+         * Returns a buffer over the block's memory, positioned at its start with its limit at its end.  Each call
+         * returns an independent buffer.
+         */
+        public ByteBuffer getBuffer() {
+            int blockSize = slab.sizeClass.blockSize;
+            ByteBuffer buffer = slab.buffer.duplicate();
+            buffer.limit(index * blockSize + blockSize);
+            buffer.position(index * blockSize);
+            return buffer.slice();
+        }
+    }
+
+    // ======== Slab ========
+
+    private static class Slab {
+
+        private final SizeClass sizeClass;
+        private final ByteBuffer buffer;
+        private final int blockCount;
+        private final Deque<Integer> freeBlocks;
+
+        private Slab(SizeClass sizeClass, ByteBuffer buffer, int blockCount) {
+            this.sizeClass = sizeClass;
+            this.buffer = buffer;
+            this.blockCount = blockCount;
+            this.freeBlocks = new ArrayDeque<>(blockCount);
+            for (int i = blockCount - 1; i >= 0; i--) {
+                freeBlocks.push(i);
+            }
+        }
+    }
+
+    // ======== Size Class ========
+
+    private static class SizeClass {
+
+        private final int blockSize;
+
+        // Slabs of this class that have at least one free block.
+        private final Deque<Slab> partialSlabs = new ArrayDeque<>();
+
+        private SizeClass(int blockSize) {
+            this.blockSize = blockSize;
+        }
+    }
+}
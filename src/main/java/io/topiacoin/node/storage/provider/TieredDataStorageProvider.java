@@ -0,0 +1,591 @@
+package io.topiacoin.node.storage.provider;
+
+import io.topiacoin.node.exceptions.CorruptDataItemException;
+import io.topiacoin.node.exceptions.NoSuchDataItemException;
+import io.topiacoin.node.utilities.FrequencySketch;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Data Storage Provider that serves hot data items from a memory tier and keeps every data item in a filesystem tier.
+ * <p>
+ * Writes go through to the cold tier, which always holds every data item and is the authority on versions, so nothing
+ * is lost when the memory tier is emptied.  Reads are counted in a frequency sketch, and a data item that has been read
+ * often enough is promoted by copying it into the hot tier in the background.  Saving a data item counts as a read, so
+ * recently stored data items are promoted sooner.  Saving, linking or removing a data item drops its hot copy.
+ * <p>
+ * When the hot tier fills past its high watermark, a background task demotes the least recently read data items until
+ * it is back under the low watermark.  Demotion just drops the hot copy, as the cold tier already has the data.  For
+ * the off-heap hot tier, fullness is measured by the memory its slabs occupy rather than the bytes of data it holds, so
+ * space lost to partly used blocks and slabs is counted.  A promotion that still finds the hot tier full demotes more
+ * data items and tries again.
+ * <p>
+ * The "tiered" profile brings in the SQLite Data Model Provider, so it can be activated on its own.  The provider is
+ * the primary Data Storage Provider, so it wins if the profile is combined with another storage profile.  It should not
+ * be combined with "filesystem", as its cold tier already is a filesystem store on the same storage base path.
+ */
+@Component
+@Primary
+@Profile("tiered")
+public class TieredDataStorageProvider implements DataStorageProvider {
+
+    private Log _log = LogFactory.getLog(this.getClass());
+
+    private static final int GENERATION_STRIPES = 64;
+    private static final double HIGH_WATERMARK = 0.9;
+    private static final double LOW_WATERMARK = 0.75;
+
+    @Autowired
+    private String storageBasePath;
+
+    private long _hotTierSize = 256L * 1024 * 1024;
+    private long _maxPromotedItemSize = 4 * 1024 * 1024;
+    private int _promotionThreshold = 2;
+    private long _maintenanceInterval = 1000;
+
+    private DataStorageProvider _hotTier;
+    private DataStorageProvider _coldTier;
+
+    private FrequencySketch _sketch;
+
+    // The data items with a copy in the hot tier, least recently read first.  All tier state is guarded by this.
+    private final LinkedHashMap<String, Resident> _residents = new LinkedHashMap<>();
+    private long _residentBytes;
+
+    // Data items waiting to be promoted.
+    private final Set<String> _pendingPromotions = new HashSet<>();
+
+    // Incremented whenever a data item is changed, so a promotion that raced with the change is discarded.  Striped by
+    // dataID so unrelated writes don't prevent promotions.
+    private final long[] _generations = new long[GENERATION_STRIPES];
+
+    private long _hotReadCount;
+    private long _coldReadCount;
+    private long _promotionCount;
+    private long _demotionCount;
+
+    private long _lastRateTime;
+    private long _lastPromotionCount;
+    private long _lastDemotionCount;
+    private double _promotionRate;
+    private double _demotionRate;
+
+    private ExecutorService _promotionExecutor;
+    private ScheduledExecutorService _maintenanceExecutor;
+
+    public TieredDataStorageProvider() {
+
+    }
+
+    /**
+     * Creates a tiered provider over the given tiers.  The tiers are initialized and shut down with this provider.
+     *
+     * @param hotTier  The provider holding copies of hot data items.
+     * @param coldTier The provider holding every data item.
+     */
+    public TieredDataStorageProvider(DataStorageProvider hotTier, DataStorageProvider coldTier) {
+        _hotTier = hotTier;
+        _coldTier = coldTier;
+    }
+
+    @Override
+    @PostConstruct
+    public void initialize() {
+        _log.info ( "Initializing Tiered Data Storage Provider" ) ;
+
+        if ( _hotTier == null ) {
+            OffHeapDataStorageProvider hotTier = new OffHeapDataStorageProvider();
+            hotTier.setCapacity(_hotTierSize);
+            _hotTier = hotTier;
+        }
+        if ( _coldTier == null ) {
+            FileSystemStorageProvider coldTier = new FileSystemStorageProvider();
+            coldTier.setStorageBasePath(storageBasePath);
+            _coldTier = coldTier;
+        }
+
+        _hotTier.initialize();
+        _coldTier.initialize();
+
+        // Size the sketch for the number of items the hot tier would hold if they were all 16KB.
+        _sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE >> 4, Math.max(1024, _hotTierSize / 16384)));
+        _lastRateTime = System.currentTimeMillis();
+
+        _promotionExecutor = Executors.newSingleThreadExecutor();
+        _maintenanceExecutor = Executors.newSingleThreadScheduledExecutor();
+        _maintenanceExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runMaintenance();
+                } catch ( Exception e ) {
+                    _log.warn ( "Tier maintenance failed", e );
+                }
+            }
+        }, _maintenanceInterval, _maintenanceInterval, TimeUnit.MILLISECONDS);
+
+        _log.info ( "        Hot Tier Size       : " + _hotTierSize ) ;
+        _log.info ( "        Promotion Threshold : " + _promotionThreshold ) ;
+
+        _log.info ( "Initialized Tiered Data Storage Provider" ) ;
+    }
+
+    @Override
+    @PreDestroy
+    public void shutdown() {
+        _log.info ( "Shutting Down Tiered Data Storage Provider" ) ;
+
+        if ( _maintenanceExecutor != null ) {
+            _maintenanceExecutor.shutdownNow();
+            _maintenanceExecutor = null;
+        }
+        if ( _promotionExecutor != null ) {
+            _promotionExecutor.shutdownNow();
+            _promotionExecutor = null;
+        }
+
+        synchronized (this) {
+            _log.info ( "        Hot Reads  : " + _hotReadCount ) ;
+            _log.info ( "        Cold Reads : " + _coldReadCount ) ;
+            _log.info ( "        Promotions : " + _promotionCount ) ;
+            _log.info ( "        Demotions  : " + _demotionCount ) ;
+
+            _residents.clear();
+            _residentBytes = 0;
+            _pendingPromotions.clear();
+        }
+
+        if ( _hotTier != null ) {
+            _hotTier.shutdown();
+        }
+        if ( _coldTier != null ) {
+            _coldTier.shutdown();
+        }
+
+        _log.info ( "Shut Down Tiered Data Storage Provider" ) ;
+    }
+
+    @Override
+    public long saveData(String dataID, InputStream dataStream) throws IOException {
+        try {
+            return _coldTier.saveData(dataID, dataStream);
+        } finally {
+            invalidate(dataID);
+        }
+    }
+
+    @Override
+    public long saveData(String dataID, String dataHash, InputStream dataStream) throws IOException, CorruptDataItemException {
+        try {
+            return _coldTier.saveData(dataID, dataHash, dataStream);
+        } finally {
+            invalidate(dataID);
+        }
+    }
+
+    @Override
+    public long saveData(String dataID, String dataHash, InputStream dataStream, long expectedSize)
+            throws IOException, CorruptDataItemException {
+        try {
+            return _coldTier.saveData(dataID, dataHash, dataStream, expectedSize);
+        } finally {
+            invalidate(dataID);
+        }
+    }
+
+    @Override
+    public void linkData(String existingDataID, String dataID) throws IOException, NoSuchDataItemException {
+        try {
+            _coldTier.linkData(existingDataID, dataID);
+        } finally {
+            invalidate(dataID);
+        }
+    }
+
+    @Override
+    public void fetchData(String dataID, OutputStream outputStream) throws IOException, NoSuchDataItemException {
+        if ( recordRead(dataID) ) {
+            try {
+                _hotTier.fetchData(dataID, outputStream);
+                return;
+            } catch ( NoSuchDataItemException e ) {
+                // Demoted since the residency check.  Fall through to the cold tier.
+            }
+        }
+        _coldTier.fetchData(dataID, outputStream);
+    }
+
+    @Override
+    public void fetchData(String dataID, int offset, int length, OutputStream outputStream) throws IOException, NoSuchDataItemException {
+        if ( recordRead(dataID) ) {
+            try {
+                _hotTier.fetchData(dataID, offset, length, outputStream);
+                return;
+            } catch ( NoSuchDataItemException e ) {
+                // Demoted since the residency check.  Fall through to the cold tier.
+            }
+        }
+        _coldTier.fetchData(dataID, offset, length, outputStream);
+    }
+
+    @Override
+    public long transferData(String dataID, long offset, long length, WritableByteChannel channel) throws IOException, NoSuchDataItemException {
+        if ( recordRead(dataID) ) {
+            try {
+                return _hotTier.transferData(dataID, offset, length, channel);
+            } catch ( NoSuchDataItemException e ) {
+                // Demoted since the residency check.  Fall through to the cold tier.
+            }
+        }
+        return _coldTier.transferData(dataID, offset, length, channel);
+    }
+
+    @Override
+    public ByteBuffer getDataBuffer(String dataID, long offset, int length) throws IOException, NoSuchDataItemException {
+        if ( recordRead(dataID) ) {
+            try {
+                return _hotTier.getDataBuffer(dataID, offset, length);
+            } catch ( NoSuchDataItemException e ) {
+                // Demoted since the residency check.  Fall through to the cold tier.
+            }
+        }
+        return _coldTier.getDataBuffer(dataID, offset, length);
+    }
+
+    @Override
+    public boolean isDataBufferZeroCopy() {
+        return _hotTier.isDataBufferZeroCopy() && _coldTier.isDataBufferZeroCopy();
+    }
+
+    @Override
+    public long getDataSize(String dataID) throws IOException, NoSuchDataItemException {
+        Resident resident = peek(dataID);
+        return ( resident != null ? resident.size : _coldTier.getDataSize(dataID) );
+    }
+
+    /**
+     * Returns the cold tier's version of the data item.  A hot copy is discarded whenever the data item changes, so it
+     * always holds the bytes of the version recorded when it was promoted.
+     */
+    @Override
+    public String getDataVersion(String dataID) throws IOException, NoSuchDataItemException {
+        Resident resident = peek(dataID);
+        return ( resident != null ? resident.version : _coldTier.getDataVersion(dataID) );
+    }
+
+    @Override
+    public boolean removeData(String dataID) throws IOException {
+        try {
+            return _coldTier.removeData(dataID);
+        } finally {
+            invalidate(dataID);
+        }
+    }
+
+    @Override
+    public boolean hasData(String dataID) throws IOException {
+        return peek(dataID) != null || _coldTier.hasData(dataID);
+    }
+
+    /**
+     * Demotes data items if the hot tier is over its high watermark, and updates the promotion and demotion rates.  This
+     * runs periodically in the background.
+     */
+    public void runMaintenance() throws IOException {
+        demoteUnderPressure();
+
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            double elapsedSeconds = (now - _lastRateTime) / 1000.0;
+            if ( elapsedSeconds > 0 ) {
+                _promotionRate = (_promotionCount - _lastPromotionCount) / elapsedSeconds;
+                _demotionRate = (_demotionCount - _lastDemotionCount) / elapsedSeconds;
+                _lastPromotionCount = _promotionCount;
+                _lastDemotionCount = _demotionCount;
+                _lastRateTime = now;
+            }
+        }
+    }
+
+    // -------- Statistics --------
+
+    /**
+     * Returns true if the data item currently has a copy in the hot tier.
+     */
+    public synchronized boolean isResident(String dataID) {
+        return _residents.containsKey(dataID);
+    }
+
+    /**
+     * Returns the number of data items with a copy in the hot tier.
+     */
+    public synchronized int getResidentCount() {
+        return _residents.size();
+    }
+
+    /**
+     * Returns the number of bytes of data held in the hot tier.
+     */
+    public synchronized long getResidentBytes() {
+        return _residentBytes;
+    }
+
+    public long getHotTierSize() {
+        return _hotTierSize;
+    }
+
+    public synchronized long getHotReadCount() {
+        return _hotReadCount;
+    }
+
+    public synchronized long getColdReadCount() {
+        return _coldReadCount;
+    }
+
+    public synchronized long getPromotionCount() {
+        return _promotionCount;
+    }
+
+    public synchronized long getDemotionCount() {
+        return _demotionCount;
+    }
+
+    /**
+     * Returns the number of promotions per second over the last maintenance interval.
+     */
+    public synchronized double getPromotionRate() {
+        return _promotionRate;
+    }
+
+    /**
+     * Returns the number of demotions per second over the last maintenance interval.
+     */
+    public synchronized double getDemotionRate() {
+        return _demotionRate;
+    }
+
+    // -------- Private Methods --------
+
+    /**
+     * Records a read of the data item and returns whether it can be served from the hot tier.  A cold read of a data
+     * item that has become popular enough schedules its promotion.
+     */
+    private synchronized boolean recordRead(String dataID) {
+        _sketch.increment(dataID);
+
+        Resident resident = _residents.remove(dataID);
+        if ( resident != null ) {
+            _residents.put(dataID, resident);
+            _hotReadCount++;
+            return true;
+        }
+
+        _coldReadCount++;
+        if ( _sketch.frequency(dataID) >= _promotionThreshold && _promotionExecutor != null
+                && _pendingPromotions.add(dataID) ) {
+            final long generation = _generations[stripe(dataID)];
+            _promotionExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        promote(dataID, generation);
+                    } catch ( Exception e ) {
+                        _log.warn ( "Failed to promote data item " + dataID, e );
+                    } finally {
+                        synchronized (TieredDataStorageProvider.this) {
+                            _pendingPromotions.remove(dataID);
+                        }
+                    }
+                }
+            });
+        }
+        return false;
+    }
+
+    /**
+     * Copies a data item from the cold tier into the hot tier.  The copy is discarded if the data item changed while it
+     * was being made.
+     */
+    private void promote(String dataID, long generation) throws IOException, NoSuchDataItemException {
+        long size = _coldTier.getDataSize(dataID);
+        if ( size > _maxPromotedItemSize || size > _hotTierSize * (1 - LOW_WATERMARK) ) {
+            return;
+        }
+
+        // Make room first, so a full hot tier doesn't reject every promotion.
+        synchronized (this) {
+            if ( getHotTierBytes() + size > _hotTierSize * HIGH_WATERMARK ) {
+                demote(_hotTierSize * LOW_WATERMARK - size);
+            }
+        }
+
+        String version = _coldTier.getDataVersion(dataID);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream((int) size);
+        _coldTier.fetchData(dataID, baos);
+        byte[] data = baos.toByteArray();
+        while ( true ) {
+            try {
+                _hotTier.saveData(dataID, new ByteArrayInputStream(data));
+                break;
+            } catch ( IOException e ) {
+                // The hot tier is full, even though the watermarks were met.  Free the data item's size again in least
+                // recently read data items and retry, until there is nothing left to demote.
+                synchronized (this) {
+                    if ( _residents.isEmpty() ) {
+                        throw e;
+                    }
+                    long targetBytes = _residentBytes - size;
+                    Iterator<Map.Entry<String, Resident>> iterator = _residents.entrySet().iterator();
+                    while ( _residentBytes > targetBytes && iterator.hasNext() ) {
+                        demoteEldest(iterator);
+                    }
+                }
+            }
+        }
+
+        synchronized (this) {
+            if ( generation != _generations[stripe(dataID)] ) {
+                _hotTier.removeData(dataID);
+                return;
+            }
+            Resident oldResident = _residents.put(dataID, new Resident(size, version));
+            if ( oldResident != null ) {
+                _residentBytes -= oldResident.size;
+            }
+            _residentBytes += size;
+            _promotionCount++;
+        }
+    }
+
+    private synchronized void demoteUnderPressure() throws IOException {
+        if ( getHotTierBytes() > _hotTierSize * HIGH_WATERMARK ) {
+            demote(_hotTierSize * LOW_WATERMARK);
+        }
+    }
+
+    /**
+     * Demotes the least recently read data items until the hot tier occupies no more than the target number of bytes.
+     */
+    private void demote(double targetBytes) throws IOException {
+        Iterator<Map.Entry<String, Resident>> iterator = _residents.entrySet().iterator();
+        while ( getHotTierBytes() > targetBytes && iterator.hasNext() ) {
+            demoteEldest(iterator);
+        }
+    }
+
+    private void demoteEldest(Iterator<Map.Entry<String, Resident>> iterator) throws IOException {
+        Map.Entry<String, Resident> eldest = iterator.next();
+        iterator.remove();
+        _residentBytes -= eldest.getValue().size;
+        _hotTier.removeData(eldest.getKey());
+        _demotionCount++;
+    }
+
+    /**
+     * Returns the number of bytes the hot tier occupies.  For the off-heap store this is the memory reserved by its
+     * slabs, which is what its capacity limits.  Other hot tiers are measured by the bytes of data they hold.
+     */
+    private long getHotTierBytes() {
+        if ( _hotTier instanceof OffHeapDataStorageProvider ) {
+            return ((OffHeapDataStorageProvider) _hotTier).getAllocatedBytes();
+        }
+        return _residentBytes;
+    }
+
+    /**
+     * Returns the data item's residency without counting it as a read.
+     */
+    private synchronized Resident peek(String dataID) {
+        return _residents.get(dataID);
+    }
+
+    private void invalidate(String dataID) throws IOException {
+        synchronized (this) {
+            _generations[stripe(dataID)]++;
+            _sketch.increment(dataID);
+
+            Resident resident = _residents.remove(dataID);
+            if ( resident == null ) {
+                return;
+            }
+            _residentBytes -= resident.size;
+            _hotTier.removeData(dataID);
+        }
+    }
+
+    private static int stripe(String dataID) {
+        return (dataID.hashCode() & 0x7fffffff) % GENERATION_STRIPES;
+    }
+
+    // -------- Accessor Methods --------
+
+    public void setStorageBasePath(String storageBasePath) {
+        this.storageBasePath = storageBasePath;
+    }
+
+    /**
+     * Sets the number of bytes of data the hot tier may hold.
+     */
+    public void setHotTierSize(long hotTierSize) {
+        _hotTierSize = hotTierSize;
+    }
+
+    /**
+     * Sets the size, in bytes, of the largest data item that will be promoted.
+     */
+    public void setMaxPromotedItemSize(long maxPromotedItemSize) {
+        _maxPromotedItemSize = maxPromotedItemSize;
+    }
+
+    /**
+     * Sets how many recent reads a data item needs before it is promoted, up to 15.
+     */
+    public void setPromotionThreshold(int promotionThreshold) {
+        _promotionThreshold = promotionThreshold;
+    }
+
+    /**
+     * Sets the number of milliseconds between background demotion and rate updates.
+     */
+    public void setMaintenanceInterval(long maintenanceInterval) {
+        _maintenanceInterval = maintenanceInterval;
+    }
+
+    // ======== Resident ========
+
+    /**
+     * The size and cold tier version of a data item with a copy in the hot tier.
+     */
+    private static class Resident {
+        private final long size;
+        private final String version;
+
+        private Resident(long size, String version) {
+            this.size = size;
+            this.version = version;
+        }
+    }
+}
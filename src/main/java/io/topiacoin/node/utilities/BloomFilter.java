@@ -0,0 +1,94 @@
+package io.topiacoin.node.utilities;
+
+/**
+ * A Bloom filter that answers whether a key might have been added.  A negative answer is always correct, while a
+ * positive answer is wrong at roughly the configured false positive rate, as long as no more than the expected number of
+ * keys are added.  Keys cannot be removed.  The filter is not thread safe.
+ */
+public class BloomFilter {
+
+    private final long[] _bits;
+    private final int _bitCount;
+    private final int _hashCount;
+    private int _size;
+
+    /**
+     * Creates a new filter sized for the given number of keys.
+     *
+     * @param expectedEntries   The number of keys that are expected to be added.
+     * @param falsePositiveRate The desired probability that the filter reports a key that was never added.
+     */
+    public BloomFilter(int expectedEntries, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("The false positive rate must be between 0 and 1");
+        }
+        int entries = Math.max(expectedEntries, 1);
+        long bitCount = (long) Math.ceil(-entries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bitCount = Math.max(64, Math.min(bitCount, Integer.MAX_VALUE - 63));
+
+        _bits = new long[(int) ((bitCount + 63) / 64)];
+        _bitCount = _bits.length * 64;
+        _hashCount = Math.max(1, (int) Math.round((double) _bitCount / entries * Math.log(2)));
+    }
+
+    /**
+     * Adds the given key to the filter.
+     *
+     * @param key The key to add.
+     */
+    public void add(Object key) {
+        int hash1 = spread(key.hashCode());
+        int hash2 = rehash(hash1);
+
+        for (int i = 0; i < _hashCount; i++) {
+            int index = indexOf(hash1 + i * hash2);
+            _bits[index >>> 6] |= 1L << index;
+        }
+        _size++;
+    }
+
+    /**
+     * Returns whether the given key might have been added to the filter.
+     *
+     * @param key The key being tested.
+     *
+     * @return False if the key was definitely never added.  True if it may have been added.
+     */
+    public boolean mightContain(Object key) {
+        int hash1 = spread(key.hashCode());
+        int hash2 = rehash(hash1);
+
+        for (int i = 0; i < _hashCount; i++) {
+            int index = indexOf(hash1 + i * hash2);
+            if ((_bits[index >>> 6] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of keys that have been added to the filter, including repeats.
+     */
+    public int size() {
+        return _size;
+    }
+
+    private int indexOf(int hash) {
+        return (hash & Integer.MAX_VALUE) % _bitCount;
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static int rehash(int hash) {
+        // The second hash must be odd so that successive probes don't collapse onto the same bits.
+        return spread(hash + 0x9e3779b9) | 1;
+    }
+}
@@ -0,0 +1,120 @@
+package io.topiacoin.node.utilities;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Assigns keys to nodes by consistent hashing.  Each node is placed at a number of points (virtual nodes) around a
+ * ring of 64 bit hashes, and a key belongs to the first node found walking clockwise from the key's hash.  Adding a
+ * node only moves the keys that fall just before its points, roughly 1/n of them, and leaves every other key where it
+ * was.  The ring is not thread safe.
+ */
+public class ConsistentHashRing<T> {
+
+    private final int _virtualNodes;
+    private final TreeMap<Long, T> _ring = new TreeMap<>();
+    private final Set<T> _nodes = new LinkedHashSet<>();
+
+    /**
+     * Creates a new, empty ring.
+     *
+     * @param virtualNodes The number of points on the ring for each node.  More points spread keys more evenly.
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("At least one virtual node is required");
+        }
+        _virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Adds a node to the ring.  The node's points are derived from the nodeKey, so a node added with the same key
+     * always owns the same keys.
+     *
+     * @param node    The node to add.
+     * @param nodeKey A stable, unique name for the node.
+     */
+    public void add(T node, String nodeKey) {
+        for (int i = 0; i < _virtualNodes; i++) {
+            _ring.put(hash(nodeKey + "#" + i), node);
+        }
+        _nodes.add(node);
+    }
+
+    /**
+     * Removes a node from the ring.  Its keys move to the nodes that follow its points.
+     */
+    public void remove(T node) {
+        Iterator<Map.Entry<Long, T>> entries = _ring.entrySet().iterator();
+        while (entries.hasNext()) {
+            if (entries.next().getValue().equals(node)) {
+                entries.remove();
+            }
+        }
+        _nodes.remove(node);
+    }
+
+    /**
+     * Returns the node that owns the given key, or null if the ring is empty.
+     */
+    public T get(String key) {
+        if (_ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, T> entry = _ring.ceilingEntry(hash(key));
+        return (entry != null ? entry : _ring.firstEntry()).getValue();
+    }
+
+    /**
+     * Returns every node, in the order they are found walking clockwise from the key's hash.  The first node is the
+     * key's owner, and the rest are the nodes to fall back on, in order, if the owner can't be used.
+     */
+    public List<T> getPreferenceList(String key) {
+        List<T> nodes = new ArrayList<>(_nodes.size());
+        if (_ring.isEmpty()) {
+            return nodes;
+        }
+
+        long hash = hash(key);
+        for (T node : _ring.tailMap(hash, true).values()) {
+            if (!nodes.contains(node) && nodes.add(node) && nodes.size() == _nodes.size()) {
+                return nodes;
+            }
+        }
+        for (T node : _ring.headMap(hash, false).values()) {
+            if (!nodes.contains(node) && nodes.add(node) && nodes.size() == _nodes.size()) {
+                return nodes;
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the number of nodes on the ring.
+     */
+    public int size() {
+        return _nodes.size();
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xff);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support MD5.
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package io.topiacoin.node.utilities;
+
+/**
+ * A Count-Min Sketch that estimates how often keys have been seen, for use as a cache admission filter (TinyLFU).  The
+ * sketch uses a fixed amount of memory regardless of how many distinct keys are recorded.  Counters saturate at 15,
+ * and all counters are halved periodically so that the estimates favour recent popularity over historic popularity.
+ */
+public class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = { 0x97cb3127, 0xb7b07d63, 0x2e3e5d77, 0x5bd1e995 };
+
+    private final byte[] _counters;
+    private final int _width;
+    private final int _sampleSize;
+    private int _additions;
+
+    /**
+     * Creates a new sketch sized for the given number of distinct keys.
+     *
+     * @param expectedEntries The number of distinct keys that are expected to be tracked at one time.
+     */
+    public FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+        _width = width;
+        _counters = new byte[DEPTH * width];
+        _sampleSize = 10 * width;
+    }
+
+    /**
+     * Records an occurrence of the given key.
+     *
+     * @param key The key that was seen.
+     */
+    public void increment(Object key) {
+        int hash = spread(key.hashCode());
+
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row);
+            if (_counters[index] < MAX_COUNT) {
+                _counters[index]++;
+                added = true;
+            }
+        }
+
+        if (added && ++_additions >= _sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Returns the estimated number of occurrences of the given key, up to 15.
+     *
+     * @param key The key whose frequency is being requested.
+     *
+     * @return The estimated frequency of the key.
+     */
+    public int frequency(Object key) {
+        int hash = spread(key.hashCode());
+
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, _counters[indexOf(hash, row)]);
+        }
+        return frequency;
+    }
+
+    /**
+     * Halves every counter, aging out keys that are no longer popular.
+     */
+    private void reset() {
+        for (int i = 0; i < _counters.length; i++) {
+            _counters[i] = (byte) (_counters[i] >>> 1);
+        }
+        _additions /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = hash * SEEDS[row];
+        h ^= h >>> 17;
+        return row * _width + (h & (_width - 1));
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
@@ -75,6 +75,39 @@ public class HashUtilities {
         return matches;
     }
 
+    /**
+     * Creates a MessageDigest for the algorithm specified in the encoded hash string.  Callers can feed data through the
+     * digest as it streams past and then check the result with {@link #verifyDigest(String, MessageDigest)}, avoiding
+     * the need to buffer or re-read the data.
+     *
+     * @param dataHash The encoded hash string whose algorithm should be used.
+     *
+     * @return A new MessageDigest for the hash's algorithm.
+     *
+     * @throws NoSuchAlgorithmException If the algorithm specified in the encoded dataHash string is not available on
+     *                                  this system.
+     */
+    public static MessageDigest getDigest(String dataHash) throws NoSuchAlgorithmException {
+        HashInfo hashInfo = new HashInfo(dataHash) ;
+
+        return MessageDigest.getInstance(hashInfo.getAlgorithm());
+    }
+
+    /**
+     * Completes the given digest and compares the result with the provided hash string.  The digest is reset as a result
+     * of this call.
+     *
+     * @param dataHash The encoded hash string to be compared against the digest.
+     * @param digest   The digest through which the data has been run.
+     *
+     * @return True if the digest matches the hash.  False if the digest does not match the hash.
+     */
+    public static boolean verifyDigest(String dataHash, MessageDigest digest) {
+        HashInfo hashInfo = new HashInfo(dataHash) ;
+
+        return Arrays.equals(hashInfo.getHash(), digest.digest());
+    }
+
     /**
      * Generates an encoded hash string for the given data using the specified algorithm.
      *
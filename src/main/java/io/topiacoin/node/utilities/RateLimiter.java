@@ -0,0 +1,62 @@
+package io.topiacoin.node.utilities;
+
+/**
+ * A token bucket that limits how fast permits (for example, bytes of I/O) are handed out.  The bucket refills at the
+ * configured rate and holds up to one second's worth of permits, so short bursts are allowed but the long term rate is
+ * bounded.  A request larger than the bucket is granted, and the caller waits until the bucket has paid it back.
+ */
+public class RateLimiter {
+
+    private double _permitsPerSecond;
+    private double _availablePermits;
+    private long _lastRefill;
+
+    /**
+     * Creates a new rate limiter.
+     *
+     * @param permitsPerSecond The number of permits to hand out per second.
+     */
+    public RateLimiter(double permitsPerSecond) {
+        setRate(permitsPerSecond);
+        _availablePermits = permitsPerSecond;
+        _lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes the given number of permits from the bucket, blocking until the bucket can cover them.
+     *
+     * @param permits The number of permits required.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void acquire(long permits) throws InterruptedException {
+        long waitMillis;
+        synchronized (this) {
+            refill();
+            _availablePermits -= permits;
+            waitMillis = (_availablePermits >= 0 ? 0 : (long) Math.ceil(-_availablePermits * 1000 / _permitsPerSecond));
+        }
+
+        if (waitMillis > 0) {
+            Thread.sleep(waitMillis);
+        }
+    }
+
+    public synchronized void setRate(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("The rate must be greater than zero");
+        }
+        refill();
+        _permitsPerSecond = permitsPerSecond;
+    }
+
+    public synchronized double getRate() {
+        return _permitsPerSecond;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        _availablePermits = Math.min(_permitsPerSecond, _availablePermits + (now - _lastRefill) * _permitsPerSecond / 1e9);
+        _lastRefill = now;
+    }
+}
@@ -0,0 +1,30 @@
+package io.topiacoin.node.utilities;
+
+import java.io.File;
+
+/**
+ * Locates the directory in which background components save their state across restarts.  Unless a component is given
+ * a state path of its own, it saves its state in a "state" directory under the node's first storage root, beside the
+ * data it describes.
+ */
+public class StatePaths {
+
+    public static final String STATE_DIRECTORY_NAME = "state";
+
+    private StatePaths() {
+    }
+
+    /**
+     * Returns the default state directory for the given storage base path, or null if there is no storage base path,
+     * in which case nothing the node stores outlives it anyway.
+     *
+     * @param storageBasePath The node's storage base path.  Multiple roots are separated by the path separator.
+     */
+    public static String getDefaultStatePath(String storageBasePath) {
+        if (storageBasePath == null || storageBasePath.trim().isEmpty()) {
+            return null;
+        }
+        String firstRoot = storageBasePath.split(File.pathSeparator)[0].trim();
+        return new File(firstRoot, STATE_DIRECTORY_NAME).getPath();
+    }
+}
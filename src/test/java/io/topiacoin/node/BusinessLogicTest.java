@@ -5,15 +5,22 @@ import io.topiacoin.node.exceptions.CorruptDataItemException;
 import io.topiacoin.node.exceptions.DataItemAlreadyExistsException;
 import io.topiacoin.node.exceptions.FailedToCreateContainer;
 import io.topiacoin.node.exceptions.InvalidChallengeException;
+import io.topiacoin.node.exceptions.NoSuchChallengeJobException;
 import io.topiacoin.node.exceptions.NoSuchContainerException;
 import io.topiacoin.node.exceptions.NoSuchDataItemException;
+import io.topiacoin.node.exceptions.QuotaExceededException;
 import io.topiacoin.node.micronetwork.ContainerManager;
 import io.topiacoin.node.model.Challenge;
 import io.topiacoin.node.model.ChallengeChunkInfo;
+import io.topiacoin.node.model.ChallengeJob;
 import io.topiacoin.node.model.ChallengeSolution;
 import io.topiacoin.node.model.ContainerConnectionInfo;
 import io.topiacoin.node.model.ContainerInfo;
+import io.topiacoin.node.model.DataItemUpload;
+import io.topiacoin.node.model.DataItemUploadResult;
+import io.topiacoin.node.proof.ChallengeJobPipeline;
 import io.topiacoin.node.proof.ProofSolver;
+import io.topiacoin.node.proof.ProofSubmissionQueue;
 import io.topiacoin.node.smsc.SMSCManager;
 import io.topiacoin.node.storage.DataStorageManager;
 import io.topiacoin.node.utilities.HashUtilities;
@@ -25,12 +32,19 @@ import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static io.topiacoin.node.micronetwork.ContainerManager.ContainerState.*;
 import static junit.framework.TestCase.*;
@@ -42,6 +56,8 @@ public class BusinessLogicTest {
     private ContainerManager _containerManager;
     private ProofSolver _proofSolver;
     private SMSCManager _smscManager;
+    private ProofSubmissionQueue _proofSubmissionQueue;
+    private ChallengeJobPipeline _challengeJobPipeline;
 
     @Before
     public void setUp() {
@@ -50,6 +66,8 @@ public class BusinessLogicTest {
         _containerManager = EasyMock.createMock(ContainerManager.class);
         _proofSolver = EasyMock.createMock(ProofSolver.class);
         _smscManager = EasyMock.createMock(SMSCManager.class);
+        _proofSubmissionQueue = EasyMock.createMock(ProofSubmissionQueue.class);
+        _challengeJobPipeline = EasyMock.createMock(ChallengeJobPipeline.class);
     }
 
     @After
@@ -58,6 +76,8 @@ public class BusinessLogicTest {
         _containerManager = null;
         _proofSolver = null;
         _smscManager = null;
+        _proofSubmissionQueue = null;
+        _challengeJobPipeline = null;
     }
 
 
@@ -605,7 +625,7 @@ public class BusinessLogicTest {
         EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true);
         EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING);
         EasyMock.expect(_dataStorageManager.hasData(containerID, chunkID)).andReturn(false);
-        EasyMock.expect(_dataStorageManager.saveData(containerID, chunkID, dataHash, dataStream)).andReturn((long) data.length);
+        EasyMock.expect(_dataStorageManager.saveData(containerID, chunkID, dataHash, dataStream, -1L)).andReturn((long) data.length);
 
         // Switch the Mock Objects into Test Mode
         EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
@@ -627,6 +647,117 @@ public class BusinessLogicTest {
         }
     }
 
+    @Test
+    public void testStoreChunkOverQuotaIsRejectedBeforeReading() throws Exception {
+
+        // Test Data
+        String containerID = UUID.randomUUID().toString();
+        String chunkID = UUID.randomUUID().toString();
+
+        byte[] data = new byte[1024];
+        new Random().nextBytes(data);
+        String dataHash = HashUtilities.generateHash("SHA-256", data);
+
+        ByteArrayInputStream dataStream = new ByteArrayInputStream(data);
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true);
+        EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING);
+        EasyMock.expect(_dataStorageManager.hasData(containerID, chunkID)).andReturn(false);
+        _dataStorageManager.checkQuota(containerID, data.length);
+        EasyMock.expectLastCall().andThrow(new QuotaExceededException());
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+
+        try {
+            // Execute the Test
+            try {
+                bl.storeChunk(containerID, chunkID, dataHash, dataStream, data.length);
+                fail("Expected a QuotaExceededException");
+            } catch (QuotaExceededException e) {
+                // NOOP - Expected Exception
+            }
+
+            // Verify the expected Results of the Test
+            assertEquals("The chunk should not have been read", data.length, dataStream.available());
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
+    @Test
+    public void testStoreChunks() throws Exception {
+
+        // Test Data
+        String containerID = UUID.randomUUID().toString();
+        Iterator<DataItemUpload> chunks = Collections.<DataItemUpload>emptyList().iterator();
+        List<DataItemUploadResult> results = new ArrayList<>();
+        results.add(new DataItemUploadResult("chunk-1", DataItemUploadResult.Status.STORED, 1024, null));
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true);
+        EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING);
+        EasyMock.expect(_dataStorageManager.saveData(containerID, chunks)).andReturn(results);
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+
+        try {
+            // Execute the Test
+            List<DataItemUploadResult> storeResults = bl.storeChunks(containerID, chunks);
+
+            // Verify the expected Results of the Test
+            assertEquals(results, storeResults);
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
+    @Test
+    public void testStoreChunksToNonExistentContainer() throws Exception {
+
+        // Test Data
+        String containerID = UUID.randomUUID().toString();
+        Iterator<DataItemUpload> chunks = Collections.<DataItemUpload>emptyList().iterator();
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(false);
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+
+        try {
+            // Execute the Test
+            try {
+                bl.storeChunks(containerID, chunks);
+                fail("Expected NoSuchContainerException was not thrown");
+            } catch (NoSuchContainerException e) {
+                // NOOP - Expected Exception
+            }
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
     @Test
     public void testStoreChunkToNonExistentContainer() throws Exception {
 
@@ -728,7 +859,7 @@ public class BusinessLogicTest {
         EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true);
         EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING);
         EasyMock.expect(_dataStorageManager.hasData(containerID, chunkID)).andReturn(false);
-        EasyMock.expect(_dataStorageManager.saveData(containerID, chunkID, dataHash, dataStream)).andThrow(new CorruptDataItemException("Data Item is Corrupt"));
+        EasyMock.expect(_dataStorageManager.saveData(containerID, chunkID, dataHash, dataStream, -1L)).andThrow(new CorruptDataItemException("Data Item is Corrupt"));
 
         // Switch the Mock Objects into Test Mode
         EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
@@ -789,6 +920,39 @@ public class BusinessLogicTest {
         }
     }
 
+    @Test
+    public void testHasChunks() throws Exception {
+
+        // Test Data
+        String containerID = UUID.randomUUID().toString();
+        List<String> chunkIDs = Arrays.asList("chunk-1", "chunk-2", "chunk-3");
+        List<String> presentChunkIDs = Arrays.asList("chunk-1", "chunk-3");
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true);
+        EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING);
+        EasyMock.expect(_dataStorageManager.findPresentData(containerID, chunkIDs)).andReturn(presentChunkIDs);
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+
+        try {
+            // Execute the Test
+            List<String> foundChunkIDs = bl.hasChunks(containerID, chunkIDs);
+
+            // Verify the expected Results of the Test
+            assertEquals(presentChunkIDs, foundChunkIDs);
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
     @Test
     public void testHasChunkInModelButNotOnDisk() throws Exception {
 
@@ -933,6 +1097,88 @@ public class BusinessLogicTest {
         }
     }
 
+    @Test
+    public void testGetChunkRange() throws Exception {
+
+        // Test Data
+        String containerID = UUID.randomUUID().toString();
+        String chunkID = UUID.randomUUID().toString();
+        byte[] data = new byte[1024];
+        new Random().nextBytes(data);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true).times(2);
+        EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING).times(2);
+        EasyMock.expect(_dataStorageManager.getDataSize(containerID, chunkID)).andReturn((long) data.length);
+        EasyMock.expect(_dataStorageManager.hasData(containerID, chunkID)).andReturn(true);
+        _dataStorageManager.fetchData(containerID, chunkID, 100L, 200L, outputStream);
+        EasyMock.expectLastCall().andAnswer(() -> {
+            outputStream.write(data, 100, 200);
+            return null;
+        });
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+
+        try {
+            // Execute the Test
+            assertEquals(data.length, bl.getChunkSize(containerID, chunkID));
+            bl.getChunk(containerID, chunkID, 100, 200, outputStream);
+
+            // Verify the expected Results of the Test
+            byte[] retrievedData = outputStream.toByteArray();
+            assertTrue(Arrays.equals(Arrays.copyOfRange(data, 100, 300), retrievedData));
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
+    @Test
+    public void testGetChunkRangeFailureIsRethrown() throws Exception {
+
+        // Test Data
+        String containerID = UUID.randomUUID().toString();
+        String chunkID = UUID.randomUUID().toString();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true);
+        EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING);
+        EasyMock.expect(_dataStorageManager.hasData(containerID, chunkID)).andReturn(true);
+        _dataStorageManager.fetchData(containerID, chunkID, 100L, 200L, outputStream);
+        EasyMock.expectLastCall().andThrow(new IOException("Read failed"));
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+
+        try {
+            // Execute the Test
+            try {
+                bl.getChunk(containerID, chunkID, 100, 200, outputStream);
+                fail("Expected IOException was not thrown");
+            } catch (IOException e) {
+                // NOOP - Expected Exception
+            }
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
     @Test
     public void testGetChunkNonExistentChunk() throws Exception {
 
@@ -1187,10 +1433,12 @@ public class BusinessLogicTest {
         EasyMock.expect(_proofSolver.generateSolution(challenge)).andReturn(solution);
         _containerManager.saveChallenge(challenge);
         EasyMock.expectLastCall();
+        _proofSubmissionQueue.discard(containerID);
+        EasyMock.expectLastCall();
         EasyMock.expect(_smscManager.submitProofSolution(containerID, solution)).andReturn(submitFuture);
 
         // Switch the Mock Objects into Test Mode
-        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _proofSubmissionQueue);
 
         // Create and Configure the Test Object
         BusinessLogic bl = getConfiguredBusinessLogic();
@@ -1203,51 +1451,495 @@ public class BusinessLogicTest {
             // -- None --
 
             // Verify the Mock Objects have been called correctly.
-            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _proofSubmissionQueue);
         } finally {
             bl.shutdown();
         }
     }
 
     @Test
-    public void testSubmitInvalidChallenge() throws Exception {
+    public void testFailedChallengeSubmissionIsQueuedForRetry() throws Exception {
 
         // Test Data
         String containerID = UUID.randomUUID().toString();
 
         String chunkID = UUID.randomUUID().toString();
-        int offset = 1234;
-        int length = 5678;
         List<ChallengeChunkInfo> chunks = new ArrayList<>();
-        chunks.add(new ChallengeChunkInfo(chunkID, offset, length));
+        chunks.add(new ChallengeChunkInfo(chunkID, 1234, 5678));
 
-        Challenge challenge = new Challenge(containerID, chunks);
+        long deadline = System.currentTimeMillis() + 60000;
+        Challenge challenge = new Challenge(containerID, chunks, deadline);
+
+        ChallengeSolution solution = new ChallengeSolution("foo", "bar", 1234567, "SHA-256:deadbeef");
+
+        CompletedFuture<Void> submitFuture = new CompletedFuture<>(null);
+        submitFuture.setException(new Exception("Submission failed", null));
 
         // Configure the Mock Objects with Expected Behavior
         EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true);
         EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING);
-        EasyMock.expect(_proofSolver.generateSolution(challenge)).andReturn(null);
+        EasyMock.expect(_proofSolver.generateSolution(challenge)).andReturn(solution);
+        _containerManager.saveChallenge(challenge);
+        EasyMock.expectLastCall();
+        _proofSubmissionQueue.discard(containerID);
+        EasyMock.expectLastCall();
+        EasyMock.expect(_smscManager.submitProofSolution(containerID, solution)).andReturn(submitFuture);
+        _proofSubmissionQueue.enqueue(containerID, solution, deadline);
+        EasyMock.expectLastCall();
 
         // Switch the Mock Objects into Test Mode
-        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _proofSubmissionQueue);
 
         // Create and Configure the Test Object
         BusinessLogic bl = getConfiguredBusinessLogic();
 
         try {
             // Execute the Test
-            try {
-                bl.submitChallenge(challenge);
-                fail("Expected InvalidChallengeException not thrown");
-            } catch (InvalidChallengeException e) {
-                // NOOP - Expected Exception
-            }
+            bl.submitChallenge(challenge);
 
             // Verify the expected Results of the Test
             // -- None --
 
             // Verify the Mock Objects have been called correctly.
-            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager);
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _proofSubmissionQueue);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
+    @Test
+    public void testTimedOutChallengeSubmissionIsQueuedForRetry() throws Exception {
+
+        // Test Data
+        String containerID = UUID.randomUUID().toString();
+
+        String chunkID = UUID.randomUUID().toString();
+        List<ChallengeChunkInfo> chunks = new ArrayList<>();
+        chunks.add(new ChallengeChunkInfo(chunkID, 1234, 5678));
+
+        long deadline = System.currentTimeMillis() + 60000;
+        Challenge challenge = new Challenge(containerID, chunks, deadline);
+
+        ChallengeSolution solution = new ChallengeSolution("foo", "bar", 1234567, "SHA-256:deadbeef");
+
+        // The SMSC never accepts the submission.
+        CompletableFuture<Void> submitFuture = new CompletableFuture<>();
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true);
+        EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING);
+        EasyMock.expect(_proofSolver.generateSolution(challenge)).andReturn(solution);
+        _containerManager.saveChallenge(challenge);
+        EasyMock.expectLastCall();
+        _proofSubmissionQueue.discard(containerID);
+        EasyMock.expectLastCall();
+        EasyMock.expect(_smscManager.submitProofSolution(containerID, solution)).andReturn(submitFuture);
+        _proofSubmissionQueue.enqueue(containerID, solution, deadline);
+        EasyMock.expectLastCall();
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _proofSubmissionQueue);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+        bl.setSubmissionTimeout(100);
+
+        try {
+            // Execute the Test
+            bl.submitChallenge(challenge);
+
+            // Verify the expected Results of the Test
+            assertTrue(submitFuture.isCancelled());
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _proofSubmissionQueue);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubmissionFinishingAsTheWaitEndsIsNotRetried() throws Exception {
+
+        // Test Data
+        String containerID = UUID.randomUUID().toString();
+
+        String chunkID = UUID.randomUUID().toString();
+        List<ChallengeChunkInfo> chunks = new ArrayList<>();
+        chunks.add(new ChallengeChunkInfo(chunkID, 1234, 5678));
+
+        long deadline = System.currentTimeMillis() + 60000;
+        Challenge challenge = new Challenge(containerID, chunks, deadline);
+
+        ChallengeSolution solution = new ChallengeSolution("foo", "bar", 1234567, "SHA-256:deadbeef");
+
+        // The wait times out, but the submission has completed by the time it is cancelled.
+        Future<Void> submitFuture = new Future<Void>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                return false;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return false;
+            }
+
+            @Override
+            public boolean isDone() {
+                return true;
+            }
+
+            @Override
+            public Void get() {
+                return null;
+            }
+
+            @Override
+            public Void get(long timeout, TimeUnit unit) throws TimeoutException {
+                throw new TimeoutException();
+            }
+        };
+
+        // Configure the Mock Objects with Expected Behavior.  The solution is not queued for retry.
+        EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true);
+        EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING);
+        EasyMock.expect(_proofSolver.generateSolution(challenge)).andReturn(solution);
+        _containerManager.saveChallenge(challenge);
+        EasyMock.expectLastCall();
+        _proofSubmissionQueue.discard(containerID);
+        EasyMock.expectLastCall();
+        EasyMock.expect(_smscManager.submitProofSolution(containerID, solution)).andReturn(submitFuture);
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _proofSubmissionQueue);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+
+        try {
+            // Execute the Test
+            bl.submitChallenge(challenge);
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _proofSubmissionQueue);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
+    @Test
+    public void testChallengeSolvedAfterDeadlineIsNotSubmitted() throws Exception {
+
+        // Test Data
+        String containerID = UUID.randomUUID().toString();
+
+        String chunkID = UUID.randomUUID().toString();
+        List<ChallengeChunkInfo> chunks = new ArrayList<>();
+        chunks.add(new ChallengeChunkInfo(chunkID, 1234, 5678));
+
+        long deadline = System.currentTimeMillis() - 1000;
+        Challenge challenge = new Challenge(containerID, chunks, deadline);
+
+        ChallengeSolution solution = new ChallengeSolution("foo", "bar", 1234567, "SHA-256:deadbeef");
+
+        // Configure the Mock Objects with Expected Behavior.  Nothing is submitted or queued for retry.
+        EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true);
+        EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING);
+        EasyMock.expect(_proofSolver.generateSolution(challenge)).andReturn(solution);
+        _containerManager.saveChallenge(challenge);
+        EasyMock.expectLastCall();
+        _proofSubmissionQueue.discard(containerID);
+        EasyMock.expectLastCall();
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _proofSubmissionQueue);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+
+        try {
+            // Execute the Test
+            bl.submitChallenge(challenge);
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _proofSubmissionQueue);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubmitInvalidChallenge() throws Exception {
+
+        // Test Data
+        String containerID = UUID.randomUUID().toString();
+
+        String chunkID = UUID.randomUUID().toString();
+        int offset = 1234;
+        int length = 5678;
+        List<ChallengeChunkInfo> chunks = new ArrayList<>();
+        chunks.add(new ChallengeChunkInfo(chunkID, offset, length));
+
+        Challenge challenge = new Challenge(containerID, chunks);
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true);
+        EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING);
+        EasyMock.expect(_proofSolver.generateSolution(challenge)).andReturn(null);
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _proofSubmissionQueue);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+
+        try {
+            // Execute the Test
+            try {
+                bl.submitChallenge(challenge);
+                fail("Expected InvalidChallengeException not thrown");
+            } catch (InvalidChallengeException e) {
+                // NOOP - Expected Exception
+            }
+
+            // Verify the expected Results of the Test
+            // -- None --
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _proofSubmissionQueue);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubmitUnsolvableChallenge() throws Exception {
+
+        // Test Data
+        String containerID = UUID.randomUUID().toString();
+
+        String chunkID = UUID.randomUUID().toString();
+        List<ChallengeChunkInfo> chunks = new ArrayList<>();
+        chunks.add(new ChallengeChunkInfo(chunkID, 1234, 5678));
+
+        Challenge challenge = new Challenge(containerID, chunks);
+
+        // The solver reports an unsolvable challenge with a solution that has no chunk hash.
+        ChallengeSolution solution = new ChallengeSolution("foo", "bar", 1234567, null);
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true);
+        EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING);
+        EasyMock.expect(_proofSolver.generateSolution(challenge)).andReturn(solution);
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _proofSubmissionQueue);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+
+        try {
+            // Execute the Test
+            try {
+                bl.submitChallenge(challenge);
+                fail("Expected InvalidChallengeException not thrown");
+            } catch (InvalidChallengeException e) {
+                // NOOP - Expected Exception
+            }
+
+            // Verify the Mock Objects have been called correctly.  Nothing is saved or submitted.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _proofSubmissionQueue);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
+    // -------- startChallenge() --------
+
+    @Test
+    public void testStartChallenge() throws Exception {
+
+        // Test Data
+        String containerID = UUID.randomUUID().toString();
+
+        String chunkID = UUID.randomUUID().toString();
+        List<ChallengeChunkInfo> chunks = new ArrayList<>();
+        chunks.add(new ChallengeChunkInfo(chunkID, 1234, 5678));
+        chunks.add(new ChallengeChunkInfo(chunkID, 0, 1234));
+
+        Challenge challenge = new Challenge(containerID, chunks);
+
+        ChallengeJob job = new ChallengeJob(UUID.randomUUID().toString(), containerID, System.currentTimeMillis());
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true);
+        EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING);
+        EasyMock.expect(_dataStorageManager.getDataSize(containerID, chunkID)).andReturn(6912L);
+        EasyMock.expect(_challengeJobPipeline.submit(EasyMock.eq(challenge), EasyMock.anyObject(Callable.class))).andReturn(job);
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _challengeJobPipeline);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+
+        try {
+            // Execute the Test
+            ChallengeJob startedJob = bl.startChallenge(challenge);
+
+            // Verify the expected Results of the Test
+            assertEquals(job, startedJob);
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _challengeJobPipeline);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
+    @Test
+    public void testStartChallengeForNonExistentContainer() throws Exception {
+
+        // Test Data
+        String containerID = UUID.randomUUID().toString();
+
+        List<ChallengeChunkInfo> chunks = new ArrayList<>();
+        chunks.add(new ChallengeChunkInfo(UUID.randomUUID().toString(), 1234, 5678));
+
+        Challenge challenge = new Challenge(containerID, chunks);
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(false);
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _challengeJobPipeline);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+
+        try {
+            // Execute the Test
+            try {
+                bl.startChallenge(challenge);
+                fail("Expected NoSuchContainerException not thrown");
+            } catch (NoSuchContainerException e) {
+                // NOOP - Expected Exception
+            }
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _challengeJobPipeline);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
+    @Test
+    public void testStartChallengeWithRangePastEndOfChunk() throws Exception {
+
+        // Test Data
+        String containerID = UUID.randomUUID().toString();
+
+        String chunkID = UUID.randomUUID().toString();
+        List<ChallengeChunkInfo> chunks = new ArrayList<>();
+        chunks.add(new ChallengeChunkInfo(chunkID, 1234, 5678));
+
+        Challenge challenge = new Challenge(containerID, chunks);
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true);
+        EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING);
+        EasyMock.expect(_dataStorageManager.getDataSize(containerID, chunkID)).andReturn(6911L);
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _challengeJobPipeline);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+
+        try {
+            // Execute the Test
+            try {
+                bl.startChallenge(challenge);
+                fail("Expected InvalidChallengeException not thrown");
+            } catch (InvalidChallengeException e) {
+                // NOOP - Expected Exception
+            }
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _challengeJobPipeline);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
+    @Test
+    public void testStartChallengeForMissingChunk() throws Exception {
+
+        // Test Data
+        String containerID = UUID.randomUUID().toString();
+
+        String chunkID = UUID.randomUUID().toString();
+        List<ChallengeChunkInfo> chunks = new ArrayList<>();
+        chunks.add(new ChallengeChunkInfo(chunkID, 1234, 5678));
+
+        Challenge challenge = new Challenge(containerID, chunks);
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true);
+        EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING);
+        EasyMock.expect(_dataStorageManager.getDataSize(containerID, chunkID)).andThrow(new NoSuchDataItemException());
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _challengeJobPipeline);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+
+        try {
+            // Execute the Test
+            try {
+                bl.startChallenge(challenge);
+                fail("Expected InvalidChallengeException not thrown");
+            } catch (InvalidChallengeException e) {
+                // NOOP - Expected Exception
+            }
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _challengeJobPipeline);
+        } finally {
+            bl.shutdown();
+        }
+    }
+
+    // -------- getChallengeJob() --------
+
+    @Test
+    public void testGetNonExistentChallengeJob() throws Exception {
+
+        // Test Data
+        String jobID = UUID.randomUUID().toString();
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_challengeJobPipeline.getJob(jobID)).andReturn(null);
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _challengeJobPipeline);
+
+        // Create and Configure the Test Object
+        BusinessLogic bl = getConfiguredBusinessLogic();
+
+        try {
+            // Execute the Test
+            try {
+                bl.getChallengeJob(jobID);
+                fail("Expected NoSuchChallengeJobException not thrown");
+            } catch (NoSuchChallengeJobException e) {
+                // NOOP - Expected Exception
+            }
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_dataStorageManager, _containerManager, _proofSolver, _smscManager, _challengeJobPipeline);
         } finally {
             bl.shutdown();
         }
@@ -1261,6 +1953,8 @@ public class BusinessLogicTest {
         bl.setContainerManager(_containerManager);
         bl.setProofSolver(_proofSolver);
         bl.setSmscManager(_smscManager);
+        bl.setProofSubmissionQueue(_proofSubmissionQueue);
+        bl.setChallengeJobPipeline(_challengeJobPipeline);
 
         bl.initialize();
 
@@ -0,0 +1,60 @@
+package io.topiacoin.node.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CacheMetricsTest {
+
+    @Test
+    public void testAccessors() throws Exception {
+
+        CacheMetrics metrics = new CacheMetrics(100, 20, 5, 4096, 3, 65536);
+
+        assertEquals(100, metrics.getHitCount());
+        assertEquals(20, metrics.getMissCount());
+        assertEquals(5, metrics.getEvictionCount());
+        assertEquals(4096, metrics.getWeightedSize());
+        assertEquals(3, metrics.getEntryCount());
+        assertEquals(65536, metrics.getMaximumSize());
+    }
+
+    @Test
+    public void testDefaultConstructor() throws Exception {
+
+        CacheMetrics metrics = new CacheMetrics();
+
+        assertEquals(0, metrics.getHitCount());
+        assertEquals(0, metrics.getMissCount());
+        assertEquals(0, metrics.getEvictionCount());
+        assertEquals(0, metrics.getWeightedSize());
+        assertEquals(0, metrics.getEntryCount());
+        assertEquals(0, metrics.getMaximumSize());
+    }
+
+    @Test
+    public void testEqualsAndHashCode() throws Exception {
+
+        CacheMetrics metrics1 = new CacheMetrics(100, 20, 5, 4096, 3, 65536);
+        CacheMetrics metrics2 = new CacheMetrics(100, 20, 5, 4096, 3, 65536);
+
+        CacheMetrics metrics3 = new CacheMetrics(0, 20, 5, 4096, 3, 65536);
+        CacheMetrics metrics4 = new CacheMetrics(100, 0, 5, 4096, 3, 65536);
+        CacheMetrics metrics5 = new CacheMetrics(100, 20, 0, 4096, 3, 65536);
+        CacheMetrics metrics6 = new CacheMetrics(100, 20, 5, 0, 3, 65536);
+        CacheMetrics metrics7 = new CacheMetrics(100, 20, 5, 4096, 0, 65536);
+        CacheMetrics metrics8 = new CacheMetrics(100, 20, 5, 4096, 3, 0);
+
+        assertEquals(metrics1, metrics1);
+        assertEquals(metrics1, metrics2);
+        assertEquals(metrics1.hashCode(), metrics2.hashCode());
+
+        assertNotEquals(metrics1, metrics3);
+        assertNotEquals(metrics1, metrics4);
+        assertNotEquals(metrics1, metrics5);
+        assertNotEquals(metrics1, metrics6);
+        assertNotEquals(metrics1, metrics7);
+        assertNotEquals(metrics1, metrics8);
+        assertNotEquals(metrics1, null);
+    }
+}
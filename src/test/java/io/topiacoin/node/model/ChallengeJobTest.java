@@ -0,0 +1,90 @@
+package io.topiacoin.node.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ChallengeJobTest {
+
+    @Test
+    public void testAccessors() throws Exception {
+
+        ChallengeJob job = new ChallengeJob("job-1", "container-1", 1000);
+
+        assertEquals("job-1", job.getJobID());
+        assertEquals("container-1", job.getContainerID());
+        assertEquals(ChallengeJob.State.QUEUED, job.getState());
+        assertEquals(1000, job.getQueuedTime());
+        assertEquals(0, job.getStartedTime());
+        assertEquals(0, job.getCompletedTime());
+        assertNull(job.getMerkleRoot());
+        assertNull(job.getError());
+
+        job.setState(ChallengeJob.State.FAILED);
+        job.setStartedTime(2000);
+        job.setCompletedTime(3000);
+        job.setMerkleRoot("SHA-256:deadbeef");
+        job.setError("InvalidChallengeException");
+
+        assertEquals(ChallengeJob.State.FAILED, job.getState());
+        assertEquals(2000, job.getStartedTime());
+        assertEquals(3000, job.getCompletedTime());
+        assertEquals("SHA-256:deadbeef", job.getMerkleRoot());
+        assertEquals("InvalidChallengeException", job.getError());
+    }
+
+    @Test
+    public void testDefaultConstructor() throws Exception {
+
+        ChallengeJob job = new ChallengeJob();
+
+        assertNull(job.getJobID());
+        assertNull(job.getContainerID());
+        assertNull(job.getState());
+        assertEquals(0, job.getQueuedTime());
+    }
+
+    @Test
+    public void testCopyConstructor() throws Exception {
+
+        ChallengeJob job = new ChallengeJob("job-1", "container-1", 1000);
+        job.setState(ChallengeJob.State.COMPLETED);
+        job.setStartedTime(2000);
+        job.setCompletedTime(3000);
+        job.setMerkleRoot("SHA-256:deadbeef");
+
+        ChallengeJob copy = new ChallengeJob(job);
+
+        assertEquals(job, copy);
+
+        // Changes to the copy don't affect the original.
+        copy.setState(ChallengeJob.State.FAILED);
+        assertEquals(ChallengeJob.State.COMPLETED, job.getState());
+    }
+
+    @Test
+    public void testEqualsAndHashCode() throws Exception {
+
+        ChallengeJob job1 = new ChallengeJob("job-1", "container-1", 1000);
+        ChallengeJob job2 = new ChallengeJob("job-1", "container-1", 1000);
+
+        ChallengeJob job3 = new ChallengeJob("job-2", "container-1", 1000);
+        ChallengeJob job4 = new ChallengeJob("job-1", "container-2", 1000);
+        ChallengeJob job5 = new ChallengeJob("job-1", "container-1", 2000);
+        ChallengeJob job6 = new ChallengeJob("job-1", "container-1", 1000);
+        job6.setState(ChallengeJob.State.RUNNING);
+        ChallengeJob job7 = new ChallengeJob("job-1", "container-1", 1000);
+        job7.setMerkleRoot("SHA-256:deadbeef");
+
+        assertEquals(job1, job1);
+        assertEquals(job1, job2);
+        assertEquals(job1.hashCode(), job2.hashCode());
+
+        assertNotEquals(job1, job3);
+        assertNotEquals(job1, job4);
+        assertNotEquals(job1, job5);
+        assertNotEquals(job1, job6);
+        assertNotEquals(job1, job7);
+        assertNotEquals(job1, null);
+    }
+}
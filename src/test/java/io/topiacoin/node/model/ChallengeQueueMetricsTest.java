@@ -0,0 +1,52 @@
+package io.topiacoin.node.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ChallengeQueueMetricsTest {
+
+    @Test
+    public void testAccessors() throws Exception {
+
+        ChallengeQueueMetrics metrics = new ChallengeQueueMetrics(3, 2, 100, 4);
+
+        assertEquals(3, metrics.getQueueDepth());
+        assertEquals(2, metrics.getActiveJobs());
+        assertEquals(100, metrics.getJobsCompleted());
+        assertEquals(4, metrics.getJobsFailed());
+    }
+
+    @Test
+    public void testDefaultConstructor() throws Exception {
+
+        ChallengeQueueMetrics metrics = new ChallengeQueueMetrics();
+
+        assertEquals(0, metrics.getQueueDepth());
+        assertEquals(0, metrics.getActiveJobs());
+        assertEquals(0, metrics.getJobsCompleted());
+        assertEquals(0, metrics.getJobsFailed());
+    }
+
+    @Test
+    public void testEqualsAndHashCode() throws Exception {
+
+        ChallengeQueueMetrics metrics1 = new ChallengeQueueMetrics(3, 2, 100, 4);
+        ChallengeQueueMetrics metrics2 = new ChallengeQueueMetrics(3, 2, 100, 4);
+
+        ChallengeQueueMetrics metrics3 = new ChallengeQueueMetrics(0, 2, 100, 4);
+        ChallengeQueueMetrics metrics4 = new ChallengeQueueMetrics(3, 0, 100, 4);
+        ChallengeQueueMetrics metrics5 = new ChallengeQueueMetrics(3, 2, 0, 4);
+        ChallengeQueueMetrics metrics6 = new ChallengeQueueMetrics(3, 2, 100, 0);
+
+        assertEquals(metrics1, metrics1);
+        assertEquals(metrics1, metrics2);
+        assertEquals(metrics1.hashCode(), metrics2.hashCode());
+
+        assertNotEquals(metrics1, metrics3);
+        assertNotEquals(metrics1, metrics4);
+        assertNotEquals(metrics1, metrics5);
+        assertNotEquals(metrics1, metrics6);
+        assertNotEquals(metrics1, null);
+    }
+}
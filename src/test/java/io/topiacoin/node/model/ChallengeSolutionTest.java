@@ -58,4 +58,14 @@ public class ChallengeSolutionTest {
         assertNotEquals(solution1.hashCode(), solution5.hashCode());
         assertNotEquals(solution1.hashCode(), solution6.hashCode());
     }
+
+    @Test
+    public void testDefaultConstructor() throws Exception {
+        ChallengeSolution solution = new ChallengeSolution();
+
+        assertNull(solution.getVerificationValue());
+        assertNull(solution.getTransactionID());
+        assertEquals(0, solution.getBlockNumber());
+        assertNull(solution.getChunkHash());
+    }
 }
@@ -19,6 +19,14 @@ public class ChallengeTest {
 
         assertEquals(containerID, challenge.getContainerID());
         assertEquals(challengeChunks, challenge.getChunkRanges());
+        assertEquals(0, challenge.getDeadline());
+
+        long deadline = System.currentTimeMillis() + 60000;
+        challenge = new Challenge(containerID, challengeChunks, deadline);
+
+        assertEquals(containerID, challenge.getContainerID());
+        assertEquals(challengeChunks, challenge.getChunkRanges());
+        assertEquals(deadline, challenge.getDeadline());
     }
 
     @Test
@@ -42,6 +50,7 @@ public class ChallengeTest {
         Challenge challenge3 = new Challenge(containerID2, challengeChunks1);
         Challenge challenge4 = new Challenge(containerID1, challengeChunks2);
         Challenge challenge5 = new Challenge(containerID2, challengeChunks2);
+        Challenge challenge6 = new Challenge(containerID1, challengeChunks1, 12345);
 
         assertEquals ( challenge1, challenge1) ;
         assertEquals(challenge1, challenge2);
@@ -49,6 +58,7 @@ public class ChallengeTest {
         assertNotEquals(challenge1, challenge3);
         assertNotEquals(challenge1, challenge4);
         assertNotEquals(challenge1, challenge5);
+        assertNotEquals(challenge1, challenge6);
 
         assertEquals( challenge1.hashCode(), challenge1.hashCode());
         assertEquals( challenge1.hashCode(), challenge2.hashCode());
@@ -56,6 +66,7 @@ public class ChallengeTest {
         assertNotEquals(challenge1.hashCode(), challenge3.hashCode());
         assertNotEquals(challenge1.hashCode(), challenge4.hashCode());
         assertNotEquals(challenge1.hashCode(), challenge5.hashCode());
+        assertNotEquals(challenge1.hashCode(), challenge6.hashCode());
     }
 
     @Test
@@ -64,5 +75,6 @@ public class ChallengeTest {
 
         assertNull(challenge.getContainerID());
         assertNull(challenge.getChunkRanges());
+        assertEquals(0, challenge.getDeadline());
     }
 }
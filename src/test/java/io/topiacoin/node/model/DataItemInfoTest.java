@@ -59,6 +59,39 @@ public class DataItemInfoTest {
 		assertEquals(0, container.getSize());
 	}
 
+	@Test
+	public void testVerificationRecordAccessors() throws Exception {
+
+		DataItemInfo container = new DataItemInfo("abc-123", 1111L, "potatoes");
+
+		assertNull(container.getVerifiedVersion());
+		container.setVerifiedVersion("version-1");
+		assertEquals("version-1", container.getVerifiedVersion());
+
+		assertNull(container.getVerifiedHash());
+		container.setVerifiedHash("potatoes");
+		assertEquals("potatoes", container.getVerifiedHash());
+
+		assertEquals(0, container.getLastVerified());
+		container.setLastVerified(2222L);
+		assertEquals(2222L, container.getLastVerified());
+
+		assertFalse(container.isQuarantined());
+		container.setQuarantined(true);
+		assertTrue(container.isQuarantined());
+
+		DataItemInfo copy = new DataItemInfo(container);
+		assertEquals("version-1", copy.getVerifiedVersion());
+		assertEquals("potatoes", copy.getVerifiedHash());
+		assertEquals(2222L, copy.getLastVerified());
+		assertTrue(copy.isQuarantined());
+
+		// The verification record is not part of the data item's identity
+		DataItemInfo unverified = new DataItemInfo("abc-123", 1111L, "potatoes");
+		assertEquals(unverified, container);
+		assertEquals(unverified.hashCode(), container.hashCode());
+	}
+
 	@Test
 	public void testEqualsAndHashCode() throws Exception {
 
@@ -522,6 +522,34 @@ public class DataModelTest {
         EasyMock.verify(_dataModelProvider);
     }
 
+    @Test
+    public void testBlobReferenceCounts() throws Exception {
+
+        // Create Test Data
+        String dataHash = "SHA-256:deadbeef";
+
+        // Configure Mock Object Expectations
+        EasyMock.expect(_dataModelProvider.incrementBlobReferenceCount(dataHash)).andReturn(1L);
+        EasyMock.expect(_dataModelProvider.getBlobReferenceCount(dataHash)).andReturn(1L);
+        EasyMock.expect(_dataModelProvider.decrementBlobReferenceCount(dataHash)).andReturn(0L);
+
+        // Replay the Mock Objects
+        EasyMock.replay(_dataModelProvider);
+
+        // Execute the method being tested
+        long incremented = _dataModel.incrementBlobReferenceCount(dataHash);
+        long count = _dataModel.getBlobReferenceCount(dataHash);
+        long decremented = _dataModel.decrementBlobReferenceCount(dataHash);
+
+        // Assert Results of the test
+        assertEquals(1, incremented);
+        assertEquals(1, count);
+        assertEquals(0, decremented);
+
+        // Verify the Mock Objects
+        EasyMock.verify(_dataModelProvider);
+    }
+
 
     @Test
     public void testCreateMicroNetwork() throws Exception {
@@ -0,0 +1,44 @@
+package io.topiacoin.node.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StorageUsageTest {
+
+    @Test
+    public void testAccessors() throws Exception {
+
+        StorageUsage usage = new StorageUsage(12345, 67);
+
+        assertEquals(12345, usage.getBytes());
+        assertEquals(67, usage.getItems());
+    }
+
+    @Test
+    public void testDefaultConstructor() throws Exception {
+
+        StorageUsage usage = new StorageUsage();
+
+        assertEquals(0, usage.getBytes());
+        assertEquals(0, usage.getItems());
+    }
+
+    @Test
+    public void testEqualsAndHashCode() throws Exception {
+
+        StorageUsage usage1 = new StorageUsage(12345, 67);
+        StorageUsage usage2 = new StorageUsage(12345, 67);
+
+        StorageUsage usage3 = new StorageUsage(54321, 67);
+        StorageUsage usage4 = new StorageUsage(12345, 76);
+
+        assertEquals(usage1, usage1);
+        assertEquals(usage1, usage2);
+        assertEquals(usage1.hashCode(), usage2.hashCode());
+
+        assertNotEquals(usage1, usage3);
+        assertNotEquals(usage1, usage4);
+        assertNotEquals(usage1, null);
+    }
+}
@@ -0,0 +1,58 @@
+package io.topiacoin.node.model.provider;
+
+import io.topiacoin.node.model.DataModel;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public abstract class AbstractBlobReferenceDataModelProviderTest {
+
+    public abstract DataModel getDataModel();
+
+    @Test
+    public void testBlobReferenceCounting() throws Exception {
+        String dataHash = "SHA-256:beefbeef";
+
+        DataModel dataModel = getDataModel();
+
+        assertEquals(0, dataModel.getBlobReferenceCount(dataHash));
+
+        assertEquals(1, dataModel.incrementBlobReferenceCount(dataHash));
+        assertEquals(2, dataModel.incrementBlobReferenceCount(dataHash));
+        assertEquals(2, dataModel.getBlobReferenceCount(dataHash));
+
+        assertEquals(1, dataModel.decrementBlobReferenceCount(dataHash));
+        assertEquals(1, dataModel.getBlobReferenceCount(dataHash));
+
+        assertEquals(0, dataModel.decrementBlobReferenceCount(dataHash));
+        assertEquals(0, dataModel.getBlobReferenceCount(dataHash));
+
+        // The count starts over once it has been released.
+        assertEquals(1, dataModel.incrementBlobReferenceCount(dataHash));
+    }
+
+    @Test
+    public void testDecrementNonExistentBlobReference() throws Exception {
+        String dataHash = "SHA-256:deadbeef";
+
+        DataModel dataModel = getDataModel();
+
+        assertEquals(0, dataModel.decrementBlobReferenceCount(dataHash));
+        assertEquals(0, dataModel.getBlobReferenceCount(dataHash));
+    }
+
+    @Test
+    public void testBlobReferencesAreIndependent() throws Exception {
+        String dataHash = "SHA-256:beefbeef";
+        String otherDataHash = "SHA-256:deadbeef";
+
+        DataModel dataModel = getDataModel();
+
+        dataModel.incrementBlobReferenceCount(dataHash);
+        dataModel.incrementBlobReferenceCount(dataHash);
+        dataModel.incrementBlobReferenceCount(otherDataHash);
+
+        assertEquals(2, dataModel.getBlobReferenceCount(dataHash));
+        assertEquals(1, dataModel.getBlobReferenceCount(otherDataHash));
+    }
+}
@@ -8,6 +8,7 @@ import io.topiacoin.node.model.DataItemInfo;
 import io.topiacoin.node.model.DataModel;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -82,6 +83,139 @@ public abstract class AbstractDataItemInfoDataModelProviderTest {
         assertNotEquals(fetchedDataItem, fetchedDataItem2);
     }
 
+    @Test
+    public void testDataItemVerificationRecord() throws Exception {
+        DataModel dataModel = getDataModel();
+
+        DataItemInfo createdDataItem = dataModel.createDataItem("An ID", 1234, "aHash");
+        assertNull(createdDataItem.getVerifiedVersion());
+        assertNull(createdDataItem.getVerifiedHash());
+        assertEquals(0, createdDataItem.getLastVerified());
+
+        createdDataItem.setVerifiedVersion("version-1");
+        createdDataItem.setVerifiedHash("aHash");
+        createdDataItem.setLastVerified(987654321L);
+        createdDataItem.setQuarantined(true);
+        dataModel.updateDataItem(createdDataItem);
+
+        DataItemInfo fetchedDataItem = dataModel.getDataItem("An ID");
+        assertEquals("version-1", fetchedDataItem.getVerifiedVersion());
+        assertEquals("aHash", fetchedDataItem.getVerifiedHash());
+        assertEquals(987654321L, fetchedDataItem.getLastVerified());
+        assertTrue(fetchedDataItem.isQuarantined());
+
+        ContainerInfo containerInfo = dataModel.createContainer("A Container", 0, null);
+        dataModel.addDataItemToContainer("An ID", containerInfo.getId());
+
+        List<DataItemInfo> dataItems = dataModel.getDataItems(containerInfo.getId());
+        assertEquals(1, dataItems.size());
+        assertEquals("version-1", dataItems.get(0).getVerifiedVersion());
+        assertEquals("aHash", dataItems.get(0).getVerifiedHash());
+        assertEquals(987654321L, dataItems.get(0).getLastVerified());
+        assertTrue(dataItems.get(0).isQuarantined());
+    }
+
+    @Test
+    public void testGetDataItemIDs() throws Exception {
+        DataModel dataModel = getDataModel();
+
+        assertTrue(dataModel.getDataItemIDs(null, 10).isEmpty());
+
+        dataModel.createDataItem("item-c", 1, "aHash");
+        dataModel.createDataItem("item-a", 1, "aHash");
+        dataModel.createDataItem("item-e", 1, "aHash");
+        dataModel.createDataItem("item-b", 1, "aHash");
+        dataModel.createDataItem("item-d", 1, "aHash");
+
+        List<String> page = dataModel.getDataItemIDs(null, 2);
+        assertEquals(Arrays.asList("item-a", "item-b"), page);
+
+        page = dataModel.getDataItemIDs("item-b", 2);
+        assertEquals(Arrays.asList("item-c", "item-d"), page);
+
+        page = dataModel.getDataItemIDs("item-d", 2);
+        assertEquals(Arrays.asList("item-e"), page);
+
+        page = dataModel.getDataItemIDs("item-e", 2);
+        assertTrue(page.isEmpty());
+    }
+
+    @Test
+    public void testGetDataItemIDsWithHash() throws Exception {
+        DataModel dataModel = getDataModel();
+
+        assertTrue(dataModel.getDataItemIDsWithHash("aHash").isEmpty());
+
+        dataModel.createDataItem("item-c", 1, "aHash");
+        dataModel.createDataItem("item-a", 1, "aHash");
+        dataModel.createDataItem("item-b", 1, "anotherHash");
+
+        assertEquals(Arrays.asList("item-a", "item-c"), dataModel.getDataItemIDsWithHash("aHash"));
+        assertEquals(Arrays.asList("item-b"), dataModel.getDataItemIDsWithHash("anotherHash"));
+
+        dataModel.removeDataItem("item-a");
+        assertEquals(Arrays.asList("item-c"), dataModel.getDataItemIDsWithHash("aHash"));
+    }
+
+    @Test
+    public void testCreateDataItems() throws Exception {
+        String containerID = UUID.randomUUID().toString();
+
+        DataModel dataModel = getDataModel();
+        dataModel.createContainer(containerID, 0, null);
+
+        List<DataItemInfo> dataItems = Arrays.asList(
+                new DataItemInfo("item-a", 1, "aHash"),
+                new DataItemInfo("item-b", 2, "bHash"),
+                new DataItemInfo("item-c", 3, "cHash"));
+        dataItems.get(1).setVerifiedVersion("aVersion");
+        dataItems.get(1).setVerifiedHash("bHash");
+        dataItems.get(1).setLastVerified(1234);
+
+        dataModel.createDataItems(dataItems, containerID);
+
+        for (DataItemInfo dataItem : dataItems) {
+            assertEquals(dataItem, dataModel.getDataItem(dataItem.getId()));
+            assertTrue(dataModel.isDataItemInContainer(dataItem.getId(), containerID));
+        }
+        assertEquals("aVersion", dataModel.getDataItem("item-b").getVerifiedVersion());
+        assertEquals(1234, dataModel.getDataItem("item-b").getLastVerified());
+    }
+
+    @Test
+    public void testCreateDataItemsIsAtomic() throws Exception {
+        String containerID = UUID.randomUUID().toString();
+
+        DataModel dataModel = getDataModel();
+        dataModel.createContainer(containerID, 0, null);
+        dataModel.createDataItem("item-b", 2, "bHash");
+
+        List<DataItemInfo> dataItems = Arrays.asList(
+                new DataItemInfo("item-a", 1, "aHash"),
+                new DataItemInfo("item-b", 2, "bHash"),
+                new DataItemInfo("item-c", 3, "cHash"));
+
+        try {
+            dataModel.createDataItems(dataItems, containerID);
+            fail("Expected a DataItemAlreadyExistsException");
+        } catch (DataItemAlreadyExistsException e) {
+            // NOOP - Expected Exception
+        }
+
+        assertNull(dataModel.getDataItem("item-a"));
+        assertNull(dataModel.getDataItem("item-c"));
+        assertFalse(dataModel.isDataItemInContainer("item-b", containerID));
+    }
+
+    @Test(expected = NoSuchContainerException.class)
+    public void testCreateDataItemsInNonExistentContainer() throws Exception {
+        String containerID = UUID.randomUUID().toString();
+
+        DataModel dataModel = getDataModel();
+
+        dataModel.createDataItems(Arrays.asList(new DataItemInfo("item-a", 1, "aHash")), containerID);
+    }
+
     @Test(expected = DataItemAlreadyExistsException.class)
     public void testCreateDuplicateDataItem() throws Exception {
         DataItemInfo testDataItem = new DataItemInfo();
@@ -0,0 +1,66 @@
+package io.topiacoin.node.model.provider;
+
+import io.topiacoin.node.model.DataItemInfo;
+import io.topiacoin.node.model.DataModel;
+import io.topiacoin.node.model.StorageUsage;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public abstract class AbstractStorageUsageDataModelProviderTest {
+
+    public abstract DataModel getDataModel();
+
+    @Test
+    public void testStorageUsageCounting() throws Exception {
+        String containerID = "container-1";
+
+        DataModel dataModel = getDataModel();
+
+        assertEquals(new StorageUsage(0, 0), dataModel.getStorageUsage(containerID));
+        assertEquals(new StorageUsage(0, 0), dataModel.getNodeStorageUsage());
+
+        assertEquals(new StorageUsage(1000, 1), dataModel.adjustStorageUsage(containerID, 1000, 1));
+        assertEquals(new StorageUsage(3500, 2), dataModel.adjustStorageUsage(containerID, 2500, 1));
+        assertEquals(new StorageUsage(3500, 2), dataModel.getStorageUsage(containerID));
+
+        assertEquals(new StorageUsage(2500, 1), dataModel.adjustStorageUsage(containerID, -1000, -1));
+        assertEquals(new StorageUsage(2500, 1), dataModel.getStorageUsage(containerID));
+
+        // The node's usage follows the data items, not the container counters.
+        assertEquals(new StorageUsage(0, 0), dataModel.getNodeStorageUsage());
+    }
+
+    @Test
+    public void testNodeStorageUsageCountsEachHashOnce() throws Exception {
+        String containerID = "container-1";
+        String otherContainerID = "container-2";
+
+        DataModel dataModel = getDataModel();
+        dataModel.createContainer(containerID, 0, null);
+        dataModel.createContainer(otherContainerID, 0, null);
+
+        dataModel.createDataItems(Arrays.asList(
+                new DataItemInfo("item-1", 1000, "SHA-256:aaaa"),
+                new DataItemInfo("item-2", 1000, "SHA-256:aaaa"),
+                new DataItemInfo("item-3", 2000, "SHA-256:bbbb")), containerID);
+        dataModel.createDataItems(Collections.singletonList(
+                new DataItemInfo("item-4", 2000, "SHA-256:bbbb")), otherContainerID);
+        dataModel.createDataItem("item-5", 500, "SHA-256:cccc");
+
+        assertEquals(new StorageUsage(3500, 3), dataModel.getNodeStorageUsage());
+
+        // The hash is still held by another data item.
+        assertTrue(dataModel.removeDataItem("item-1"));
+        assertEquals(new StorageUsage(3500, 3), dataModel.getNodeStorageUsage());
+
+        assertTrue(dataModel.removeDataItem("item-2"));
+        assertEquals(new StorageUsage(2500, 2), dataModel.getNodeStorageUsage());
+
+        assertFalse(dataModel.removeDataItem("item-2"));
+        assertEquals(new StorageUsage(2500, 2), dataModel.getNodeStorageUsage());
+    }
+}
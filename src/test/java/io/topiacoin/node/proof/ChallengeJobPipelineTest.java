@@ -0,0 +1,173 @@
+package io.topiacoin.node.proof;
+
+import io.topiacoin.node.exceptions.ChallengeQueueFullException;
+import io.topiacoin.node.exceptions.InvalidChallengeException;
+import io.topiacoin.node.model.Challenge;
+import io.topiacoin.node.model.ChallengeChunkInfo;
+import io.topiacoin.node.model.ChallengeJob;
+import io.topiacoin.node.model.ChallengeQueueMetrics;
+import io.topiacoin.node.model.ChallengeSolution;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.TestCase.*;
+
+public class ChallengeJobPipelineTest {
+
+    private ChallengeJobPipeline _pipeline;
+
+    @Before
+    public void setUp() {
+        _pipeline = new ChallengeJobPipeline();
+    }
+
+    @After
+    public void tearDown() {
+        _pipeline.shutdown();
+        _pipeline = null;
+    }
+
+    @Test
+    public void testJobReportsMerkleRoot() throws Exception {
+
+        _pipeline.initialize();
+
+        final CountDownLatch release = new CountDownLatch(1);
+        ChallengeJob job = _pipeline.submit(getChallenge("container-1"), new Callable<ChallengeSolution>() {
+            @Override
+            public ChallengeSolution call() throws Exception {
+                release.await();
+                return new ChallengeSolution(null, null, -1, "SHA-256:deadbeef");
+            }
+        });
+
+        assertNotNull(job.getJobID());
+        assertEquals("container-1", job.getContainerID());
+        assertTrue(job.getQueuedTime() > 0);
+
+        release.countDown();
+        ChallengeJob finishedJob = waitForJob(job.getJobID());
+
+        assertEquals(ChallengeJob.State.COMPLETED, finishedJob.getState());
+        assertEquals("SHA-256:deadbeef", finishedJob.getMerkleRoot());
+        assertNull(finishedJob.getError());
+        assertTrue(finishedJob.getStartedTime() >= finishedJob.getQueuedTime());
+        assertTrue(finishedJob.getCompletedTime() >= finishedJob.getStartedTime());
+        assertEquals(1, _pipeline.getJobsCompleted());
+    }
+
+    @Test
+    public void testFailedJobReportsError() throws Exception {
+
+        _pipeline.initialize();
+
+        ChallengeJob job = _pipeline.submit(getChallenge("container-1"), new Callable<ChallengeSolution>() {
+            @Override
+            public ChallengeSolution call() throws Exception {
+                throw new InvalidChallengeException("Chunk not found");
+            }
+        });
+
+        ChallengeJob finishedJob = waitForJob(job.getJobID());
+
+        assertEquals(ChallengeJob.State.FAILED, finishedJob.getState());
+        assertEquals("InvalidChallengeException: Chunk not found", finishedJob.getError());
+        assertNull(finishedJob.getMerkleRoot());
+        assertEquals(1, _pipeline.getJobsFailed());
+    }
+
+    @Test
+    public void testFullQueueRejectsChallenges() throws Exception {
+
+        _pipeline.setSolverThreads(1);
+        _pipeline.setMaxQueuedJobs(2);
+        _pipeline.initialize();
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Callable<ChallengeSolution> task = new Callable<ChallengeSolution>() {
+            @Override
+            public ChallengeSolution call() throws Exception {
+                started.countDown();
+                release.await();
+                return new ChallengeSolution(null, null, -1, "SHA-256:deadbeef");
+            }
+        };
+
+        ChallengeJob runningJob = _pipeline.submit(getChallenge("container-1"), task);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        ChallengeJob queuedJob = _pipeline.submit(getChallenge("container-2"), task);
+        _pipeline.submit(getChallenge("container-3"), task);
+
+        try {
+            _pipeline.submit(getChallenge("container-4"), task);
+            fail("Expected ChallengeQueueFullException was not thrown");
+        } catch (ChallengeQueueFullException e) {
+            // NOOP - Expected Exception
+        }
+
+        assertEquals(ChallengeJob.State.RUNNING, _pipeline.getJob(runningJob.getJobID()).getState());
+        assertEquals(ChallengeJob.State.QUEUED, _pipeline.getJob(queuedJob.getJobID()).getState());
+        assertEquals(new ChallengeQueueMetrics(2, 1, 0, 0), _pipeline.getMetrics());
+
+        release.countDown();
+        waitForJob(queuedJob.getJobID());
+    }
+
+    @Test
+    public void testFinishedJobsExpire() throws Exception {
+
+        _pipeline.setJobRetention(0);
+        _pipeline.initialize();
+
+        Callable<ChallengeSolution> task = new Callable<ChallengeSolution>() {
+            @Override
+            public ChallengeSolution call() throws Exception {
+                return new ChallengeSolution(null, null, -1, "SHA-256:deadbeef");
+            }
+        };
+
+        ChallengeJob job = _pipeline.submit(getChallenge("container-1"), task);
+        waitForJob(job.getJobID());
+        Thread.sleep(5);
+
+        // Finished jobs are pruned when the next challenge is submitted.
+        ChallengeJob nextJob = _pipeline.submit(getChallenge("container-2"), task);
+
+        assertNull(_pipeline.getJob(job.getJobID()));
+        assertNotNull(_pipeline.getJob(nextJob.getJobID()));
+    }
+
+    @Test
+    public void testUnknownJob() throws Exception {
+
+        _pipeline.initialize();
+
+        assertNull(_pipeline.getJob("no-such-job"));
+    }
+
+    // -------- Private Methods --------
+
+    private Challenge getChallenge(String containerID) {
+        return new Challenge(containerID, Collections.singletonList(new ChallengeChunkInfo("chunk", 0, 10)));
+    }
+
+    private ChallengeJob waitForJob(String jobID) throws InterruptedException {
+        long giveUp = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < giveUp) {
+            ChallengeJob job = _pipeline.getJob(jobID);
+            if (job.getState() == ChallengeJob.State.COMPLETED || job.getState() == ChallengeJob.State.FAILED) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        fail("Job " + jobID + " did not finish");
+        return null;
+    }
+}
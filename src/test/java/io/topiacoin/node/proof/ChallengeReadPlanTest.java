@@ -0,0 +1,142 @@
+package io.topiacoin.node.proof;
+
+import io.topiacoin.node.exceptions.NoSuchDataItemException;
+import io.topiacoin.node.model.ChallengeChunkInfo;
+import io.topiacoin.node.storage.provider.MemoryDataStorageProvider;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ChallengeReadPlanTest {
+
+    @Test
+    public void testOverlappingAndAdjacentRangesAreMerged() throws Exception {
+
+        List<ChallengeChunkInfo> ranges = Arrays.asList(
+                new ChallengeChunkInfo("B", 100, 50),   // 0
+                new ChallengeChunkInfo("A", 40, 20),    // 1 - Overlaps leaf 3
+                new ChallengeChunkInfo("B", 0, 50),     // 2
+                new ChallengeChunkInfo("A", 0, 50),     // 3
+                new ChallengeChunkInfo("B", 150, 10),   // 4 - Abuts leaf 0
+                new ChallengeChunkInfo("A", 40, 20));   // 5 - Same as leaf 1
+
+        ChallengeReadPlan plan = new ChallengeReadPlan(ranges);
+
+        List<ChallengeReadPlan.Read> reads = plan.getReads();
+        assertEquals(3, reads.size());
+
+        assertRead(reads.get(0), "A", 0, 60, 3, 1, 5);
+        assertRead(reads.get(1), "B", 0, 50, 2);
+        assertRead(reads.get(2), "B", 100, 60, 0, 4);
+
+        ChallengeReadPlan.Slice slice = reads.get(2).getSlices().get(1);
+        assertEquals(50, slice.getOffset());
+        assertEquals(10, slice.getLength());
+
+        assertEquals(6, plan.getRangeCount());
+        assertEquals(3, plan.getReadCount());
+        assertEquals(3, plan.getSavedReadCount());
+        assertEquals(200, plan.getRequestedBytes());
+        assertEquals(170, plan.getReadBytes());
+        assertEquals(30, plan.getSavedBytes());
+    }
+
+    @Test
+    public void testReadsAreLimitedToMaxReadSize() throws Exception {
+
+        List<ChallengeChunkInfo> ranges = Arrays.asList(
+                new ChallengeChunkInfo("A", 0, 40),
+                new ChallengeChunkInfo("A", 40, 40),
+                new ChallengeChunkInfo("A", 80, 40),
+                new ChallengeChunkInfo("A", 120, 200));
+
+        ChallengeReadPlan plan = new ChallengeReadPlan(ranges, 100);
+
+        List<ChallengeReadPlan.Read> reads = plan.getReads();
+        assertEquals(3, reads.size());
+        assertRead(reads.get(0), "A", 0, 80, 0, 1);
+        assertRead(reads.get(1), "A", 80, 40, 2);
+        assertRead(reads.get(2), "A", 120, 200, 3);
+    }
+
+    @Test
+    public void testEmptyChallenge() throws Exception {
+
+        ChallengeReadPlan plan = new ChallengeReadPlan(Collections.<ChallengeChunkInfo>emptyList());
+
+        assertTrue(plan.getReads().isEmpty());
+        assertEquals(0, plan.getSavedReadCount());
+        assertEquals(0, plan.getSavedBytes());
+    }
+
+    @Test
+    public void testInvalidRangesAreRejected() throws Exception {
+
+        assertRejected(new ChallengeChunkInfo("A", -1, 10));
+        assertRejected(new ChallengeChunkInfo("A", 0, -10));
+        assertRejected(new ChallengeChunkInfo("A", Integer.MAX_VALUE, 10));
+        assertRejected(new ChallengeChunkInfo(null, 0, 10));
+    }
+
+    @Test
+    public void testValidateAgainstChunkSizes() throws Exception {
+
+        MemoryDataStorageProvider dataStorageProvider = new MemoryDataStorageProvider();
+        dataStorageProvider.initialize();
+
+        try {
+            dataStorageProvider.saveData("A", new ByteArrayInputStream(new byte[100]));
+
+            new ChallengeReadPlan(Arrays.asList(
+                    new ChallengeChunkInfo("A", 0, 60),
+                    new ChallengeChunkInfo("A", 50, 50))).validate(dataStorageProvider);
+
+            try {
+                new ChallengeReadPlan(Arrays.asList(
+                        new ChallengeChunkInfo("A", 0, 60),
+                        new ChallengeChunkInfo("A", 50, 51))).validate(dataStorageProvider);
+                fail("Expected IOException was not thrown");
+            } catch (IOException e) {
+                // NOOP - Expected Exception
+            }
+
+            try {
+                new ChallengeReadPlan(Arrays.asList(
+                        new ChallengeChunkInfo("A", 0, 60),
+                        new ChallengeChunkInfo("B", 0, 10))).validate(dataStorageProvider);
+                fail("Expected NoSuchDataItemException was not thrown");
+            } catch (NoSuchDataItemException e) {
+                // NOOP - Expected Exception
+            }
+        } finally {
+            dataStorageProvider.shutdown();
+        }
+    }
+
+    // -------- Private Methods --------
+
+    private void assertRead(ChallengeReadPlan.Read read, String chunkID, int offset, int length, int... leafIndexes) {
+        assertEquals(chunkID, read.getChunkID());
+        assertEquals(offset, read.getOffset());
+        assertEquals(length, read.getLength());
+        assertEquals(leafIndexes.length, read.getSlices().size());
+        for (int i = 0; i < leafIndexes.length; i++) {
+            assertEquals(leafIndexes[i], read.getSlices().get(i).getLeafIndex());
+        }
+    }
+
+    private void assertRejected(ChallengeChunkInfo info) {
+        try {
+            new ChallengeReadPlan(Collections.singletonList(info));
+            fail("Expected IOException was not thrown for " + info);
+        } catch (IOException e) {
+            // NOOP - Expected Exception
+        }
+    }
+}
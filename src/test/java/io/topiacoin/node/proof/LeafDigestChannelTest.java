@@ -0,0 +1,106 @@
+package io.topiacoin.node.proof;
+
+import io.topiacoin.node.model.ChallengeChunkInfo;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LeafDigestChannelTest {
+
+    @Test
+    public void testOverlappingSlicesFromHeapBuffers() throws Exception {
+        assertLeavesMatch(false);
+    }
+
+    @Test
+    public void testOverlappingSlicesFromDirectBuffers() throws Exception {
+        assertLeavesMatch(true);
+    }
+
+    @Test
+    public void testShortReadIsRejected() throws Exception {
+
+        List<ChallengeChunkInfo> ranges = Arrays.asList(new ChallengeChunkInfo("A", 0, 100));
+        ChallengeReadPlan.Read read = new ChallengeReadPlan(ranges).getReads().get(0);
+        byte[][] leaves = new byte[1][];
+
+        try (LeafDigestChannel channel = new LeafDigestChannel(read, leaves, new byte[16], new DigestPool())) {
+            channel.write(ByteBuffer.wrap(new byte[60]));
+            try {
+                channel.finish();
+                fail("Expected IOException was not thrown");
+            } catch (IOException e) {
+                // NOOP - Expected Exception
+            }
+            try {
+                channel.write(ByteBuffer.wrap(new byte[41]));
+                fail("Expected IOException was not thrown");
+            } catch (IOException e) {
+                // NOOP - Expected Exception
+            }
+        }
+
+        assertNull(leaves[0]);
+    }
+
+    // -------- Private Methods --------
+
+    private void assertLeavesMatch(boolean direct) throws Exception {
+
+        byte[] data = new byte[1000];
+        new Random().nextBytes(data);
+
+        // Overlapping, nested, abutting, and empty slices, including an empty one at the very end of the read.
+        List<ChallengeChunkInfo> ranges = Arrays.asList(
+                new ChallengeChunkInfo("A", 0, 400),
+                new ChallengeChunkInfo("A", 100, 50),
+                new ChallengeChunkInfo("A", 350, 300),
+                new ChallengeChunkInfo("A", 650, 350),
+                new ChallengeChunkInfo("A", 500, 0),
+                new ChallengeChunkInfo("A", 1000, 0),
+                new ChallengeChunkInfo("A", 0, 1000));
+        ChallengeReadPlan plan = new ChallengeReadPlan(ranges);
+        assertEquals(1, plan.getReadCount());
+
+        byte[][] leaves = new byte[ranges.size()][];
+        DigestPool digestPool = new DigestPool();
+
+        // Write the read in uneven pieces through a scratch buffer smaller than some of them.
+        try (LeafDigestChannel channel = new LeafDigestChannel(plan.getReads().get(0), leaves, new byte[64], digestPool)) {
+            int position = 0;
+            int piece = 1;
+            while (position < data.length) {
+                int length = Math.min(piece, data.length - position);
+                ByteBuffer buffer = (direct ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length + 10));
+                if (!direct) {
+                    buffer.position(5);
+                }
+                buffer.put(data, position, length);
+                buffer.flip();
+                if (!direct) {
+                    buffer.position(5);
+                }
+                assertEquals(length, channel.write(buffer));
+                assertFalse(buffer.hasRemaining());
+                position += length;
+                piece = piece * 3 + 1;
+            }
+            channel.finish();
+        }
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (int i = 0; i < ranges.size(); i++) {
+            ChallengeChunkInfo info = ranges.get(i);
+            digest.reset();
+            digest.update(data, info.getOffset(), info.getLength());
+            assertArrayEquals("Leaf " + i + " did not match", digest.digest(), leaves[i]);
+        }
+    }
+}
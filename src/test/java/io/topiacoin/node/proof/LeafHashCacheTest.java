@@ -0,0 +1,189 @@
+package io.topiacoin.node.proof;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class LeafHashCacheTest {
+
+    @Test
+    public void testGetAndPut() throws Exception {
+        LeafHashCache cache = new LeafHashCache();
+        cache.initialize();
+
+        try {
+            byte[] hash = new byte[32];
+            hash[0] = 1;
+
+            assertNull(cache.get("A", 0, 100, "v1"));
+
+            cache.put("A", 0, 100, "v1", hash);
+
+            assertArrayEquals(hash, cache.get("A", 0, 100, "v1"));
+            assertNull(cache.get("A", 0, 101, "v1"));
+            assertNull(cache.get("A", 1, 100, "v1"));
+            assertNull(cache.get("B", 0, 100, "v1"));
+            assertEquals(1, cache.getHitCount());
+            assertEquals(4, cache.getMissCount());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testChangedVersionMisses() throws Exception {
+        LeafHashCache cache = new LeafHashCache();
+        cache.initialize();
+
+        try {
+            cache.put("A", 0, 100, "v1", new byte[32]);
+
+            assertNull(cache.get("A", 0, 100, "v2"));
+
+            // The stale entry is dropped, so the old version no longer matches either.
+            assertNull(cache.get("A", 0, 100, "v1"));
+            assertEquals(0, cache.getSize());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        LeafHashCache cache = new LeafHashCache();
+        cache.initialize();
+
+        try {
+            cache.put("A", 0, 100, "v1", new byte[32]);
+            cache.put("A", 50, 100, "v1", new byte[32]);
+            cache.put("B", 0, 100, "v1", new byte[32]);
+
+            cache.invalidate("A");
+
+            assertNull(cache.get("A", 0, 100, "v1"));
+            assertNull(cache.get("A", 50, 100, "v1"));
+            assertNotNull(cache.get("B", 0, 100, "v1"));
+            assertEquals(1, cache.getSize());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedRangesAreEvicted() throws Exception {
+        LeafHashCache cache = new LeafHashCache();
+        cache.setMaxEntries(3);
+        cache.initialize();
+
+        try {
+            cache.put("A", 0, 10, "v1", new byte[32]);
+            cache.put("A", 10, 10, "v1", new byte[32]);
+            cache.put("A", 20, 10, "v1", new byte[32]);
+
+            // Touch the first range, so the second becomes the eldest.
+            assertNotNull(cache.get("A", 0, 10, "v1"));
+
+            cache.put("A", 30, 10, "v1", new byte[32]);
+
+            assertEquals(3, cache.getSize());
+            assertNotNull(cache.get("A", 0, 10, "v1"));
+            assertNull(cache.get("A", 10, 10, "v1"));
+            assertNotNull(cache.get("A", 20, 10, "v1"));
+            assertNotNull(cache.get("A", 30, 10, "v1"));
+
+            // Evicted ranges are dropped from the chunk index as well.
+            cache.invalidate("A");
+            assertEquals(0, cache.getSize());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testCacheIsPersisted() throws Exception {
+        File cacheDir = Files.createTempDirectory("leafHashCacheTest").toFile();
+
+        try {
+            byte[] hash = new byte[32];
+            hash[31] = 42;
+
+            LeafHashCache cache = new LeafHashCache();
+            cache.setCachePath(cacheDir.getPath());
+            cache.initialize();
+            cache.put("A", 0, 100, "v1", hash);
+            cache.put("B", 0, 100, "v1", new byte[32]);
+            cache.invalidate("B");
+            cache.shutdown();
+
+            LeafHashCache reloadedCache = new LeafHashCache();
+            reloadedCache.setCachePath(cacheDir.getPath());
+            reloadedCache.initialize();
+            try {
+                assertEquals(1, reloadedCache.getSize());
+                assertArrayEquals(hash, reloadedCache.get("A", 0, 100, "v1"));
+                assertNull(reloadedCache.get("B", 0, 100, "v1"));
+            } finally {
+                reloadedCache.shutdown();
+            }
+        } finally {
+            FileUtils.deleteDirectory(cacheDir);
+        }
+    }
+
+    @Test
+    public void testCacheIsSavedPeriodically() throws Exception {
+        File cacheDir = Files.createTempDirectory("leafHashCacheTest").toFile();
+
+        LeafHashCache cache = new LeafHashCache();
+        try {
+            byte[] hash = new byte[32];
+            hash[0] = 7;
+
+            cache.setCachePath(cacheDir.getPath());
+            cache.setSaveInterval(1);
+            cache.initialize();
+            cache.put("A", 0, 100, "v1", hash);
+
+            File cacheFile = new File(cacheDir, "leafhashes.dat");
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!cacheFile.exists() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+
+            // Reload without shutting the first cache down, as after a crash.
+            LeafHashCache reloadedCache = new LeafHashCache();
+            reloadedCache.setCachePath(cacheDir.getPath());
+            reloadedCache.setSaveInterval(0);
+            reloadedCache.initialize();
+            try {
+                assertArrayEquals(hash, reloadedCache.get("A", 0, 100, "v1"));
+            } finally {
+                reloadedCache.shutdown();
+            }
+        } finally {
+            cache.shutdown();
+            FileUtils.deleteDirectory(cacheDir);
+        }
+    }
+
+    @Test
+    public void testCachePathDefaultsToStateDirectory() throws Exception {
+        File storageDir = Files.createTempDirectory("leafHashCacheTest").toFile();
+
+        try {
+            LeafHashCache cache = new LeafHashCache();
+            cache.setStorageBasePath(storageDir.getPath());
+            cache.initialize();
+            cache.put("A", 0, 100, "v1", new byte[32]);
+            cache.shutdown();
+
+            assertTrue(new File(new File(storageDir, "state"), "leafhashes.dat").exists());
+        } finally {
+            FileUtils.deleteDirectory(storageDir);
+        }
+    }
+}
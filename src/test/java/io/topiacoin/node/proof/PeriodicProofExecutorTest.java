@@ -0,0 +1,218 @@
+package io.topiacoin.node.proof;
+
+import io.topiacoin.node.micronetwork.ContainerManager;
+import io.topiacoin.node.model.Challenge;
+import io.topiacoin.node.model.ChallengeChunkInfo;
+import io.topiacoin.node.model.ChallengeSolution;
+import io.topiacoin.node.model.ContainerInfo;
+import io.topiacoin.node.smsc.SMSCManager;
+import io.topiacoin.node.utility.CompletedFuture;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.topiacoin.node.micronetwork.ContainerManager.ContainerState.*;
+import static junit.framework.TestCase.*;
+
+public class PeriodicProofExecutorTest {
+
+    private SMSCManager _smscManager;
+    private ContainerManager _containerManager;
+    private CountingProofSolver _proofSolver;
+    private ProofSubmissionQueue _proofSubmissionQueue;
+    private PeriodicProofExecutor _executor;
+
+    @Before
+    public void setUp() {
+        // Create the Mock Objects that will be wired into the Test Object
+        _smscManager = EasyMock.createNiceMock(SMSCManager.class);
+        _containerManager = EasyMock.createNiceMock(ContainerManager.class);
+        _proofSolver = new CountingProofSolver();
+        _proofSubmissionQueue = EasyMock.createNiceMock(ProofSubmissionQueue.class);
+    }
+
+    @After
+    public void tearDown() {
+        if ( _executor != null ) {
+            _executor.shutDown();
+        }
+        _executor = null;
+    }
+
+    @Test
+    public void testContainersAreProvenPeriodically() throws Exception {
+
+        List<String> containerIDs = Arrays.asList("container-1", "container-2", "container-3");
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_smscManager.getContainers()).andReturn(new CompletedFuture<>(containerIDs)).anyTimes();
+        expectHostedContainers(containerIDs);
+        EasyMock.expect(_smscManager.submitProofSolution(EasyMock.anyString(), EasyMock.anyObject(ChallengeSolution.class)))
+                .andReturn(new CompletedFuture<Void>(null)).anyTimes();
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_smscManager, _containerManager, _proofSubmissionQueue);
+
+        // Create and Configure the Test Object
+        _executor = getConfiguredExecutor();
+        _executor.setProofPeriod(100);
+        _executor.setMaxConcurrentProofs(1);
+        _executor.initialize();
+
+        // Execute the Test
+        Thread.sleep(650);
+        assertEquals(3, _executor.getScheduledContainerCount());
+        _executor.shutDown();
+
+        // Verify the expected Results of the Test
+        assertTrue("Each container should be proven several times: " + _executor.getProofsSubmitted(),
+                _executor.getProofsSubmitted() >= 9);
+        assertEquals(_proofSolver.solved.get(), _executor.getProofsSubmitted());
+        assertEquals("No more than one proof should run at once", 1, _proofSolver.maxConcurrent.get());
+        assertEquals(0, _executor.getProofsFailed());
+    }
+
+    @Test
+    public void testProofIsAbandonedAtDeadline() throws Exception {
+
+        List<String> containerIDs = Collections.singletonList("container-1");
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_smscManager.getContainers()).andReturn(new CompletedFuture<>(containerIDs)).anyTimes();
+        expectHostedContainers(containerIDs);
+        EasyMock.expect(_smscManager.submitProofSolution(EasyMock.anyString(), EasyMock.anyObject(ChallengeSolution.class)))
+                .andReturn(new CompletableFuture<Void>()).anyTimes();
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_smscManager, _containerManager, _proofSubmissionQueue);
+
+        // Create and Configure the Test Object
+        _executor = getConfiguredExecutor();
+        _executor.setProofPeriod(200);
+        _executor.setProofDeadline(50);
+        _executor.initialize();
+
+        // Execute the Test
+        Thread.sleep(500);
+        _executor.shutDown();
+
+        // Verify the expected Results of the Test
+        assertEquals(0, _executor.getProofsSubmitted());
+        assertTrue(_executor.getDeadlinesMissed() >= 1);
+    }
+
+    @Test
+    public void testUnassignedContainersStopBeingProven() throws Exception {
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_smscManager.getContainers())
+                .andReturn(new CompletedFuture<>(Arrays.asList("container-1", "container-2"))).once();
+        EasyMock.expect(_smscManager.getContainers())
+                .andReturn(new CompletedFuture<>(Collections.singletonList("container-2"))).anyTimes();
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_smscManager, _containerManager, _proofSubmissionQueue);
+
+        // Create and Configure the Test Object
+        _executor = getConfiguredExecutor();
+        _executor.setEnabled(false);
+        _executor.initialize();
+
+        // Execute the Test
+        _executor.refreshContainers();
+        assertEquals(2, _executor.getScheduledContainerCount());
+
+        _executor.refreshContainers();
+        assertEquals(1, _executor.getScheduledContainerCount());
+    }
+
+    @Test
+    public void testContainersWithoutChallengeAreSkipped() throws Exception {
+
+        List<String> containerIDs = Collections.singletonList("container-1");
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_smscManager.getContainers()).andReturn(new CompletedFuture<>(containerIDs)).anyTimes();
+        EasyMock.expect(_containerManager.hasContainer("container-1")).andReturn(true).anyTimes();
+        EasyMock.expect(_containerManager.getContainerState("container-1")).andReturn(RUNNING).anyTimes();
+        EasyMock.expect(_containerManager.getContainer("container-1"))
+                .andReturn(new ContainerInfo("container-1", 0, null)).anyTimes();
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_smscManager, _containerManager, _proofSubmissionQueue);
+
+        // Create and Configure the Test Object
+        _executor = getConfiguredExecutor();
+        _executor.setProofPeriod(50);
+        _executor.initialize();
+
+        // Execute the Test
+        Thread.sleep(300);
+        _executor.shutDown();
+
+        // Verify the expected Results of the Test
+        assertEquals(0, _proofSolver.solved.get());
+        assertEquals(0, _executor.getProofsSubmitted());
+        assertEquals(0, _executor.getProofsFailed());
+    }
+
+    // -------- Private Methods --------
+
+    private PeriodicProofExecutor getConfiguredExecutor() {
+        PeriodicProofExecutor executor = new PeriodicProofExecutor();
+        executor.setProofSolver(_proofSolver);
+        executor.setSMSCManager(_smscManager);
+        executor.setContainerManager(_containerManager);
+        executor.setProofSubmissionQueue(_proofSubmissionQueue);
+        return executor;
+    }
+
+    private void expectHostedContainers(List<String> containerIDs) {
+        for ( String containerID : containerIDs ) {
+            Challenge challenge = new Challenge(containerID,
+                    Collections.singletonList(new ChallengeChunkInfo("chunk", 0, 10)));
+            EasyMock.expect(_containerManager.hasContainer(containerID)).andReturn(true).anyTimes();
+            EasyMock.expect(_containerManager.getContainerState(containerID)).andReturn(RUNNING).anyTimes();
+            EasyMock.expect(_containerManager.getContainer(containerID))
+                    .andReturn(new ContainerInfo(containerID, 0, challenge)).anyTimes();
+        }
+    }
+
+    // ======== Counting Proof Solver ========
+
+    private static class CountingProofSolver implements ProofSolver {
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+        private final AtomicInteger solved = new AtomicInteger();
+
+        @Override
+        public void initialize() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public ChallengeSolution generateSolution(Challenge proofChallenge) {
+            int concurrent = running.incrementAndGet();
+            maxConcurrent.accumulateAndGet(concurrent, Math::max);
+            try {
+                Thread.sleep(10);
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            solved.incrementAndGet();
+            return new ChallengeSolution(null, null, -1, "0123456789abcdef");
+        }
+    }
+}
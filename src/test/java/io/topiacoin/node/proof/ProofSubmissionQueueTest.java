@@ -0,0 +1,320 @@
+package io.topiacoin.node.proof;
+
+import io.topiacoin.node.model.ChallengeSolution;
+import io.topiacoin.node.smsc.SMSCManager;
+import io.topiacoin.node.utility.CompletedFuture;
+import org.apache.commons.io.FileUtils;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static junit.framework.TestCase.*;
+
+public class ProofSubmissionQueueTest {
+
+    private SMSCManager _smscManager;
+    private ProofSubmissionQueue _queue;
+
+    @Before
+    public void setUp() {
+        // Create the Mock Objects that will be wired into the Test Object
+        _smscManager = EasyMock.createStrictMock(SMSCManager.class);
+    }
+
+    @After
+    public void tearDown() {
+        if ( _queue != null ) {
+            _queue.shutdown();
+        }
+        _queue = null;
+    }
+
+    @Test
+    public void testFailedSubmissionIsRetriedUntilAccepted() throws Exception {
+
+        ChallengeSolution solution = new ChallengeSolution("foo", "bar", 1234, "SHA-256:deadbeef");
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_smscManager.submitProofSolution("container-1", solution)).andReturn(getFailedFuture());
+        EasyMock.expect(_smscManager.submitProofSolution("container-1", solution)).andReturn(new CompletedFuture<Void>(null));
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_smscManager);
+
+        // Create and Configure the Test Object
+        _queue = getConfiguredQueue();
+        _queue.initialize();
+
+        // Execute the Test
+        _queue.enqueue("container-1", solution, System.currentTimeMillis() + 60000);
+        assertTrue(_queue.isPending("container-1"));
+
+        _queue.retryDueSubmissions();
+        assertTrue(_queue.isPending("container-1"));
+
+        _queue.retryDueSubmissions();
+
+        // Verify the expected Results of the Test
+        assertFalse(_queue.isPending("container-1"));
+        assertEquals(1, _queue.getRetriesFailed());
+        assertEquals(1, _queue.getRetriesSucceeded());
+
+        // Verify the Mock Objects have been called correctly.
+        EasyMock.verify(_smscManager);
+    }
+
+    @Test
+    public void testNearestDeadlineIsRetriedFirst() throws Exception {
+
+        long now = System.currentTimeMillis();
+        ChallengeSolution solution1 = new ChallengeSolution(null, null, -1, "hash-1");
+        ChallengeSolution solution2 = new ChallengeSolution(null, null, -1, "hash-2");
+        ChallengeSolution solution3 = new ChallengeSolution(null, null, -1, "hash-3");
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_smscManager.submitProofSolution("container-2", solution2)).andReturn(new CompletedFuture<Void>(null));
+        EasyMock.expect(_smscManager.submitProofSolution("container-1", solution1)).andReturn(new CompletedFuture<Void>(null));
+        EasyMock.expect(_smscManager.submitProofSolution("container-3", solution3)).andReturn(new CompletedFuture<Void>(null));
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_smscManager);
+
+        // Create and Configure the Test Object
+        _queue = getConfiguredQueue();
+        _queue.initialize();
+
+        // Execute the Test
+        _queue.enqueue("container-3", solution3, 0);
+        _queue.enqueue("container-1", solution1, now + 60000);
+        _queue.enqueue("container-2", solution2, now + 30000);
+        _queue.retryDueSubmissions();
+
+        // Verify the expected Results of the Test
+        assertEquals(0, _queue.getPendingCount());
+        assertEquals(3, _queue.getRetriesSucceeded());
+
+        // Verify the Mock Objects have been called correctly.
+        EasyMock.verify(_smscManager);
+    }
+
+    @Test
+    public void testHungSubmissionDoesNotHoldUpTheNext() throws Exception {
+
+        long now = System.currentTimeMillis();
+        ChallengeSolution solution1 = new ChallengeSolution(null, null, -1, "hash-1");
+        ChallengeSolution solution2 = new ChallengeSolution(null, null, -1, "hash-2");
+        final AtomicLong secondSubmitted = new AtomicLong();
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_smscManager.submitProofSolution("container-1", solution1)).andReturn(new CompletableFuture<Void>());
+        EasyMock.expect(_smscManager.submitProofSolution("container-2", solution2)).andAnswer(new IAnswer<Future<Void>>() {
+            @Override
+            public Future<Void> answer() throws Throwable {
+                secondSubmitted.set(System.currentTimeMillis());
+                return new CompletedFuture<Void>(null);
+            }
+        });
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_smscManager);
+
+        // Create and Configure the Test Object
+        _queue = getConfiguredQueue();
+        _queue.setSubmissionTimeout(1000);
+        _queue.initialize();
+
+        // Execute the Test
+        _queue.enqueue("container-1", solution1, now + 60000);
+        _queue.enqueue("container-2", solution2, now + 120000);
+        _queue.retryDueSubmissions();
+
+        // Verify the expected Results of the Test
+        // The second solution was submitted without waiting for the first one to time out.
+        assertTrue(secondSubmitted.get() - now < 500);
+        assertTrue(_queue.isPending("container-1"));
+        assertFalse(_queue.isPending("container-2"));
+        assertEquals(1, _queue.getRetriesFailed());
+        assertEquals(1, _queue.getRetriesSucceeded());
+
+        // Verify the Mock Objects have been called correctly.
+        EasyMock.verify(_smscManager);
+    }
+
+    @Test
+    public void testExpiredSolutionIsNotQueued() throws Exception {
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_smscManager);
+
+        // Create and Configure the Test Object
+        _queue = getConfiguredQueue();
+        _queue.initialize();
+
+        // Execute the Test
+        _queue.enqueue("container-1", new ChallengeSolution(null, null, -1, "hash"), System.currentTimeMillis() - 1);
+        _queue.retryDueSubmissions();
+
+        // Verify the expected Results of the Test
+        assertFalse(_queue.isPending("container-1"));
+        assertEquals(1, _queue.getSubmissionsExpired());
+
+        // Verify the Mock Objects have been called correctly.
+        EasyMock.verify(_smscManager);
+    }
+
+    @Test
+    public void testSolutionIsAbandonedAfterMaxAttempts() throws Exception {
+
+        ChallengeSolution solution = new ChallengeSolution(null, null, -1, "hash");
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_smscManager.submitProofSolution("container-1", solution)).andReturn(getFailedFuture()).times(2);
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_smscManager);
+
+        // Create and Configure the Test Object
+        _queue = getConfiguredQueue();
+        _queue.setMaxAttempts(3);
+        _queue.initialize();
+
+        // Execute the Test
+        _queue.enqueue("container-1", solution, 0);
+        _queue.retryDueSubmissions();
+        _queue.retryDueSubmissions();
+        _queue.retryDueSubmissions();
+
+        // Verify the expected Results of the Test
+        assertFalse(_queue.isPending("container-1"));
+        assertEquals(2, _queue.getRetriesFailed());
+        assertEquals(1, _queue.getSubmissionsAbandoned());
+
+        // Verify the Mock Objects have been called correctly.
+        EasyMock.verify(_smscManager);
+    }
+
+    @Test
+    public void testNewerSolutionReplacesQueuedSolution() throws Exception {
+
+        ChallengeSolution oldSolution = new ChallengeSolution(null, null, -1, "old-hash");
+        ChallengeSolution newSolution = new ChallengeSolution(null, null, -1, "new-hash");
+
+        // Configure the Mock Objects with Expected Behavior
+        EasyMock.expect(_smscManager.submitProofSolution("container-1", newSolution)).andReturn(new CompletedFuture<Void>(null));
+
+        // Switch the Mock Objects into Test Mode
+        EasyMock.replay(_smscManager);
+
+        // Create and Configure the Test Object
+        _queue = getConfiguredQueue();
+        _queue.initialize();
+
+        // Execute the Test
+        _queue.enqueue("container-1", oldSolution, 0);
+        _queue.enqueue("container-1", newSolution, 0);
+        assertEquals(1, _queue.getPendingCount());
+
+        _queue.retryDueSubmissions();
+
+        // Verify the expected Results of the Test
+        assertEquals(0, _queue.getPendingCount());
+
+        // Verify the Mock Objects have been called correctly.
+        EasyMock.verify(_smscManager);
+    }
+
+    @Test
+    public void testQueueIsPersisted() throws Exception {
+
+        File stateDir = Files.createTempDirectory("proofSubmissionQueueTest").toFile();
+        long deadline = System.currentTimeMillis() + 60000;
+        ChallengeSolution solution = new ChallengeSolution("foo", "bar", 1234, "SHA-256:deadbeef");
+
+        try {
+            // Configure the Mock Objects with Expected Behavior
+            EasyMock.expect(_smscManager.submitProofSolution("container-1", solution)).andReturn(new CompletedFuture<Void>(null));
+
+            // Switch the Mock Objects into Test Mode
+            EasyMock.replay(_smscManager);
+
+            // Create and Configure the Test Object
+            ProofSubmissionQueue queue = getConfiguredQueue();
+            queue.setStatePath(stateDir.getPath());
+            queue.initialize();
+            queue.enqueue("container-1", solution, deadline);
+            queue.enqueue("container-2", solution, deadline);
+            queue.discard("container-2");
+            queue.shutdown();
+
+            // Execute the Test
+            _queue = getConfiguredQueue();
+            _queue.setStatePath(stateDir.getPath());
+            _queue.initialize();
+
+            // Verify the expected Results of the Test
+            assertEquals(1, _queue.getPendingCount());
+            assertTrue(_queue.isPending("container-1"));
+
+            // The reloaded solution is submitted as it was queued.
+            _queue.retryDueSubmissions();
+            assertEquals(0, _queue.getPendingCount());
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_smscManager);
+        } finally {
+            FileUtils.deleteDirectory(stateDir);
+        }
+    }
+
+    @Test
+    public void testStatePathDefaultsToStateDirectory() throws Exception {
+
+        File storageDir = Files.createTempDirectory("proofSubmissionQueueTest").toFile();
+
+        try {
+            // Switch the Mock Objects into Test Mode
+            EasyMock.replay(_smscManager);
+
+            // Create and Configure the Test Object
+            ProofSubmissionQueue queue = getConfiguredQueue();
+            queue.setStorageBasePath(storageDir.getPath());
+            queue.initialize();
+            queue.enqueue("container-1", new ChallengeSolution(null, null, -1, "hash"), 0);
+            queue.shutdown();
+
+            // Verify the expected Results of the Test
+            assertTrue(new File(new File(storageDir, "state"), "proofsubmissions.json").exists());
+
+            // Verify the Mock Objects have been called correctly.
+            EasyMock.verify(_smscManager);
+        } finally {
+            FileUtils.deleteDirectory(storageDir);
+        }
+    }
+
+    // -------- Private Methods --------
+
+    private ProofSubmissionQueue getConfiguredQueue() {
+        ProofSubmissionQueue queue = new ProofSubmissionQueue();
+        queue.setSMSCManager(_smscManager);
+
+        // Make every retry due immediately, and leave the retrying to the test.
+        queue.setInitialBackoff(0);
+        queue.setPollInterval(60 * 60 * 1000L);
+        return queue;
+    }
+
+    private CompletedFuture<Void> getFailedFuture() {
+        CompletedFuture<Void> future = new CompletedFuture<>(null);
+        future.setException(new Exception("Submission failed", null));
+        return future;
+    }
+}
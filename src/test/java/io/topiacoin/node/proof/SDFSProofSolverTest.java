@@ -2,8 +2,26 @@ package io.topiacoin.node.proof;
 
 import io.topiacoin.node.micronetwork.MicroNetworkManager;
 import io.topiacoin.node.storage.provider.DataStorageProvider;
+import io.topiacoin.node.storage.provider.FileSystemStorageProvider;
 import io.topiacoin.node.storage.provider.MemoryDataStorageProvider;
+import io.topiacoin.node.storage.provider.OffHeapDataStorageProvider;
+import io.topiacoin.node.model.Challenge;
+import io.topiacoin.node.model.ChallengeChunkInfo;
+import io.topiacoin.node.model.ChallengeSolution;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
 import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static junit.framework.TestCase.*;
 
 public class SDFSProofSolverTest extends AbstractProofSolverTest {
 
@@ -26,6 +44,268 @@ public class SDFSProofSolverTest extends AbstractProofSolverTest {
         _dataStorageProvider = null;
     }
 
+    @Test
+    public void testParallelSolutionMatchesSerialMerkleTree() throws Exception {
+
+        DataStorageProvider dataStorageProvider = getDataStorageProvider();
+
+        _proofSolver = new SDFSProofSolver();
+        _proofSolver.setDataStorageProvider(dataStorageProvider);
+        _proofSolver.setMicroNetworkManager(getMicroNetworkManager());
+        _proofSolver.setSolverThreads(4);
+        _proofSolver.setParallelReductionThreshold(1);
+        _proofSolver.initialize();
+
+        // An odd number of chunks, so that some levels push a node forward unchanged.
+        Random random = new Random();
+        List<ChallengeChunkInfo> infoList = new ArrayList<>();
+        List<byte[]> expectedNodes = new ArrayList<>();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (int i = 0; i < 1001; i++) {
+            String chunkID = String.format("%08d", i);
+            byte[] data = new byte[256];
+            random.nextBytes(data);
+            dataStorageProvider.saveData(chunkID, new ByteArrayInputStream(data));
+
+            int offset = random.nextInt(128);
+            int length = 1 + random.nextInt(128);
+            infoList.add(new ChallengeChunkInfo(chunkID, offset, length));
+            digest.reset();
+            digest.update(data, offset, length);
+            expectedNodes.add(digest.digest());
+        }
+
+        ChallengeSolution solution = _proofSolver.generateSolution(new Challenge("0xdeadbeef", infoList));
+
+        assertNotNull(solution);
+        assertEquals(buildMerkleRoot(expectedNodes), solution.getChunkHash());
+    }
+
+    @Test
+    public void testSolutionWithRepeatedAndOverlappingRanges() throws Exception {
+
+        DataStorageProvider dataStorageProvider = getDataStorageProvider();
+
+        _proofSolver = new SDFSProofSolver();
+        _proofSolver.setDataStorageProvider(dataStorageProvider);
+        _proofSolver.setMicroNetworkManager(getMicroNetworkManager());
+        _proofSolver.setSolverThreads(4);
+        _proofSolver.initialize();
+
+        Random random = new Random();
+        byte[][] data = new byte[10][];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = new byte[1024];
+            random.nextBytes(data[i]);
+            dataStorageProvider.saveData(String.format("%08d", i), new ByteArrayInputStream(data[i]));
+        }
+
+        // Many ranges over a few chunks, in no particular order, so that the plan merges and reorders them.
+        List<ChallengeChunkInfo> infoList = new ArrayList<>();
+        List<byte[]> expectedNodes = new ArrayList<>();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (int i = 0; i < 200; i++) {
+            int chunk = random.nextInt(data.length);
+            int offset = random.nextInt(512);
+            int length = random.nextInt(512);
+            infoList.add(new ChallengeChunkInfo(String.format("%08d", chunk), offset, length));
+            digest.reset();
+            digest.update(data[chunk], offset, length);
+            expectedNodes.add(digest.digest());
+        }
+
+
+        ChallengeSolution solution = _proofSolver.generateSolution(new Challenge("0xdeadbeef", infoList));
+
+        assertNotNull(solution);
+        assertEquals(buildMerkleRoot(expectedNodes), solution.getChunkHash());
+    }
+
+    @Test
+    public void testLargeRangesAreStreamed() throws Exception {
+
+        OffHeapDataStorageProvider dataStorageProvider = new OffHeapDataStorageProvider();
+        dataStorageProvider.setCapacity(64 * 1024 * 1024);
+        dataStorageProvider.initialize();
+
+        try {
+            _proofSolver = new SDFSProofSolver();
+            _proofSolver.setDataStorageProvider(dataStorageProvider);
+            _proofSolver.setMicroNetworkManager(getMicroNetworkManager());
+            _proofSolver.setSolverThreads(2);
+            _proofSolver.initialize();
+
+            byte[] data = new byte[16 * 1024 * 1024];
+            new Random().nextBytes(data);
+            dataStorageProvider.saveData("00000000", new ByteArrayInputStream(data));
+
+            List<ChallengeChunkInfo> infoList = new ArrayList<>();
+            List<byte[]> expectedNodes = new ArrayList<>();
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (int i = 0; i < 4; i++) {
+                int offset = i * 3 * 1024 * 1024;
+                int length = 6 * 1024 * 1024;
+                infoList.add(new ChallengeChunkInfo("00000000", offset, length));
+                digest.reset();
+                digest.update(data, offset, length);
+                expectedNodes.add(digest.digest());
+            }
+
+            // Warm up the worker threads' pooled buffers.
+            _proofSolver.generateSolution(new Challenge("0xdeadbeef", infoList));
+
+            ChallengeSolution solution = _proofSolver.generateSolution(new Challenge("0xdeadbeef", infoList));
+
+            assertNotNull(solution);
+            assertEquals(buildMerkleRoot(expectedNodes), solution.getChunkHash());
+
+            // The challenged ranges total 24MB, but are never copied onto the heap.
+            long allocated = _proofSolver.getLastAllocatedBytes();
+            if (allocated >= 0) {
+                assertTrue("Solving the challenge allocated " + allocated + " bytes", allocated < 1024 * 1024);
+                assertTrue(_proofSolver.getAverageAllocatedBytes() >= 0);
+            }
+        } finally {
+            _proofSolver.shutdown();
+            _proofSolver = null;
+            dataStorageProvider.shutdown();
+        }
+    }
+
+    @Test
+    public void testMappedRangesAreHashedInPlace() throws Exception {
+
+        File storageDir = new File("./target/proofSolverTest");
+        FileSystemStorageProvider dataStorageProvider = new FileSystemStorageProvider();
+        dataStorageProvider.setStorageBasePath(storageDir.getPath());
+        dataStorageProvider.initialize();
+
+        try {
+            assertTrue(dataStorageProvider.isDataBufferZeroCopy());
+
+            _proofSolver = new SDFSProofSolver();
+            _proofSolver.setDataStorageProvider(dataStorageProvider);
+            _proofSolver.setMicroNetworkManager(getMicroNetworkManager());
+            _proofSolver.setSolverThreads(2);
+            _proofSolver.initialize();
+
+            byte[] data = new byte[16 * 1024 * 1024];
+            new Random().nextBytes(data);
+            dataStorageProvider.saveData("00000000", new ByteArrayInputStream(data));
+
+            List<ChallengeChunkInfo> infoList = new ArrayList<>();
+            List<byte[]> expectedNodes = new ArrayList<>();
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (int i = 0; i < 4; i++) {
+                int offset = i * 3 * 1024 * 1024;
+                int length = 6 * 1024 * 1024;
+                infoList.add(new ChallengeChunkInfo("00000000", offset, length));
+                digest.reset();
+                digest.update(data, offset, length);
+                expectedNodes.add(digest.digest());
+            }
+
+            // Warm up the worker threads' pooled buffers and the mapping cache.
+            _proofSolver.generateSolution(new Challenge("0xdeadbeef", infoList));
+
+            ChallengeSolution solution = _proofSolver.generateSolution(new Challenge("0xdeadbeef", infoList));
+
+            assertNotNull(solution);
+            assertEquals(buildMerkleRoot(expectedNodes), solution.getChunkHash());
+
+            // The ranges are hashed straight out of the file's mapping.
+            long allocated = _proofSolver.getLastAllocatedBytes();
+            if (allocated >= 0) {
+                assertTrue("Solving the challenge allocated " + allocated + " bytes", allocated < 1024 * 1024);
+            }
+        } finally {
+            _proofSolver.shutdown();
+            _proofSolver = null;
+            dataStorageProvider.removeData("00000000");
+            dataStorageProvider.shutdown();
+            FileUtils.deleteDirectory(storageDir);
+        }
+    }
+
+    @Test
+    public void testRepeatedRangesAreAnsweredFromLeafHashCache() throws Exception {
+
+        DataStorageProvider dataStorageProvider = getDataStorageProvider();
+        LeafHashCache leafHashCache = new LeafHashCache();
+        leafHashCache.initialize();
+
+        _proofSolver = new SDFSProofSolver();
+        _proofSolver.setDataStorageProvider(dataStorageProvider);
+        _proofSolver.setMicroNetworkManager(getMicroNetworkManager());
+        _proofSolver.setLeafHashCache(leafHashCache);
+        _proofSolver.initialize();
+
+        try {
+            Random random = new Random();
+            byte[][] data = new byte[4][];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = new byte[1024];
+                random.nextBytes(data[i]);
+                dataStorageProvider.saveData(String.format("%08d", i), new ByteArrayInputStream(data[i]));
+            }
+
+            List<ChallengeChunkInfo> infoList = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                infoList.add(new ChallengeChunkInfo(String.format("%08d", i % data.length), i * 64, 256));
+            }
+            Challenge challenge = new Challenge("0xdeadbeef", infoList);
+
+            String firstHash = _proofSolver.generateSolution(challenge).getChunkHash();
+            assertEquals(buildMerkleRoot(hashRanges(data, infoList)), firstHash);
+            assertEquals(0, leafHashCache.getHitCount());
+            assertEquals(8, leafHashCache.getSize());
+
+            // The same challenge again is answered entirely from the cache.
+            assertEquals(firstHash, _proofSolver.generateSolution(challenge).getChunkHash());
+            assertEquals(8, leafHashCache.getHitCount());
+
+            // Replacing a chunk changes its version, so its ranges are read again.
+            random.nextBytes(data[1]);
+            dataStorageProvider.removeData("00000001");
+            dataStorageProvider.saveData("00000001", new ByteArrayInputStream(data[1]));
+
+            String changedHash = _proofSolver.generateSolution(challenge).getChunkHash();
+            assertEquals(buildMerkleRoot(hashRanges(data, infoList)), changedHash);
+            assertFalse(firstHash.equals(changedHash));
+            assertEquals(14, leafHashCache.getHitCount());
+        } finally {
+            leafHashCache.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelSolutionWithMissingChunk() throws Exception {
+
+        DataStorageProvider dataStorageProvider = getDataStorageProvider();
+
+        _proofSolver = new SDFSProofSolver();
+        _proofSolver.setDataStorageProvider(dataStorageProvider);
+        _proofSolver.setMicroNetworkManager(getMicroNetworkManager());
+        _proofSolver.setSolverThreads(4);
+        _proofSolver.initialize();
+
+        List<ChallengeChunkInfo> infoList = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String chunkID = String.format("%08d", i);
+            if (i != 57) {
+                byte[] data = new byte[64];
+                Arrays.fill(data, (byte) i);
+                dataStorageProvider.saveData(chunkID, new ByteArrayInputStream(data));
+            }
+            infoList.add(new ChallengeChunkInfo(chunkID, 0, 32));
+        }
+
+        ChallengeSolution solution = _proofSolver.generateSolution(new Challenge("0xdeadbeef", infoList));
+
+        assertNotNull(solution);
+        assertNull(solution.getChunkHash());
+    }
+
     @Override
     protected ProofSolver getProofSolver() {
         if ( _proofSolver == null ) {
@@ -39,6 +319,42 @@ public class SDFSProofSolverTest extends AbstractProofSolverTest {
         return _proofSolver;
     }
 
+    private List<byte[]> hashRanges(byte[][] data, List<ChallengeChunkInfo> infoList) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        List<byte[]> hashes = new ArrayList<>();
+        for (ChallengeChunkInfo info : infoList) {
+            digest.reset();
+            digest.update(data[Integer.parseInt(info.getChunkID())], info.getOffset(), info.getLength());
+            hashes.add(digest.digest());
+        }
+        return hashes;
+    }
+
+    /**
+     * Builds the expected Merkle Root from the leaves serially, the way the solver originally did.
+     */
+    private String buildMerkleRoot(List<byte[]> nodes) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        int level = 0;
+        while (nodes.size() > 1) {
+            List<byte[]> nextLevel = new ArrayList<>();
+            for (int i = 0; i < nodes.size(); i += 2) {
+                if (i + 1 < nodes.size()) {
+                    digest.reset();
+                    digest.update(level == 0 ? (byte) 0x00 : (byte) 0x01);
+                    digest.update(nodes.get(i));
+                    digest.update(nodes.get(i + 1));
+                    nextLevel.add(digest.digest());
+                } else {
+                    nextLevel.add(nodes.get(i));
+                }
+            }
+            nodes = nextLevel;
+            level++;
+        }
+        return Hex.encodeHexString(nodes.get(0));
+    }
+
     private MicroNetworkManager getMicroNetworkManager() {
         if ( _microNetworkManager == null ) {
             _microNetworkManager = new MicroNetworkManager();
@@ -3,32 +3,47 @@ package io.topiacoin.node.rest;
 import io.topiacoin.node.BusinessLogic;
 import io.topiacoin.node.exceptions.BadRequestException;
 import io.topiacoin.node.exceptions.ContainerAlreadyExistsException;
+import io.topiacoin.node.exceptions.InvalidChallengeException;
 import io.topiacoin.node.exceptions.MicroNetworkAlreadyExistsException;
+import io.topiacoin.node.exceptions.NoSuchChallengeJobException;
 import io.topiacoin.node.exceptions.NoSuchContainerException;
 import io.topiacoin.node.exceptions.NoSuchDataItemException;
 import io.topiacoin.node.exceptions.NoSuchNodeException;
 import io.topiacoin.node.model.Challenge;
 import io.topiacoin.node.model.ChallengeChunkInfo;
+import io.topiacoin.node.model.ChallengeJob;
+import io.topiacoin.node.model.CacheMetrics;
+import io.topiacoin.node.model.ChallengeQueueMetrics;
 import io.topiacoin.node.model.ContainerConnectionInfo;
 import io.topiacoin.node.model.ContainerInfo;
+import io.topiacoin.node.model.DataItemUpload;
+import io.topiacoin.node.model.DataItemUploadResult;
 import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.easymock.IAnswer;
 import org.junit.Test;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.Assert.*;
 
@@ -881,9 +896,10 @@ public class APIControllerTest {
         HttpServletRequest request = EasyMock.createMock(HttpServletRequest.class);
 
         // Setup Expectations
-        businessLogic.storeChunk(containerID, chunkID, dataHash, dataStream);
+        businessLogic.storeChunk(containerID, chunkID, dataHash, dataStream, 1024L);
         EasyMock.expectLastCall();
         EasyMock.expect(request.getInputStream()).andReturn(dataStream);
+        EasyMock.expect(request.getContentLengthLong()).andReturn(1024L);
 
         // Replay Mock Objects
         EasyMock.replay(businessLogic, request);
@@ -904,6 +920,86 @@ public class APIControllerTest {
         EasyMock.verify(businessLogic, request);
     }
 
+    @Test
+    public void testAddChunks() throws Exception {
+
+        String containerID = UUID.randomUUID().toString();
+        byte[] data = new byte[1024];
+        new Random().nextBytes(data);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream bodyStream = new DataOutputStream(body);
+        bodyStream.writeUTF("chunk-1");
+        bodyStream.writeUTF("SHA-256:deadbeef");
+        bodyStream.writeInt(data.length);
+        bodyStream.write(data);
+        bodyStream.flush();
+        ByteArrayInputStream bodyInput = new ByteArrayInputStream(body.toByteArray());
+        ServletInputStream dataStream = new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return bodyInput.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+            }
+
+            @Override
+            public int read() {
+                return bodyInput.read();
+            }
+        };
+
+        List<DataItemUploadResult> results = new ArrayList<>();
+        results.add(new DataItemUploadResult("chunk-1", DataItemUploadResult.Status.STORED, data.length, null));
+
+        // Create the Mock Objects
+        BusinessLogic businessLogic = EasyMock.createMock(BusinessLogic.class);
+        HttpServletRequest request = EasyMock.createMock(HttpServletRequest.class);
+
+        // Setup Expectations
+        EasyMock.expect(request.getInputStream()).andReturn(dataStream);
+        Capture<Iterator<DataItemUpload>> chunksCapture = EasyMock.newCapture();
+        EasyMock.expect(businessLogic.storeChunks(EasyMock.eq(containerID), EasyMock.capture(chunksCapture))).andAnswer(new IAnswer<List<DataItemUploadResult>>() {
+            @Override
+            public List<DataItemUploadResult> answer() throws Throwable {
+                Iterator<DataItemUpload> chunks = chunksCapture.getValue();
+                assertTrue(chunks.hasNext());
+                DataItemUpload chunk = chunks.next();
+                assertEquals("chunk-1", chunk.getDataID());
+                assertEquals("SHA-256:deadbeef", chunk.getDataHash());
+                assertArrayEquals(data, chunk.getData());
+                assertFalse(chunks.hasNext());
+                return results;
+            }
+        });
+
+        // Replay Mock Objects
+        EasyMock.replay(businessLogic, request);
+
+        // Setup the Test Object
+        APIController controller = new APIController();
+        controller.setBusinessLogic(businessLogic);
+        controller.initialize();
+
+        // Execute the Test
+        ResponseEntity<List<DataItemUploadResult>> response = controller.addChunks(containerID, request);
+
+        // Verify the expected Results
+        assertNotNull(response);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(results, response.getBody());
+
+        // Verify the Mock Objects
+        EasyMock.verify(businessLogic, request);
+    }
+
     @Test
     public void testAddChunkWithNonExistentContainerID() throws Exception {
 
@@ -918,7 +1014,8 @@ public class APIControllerTest {
 
         // Setup Expectations
         EasyMock.expect(request.getInputStream()).andReturn(dataStream);
-        businessLogic.storeChunk(containerID, chunkID, dataHash, dataStream);
+        EasyMock.expect(request.getContentLengthLong()).andReturn(1024L);
+        businessLogic.storeChunk(containerID, chunkID, dataHash, dataStream, 1024L);
         EasyMock.expectLastCall().andThrow(new NoSuchContainerException());
 
         // Replay Mock Objects
@@ -1133,7 +1230,7 @@ public class APIControllerTest {
         controller.initialize();
 
         // Execute the Test
-        ResponseEntity<StreamingResponseBody> response = controller.getChunk(chunkID, containerID);
+        ResponseEntity<StreamingResponseBody> response = controller.getChunk(chunkID, containerID).get();
 
         // Verify the expected Results
         assertNotNull(response);
@@ -1151,6 +1248,162 @@ public class APIControllerTest {
     }
 
 
+    @Test
+    public void testGetChunkSingleRange() throws Exception {
+
+        String containerID = UUID.randomUUID().toString();
+        String chunkID = UUID.randomUUID().toString();
+        byte[] data = new byte[1024];
+        new Random().nextBytes(data);
+
+        String rpcURL = "http://localhost:1234/";
+        String p2pURL = "http://localhost:2345/";
+        ContainerConnectionInfo containerInfo = new ContainerConnectionInfo(containerID, rpcURL, p2pURL);
+
+        // Create the Mock Objects
+        BusinessLogic businessLogic = EasyMock.createMock(BusinessLogic.class);
+
+        // Setup Expectations
+        EasyMock.expect(businessLogic.getContainer(containerID)).andReturn(containerInfo);
+        EasyMock.expect(businessLogic.hasChunk(containerID, chunkID)).andReturn(true);
+        EasyMock.expect(businessLogic.getChunkSize(containerID, chunkID)).andReturn((long) data.length);
+        Capture<OutputStream> outputStreamCapture = EasyMock.newCapture();
+        businessLogic.getChunk(EasyMock.eq(containerID), EasyMock.eq(chunkID), EasyMock.eq(1000L), EasyMock.eq(24L), EasyMock.capture(outputStreamCapture));
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                outputStreamCapture.getValue().write(data, 1000, 24);
+                return null;
+            }
+        });
+
+        // Replay Mock Objects
+        EasyMock.replay(businessLogic);
+
+        // Setup the Test Object
+        APIController controller = new APIController();
+        controller.setBusinessLogic(businessLogic);
+        controller.initialize();
+
+        // Execute the Test -- The range is truncated to the end of the chunk
+        ResponseEntity<StreamingResponseBody> response = controller.getChunk(chunkID, containerID, "bytes=1000-2000").get();
+
+        // Verify the expected Results
+        assertNotNull(response);
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 1000-1023/1024", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        response.getBody().writeTo(baos);
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, 1024), baos.toByteArray());
+
+        // Verify the Mock Objects
+        EasyMock.verify(businessLogic);
+    }
+
+    @Test
+    public void testGetChunkMultipleRanges() throws Exception {
+
+        String containerID = UUID.randomUUID().toString();
+        String chunkID = UUID.randomUUID().toString();
+        byte[] data = new byte[1024];
+        new Random().nextBytes(data);
+
+        String rpcURL = "http://localhost:1234/";
+        String p2pURL = "http://localhost:2345/";
+        ContainerConnectionInfo containerInfo = new ContainerConnectionInfo(containerID, rpcURL, p2pURL);
+
+        // Create the Mock Objects
+        BusinessLogic businessLogic = EasyMock.createMock(BusinessLogic.class);
+
+        // Setup Expectations
+        EasyMock.expect(businessLogic.getContainer(containerID)).andReturn(containerInfo);
+        EasyMock.expect(businessLogic.hasChunk(containerID, chunkID)).andReturn(true);
+        EasyMock.expect(businessLogic.getChunkSize(containerID, chunkID)).andReturn((long) data.length);
+        Capture<Long> offsetCapture = EasyMock.newCapture();
+        Capture<Long> lengthCapture = EasyMock.newCapture();
+        Capture<OutputStream> outputStreamCapture = EasyMock.newCapture();
+        businessLogic.getChunk(EasyMock.eq(containerID), EasyMock.eq(chunkID), EasyMock.captureLong(offsetCapture), EasyMock.captureLong(lengthCapture), EasyMock.capture(outputStreamCapture));
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                outputStreamCapture.getValue().write(data, offsetCapture.getValue().intValue(), lengthCapture.getValue().intValue());
+                return null;
+            }
+        }).times(2);
+
+        // Replay Mock Objects
+        EasyMock.replay(businessLogic);
+
+        // Setup the Test Object
+        APIController controller = new APIController();
+        controller.setBusinessLogic(businessLogic);
+        controller.initialize();
+
+        // Execute the Test
+        ResponseEntity<StreamingResponseBody> response = controller.getChunk(chunkID, containerID, "bytes=0-9, -10").get();
+
+        // Verify the expected Results
+        assertNotNull(response);
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        String contentType = response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE);
+        assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        String boundary = contentType.substring("multipart/byteranges; boundary=".length());
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(("--" + boundary + "\r\nContent-Type: application/octet-stream\r\nContent-Range: bytes 0-9/1024\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        expected.write(data, 0, 10);
+        expected.write(("\r\n--" + boundary + "\r\nContent-Type: application/octet-stream\r\nContent-Range: bytes 1014-1023/1024\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        expected.write(data, 1014, 10);
+        expected.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        response.getBody().writeTo(baos);
+        assertArrayEquals(expected.toByteArray(), baos.toByteArray());
+
+        // Verify the Mock Objects
+        EasyMock.verify(businessLogic);
+    }
+
+    @Test
+    public void testGetChunkUnsatisfiableRange() throws Exception {
+
+        String containerID = UUID.randomUUID().toString();
+        String chunkID = UUID.randomUUID().toString();
+
+        String rpcURL = "http://localhost:1234/";
+        String p2pURL = "http://localhost:2345/";
+        ContainerConnectionInfo containerInfo = new ContainerConnectionInfo(containerID, rpcURL, p2pURL);
+
+        // Create the Mock Objects
+        BusinessLogic businessLogic = EasyMock.createMock(BusinessLogic.class);
+
+        // Setup Expectations
+        EasyMock.expect(businessLogic.getContainer(containerID)).andReturn(containerInfo);
+        EasyMock.expect(businessLogic.hasChunk(containerID, chunkID)).andReturn(true);
+        EasyMock.expect(businessLogic.getChunkSize(containerID, chunkID)).andReturn(1024L);
+
+        // Replay Mock Objects
+        EasyMock.replay(businessLogic);
+
+        // Setup the Test Object
+        APIController controller = new APIController();
+        controller.setBusinessLogic(businessLogic);
+        controller.initialize();
+
+        // Execute the Test
+        ResponseEntity<StreamingResponseBody> response = controller.getChunk(chunkID, containerID, "bytes=2048-").get();
+
+        // Verify the expected Results
+        assertNotNull(response);
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        assertEquals("bytes */1024", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertNull(response.getBody());
+
+        // Verify the Mock Objects
+        EasyMock.verify(businessLogic);
+    }
+
     @Test
     public void testGetNonExistentChunk() throws Exception {
 
@@ -1637,7 +1890,7 @@ public class APIControllerTest {
         BusinessLogic businessLogic = EasyMock.createMock(BusinessLogic.class);
 
         // Setup Expectations
-        EasyMock.expect(businessLogic.hasChunk(containerID, chunkID)).andReturn(true);
+        EasyMock.expect(businessLogic.hasChunkAsync(containerID, chunkID)).andReturn(CompletableFuture.completedFuture(true));
 
         // Replay Mock Objects
         EasyMock.replay(businessLogic);
@@ -1648,7 +1901,7 @@ public class APIControllerTest {
         controller.initialize();
 
         // Execute the Test
-        ResponseEntity<Void> response = controller.hasChunk(chunkID, containerID);
+        ResponseEntity<Void> response = controller.hasChunk(chunkID, containerID).get();
 
         // Verify the expected Results
         assertNotNull(response);
@@ -1658,6 +1911,71 @@ public class APIControllerTest {
         EasyMock.verify(businessLogic);
     }
 
+    @Test
+    public void testHasChunks() throws Exception {
+
+        String containerID = UUID.randomUUID().toString();
+        List<String> chunkIDs = Arrays.asList("chunk-1", "chunk-2", "chunk-3");
+        List<String> presentChunkIDs = Arrays.asList("chunk-2");
+
+        // Create the Mock Objects
+        BusinessLogic businessLogic = EasyMock.createMock(BusinessLogic.class);
+
+        // Setup Expectations
+        EasyMock.expect(businessLogic.hasChunks(containerID, chunkIDs)).andReturn(presentChunkIDs);
+
+        // Replay Mock Objects
+        EasyMock.replay(businessLogic);
+
+        // Setup the Test Object
+        APIController controller = new APIController();
+        controller.setBusinessLogic(businessLogic);
+        controller.initialize();
+
+        // Execute the Test
+        ResponseEntity<List<String>> response = controller.hasChunks(containerID, chunkIDs);
+
+        // Verify the expected Results
+        assertNotNull(response);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(presentChunkIDs, response.getBody());
+
+        // Verify the Mock Objects
+        EasyMock.verify(businessLogic);
+    }
+
+    @Test
+    public void testHasTooManyChunks() throws Exception {
+
+        String containerID = UUID.randomUUID().toString();
+        List<String> chunkIDs = new ArrayList<>();
+        for (int i = 0; i <= 10000; i++) {
+            chunkIDs.add("chunk-" + i);
+        }
+
+        // Create the Mock Objects
+        BusinessLogic businessLogic = EasyMock.createMock(BusinessLogic.class);
+
+        // Replay Mock Objects
+        EasyMock.replay(businessLogic);
+
+        // Setup the Test Object
+        APIController controller = new APIController();
+        controller.setBusinessLogic(businessLogic);
+        controller.initialize();
+
+        // Execute the Test
+        try {
+            controller.hasChunks(containerID, chunkIDs);
+            fail("Expected BadRequestException was not thrown");
+        } catch (BadRequestException e) {
+            // NOOP - Expected Exception
+        }
+
+        // Verify the Mock Objects
+        EasyMock.verify(businessLogic);
+    }
+
     @Test
     public void testHasNonExistentChunk() throws Exception {
 
@@ -1668,7 +1986,7 @@ public class APIControllerTest {
         BusinessLogic businessLogic = EasyMock.createMock(BusinessLogic.class);
 
         // Setup Expectations
-        EasyMock.expect(businessLogic.hasChunk(containerID, chunkID)).andReturn(false);
+        EasyMock.expect(businessLogic.hasChunkAsync(containerID, chunkID)).andReturn(CompletableFuture.completedFuture(false));
 
         // Replay Mock Objects
         EasyMock.replay(businessLogic);
@@ -1679,7 +1997,7 @@ public class APIControllerTest {
         controller.initialize();
 
         // Execute the Test
-        ResponseEntity<Void> response = controller.hasChunk(chunkID, containerID);
+        ResponseEntity<Void> response = controller.hasChunk(chunkID, containerID).get();
 
         // Verify the expected Results
         assertNotNull(response);
@@ -1850,9 +2168,10 @@ public class APIControllerTest {
         // Create the Mock Objects
         BusinessLogic businessLogic = EasyMock.createMock(BusinessLogic.class);
 
+        ChallengeJob job = new ChallengeJob(UUID.randomUUID().toString(), containerID, System.currentTimeMillis());
+
         // Setup Expectations
-        businessLogic.submitChallenge(challenge);
-        EasyMock.expectLastCall();
+        EasyMock.expect(businessLogic.startChallenge(challenge)).andReturn(job);
 
         // Replay Mock Objects
         EasyMock.replay(businessLogic);
@@ -1863,11 +2182,12 @@ public class APIControllerTest {
         controller.initialize();
 
         // Execute the Test
-        ResponseEntity<Void> response = controller.submitChallenge(challenge);
+        ResponseEntity<ChallengeJob> response = controller.submitChallenge(challenge);
 
         // Verify the expected Results
         assertNotNull(response);
         assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(job, response.getBody());
 
         // Verify the Mock Objects
         EasyMock.verify(businessLogic);
@@ -1893,8 +2213,7 @@ public class APIControllerTest {
         BusinessLogic businessLogic = EasyMock.createMock(BusinessLogic.class);
 
         // Setup Expectations
-        businessLogic.submitChallenge(challenge);
-        EasyMock.expectLastCall().andThrow(new NoSuchContainerException());
+        EasyMock.expect(businessLogic.startChallenge(challenge)).andThrow(new NoSuchContainerException());
 
         // Replay Mock Objects
         EasyMock.replay(businessLogic);
@@ -1919,6 +2238,51 @@ public class APIControllerTest {
         EasyMock.verify(businessLogic);
     }
 
+    @Test
+    public void testSubmitInvalidChallenge() throws Exception {
+
+        String containerID = UUID.randomUUID().toString();
+
+        String chunkID1 = UUID.randomUUID().toString();
+        String chunkID2 = UUID.randomUUID().toString();
+        String chunkID3 = UUID.randomUUID().toString();
+
+        List<ChallengeChunkInfo> chunks = new ArrayList<>();
+        chunks.add(new ChallengeChunkInfo(chunkID1, 0, 100));
+        chunks.add(new ChallengeChunkInfo(chunkID2, 100, 100));
+        chunks.add(new ChallengeChunkInfo(chunkID3, 200, 100));
+
+        Challenge challenge = new Challenge(containerID, chunks);
+
+        // Create the Mock Objects
+        BusinessLogic businessLogic = EasyMock.createMock(BusinessLogic.class);
+
+        // Setup Expectations
+        EasyMock.expect(businessLogic.startChallenge(challenge)).andThrow(new InvalidChallengeException());
+
+        // Replay Mock Objects
+        EasyMock.replay(businessLogic);
+
+        // Setup the Test Object
+        APIController controller = new APIController();
+        controller.setBusinessLogic(businessLogic);
+        controller.initialize();
+
+        // Execute the Test
+        try {
+            controller.submitChallenge(challenge);
+            fail("Expected InvalidChallengeException was not thrown");
+        } catch (InvalidChallengeException e) {
+            // NOOP - Expected Exception
+        }
+
+        // Verify the expected Results
+        // -- None --
+
+        // Verify the Mock Objects
+        EasyMock.verify(businessLogic);
+    }
+
     @Test
     public void testSubmitChallengeWithNullChallenge() throws Exception {
 
@@ -2044,6 +2408,142 @@ public class APIControllerTest {
     }
 
 
+    // -------- getChallengeJob() --------
+
+    @Test
+    public void testGetChallengeJob() throws Exception {
+
+        String jobID = UUID.randomUUID().toString();
+        ChallengeJob job = new ChallengeJob(jobID, UUID.randomUUID().toString(), System.currentTimeMillis());
+        job.setState(ChallengeJob.State.COMPLETED);
+        job.setMerkleRoot("SHA-256:deadbeef");
+
+        // Create the Mock Objects
+        BusinessLogic businessLogic = EasyMock.createMock(BusinessLogic.class);
+
+        // Setup Expectations
+        EasyMock.expect(businessLogic.getChallengeJob(jobID)).andReturn(job);
+
+        // Replay Mock Objects
+        EasyMock.replay(businessLogic);
+
+        // Setup the Test Object
+        APIController controller = new APIController();
+        controller.setBusinessLogic(businessLogic);
+        controller.initialize();
+
+        // Execute the Test
+        ResponseEntity<ChallengeJob> response = controller.getChallengeJob(jobID);
+
+        // Verify the expected Results
+        assertNotNull(response);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(job, response.getBody());
+
+        // Verify the Mock Objects
+        EasyMock.verify(businessLogic);
+    }
+
+    @Test
+    public void testGetNonExistentChallengeJob() throws Exception {
+
+        String jobID = UUID.randomUUID().toString();
+
+        // Create the Mock Objects
+        BusinessLogic businessLogic = EasyMock.createMock(BusinessLogic.class);
+
+        // Setup Expectations
+        EasyMock.expect(businessLogic.getChallengeJob(jobID)).andThrow(new NoSuchChallengeJobException());
+
+        // Replay Mock Objects
+        EasyMock.replay(businessLogic);
+
+        // Setup the Test Object
+        APIController controller = new APIController();
+        controller.setBusinessLogic(businessLogic);
+        controller.initialize();
+
+        // Execute the Test
+        try {
+            controller.getChallengeJob(jobID);
+            fail("Expected NoSuchChallengeJobException was not thrown");
+        } catch (NoSuchChallengeJobException e) {
+            // NOOP - Expected Exception
+        }
+
+        // Verify the expected Results
+        // -- None --
+
+        // Verify the Mock Objects
+        EasyMock.verify(businessLogic);
+    }
+
+    // -------- getChallengeQueueMetrics() --------
+
+    @Test
+    public void testGetChallengeQueueMetrics() throws Exception {
+
+        ChallengeQueueMetrics metrics = new ChallengeQueueMetrics(3, 2, 10, 1);
+
+        // Create the Mock Objects
+        BusinessLogic businessLogic = EasyMock.createMock(BusinessLogic.class);
+
+        // Setup Expectations
+        EasyMock.expect(businessLogic.getChallengeQueueMetrics()).andReturn(metrics);
+
+        // Replay Mock Objects
+        EasyMock.replay(businessLogic);
+
+        // Setup the Test Object
+        APIController controller = new APIController();
+        controller.setBusinessLogic(businessLogic);
+        controller.initialize();
+
+        // Execute the Test
+        ResponseEntity<ChallengeQueueMetrics> response = controller.getChallengeQueueMetrics();
+
+        // Verify the expected Results
+        assertNotNull(response);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(metrics, response.getBody());
+
+        // Verify the Mock Objects
+        EasyMock.verify(businessLogic);
+    }
+
+    // -------- getCacheMetrics() --------
+
+    @Test
+    public void testGetCacheMetrics() throws Exception {
+
+        CacheMetrics metrics = new CacheMetrics(100, 20, 5, 4096, 3, 65536);
+
+        // Create the Mock Objects
+        BusinessLogic businessLogic = EasyMock.createMock(BusinessLogic.class);
+
+        // Setup Expectations
+        EasyMock.expect(businessLogic.getCacheMetrics()).andReturn(metrics);
+
+        // Replay Mock Objects
+        EasyMock.replay(businessLogic);
+
+        // Setup the Test Object
+        APIController controller = new APIController();
+        controller.setBusinessLogic(businessLogic);
+        controller.initialize();
+
+        // Execute the Test
+        ResponseEntity<CacheMetrics> response = controller.getCacheMetrics();
+
+        // Verify the expected Results
+        assertNotNull(response);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(metrics, response.getBody());
+
+        // Verify the Mock Objects
+        EasyMock.verify(businessLogic);
+    }
+
     // ======== Scrath Test Method - Delete ========
     // TODO Delete these test methods
 
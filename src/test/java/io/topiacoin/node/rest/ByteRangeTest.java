@@ -0,0 +1,60 @@
+package io.topiacoin.node.rest;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ByteRangeTest {
+
+    @Test
+    public void testParseSingleRange() throws Exception {
+        List<ByteRange> ranges = ByteRange.parse("bytes=0-99", 1024);
+        assertEquals(Collections.singletonList(new ByteRange(0, 99)), ranges);
+        assertEquals(100, ranges.get(0).getLength());
+        assertEquals("bytes 0-99/1024", ranges.get(0).toContentRange(1024));
+    }
+
+    @Test
+    public void testParseOpenEndedAndSuffixRanges() throws Exception {
+        assertEquals(Collections.singletonList(new ByteRange(1000, 1023)), ByteRange.parse("bytes=1000-", 1024));
+        assertEquals(Collections.singletonList(new ByteRange(924, 1023)), ByteRange.parse("bytes=-100", 1024));
+        assertEquals(Collections.singletonList(new ByteRange(0, 1023)), ByteRange.parse("bytes=-5000", 1024));
+    }
+
+    @Test
+    public void testParseTruncatesRangesPastTheEnd() throws Exception {
+        assertEquals(Collections.singletonList(new ByteRange(1000, 1023)), ByteRange.parse("bytes=1000-5000", 1024));
+    }
+
+    @Test
+    public void testParseMultipleRanges() throws Exception {
+        List<ByteRange> ranges = ByteRange.parse("bytes=0-9, 20-29,-10", 1024);
+        assertEquals(Arrays.asList(new ByteRange(0, 9), new ByteRange(20, 29), new ByteRange(1014, 1023)), ranges);
+    }
+
+    @Test
+    public void testParseUnsatisfiableRanges() throws Exception {
+        assertTrue(ByteRange.parse("bytes=1024-", 1024).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-0", 1024).isEmpty());
+        assertTrue(ByteRange.parse("bytes=0-10", 0).isEmpty());
+
+        // Unsatisfiable ranges are dropped when others can be satisfied
+        assertEquals(Collections.singletonList(new ByteRange(0, 9)), ByteRange.parse("bytes=2000-3000,0-9", 1024));
+    }
+
+    @Test
+    public void testParseMalformedRanges() throws Exception {
+        assertNull(ByteRange.parse(null, 1024));
+        assertNull(ByteRange.parse("", 1024));
+        assertNull(ByteRange.parse("items=0-9", 1024));
+        assertNull(ByteRange.parse("bytes=", 1024));
+        assertNull(ByteRange.parse("bytes=9-0", 1024));
+        assertNull(ByteRange.parse("bytes=abc-def", 1024));
+        assertNull(ByteRange.parse("bytes=10", 1024));
+        assertNull(ByteRange.parse("bytes=0-9,x", 1024));
+    }
+}
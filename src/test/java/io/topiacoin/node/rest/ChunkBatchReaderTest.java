@@ -0,0 +1,106 @@
+package io.topiacoin.node.rest;
+
+import io.topiacoin.node.model.DataItemUpload;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ChunkBatchReaderTest {
+
+    @Test
+    public void testReadBatch() throws Exception {
+        byte[] data1 = new byte[1024];
+        byte[] data2 = new byte[0];
+        byte[] data3 = new byte[2048];
+        new Random().nextBytes(data1);
+        new Random().nextBytes(data3);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeRecord(body, "chunk-1", "hash-1", data1.length, data1);
+        writeRecord(body, "chunk-2", "hash-2", data2.length, data2);
+        writeRecord(body, "chunk-3", "hash-3", data3.length, data3);
+
+        ChunkBatchReader reader = new ChunkBatchReader(new ByteArrayInputStream(body.toByteArray()), 4096);
+
+        assertTrue(reader.hasNext());
+        assertUpload("chunk-1", "hash-1", data1, reader.next());
+        assertTrue(reader.hasNext());
+        assertUpload("chunk-2", "hash-2", data2, reader.next());
+        assertTrue(reader.hasNext());
+        assertUpload("chunk-3", "hash-3", data3, reader.next());
+        assertFalse(reader.hasNext());
+
+        try {
+            reader.next();
+            fail("Expected a NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // NOOP - Expected Exception
+        }
+    }
+
+    @Test
+    public void testReadEmptyBatch() throws Exception {
+        ChunkBatchReader reader = new ChunkBatchReader(new ByteArrayInputStream(new byte[0]), 4096);
+
+        assertFalse(reader.hasNext());
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void testReadTruncatedBatch() throws Exception {
+        byte[] data = new byte[1024];
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeRecord(body, "chunk-1", "hash-1", data.length, data);
+        byte[] truncatedBody = Arrays.copyOf(body.toByteArray(), body.size() - 10);
+
+        ChunkBatchReader reader = new ChunkBatchReader(new ByteArrayInputStream(truncatedBody), 4096);
+
+        assertTrue(reader.hasNext());
+        reader.next();
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void testReadOversizeChunk() throws Exception {
+        byte[] data = new byte[1024];
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeRecord(body, "chunk-1", "hash-1", data.length, data);
+
+        ChunkBatchReader reader = new ChunkBatchReader(new ByteArrayInputStream(body.toByteArray()), 512);
+
+        reader.next();
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void testReadNegativeLength() throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeRecord(body, "chunk-1", "hash-1", -1, new byte[0]);
+
+        ChunkBatchReader reader = new ChunkBatchReader(new ByteArrayInputStream(body.toByteArray()), 4096);
+
+        reader.next();
+    }
+
+    private void writeRecord(ByteArrayOutputStream body, String chunkID, String dataHash, int length, byte[] data) throws Exception {
+        DataOutputStream dataStream = new DataOutputStream(body);
+        dataStream.writeUTF(chunkID);
+        dataStream.writeUTF(dataHash);
+        dataStream.writeInt(length);
+        dataStream.write(data);
+        dataStream.flush();
+    }
+
+    private void assertUpload(String chunkID, String dataHash, byte[] data, DataItemUpload upload) {
+        assertEquals(chunkID, upload.getDataID());
+        assertEquals(dataHash, upload.getDataHash());
+        assertArrayEquals(data, upload.getData());
+    }
+}
@@ -0,0 +1,214 @@
+package io.topiacoin.node.storage;
+
+import io.topiacoin.node.exceptions.CorruptDataItemException;
+import io.topiacoin.node.model.DataItemInfo;
+import io.topiacoin.node.model.DataModel;
+import io.topiacoin.node.model.provider.MemoryDataModelProvider;
+import io.topiacoin.node.storage.provider.MemoryDataStorageProvider;
+import io.topiacoin.node.utilities.HashUtilities;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class DataScrubberTest {
+
+    public static final String STATE_PATH = "./target/dataScrubberTest";
+
+    private DataModel _dataModel;
+    private MemoryDataStorageProvider _dataStorageProvider;
+    private DataStorageManager _dataStorageManager;
+    private String _containerID;
+
+    @Before
+    public void setUp() throws Exception {
+        MemoryDataModelProvider dataModelProvider = new MemoryDataModelProvider();
+        dataModelProvider.initialize();
+
+        _dataModel = new DataModel();
+        _dataModel.setProvider(dataModelProvider);
+        _dataModel.initialize();
+
+        _dataStorageProvider = new MemoryDataStorageProvider();
+        _dataStorageProvider.initialize();
+
+        _dataStorageManager = new DataStorageManager();
+        _dataStorageManager.setDataStorageProvider(_dataStorageProvider);
+        _dataStorageManager.setDataModel(_dataModel);
+        _dataStorageManager.initialize();
+
+        _containerID = UUID.randomUUID().toString();
+        _dataModel.createContainer(_containerID, 0, null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _dataStorageManager.shutdown();
+        _dataStorageProvider.shutdown();
+
+        FileUtils.deleteDirectory(new File(STATE_PATH));
+    }
+
+    @Test
+    public void testScrubVerifiesIntactDataItems() throws Exception {
+        List<String> dataIDs = saveDataItems(3, 1024);
+
+        // Clear the verification records made on save
+        for (String dataID : dataIDs) {
+            DataItemInfo dataItemInfo = _dataModel.getDataItem(dataID);
+            dataItemInfo.setLastVerified(0);
+            _dataModel.updateDataItem(dataItemInfo);
+        }
+
+        DataScrubber scrubber = getDataScrubber();
+        try {
+            assertEquals(3, scrubber.scrub(Integer.MAX_VALUE));
+            assertEquals(1, scrubber.getPassesCompleted());
+            assertNull(scrubber.getCursor());
+            assertEquals(0, scrubber.getItemsQuarantined());
+            assertEquals(3 * 1024, scrubber.getBytesScrubbed());
+
+            for (String dataID : dataIDs) {
+                DataItemInfo dataItemInfo = _dataModel.getDataItem(dataID);
+                assertTrue(dataItemInfo.getLastVerified() > 0);
+                assertFalse(dataItemInfo.isQuarantined());
+            }
+        } finally {
+            scrubber.shutdown();
+        }
+    }
+
+    @Test
+    public void testScrubQuarantinesCorruptDataItems() throws Exception {
+        List<String> dataIDs = saveDataItems(3, 1024);
+        String corruptID = dataIDs.get(1);
+
+        byte[] goodData = _dataStorageManager.fetchData(_containerID, corruptID);
+        byte[] corruptData = Arrays.copyOf(goodData, goodData.length);
+        corruptData[10] ^= 0xFF;
+        _dataStorageProvider.saveData(corruptID, new ByteArrayInputStream(corruptData));
+
+        DataScrubber scrubber = getDataScrubber();
+        try {
+            assertEquals(3, scrubber.scrub(Integer.MAX_VALUE));
+            assertEquals(1, scrubber.getItemsQuarantined());
+
+            assertTrue(_dataModel.getDataItem(corruptID).isQuarantined());
+            assertFalse(_dataModel.getDataItem(dataIDs.get(0)).isQuarantined());
+            assertFalse(_dataModel.getDataItem(dataIDs.get(2)).isQuarantined());
+
+            try {
+                _dataStorageManager.fetchData(_containerID, corruptID);
+                fail("Expected a CorruptDataItemException");
+            } catch (CorruptDataItemException e) {
+                // NOOP - Expected Exception
+            }
+
+            // Repair the data item with a good copy
+            _dataStorageManager.repairData(corruptID, new ByteArrayInputStream(goodData));
+
+            assertFalse(_dataModel.getDataItem(corruptID).isQuarantined());
+            assertArrayEquals(goodData, _dataStorageManager.fetchData(_containerID, corruptID));
+        } finally {
+            scrubber.shutdown();
+        }
+    }
+
+    @Test
+    public void testScrubResumesAfterRestart() throws Exception {
+        saveDataItems(5, 1024);
+
+        DataScrubber scrubber = getDataScrubber();
+        assertEquals(2, scrubber.scrub(2));
+        String cursor = scrubber.getCursor();
+        assertNotNull(cursor);
+        scrubber.shutdown();
+
+        scrubber = getDataScrubber();
+        try {
+            assertEquals(cursor, scrubber.getCursor());
+            assertEquals(2, scrubber.getItemsScrubbed());
+
+            assertEquals(3, scrubber.scrub(Integer.MAX_VALUE));
+            assertEquals(1, scrubber.getPassesCompleted());
+            assertEquals(5, scrubber.getItemsScrubbed());
+            assertNull(scrubber.getCursor());
+        } finally {
+            scrubber.shutdown();
+        }
+    }
+
+    @Test
+    public void testScrubIsRateLimited() throws Exception {
+        saveDataItems(1, 96 * 1024);
+
+        DataScrubber scrubber = getDataScrubber();
+        scrubber.setBandwidthLimit(64 * 1024);
+        try {
+            // The first second's worth of data is allowed as a burst, the remaining half second is throttled
+            long start = System.currentTimeMillis();
+            assertEquals(1, scrubber.scrub(Integer.MAX_VALUE));
+            long elapsed = System.currentTimeMillis() - start;
+
+            assertTrue("The scrub was not throttled (" + elapsed + "ms)", elapsed >= 400);
+        } finally {
+            scrubber.shutdown();
+        }
+    }
+
+    @Test
+    public void testScrubYieldsToForegroundWork() throws Exception {
+        List<String> dataIDs = saveDataItems(1, 1024);
+
+        DataScrubber scrubber = getDataScrubber();
+        scrubber.setForegroundQuietPeriod(500);
+        try {
+            _dataStorageManager.fetchData(_containerID, dataIDs.get(0));
+
+            long start = System.currentTimeMillis();
+            assertEquals(1, scrubber.scrub(Integer.MAX_VALUE));
+            long elapsed = System.currentTimeMillis() - start;
+
+            assertTrue("The scrub did not wait for the foreground work (" + elapsed + "ms)", elapsed >= 400);
+        } finally {
+            scrubber.shutdown();
+        }
+    }
+
+    private DataScrubber getDataScrubber() {
+        DataScrubber scrubber = new DataScrubber();
+        scrubber.setDataModel(_dataModel);
+        scrubber.setDataStorageProvider(_dataStorageProvider);
+        scrubber.setDataStorageManager(_dataStorageManager);
+        scrubber.setStatePath(STATE_PATH);
+        scrubber.setForegroundQuietPeriod(0);
+        scrubber.setEnabled(false);
+        scrubber.initialize();
+        return scrubber;
+    }
+
+    private List<String> saveDataItems(int count, int size) throws Exception {
+        List<String> dataIDs = new ArrayList<>();
+        Random random = new Random();
+        for (int i = 0; i < count; i++) {
+            String dataID = UUID.randomUUID().toString();
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+            String dataHash = HashUtilities.generateHash("SHA-256", data);
+
+            _dataStorageManager.saveData(_containerID, dataID, dataHash, data);
+            dataIDs.add(dataID);
+        }
+        return dataIDs;
+    }
+}
@@ -1,23 +1,43 @@
 package io.topiacoin.node.storage;
 
 import io.topiacoin.node.exceptions.DataItemAlreadyExistsException;
+import io.topiacoin.node.exceptions.NoSuchContainerException;
 import io.topiacoin.node.exceptions.NoSuchDataItemException;
+import io.topiacoin.node.exceptions.QuotaExceededException;
 import io.topiacoin.node.exceptions.CorruptDataItemException;
+import io.topiacoin.node.model.CacheMetrics;
 import io.topiacoin.node.model.DataItemInfo;
+import io.topiacoin.node.model.DataItemUpload;
+import io.topiacoin.node.model.DataItemUploadResult;
 import io.topiacoin.node.model.DataModel;
+import io.topiacoin.node.model.StorageUsage;
 import io.topiacoin.node.model.provider.MemoryDataModelProvider;
+import io.topiacoin.node.proof.LeafHashCache;
+import io.topiacoin.node.storage.provider.DataStorageProvider;
+import io.topiacoin.node.storage.provider.FileSystemStorageProvider;
 import io.topiacoin.node.storage.provider.MemoryDataStorageProvider;
 import io.topiacoin.node.utilities.HashUtilities;
+import org.apache.commons.codec.binary.Hex;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -512,13 +532,69 @@ public class DataStorageManagerTest {
             dataModel.updateDataItem(dataItemInfo);
 
             // Attempt to save the data item with a bad hash
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             try {
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
                 dsm.fetchData(containerID, dataID, outputStream);
                 fail("Expected CorruptDataItemException was not thrown");
             } catch (CorruptDataItemException e) {
                 // NOOP
             }
+
+            // The data item is verified before any of it is sent
+            assertEquals(0, outputStream.size());
+
+            // The corrupt data item is quarantined until it is repaired
+            assertTrue(dataModel.getDataItem(dataID).isQuarantined());
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testFetchDataStreamAfterDataModified() throws Exception {
+        // Setup and configure the Data Storage Manager
+        DataModel dataModel = getDataModel();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.initialize();
+
+        try {
+            String dataID = UUID.randomUUID().toString();
+            String containerID = UUID.randomUUID().toString();
+
+            // Preload the Data Model
+            dataModel.createContainer(containerID, 0, null);
+
+            // Create the data and hash it
+            byte[] data = new byte[1024];
+            Random random = new Random();
+            random.nextBytes(data);
+            String dataHash = HashUtilities.generateHash("SHA-256", data);
+
+            // Write the data into the Data Store and fetch it once so that it is verified
+            dsm.saveData(containerID, dataID, dataHash, new ByteArrayInputStream(data));
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            dsm.fetchData(containerID, dataID, outputStream);
+            assertArrayEquals(data, outputStream.toByteArray());
+
+            // Overwrite the stored data behind the Data Storage Manager's back
+            byte[] otherData = new byte[1024];
+            random.nextBytes(otherData);
+            dsp.saveData(dataID, new ByteArrayInputStream(otherData));
+
+            // The modified data item must be re-verified and rejected
+            try {
+                dsm.fetchData(containerID, dataID, new ByteArrayOutputStream());
+                fail("Expected CorruptDataItemException was not thrown");
+            } catch (CorruptDataItemException e) {
+                // NOOP
+            }
         } finally {
             dsm.shutdown();
             dsp.shutdown();
@@ -567,6 +643,67 @@ public class DataStorageManagerTest {
     }
 
 
+    @Test
+    public void testFetchRange() throws Exception {
+        // Setup and configure the Data Storage Manager
+        DataModel dataModel = getDataModel();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.initialize();
+
+        try {
+            String dataID = UUID.randomUUID().toString();
+            String containerID = UUID.randomUUID().toString();
+
+            // Create the data and hash it
+            byte[] data = new byte[1024];
+            Random random = new Random();
+            random.nextBytes(data);
+            String dataHash = HashUtilities.generateHash("SHA-256", data);
+
+            // Preload the Data Model
+            dataModel.createContainer(containerID, 0, null);
+
+            // Load the data into the Data Storage Manager
+            dsm.saveData(containerID, dataID, dataHash, data);
+            assertEquals(data.length, dsm.getDataSize(containerID, dataID));
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            dsm.fetchData(containerID, dataID, 100, 200, outputStream);
+            assertArrayEquals(Arrays.copyOfRange(data, 100, 300), outputStream.toByteArray());
+
+            outputStream = new ByteArrayOutputStream();
+            dsm.fetchData(containerID, dataID, 1000, 24, outputStream);
+            assertArrayEquals(Arrays.copyOfRange(data, 1000, 1024), outputStream.toByteArray());
+
+            try {
+                dsm.fetchData(containerID, dataID, 1000, 25, new ByteArrayOutputStream());
+                fail("Expected IOException was not thrown");
+            } catch (IOException e) {
+                // NOOP - Expected Exception
+            }
+
+            // Ranges of a data item whose hash doesn't match are not served
+            DataItemInfo dataItemInfo = dataModel.getDataItem(dataID);
+            dataItemInfo.setDataHash(HashUtilities.generateHash("SHA-256", new byte[16]));
+            dataModel.updateDataItem(dataItemInfo);
+            try {
+                dsm.fetchData(containerID, dataID, 0, 10, new ByteArrayOutputStream());
+                fail("Expected CorruptDataItemException was not thrown");
+            } catch (CorruptDataItemException e) {
+                // NOOP - Expected Exception
+            }
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
     @Test
     public void testFetchSubsetNonExistent() throws Exception {
         // Setup and configure the Data Storage Manager
@@ -728,6 +865,965 @@ public class DataStorageManagerTest {
 
     // -------- Utility Methods --------
 
+    @Test
+    public void testSaveIdenticalDataSharesBlob() throws Exception {
+        // Setup and configure the Data Storage Manager
+        DataModel dataModel = getDataModel();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.initialize();
+
+        try {
+            String dataID = UUID.randomUUID().toString();
+            String otherDataID = UUID.randomUUID().toString();
+            String containerID = UUID.randomUUID().toString();
+            String otherContainerID = UUID.randomUUID().toString();
+
+            // Preload the Data Model
+            dataModel.createContainer(containerID, 0, null);
+            dataModel.createContainer(otherContainerID, 0, null);
+
+            // Create the data and hash it
+            byte[] data = new byte[1024];
+            Random random = new Random();
+            random.nextBytes(data);
+            String dataHash = HashUtilities.generateHash("SHA-256", data);
+
+            dsm.saveData(containerID, dataID, dataHash, new ByteArrayInputStream(data));
+            assertEquals(1, dataModel.getBlobReferenceCount(dataHash));
+
+            // The second copy is verified and then linked to the stored blob.
+            ByteArrayInputStream otherStream = new ByteArrayInputStream(data);
+            long size = dsm.saveData(otherContainerID, otherDataID, dataHash, otherStream);
+            assertEquals(data.length, size);
+            assertEquals("The data stream should be read in full", 0, otherStream.available());
+            assertEquals(2, dataModel.getBlobReferenceCount(dataHash));
+            assertArrayEquals(data, dsm.fetchData(otherContainerID, otherDataID));
+
+            // Removing one copy leaves the other intact.
+            assertTrue(dsm.removeData(containerID, dataID));
+            assertEquals(1, dataModel.getBlobReferenceCount(dataHash));
+            assertArrayEquals(data, dsm.fetchData(otherContainerID, otherDataID));
+
+            // Removing the last copy reclaims the blob.
+            assertTrue(dsm.removeData(otherContainerID, otherDataID));
+            assertEquals(0, dataModel.getBlobReferenceCount(dataHash));
+            assertFalse(dsp.hasData(dataID));
+            assertFalse(dsp.hasData(otherDataID));
+            assertFalse(dsp.hasData(Hex.encodeHexString(new HashUtilities.HashInfo(dataHash).getHash()) + ".sha256"));
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testRepairRelinksDataItemsSharingTheBlob() throws Exception {
+        // Setup and configure the Data Storage Manager
+        DataModel dataModel = getDataModel();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.setReadIntegrityPolicy(ReadIntegrityPolicy.ALWAYS);
+        dsm.initialize();
+
+        try {
+            String containerID = UUID.randomUUID().toString();
+            String otherContainerID = UUID.randomUUID().toString();
+            dataModel.createContainer(containerID, 0, null);
+            dataModel.createContainer(otherContainerID, 0, null);
+
+            DataItemUpload upload = createUpload(UUID.randomUUID().toString(), 1024);
+            String otherDataID = UUID.randomUUID().toString();
+            dsm.saveData(containerID, upload.getDataID(), upload.getDataHash(), upload.getData());
+            dsm.saveData(otherContainerID, otherDataID, upload.getDataHash(), upload.getData());
+
+            // Corrupt the second data item's copy behind the Data Storage Manager's back
+            dsp.saveData(otherDataID, new ByteArrayInputStream(new byte[1024]));
+            try {
+                dsm.fetchData(otherContainerID, otherDataID, new ByteArrayOutputStream());
+                fail("Expected CorruptDataItemException was not thrown");
+            } catch (CorruptDataItemException e) {
+                // NOOP - Expected Exception
+            }
+            assertTrue(dataModel.getDataItem(otherDataID).isQuarantined());
+
+            // Repairing either data item repairs every data item with the same hash
+            dsm.repairData(upload.getDataID(), new ByteArrayInputStream(upload.getData()));
+
+            assertFalse(dataModel.getDataItem(otherDataID).isQuarantined());
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            dsm.fetchData(otherContainerID, otherDataID, outputStream);
+            assertArrayEquals(upload.getData(), outputStream.toByteArray());
+            assertEquals(2, dataModel.getBlobReferenceCount(upload.getDataHash()));
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testSaveKnownHashWithWrongData() throws Exception {
+        // Setup and configure the Data Storage Manager
+        DataModel dataModel = getDataModel();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.initialize();
+
+        try {
+            String containerID = UUID.randomUUID().toString();
+            String otherContainerID = UUID.randomUUID().toString();
+            dataModel.createContainer(containerID, 0, null);
+            dataModel.createContainer(otherContainerID, 0, null);
+
+            // Store the data so that a blob with its hash exists
+            DataItemUpload upload = createUpload(UUID.randomUUID().toString(), 1024);
+            dsm.saveData(containerID, upload.getDataID(), upload.getDataHash(), upload.getData());
+            assertEquals(1, dataModel.getBlobReferenceCount(upload.getDataHash()));
+
+            // Knowing the hash is not enough to claim the data item
+            byte[] wrongData = new byte[1024];
+            String streamDataID = UUID.randomUUID().toString();
+            try {
+                dsm.saveData(otherContainerID, streamDataID, upload.getDataHash(), new ByteArrayInputStream(wrongData));
+                fail("Expected CorruptDataItemException was not thrown");
+            } catch (CorruptDataItemException e) {
+                // NOOP - Expected Exception
+            }
+            assertFalse(dsm.hasData(otherContainerID, streamDataID));
+
+            String asyncDataID = UUID.randomUUID().toString();
+            try {
+                dsm.saveDataAsync(otherContainerID, asyncDataID, upload.getDataHash(), wrongData).get();
+                fail("Expected CorruptDataItemException was not thrown");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof CorruptDataItemException);
+            }
+            assertFalse(dsm.hasData(otherContainerID, asyncDataID));
+
+            // The failed uploads hold no reference to the blob
+            assertEquals(1, dataModel.getBlobReferenceCount(upload.getDataHash()));
+            assertFalse(dsp.hasData(streamDataID));
+            assertFalse(dsp.hasData(asyncDataID));
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testFetchWithCacheEnabled() throws Exception {
+        // Setup and configure the Data Storage Manager
+        DataModel dataModel = getDataModel();
+
+        File storageBase = new File("./target/dsmCacheTest");
+        FileSystemStorageProvider dsp = new FileSystemStorageProvider();
+        dsp.setStorageBasePath(storageBase.getPath());
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.setCacheSize(1024 * 1024);
+        dsm.initialize();
+
+        try {
+            String dataID = UUID.randomUUID().toString();
+            String containerID = UUID.randomUUID().toString();
+
+            // Preload the Data Model
+            dataModel.createContainer(containerID, 0, null);
+
+            // Create the data and hash it
+            byte[] data = new byte[1024];
+            Random random = new Random();
+            random.nextBytes(data);
+            String dataHash = HashUtilities.generateHash("SHA-256", data);
+
+            dsm.saveData(containerID, dataID, dataHash, new ByteArrayInputStream(data));
+
+            for (int i = 0; i < 3; i++) {
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                dsm.fetchData(containerID, dataID, outputStream);
+                assertArrayEquals(data, outputStream.toByteArray());
+            }
+
+            assertNotNull(dsm.getCache());
+            assertTrue("Repeated fetches should be served from the cache", dsm.getCache().getHitCount() > 0);
+            assertEquals(dsm.getCache().getMetrics(), dsm.getCacheMetrics());
+
+            assertTrue(dsm.removeData(containerID, dataID));
+            assertEquals(0, dsm.getCache().getEntryCount());
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+            deletePathAndContents(storageBase);
+        }
+    }
+
+    @Test
+    public void testMemoryProviderIsNotCached() throws Exception {
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(getDataModel());
+        dsm.setCacheSize(1024 * 1024);
+        dsm.initialize();
+
+        try {
+            // The data items are already in memory, so a cache would only hold a second copy.
+            assertNull(dsm.getCache());
+            assertEquals(new CacheMetrics(), dsm.getCacheMetrics());
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testReadIntegrityPolicyAlwaysRehashes() throws Exception {
+        assertFetchTrusted(ReadIntegrityPolicy.ALWAYS, 0, false);
+    }
+
+    @Test
+    public void testReadIntegrityPolicyTrustRecent() throws Exception {
+        assertFetchTrusted(ReadIntegrityPolicy.TRUST_RECENT, 0, true);
+        assertFetchTrusted(ReadIntegrityPolicy.TRUST_RECENT, 2 * 24 * 60 * 60 * 1000L, false);
+    }
+
+    @Test
+    public void testReadIntegrityPolicyScrubberOnly() throws Exception {
+        assertFetchTrusted(ReadIntegrityPolicy.SCRUBBER_ONLY, 0, true);
+        assertFetchTrusted(ReadIntegrityPolicy.SCRUBBER_ONLY, 2 * 24 * 60 * 60 * 1000L, true);
+    }
+
+    @Test
+    public void testModifiedDataIsReverified() throws Exception {
+        DataModel dataModel = getDataModel();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.setReadIntegrityPolicy(ReadIntegrityPolicy.SCRUBBER_ONLY);
+        dsm.initialize();
+
+        try {
+            String dataID = UUID.randomUUID().toString();
+            String containerID = UUID.randomUUID().toString();
+            dataModel.createContainer(containerID, 0, null);
+
+            byte[] data = new byte[1024];
+            new Random().nextBytes(data);
+            String dataHash = HashUtilities.generateHash("SHA-256", data);
+
+            dsm.saveData(containerID, dataID, dataHash, data);
+            assertNotNull(dataModel.getDataItem(dataID).getVerifiedVersion());
+
+            // Modify the stored data behind the manager's back
+            byte[] modifiedData = Arrays.copyOf(data, data.length);
+            modifiedData[0] ^= 0xFF;
+            dsp.saveData(dataID, new ByteArrayInputStream(modifiedData));
+
+            try {
+                dsm.fetchData(containerID, dataID);
+                fail("Expected a CorruptDataItemException");
+            } catch (CorruptDataItemException e) {
+                // NOOP - Expected Exception
+            }
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testSaveBatch() throws Exception {
+        DataModel dataModel = getDataModel();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.setBatchThreads(2);
+        dsm.initialize();
+
+        try {
+            String containerID = UUID.randomUUID().toString();
+            dataModel.createContainer(containerID, 0, null);
+
+            List<DataItemUpload> uploads = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                uploads.add(createUpload(UUID.randomUUID().toString(), 1024));
+            }
+
+            // An upload whose data doesn't match its hash
+            DataItemUpload corrupt = uploads.get(1);
+            uploads.set(1, new DataItemUpload(corrupt.getDataID(), HashUtilities.generateHash("SHA-256", new byte[16]), corrupt.getData()));
+
+            // An upload that was already stored
+            DataItemUpload existing = uploads.get(2);
+            dsm.saveData(containerID, existing.getDataID(), existing.getDataHash(), existing.getData());
+
+            // An upload repeated within the batch
+            uploads.add(uploads.get(4));
+
+            List<DataItemUploadResult> results = dsm.saveData(containerID, uploads.iterator());
+
+            assertEquals(uploads.size(), results.size());
+            DataItemUploadResult.Status[] expectedStatuses = {
+                    DataItemUploadResult.Status.STORED,
+                    DataItemUploadResult.Status.CORRUPT,
+                    DataItemUploadResult.Status.ALREADY_EXISTS,
+                    DataItemUploadResult.Status.STORED,
+                    DataItemUploadResult.Status.STORED,
+                    DataItemUploadResult.Status.STORED,
+                    DataItemUploadResult.Status.ALREADY_EXISTS};
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(uploads.get(i).getDataID(), results.get(i).getDataID());
+                assertEquals("Wrong status for upload " + i, expectedStatuses[i], results.get(i).getStatus());
+            }
+
+            for (int i : new int[]{0, 3, 4, 5}) {
+                DataItemUpload upload = uploads.get(i);
+                assertEquals(upload.getData().length, results.get(i).getSize());
+                assertTrue(dataModel.isDataItemInContainer(upload.getDataID(), containerID));
+                assertArrayEquals(upload.getData(), dsm.fetchData(containerID, upload.getDataID()));
+            }
+
+            assertFalse(dsm.hasData(containerID, corrupt.getDataID()));
+            assertFalse(dsp.hasData(corrupt.getDataID()));
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testSaveBatchReadFailure() throws Exception {
+        DataModel dataModel = getDataModel();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.initialize();
+
+        try {
+            String containerID = UUID.randomUUID().toString();
+            dataModel.createContainer(containerID, 0, null);
+
+            List<DataItemUpload> uploads = Arrays.asList(
+                    createUpload(UUID.randomUUID().toString(), 1024),
+                    createUpload(UUID.randomUUID().toString(), 1024));
+
+            // The body ends part way through the third upload
+            Iterator<DataItemUpload> uploadIterator = new Iterator<DataItemUpload>() {
+                private int _index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+
+                @Override
+                public DataItemUpload next() {
+                    if (_index < uploads.size()) {
+                        return uploads.get(_index++);
+                    }
+                    throw new UncheckedIOException(new EOFException());
+                }
+            };
+
+            try {
+                dsm.saveData(containerID, uploadIterator);
+                fail("Expected an IOException");
+            } catch (IOException e) {
+                // NOOP - Expected Exception
+            }
+
+            // The uploads read before the failure are rolled back
+            for (DataItemUpload upload : uploads) {
+                assertFalse(dataModel.isDataItemInContainer(upload.getDataID(), containerID));
+                assertFalse(dsp.hasData(upload.getDataID()));
+            }
+            assertEquals(new StorageUsage(0, 0), dsm.getStorageUsage(containerID));
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testFindPresentData() throws Exception {
+        DataModel dataModel = getDataModel();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.initialize();
+
+        try {
+            String containerID = UUID.randomUUID().toString();
+            String otherContainerID = UUID.randomUUID().toString();
+            dataModel.createContainer(containerID, 0, null);
+            dataModel.createContainer(otherContainerID, 0, null);
+
+            // Saved before the index is loaded
+            DataItemUpload upload1 = createUpload(UUID.randomUUID().toString(), 1024);
+            dsm.saveData(containerID, upload1.getDataID(), upload1.getDataHash(), upload1.getData());
+
+            String missingID = UUID.randomUUID().toString();
+            assertEquals(Arrays.asList(upload1.getDataID()), dsm.findPresentData(containerID, Arrays.asList(missingID, upload1.getDataID())));
+            assertTrue(dsm.findPresentData(otherContainerID, Arrays.asList(upload1.getDataID())).isEmpty());
+
+            // Saved after the index is loaded, singly and in a batch
+            DataItemUpload upload2 = createUpload(UUID.randomUUID().toString(), 1024);
+            dsm.saveData(containerID, upload2.getDataID(), upload2.getDataHash(), upload2.getData());
+            DataItemUpload upload3 = createUpload(UUID.randomUUID().toString(), 1024);
+            dsm.saveData(containerID, Arrays.asList(upload3).iterator());
+
+            List<String> dataIDs = Arrays.asList(upload3.getDataID(), missingID, upload2.getDataID(), upload1.getDataID());
+            assertEquals(Arrays.asList(upload3.getDataID(), upload2.getDataID(), upload1.getDataID()), dsm.findPresentData(containerID, dataIDs));
+
+            // Removed data items are no longer reported
+            dsm.removeData(containerID, upload2.getDataID());
+            assertEquals(Arrays.asList(upload3.getDataID(), upload1.getDataID()), dsm.findPresentData(containerID, dataIDs));
+
+            try {
+                dsm.findPresentData(UUID.randomUUID().toString(), dataIDs);
+                fail("Expected a NoSuchContainerException");
+            } catch (NoSuchContainerException e) {
+                // NOOP - Expected Exception
+            }
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testFindPresentDataAfterIndexEviction() throws Exception {
+        DataModel dataModel = getDataModel();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.setMembershipIndexContainers(1);
+        dsm.initialize();
+
+        try {
+            String containerID = UUID.randomUUID().toString();
+            String otherContainerID = UUID.randomUUID().toString();
+            dataModel.createContainer(containerID, 0, null);
+            dataModel.createContainer(otherContainerID, 0, null);
+
+            DataItemUpload upload1 = createUpload(UUID.randomUUID().toString(), 1024);
+            dsm.saveData(containerID, upload1.getDataID(), upload1.getDataHash(), upload1.getData());
+            DataItemUpload upload2 = createUpload(UUID.randomUUID().toString(), 1024);
+            dsm.saveData(otherContainerID, upload2.getDataID(), upload2.getDataHash(), upload2.getData());
+
+            List<String> dataIDs = Arrays.asList(upload1.getDataID(), upload2.getDataID());
+            assertEquals(Arrays.asList(upload1.getDataID()), dsm.findPresentData(containerID, dataIDs));
+
+            // Querying the other container evicts the first container's index.
+            assertEquals(Arrays.asList(upload2.getDataID()), dsm.findPresentData(otherContainerID, dataIDs));
+
+            // Saved while the first container's index is evicted, so it is only seen when the index is reloaded.
+            DataItemUpload upload3 = createUpload(UUID.randomUUID().toString(), 1024);
+            dsm.saveData(containerID, upload3.getDataID(), upload3.getDataHash(), upload3.getData());
+
+            dataIDs = Arrays.asList(upload1.getDataID(), upload2.getDataID(), upload3.getDataID());
+            assertEquals(Arrays.asList(upload1.getDataID(), upload3.getDataID()), dsm.findPresentData(containerID, dataIDs));
+            assertEquals(Arrays.asList(upload2.getDataID()), dsm.findPresentData(otherContainerID, dataIDs));
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testFindPresentDataIsAnsweredFromMemory() throws Exception {
+        MemoryDataModelProvider dataModelProvider = new MemoryDataModelProvider();
+        dataModelProvider.initialize();
+
+        AtomicInteger membershipQueries = new AtomicInteger();
+        DataModel dataModel = new DataModel() {
+            @Override
+            public boolean isDataItemInContainer(String dataItemID, String containerID) throws NoSuchContainerException {
+                membershipQueries.incrementAndGet();
+                return super.isDataItemInContainer(dataItemID, containerID);
+            }
+        };
+        dataModel.setProvider(dataModelProvider);
+        dataModel.initialize();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.initialize();
+
+        try {
+            String containerID = UUID.randomUUID().toString();
+            dataModel.createContainer(containerID, 0, null);
+
+            List<String> dataIDs = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                DataItemUpload upload = createUpload(UUID.randomUUID().toString(), 256);
+                dsm.saveData(containerID, upload.getDataID(), upload.getDataHash(), upload.getData());
+                dataIDs.add(upload.getDataID());
+            }
+
+            assertEquals(dataIDs, dsm.findPresentData(containerID, dataIDs));
+            assertEquals(0, membershipQueries.get());
+
+            // A removal is checked against the Data Model once, and the data item is then absent from the index.
+            dsm.removeData(containerID, dataIDs.get(0));
+            assertEquals(dataIDs.subList(1, dataIDs.size()), dsm.findPresentData(containerID, dataIDs));
+            assertEquals(1, membershipQueries.get());
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testStorageUsageTracksSavesAndRemoves() throws Exception {
+
+        // Setup and configure the Data Storage Manager
+        DataModel dataModel = getDataModel();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.initialize();
+
+        try {
+            String containerID = UUID.randomUUID().toString();
+            dataModel.createContainer(containerID, 0, null);
+
+            Random random = new Random();
+            byte[] data1 = new byte[1024];
+            byte[] data2 = new byte[4096];
+            random.nextBytes(data1);
+            random.nextBytes(data2);
+            String dataID1 = UUID.randomUUID().toString();
+            String dataID2 = UUID.randomUUID().toString();
+
+            assertEquals(new StorageUsage(0, 0), dsm.getStorageUsage(containerID));
+
+            dsm.saveData(containerID, dataID1, HashUtilities.generateHash("SHA-256", data1), data1);
+            dsm.saveData(containerID, dataID2, HashUtilities.generateHash("SHA-256", data2),
+                    new ByteArrayInputStream(data2));
+
+            assertEquals(new StorageUsage(5120, 2), dsm.getStorageUsage(containerID));
+            assertEquals(new StorageUsage(5120, 2), dsm.getNodeStorageUsage());
+
+            dsm.removeData(containerID, dataID1);
+
+            assertEquals(new StorageUsage(4096, 1), dsm.getStorageUsage(containerID));
+            assertEquals(new StorageUsage(4096, 1), dsm.getNodeStorageUsage());
+
+            // A data item sharing a blob counts towards its container, but not again towards the node.
+            String dataID3 = UUID.randomUUID().toString();
+            dsm.saveData(containerID, dataID3, HashUtilities.generateHash("SHA-256", data2), data2);
+
+            assertEquals(new StorageUsage(8192, 2), dsm.getStorageUsage(containerID));
+            assertEquals(new StorageUsage(4096, 1), dsm.getNodeStorageUsage());
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testSaveOverQuotaIsRejected() throws Exception {
+
+        // Setup and configure the Data Storage Manager
+        DataModel dataModel = getDataModel();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.setContainerQuota(2048);
+        dsm.initialize();
+
+        try {
+            String containerID = UUID.randomUUID().toString();
+            dataModel.createContainer(containerID, 0, null);
+
+            Random random = new Random();
+            byte[] data1 = new byte[1536];
+            byte[] data2 = new byte[1024];
+            random.nextBytes(data1);
+            random.nextBytes(data2);
+            String dataID1 = UUID.randomUUID().toString();
+            String dataID2 = UUID.randomUUID().toString();
+            String dataHash2 = HashUtilities.generateHash("SHA-256", data2);
+
+            dsm.saveData(containerID, dataID1, HashUtilities.generateHash("SHA-256", data1), data1);
+
+            // Rejected before the data is stored
+            try {
+                dsm.saveData(containerID, dataID2, dataHash2, data2);
+                fail("Expected QuotaExceededException was not thrown");
+            } catch (QuotaExceededException e) {
+                // NOOP - Expected Exception
+            }
+
+            // Rejected on its declared size before the stream is read
+            ByteArrayInputStream declaredStream = new ByteArrayInputStream(data2);
+            try {
+                dsm.saveData(containerID, dataID2, dataHash2, declaredStream, data2.length);
+                fail("Expected QuotaExceededException was not thrown");
+            } catch (QuotaExceededException e) {
+                // NOOP - Expected Exception
+            }
+            assertEquals(data2.length, declaredStream.available());
+
+            // Rejected after the stream has been read, and the stored data discarded
+            try {
+                dsm.saveData(containerID, dataID2, dataHash2, new ByteArrayInputStream(data2));
+                fail("Expected QuotaExceededException was not thrown");
+            } catch (QuotaExceededException e) {
+                // NOOP - Expected Exception
+            }
+
+            assertFalse(dsm.hasData(containerID, dataID2));
+            assertNull(dataModel.getDataItem(dataID2));
+            assertEquals(new StorageUsage(1536, 1), dsm.getStorageUsage(containerID));
+
+            // Removing data frees up quota
+            dsm.removeData(containerID, dataID1);
+            dsm.saveData(containerID, dataID2, dataHash2, data2);
+
+            assertTrue(dsm.hasData(containerID, dataID2));
+            assertEquals(new StorageUsage(1024, 1), dsm.getStorageUsage(containerID));
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testRemoveDataInvalidatesLeafHashes() throws Exception {
+
+        // Setup and configure the Data Storage Manager
+        DataModel dataModel = getDataModel();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        LeafHashCache leafHashCache = new LeafHashCache();
+        leafHashCache.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.setLeafHashCache(leafHashCache);
+        dsm.initialize();
+
+        try {
+            String containerID = UUID.randomUUID().toString();
+            String dataID = UUID.randomUUID().toString();
+            byte[] data = new byte[1024];
+            new Random().nextBytes(data);
+
+            dataModel.createContainer(containerID, 0, null);
+            dsm.saveData(containerID, dataID, HashUtilities.generateHash("SHA-256", data), data);
+
+            String version = dsp.getDataVersion(dataID);
+            leafHashCache.put(dataID, 0, 512, version, new byte[32]);
+            leafHashCache.put(dataID, 512, 512, version, new byte[32]);
+
+            dsm.removeData(containerID, dataID);
+
+            assertEquals(0, leafHashCache.getSize());
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+            leafHashCache.shutdown();
+        }
+    }
+
+    @Test
+    public void testSaveFetchRemoveAsync() throws Exception {
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        assertSaveFetchRemoveAsync(dsp);
+    }
+
+    @Test
+    public void testSaveFetchRemoveAsyncOnFileSystem() throws Exception {
+        File storageBase = new File("./target/dsmAsyncTest");
+        FileSystemStorageProvider dsp = new FileSystemStorageProvider();
+        dsp.setStorageBasePath(storageBase.getPath());
+        dsp.initialize();
+
+        try {
+            assertSaveFetchRemoveAsync(dsp);
+        } finally {
+            deletePathAndContents(storageBase);
+        }
+    }
+
+    @Test
+    public void testAsyncCallsReachFileSystemThroughCache() throws Exception {
+        File storageBase = new File("./target/dsmAsyncCacheTest");
+        final AtomicInteger asyncSaves = new AtomicInteger();
+        final AtomicInteger asyncFetches = new AtomicInteger();
+        FileSystemStorageProvider dsp = new FileSystemStorageProvider() {
+            @Override
+            public CompletableFuture<Long> saveDataAsync(String dataID, String dataHash, byte[] data) {
+                asyncSaves.incrementAndGet();
+                return super.saveDataAsync(dataID, dataHash, data);
+            }
+
+            @Override
+            public CompletableFuture<ByteBuffer> fetchDataAsync(String dataID) {
+                asyncFetches.incrementAndGet();
+                return super.fetchDataAsync(dataID);
+            }
+        };
+        dsp.setStorageBasePath(storageBase.getPath());
+        dsp.initialize();
+
+        DataModel dataModel = getDataModel();
+
+        // The manager is left with its default cache in front of the provider.
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.initialize();
+
+        try {
+            assertNotNull(dsm.getCache());
+
+            String containerID = UUID.randomUUID().toString();
+            dataModel.createContainer(containerID, 0, null);
+
+            DataItemUpload upload = createUpload(UUID.randomUUID().toString(), 16384);
+            dsm.saveDataAsync(containerID, upload.getDataID(), upload.getDataHash(), upload.getData()).get();
+            assertEquals(1, asyncSaves.get());
+
+            // The first fetch misses the cache and is read asynchronously.  The second is served from the cache.
+            assertArrayEquals(upload.getData(), dsm.fetchDataAsync(containerID, upload.getDataID()).get());
+            assertArrayEquals(upload.getData(), dsm.fetchDataAsync(containerID, upload.getDataID()).get());
+            assertEquals(1, asyncFetches.get());
+            assertEquals(1, dsm.getCacheMetrics().getHitCount());
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+            deletePathAndContents(storageBase);
+        }
+    }
+
+    @Test
+    public void testFetchAsyncWithCorruptHash() throws Exception {
+        DataModel dataModel = getDataModel();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.setReadIntegrityPolicy(ReadIntegrityPolicy.ALWAYS);
+        dsm.initialize();
+
+        try {
+            String containerID = UUID.randomUUID().toString();
+            dataModel.createContainer(containerID, 0, null);
+
+            DataItemUpload upload = createUpload(UUID.randomUUID().toString(), 1024);
+            dsm.saveDataAsync(containerID, upload.getDataID(), upload.getDataHash(), upload.getData()).get();
+
+            DataItemInfo dataItemInfo = dataModel.getDataItem(upload.getDataID());
+            dataItemInfo.setDataHash(HashUtilities.generateHash("SHA-256", new byte[16]));
+            dataModel.updateDataItem(dataItemInfo);
+
+            try {
+                dsm.fetchDataAsync(containerID, upload.getDataID()).get();
+                fail("Expected CorruptDataItemException was not thrown");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof CorruptDataItemException);
+            }
+            try {
+                dsm.fetchDataAsync(containerID, upload.getDataID(), 10, 100).get();
+                fail("Expected CorruptDataItemException was not thrown");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof CorruptDataItemException);
+            }
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
+    private void assertSaveFetchRemoveAsync(DataStorageProvider dsp) throws Exception {
+        DataModel dataModel = getDataModel();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.initialize();
+
+        try {
+            String containerID = UUID.randomUUID().toString();
+            dataModel.createContainer(containerID, 0, null);
+
+            DataItemUpload upload = createUpload(UUID.randomUUID().toString(), 16384);
+            String dataID = upload.getDataID();
+
+            assertFalse(dsm.hasDataAsync(containerID, dataID).get());
+            assertEquals(16384L, (long) dsm.saveDataAsync(containerID, dataID, upload.getDataHash(), upload.getData()).get());
+            assertTrue(dsm.hasDataAsync(containerID, dataID).get());
+            assertEquals(16384, dataModel.getDataItem(dataID).getSize());
+
+            try {
+                dsm.saveDataAsync(containerID, dataID, upload.getDataHash(), upload.getData());
+                fail("Expected DataItemAlreadyExistsException was not thrown");
+            } catch (DataItemAlreadyExistsException e) {
+                // NOOP - Expected Exception
+            }
+
+            assertArrayEquals(upload.getData(), dsm.fetchDataAsync(containerID, dataID).get());
+            assertArrayEquals(Arrays.copyOfRange(upload.getData(), 1000, 6000), dsm.fetchDataAsync(containerID, dataID, 1000, 5000).get());
+
+            // Identical data is linked to the same blob instead of being written again
+            String duplicateID = UUID.randomUUID().toString();
+            dsm.saveDataAsync(containerID, duplicateID, upload.getDataHash(), upload.getData()).get();
+            assertArrayEquals(upload.getData(), dsm.fetchDataAsync(containerID, duplicateID).get());
+
+            assertTrue(dsm.removeDataAsync(containerID, dataID).get());
+            assertFalse(dsm.hasDataAsync(containerID, dataID).get());
+            assertArrayEquals(upload.getData(), dsm.fetchDataAsync(containerID, duplicateID).get());
+
+            // A corrupt upload is rejected and leaves nothing behind
+            String corruptID = UUID.randomUUID().toString();
+            byte[] corruptData = upload.getData().clone();
+            corruptData[0]++;
+            try {
+                dsm.saveDataAsync(containerID, corruptID, createUpload(corruptID, 64).getDataHash(), corruptData).get();
+                fail("Expected CorruptDataItemException was not thrown");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof CorruptDataItemException);
+            }
+            assertFalse(dsm.hasData(containerID, corruptID));
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
+    private void deletePathAndContents(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deletePathAndContents(child);
+            }
+        }
+        file.delete();
+    }
+
+    private DataItemUpload createUpload(String dataID, int size) throws Exception {
+        byte[] data = new byte[size];
+        new Random().nextBytes(data);
+        return new DataItemUpload(dataID, HashUtilities.generateHash("SHA-256", data), data);
+    }
+
+    /**
+     * Saves a data item, then replaces its hash with a wrong one along with a matching verification record that was
+     * made verificationAge milliseconds ago.  The fetch only succeeds if the policy trusts the record without hashing.
+     */
+    private void assertFetchTrusted(ReadIntegrityPolicy policy, long verificationAge, boolean expectTrusted) throws Exception {
+        DataModel dataModel = getDataModel();
+
+        MemoryDataStorageProvider dsp = new MemoryDataStorageProvider();
+        dsp.initialize();
+
+        DataStorageManager dsm = new DataStorageManager();
+        dsm.setDataStorageProvider(dsp);
+        dsm.setDataModel(dataModel);
+        dsm.setReadIntegrityPolicy(policy);
+        dsm.initialize();
+
+        try {
+            String dataID = UUID.randomUUID().toString();
+            String containerID = UUID.randomUUID().toString();
+            dataModel.createContainer(containerID, 0, null);
+
+            byte[] data = new byte[1024];
+            new Random().nextBytes(data);
+            String dataHash = HashUtilities.generateHash("SHA-256", data);
+
+            dsm.saveData(containerID, dataID, dataHash, data);
+
+            byte[] wrongData = new byte[16];
+            String wrongHash = HashUtilities.generateHash("SHA-256", wrongData);
+
+            DataItemInfo dataItemInfo = dataModel.getDataItem(dataID);
+            dataItemInfo.setDataHash(wrongHash);
+            dataItemInfo.setVerifiedHash(wrongHash);
+            dataItemInfo.setLastVerified(System.currentTimeMillis() - verificationAge);
+            dataModel.updateDataItem(dataItemInfo);
+
+            boolean trusted;
+            try {
+                assertArrayEquals(data, dsm.fetchData(containerID, dataID));
+
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                dsm.fetchData(containerID, dataID, outputStream);
+                assertArrayEquals(data, outputStream.toByteArray());
+                trusted = true;
+            } catch (CorruptDataItemException e) {
+                trusted = false;
+            }
+            assertEquals("Unexpected verification behavior for " + policy, expectTrusted, trusted);
+        } finally {
+            dsm.shutdown();
+            dsp.shutdown();
+        }
+    }
+
     private DataModel getDataModel() {
         MemoryDataModelProvider dataModelProvider = new MemoryDataModelProvider();
         dataModelProvider.initialize();
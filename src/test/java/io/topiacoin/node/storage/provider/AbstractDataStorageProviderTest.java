@@ -1,7 +1,9 @@
 package io.topiacoin.node.storage.provider;
 
+import io.topiacoin.node.exceptions.CorruptDataItemException;
 import io.topiacoin.node.exceptions.DataItemAlreadyExistsException;
 import io.topiacoin.node.exceptions.NoSuchDataItemException;
+import io.topiacoin.node.utilities.HashUtilities;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
@@ -11,6 +13,8 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.util.Arrays;
 import java.util.Random;
 import java.util.UUID;
@@ -227,6 +231,370 @@ public abstract class AbstractDataStorageProviderTest {
         }
     }
 
+    @Test
+    public void testTransferDataItem() throws Exception {
+
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = new byte[16384] ;
+        Random random = new Random();
+        random.nextBytes(data);
+        InputStream dataInputStream = new ByteArrayInputStream(data);
+
+        int offset = 1000 ;
+        int length = 3000 ;
+
+        try {
+            dsp.saveData(dataID, dataInputStream);
+
+            assertEquals(data.length, dsp.getDataSize(dataID));
+
+            ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+            long transferred = dsp.transferData(dataID, 0, data.length, Channels.newChannel(dataOutputStream));
+            assertEquals(data.length, transferred);
+            assertTrue("Transferred Data does not match stored data", Arrays.equals(data, dataOutputStream.toByteArray()));
+
+            dataOutputStream = new ByteArrayOutputStream();
+            transferred = dsp.transferData(dataID, offset, length, Channels.newChannel(dataOutputStream));
+            assertEquals(length, transferred);
+            assertTrue("Transferred Data does not match stored data", Arrays.equals(Arrays.copyOfRange(data, offset, offset + length), dataOutputStream.toByteArray()));
+        } finally {
+            dsp.removeData(dataID);
+        }
+    }
+
+    @Test
+    public void testTransferDataItemWithInvalidRange() throws Exception {
+
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = new byte[16384] ;
+        Random random = new Random();
+        random.nextBytes(data);
+        InputStream dataInputStream = new ByteArrayInputStream(data);
+
+        try {
+            dsp.saveData(dataID, dataInputStream);
+
+            try {
+                dsp.transferData(dataID, 1000, 30000, Channels.newChannel(new ByteArrayOutputStream()));
+                fail ( "Expected IOException was not thrown");
+            } catch ( IOException e ) {
+                // NOOP - Expected Exception
+            }
+
+            try {
+                dsp.transferData(dataID, -345, 3000, Channels.newChannel(new ByteArrayOutputStream()));
+                fail ( "Expected IOException was not thrown");
+            } catch ( IOException e ) {
+                // NOOP - Expected Exception
+            }
+        } finally {
+            dsp.removeData(dataID);
+        }
+    }
+
+    @Test
+    public void testTransferNonExistentDataItem() throws Exception {
+
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+
+        try {
+            dsp.transferData(dataID, 0, 100, Channels.newChannel(new ByteArrayOutputStream()));
+            fail ( "Expected NoSuchDataItemException was not thrown when transferring a non-existent data item");
+        } catch ( NoSuchDataItemException e ) {
+            // NOOP - Expected Exception
+        }
+    }
+
+    @Test
+    public void testSaveVerifiedDataItem() throws Exception {
+
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = new byte[100000] ;
+        Random random = new Random();
+        random.nextBytes(data);
+        String dataHash = HashUtilities.generateHash("SHA-256", data);
+
+        try {
+            long size = dsp.saveData(dataID, dataHash, new ByteArrayInputStream(data));
+            assertEquals(data.length, size);
+            assertTrue("The Data Storage Provider should have the data item", dsp.hasData(dataID));
+
+            ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+            dsp.fetchData(dataID, dataOutputStream);
+            assertTrue ( "Fetched Data does not match stored data", Arrays.equals(data, dataOutputStream.toByteArray()));
+        } finally {
+            dsp.removeData(dataID);
+        }
+    }
+
+    @Test
+    public void testSaveVerifiedDataItemWithWrongHash() throws Exception {
+
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = new byte[16384] ;
+        Random random = new Random();
+        random.nextBytes(data);
+        String dataHash = HashUtilities.generateHash("SHA-256", data);
+        data[0]++;
+
+        try {
+            dsp.saveData(dataID, dataHash, new ByteArrayInputStream(data));
+            fail ( "Expected CorruptDataItemException was not thrown when the data did not match the hash");
+        } catch ( CorruptDataItemException e ) {
+            // NOOP - Expected Exception
+        }
+
+        assertFalse("The Data Storage Provider should not have the corrupt data item", dsp.hasData(dataID));
+    }
+
+    @Test
+    public void testSaveVerifiedDataItemWithWrongHashKeepsExistingData() throws Exception {
+
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = new byte[16384] ;
+        Random random = new Random();
+        random.nextBytes(data);
+        String dataHash = HashUtilities.generateHash("SHA-256", data);
+
+        try {
+            dsp.saveData(dataID, dataHash, new ByteArrayInputStream(data));
+
+            byte[] badData = new byte[16384] ;
+            random.nextBytes(badData);
+            try {
+                dsp.saveData(dataID, dataHash, new ByteArrayInputStream(badData));
+                fail ( "Expected CorruptDataItemException was not thrown when the data did not match the hash");
+            } catch ( CorruptDataItemException e ) {
+                // NOOP - Expected Exception
+            }
+
+            ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+            dsp.fetchData(dataID, dataOutputStream);
+            assertTrue ( "Existing Data should not be replaced by corrupt data", Arrays.equals(data, dataOutputStream.toByteArray()));
+        } finally {
+            dsp.removeData(dataID);
+        }
+    }
+
+    @Test
+    public void testGetDataBuffer() throws Exception {
+
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = new byte[16384] ;
+        Random random = new Random();
+        random.nextBytes(data);
+
+        int offset = 1000 ;
+        int length = 3000 ;
+
+        try {
+            dsp.saveData(dataID, new ByteArrayInputStream(data));
+
+            // Read the same item twice to exercise any cached state.
+            for ( int i = 0; i < 2; i++ ) {
+                ByteBuffer buffer = dsp.getDataBuffer(dataID, offset, length);
+                assertTrue("Data Buffer should be read-only", buffer.isReadOnly());
+                assertEquals(length, buffer.remaining());
+
+                byte[] fetchedData = new byte[buffer.remaining()];
+                buffer.get(fetchedData);
+                assertTrue("Buffered Data does not match stored data", Arrays.equals(Arrays.copyOfRange(data, offset, offset + length), fetchedData));
+            }
+
+            ByteBuffer buffer = dsp.getDataBuffer(dataID, 0, data.length);
+            assertEquals(data.length, buffer.remaining());
+        } finally {
+            dsp.removeData(dataID);
+        }
+    }
+
+    @Test
+    public void testGetDataBufferWithInvalidRange() throws Exception {
+
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = new byte[16384] ;
+        Random random = new Random();
+        random.nextBytes(data);
+
+        try {
+            dsp.saveData(dataID, new ByteArrayInputStream(data));
+
+            long[][] invalidRanges = { { 100000, 3000 }, { -345, 3000 }, { 1000, 30000 }, { 100, -3000 } } ;
+            for ( long[] range : invalidRanges ) {
+                try {
+                    dsp.getDataBuffer(dataID, range[0], (int) range[1]);
+                    fail ( "Expected IOException was not thrown for range " + range[0] + "+" + range[1]);
+                } catch ( IOException e ) {
+                    // NOOP - Expected Exception
+                }
+            }
+        } finally {
+            dsp.removeData(dataID);
+        }
+    }
+
+    @Test
+    public void testGetDataBufferOfNonExistentDataItem() throws Exception {
+
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+
+        try {
+            dsp.getDataBuffer(dataID, 0, 100);
+            fail ( "Expected NoSuchDataItemException was not thrown when reading a non-existent data item");
+        } catch ( NoSuchDataItemException e ) {
+            // NOOP - Expected Exception
+        }
+    }
+
+    @Test
+    public void testGetDataBufferAfterDataIsReplaced() throws Exception {
+
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = new byte[16384] ;
+        byte[] newData = new byte[16384] ;
+        Random random = new Random();
+        random.nextBytes(data);
+        random.nextBytes(newData);
+
+        try {
+            dsp.saveData(dataID, new ByteArrayInputStream(data));
+            ByteBuffer oldBuffer = dsp.getDataBuffer(dataID, 0, 100);
+
+            dsp.saveData(dataID, new ByteArrayInputStream(newData));
+            ByteBuffer newBuffer = dsp.getDataBuffer(dataID, 0, 100);
+
+            byte[] fetchedData = new byte[100];
+            newBuffer.get(fetchedData);
+            assertTrue("Data Buffer should reflect the replaced data", Arrays.equals(Arrays.copyOfRange(newData, 0, 100), fetchedData));
+
+            // A buffer handed out before the data was replaced still holds the old data.
+            oldBuffer.get(fetchedData);
+            assertTrue("Existing Data Buffer should be unaffected", Arrays.equals(Arrays.copyOfRange(data, 0, 100), fetchedData));
+        } finally {
+            dsp.removeData(dataID);
+        }
+
+        try {
+            dsp.getDataBuffer(dataID, 0, 100);
+            fail ( "Expected NoSuchDataItemException was not thrown when reading a removed data item");
+        } catch ( NoSuchDataItemException e ) {
+            // NOOP - Expected Exception
+        }
+    }
+
+    @Test
+    public void testLinkDataItem() throws Exception {
+
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        String linkedDataID = UUID.randomUUID().toString();
+        byte[] data = new byte[16384] ;
+        byte[] newData = new byte[8192] ;
+        Random random = new Random();
+        random.nextBytes(data);
+        random.nextBytes(newData);
+
+        try {
+            dsp.saveData(dataID, new ByteArrayInputStream(data));
+            dsp.linkData(dataID, linkedDataID);
+
+            assertTrue("The Data Storage Provider should have the linked data item", dsp.hasData(linkedDataID));
+            assertEquals(data.length, dsp.getDataSize(linkedDataID));
+
+            ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+            dsp.fetchData(linkedDataID, dataOutputStream);
+            assertTrue ( "Linked Data does not match stored data", Arrays.equals(data, dataOutputStream.toByteArray()));
+
+            // Replacing the original must not affect the linked data item.
+            dsp.saveData(dataID, new ByteArrayInputStream(newData));
+            dataOutputStream = new ByteArrayOutputStream();
+            dsp.fetchData(linkedDataID, dataOutputStream);
+            assertTrue ( "Linked Data should be unaffected by replacing the original", Arrays.equals(data, dataOutputStream.toByteArray()));
+
+            // Removing the original must not affect the linked data item.
+            assertTrue(dsp.removeData(dataID));
+            dataOutputStream = new ByteArrayOutputStream();
+            dsp.fetchData(linkedDataID, dataOutputStream);
+            assertTrue ( "Linked Data should be unaffected by removing the original", Arrays.equals(data, dataOutputStream.toByteArray()));
+        } finally {
+            dsp.removeData(dataID);
+            dsp.removeData(linkedDataID);
+        }
+    }
+
+    @Test
+    public void testLinkNonExistentDataItem() throws Exception {
+
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        String linkedDataID = UUID.randomUUID().toString();
+
+        try {
+            dsp.linkData(dataID, linkedDataID);
+            fail ( "Expected NoSuchDataItemException was not thrown when linking a non-existent data item");
+        } catch ( NoSuchDataItemException e ) {
+            // NOOP - Expected Exception
+        }
+
+        assertFalse(dsp.hasData(linkedDataID));
+    }
+
+    @Test
+    public void testDataVersionChangesWhenDataIsReplaced() throws Exception {
+
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = new byte[16384] ;
+        Random random = new Random();
+        random.nextBytes(data);
+
+        try {
+            dsp.saveData(dataID, new ByteArrayInputStream(data));
+
+            String version = dsp.getDataVersion(dataID);
+            assertNotNull(version);
+            assertEquals(version, dsp.getDataVersion(dataID));
+
+            byte[] newData = new byte[8192] ;
+            random.nextBytes(newData);
+            dsp.saveData(dataID, new ByteArrayInputStream(newData));
+
+            assertFalse("Data Version should change when the data is replaced", version.equals(dsp.getDataVersion(dataID)));
+        } finally {
+            dsp.removeData(dataID);
+        }
+
+        try {
+            dsp.getDataVersion(dataID);
+            fail ( "Expected NoSuchDataItemException was not thrown for a removed data item");
+        } catch ( NoSuchDataItemException e ) {
+            // NOOP - Expected Exception
+        }
+    }
+
     @Test
     public void testFetchNonExistentDataItem() throws Exception {
 
@@ -0,0 +1,174 @@
+package io.topiacoin.node.storage.provider;
+
+import io.topiacoin.node.model.CacheMetrics;
+import io.topiacoin.node.utilities.HashUtilities;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static junit.framework.TestCase.*;
+
+public class CachingDataStorageProviderTest extends AbstractDataStorageProviderTest {
+
+    @Override
+    protected DataStorageProvider getDataStorageProvider() {
+        CachingDataStorageProvider provider = new CachingDataStorageProvider(new MemoryDataStorageProvider(), 1024 * 1024);
+        provider.initialize();
+        return provider;
+    }
+
+    @Test
+    public void testRepeatedFetchIsServedFromCache() throws Exception {
+        MemoryDataStorageProvider backingProvider = new MemoryDataStorageProvider();
+        CachingDataStorageProvider dsp = new CachingDataStorageProvider(backingProvider, 1024 * 1024);
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = randomData(4096);
+        dsp.saveData(dataID, new ByteArrayInputStream(data));
+
+        for ( int i = 0; i < 3; i++ ) {
+            ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+            dsp.fetchData(dataID, dataOutputStream);
+            assertTrue("Fetched Data does not match stored data", Arrays.equals(data, dataOutputStream.toByteArray()));
+        }
+
+        assertEquals(1, dsp.getMissCount());
+        assertEquals(2, dsp.getHitCount());
+        assertEquals(data.length, dsp.getWeightedSize());
+
+        // Data changed behind the cache's back is noticed by its version and reloaded.
+        byte[] newData = randomData(2048);
+        backingProvider.saveData(dataID, new ByteArrayInputStream(newData));
+        assertEquals(newData.length, dsp.getDataSize(dataID));
+        assertEquals(backingProvider.getDataVersion(dataID), dsp.getDataVersion(dataID));
+        ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+        dsp.fetchData(dataID, dataOutputStream);
+        assertTrue(Arrays.equals(newData, dataOutputStream.toByteArray()));
+        assertEquals(2, dsp.getMissCount());
+        assertEquals(2, dsp.getHitCount());
+        assertEquals(new CacheMetrics(2, 2, 0, newData.length, 1, 1024 * 1024), dsp.getMetrics());
+
+        // Data removed behind the cache's back is no longer reported as present.
+        backingProvider.removeData(dataID);
+        assertFalse(dsp.hasData(dataID));
+
+        dsp.removeData(dataID);
+        assertEquals(0, dsp.getEntryCount());
+    }
+
+    @Test
+    public void testAsyncFetchIsServedFromCache() throws Exception {
+        CachingDataStorageProvider dsp = new CachingDataStorageProvider(new MemoryDataStorageProvider(), 1024 * 1024);
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = randomData(4096);
+        assertEquals(data.length, (long) dsp.saveDataAsync(dataID, HashUtilities.generateHash("SHA-256", data), data).get());
+
+        for ( int i = 0; i < 3; i++ ) {
+            ByteBuffer buffer = dsp.fetchDataAsync(dataID).get();
+            byte[] fetchedData = new byte[buffer.remaining()];
+            buffer.get(fetchedData);
+            assertTrue("Fetched Data does not match stored data", Arrays.equals(data, fetchedData));
+        }
+
+        ByteBuffer range = dsp.fetchDataAsync(dataID, 100, 200).get();
+        assertEquals(200, range.remaining());
+        assertEquals(data[100], range.get());
+
+        assertEquals(1, dsp.getMissCount());
+        assertEquals(3, dsp.getHitCount());
+
+        assertTrue(dsp.removeDataAsync(dataID).get());
+        assertFalse(dsp.hasDataAsync(dataID).get());
+        assertEquals(0, dsp.getEntryCount());
+    }
+
+    @Test
+    public void testSaveInvalidatesCachedData() throws Exception {
+        CachingDataStorageProvider dsp = new CachingDataStorageProvider(new MemoryDataStorageProvider(), 1024 * 1024);
+
+        String dataID = UUID.randomUUID().toString();
+        dsp.saveData(dataID, new ByteArrayInputStream(randomData(4096)));
+        dsp.fetchData(dataID, new ByteArrayOutputStream());
+
+        byte[] newData = randomData(2048);
+        dsp.saveData(dataID, new ByteArrayInputStream(newData));
+
+        ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+        dsp.fetchData(dataID, dataOutputStream);
+        assertTrue("Fetched Data should reflect the replaced data", Arrays.equals(newData, dataOutputStream.toByteArray()));
+    }
+
+    @Test
+    public void testCacheStaysWithinSizeBound() throws Exception {
+        long maximumSize = 64 * 1024;
+        CachingDataStorageProvider dsp = new CachingDataStorageProvider(new MemoryDataStorageProvider(), maximumSize, 4096);
+
+        for ( int i = 0; i < 100; i++ ) {
+            String dataID = UUID.randomUUID().toString();
+            dsp.saveData(dataID, new ByteArrayInputStream(randomData(4096)));
+            dsp.fetchData(dataID, new ByteArrayOutputStream());
+            dsp.fetchData(dataID, new ByteArrayOutputStream());
+
+            assertTrue("Cache exceeded its size bound", dsp.getWeightedSize() <= maximumSize);
+        }
+
+        assertTrue("Cache should have evicted entries", dsp.getEvictionCount() > 0);
+    }
+
+    @Test
+    public void testOversizedDataItemsAreNotCached() throws Exception {
+        CachingDataStorageProvider dsp = new CachingDataStorageProvider(new MemoryDataStorageProvider(), 64 * 1024, 4096);
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = randomData(8192);
+        dsp.saveData(dataID, new ByteArrayInputStream(data));
+
+        ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+        dsp.fetchData(dataID, dataOutputStream);
+        assertTrue(Arrays.equals(data, dataOutputStream.toByteArray()));
+        assertEquals(0, dsp.getEntryCount());
+    }
+
+    @Test
+    public void testPopularDataItemsSurviveScan() throws Exception {
+        long maximumSize = 64 * 1024;
+        CachingDataStorageProvider dsp = new CachingDataStorageProvider(new MemoryDataStorageProvider(), maximumSize, 4096);
+
+        // Build up a hot set that fits comfortably in the cache.
+        String[] hotIDs = new String[8];
+        for ( int i = 0; i < hotIDs.length; i++ ) {
+            hotIDs[i] = UUID.randomUUID().toString();
+            dsp.saveData(hotIDs[i], new ByteArrayInputStream(randomData(4096)));
+        }
+        for ( int round = 0; round < 5; round++ ) {
+            for ( String hotID : hotIDs ) {
+                dsp.fetchData(hotID, new ByteArrayOutputStream());
+            }
+        }
+
+        // Scan through many more one-off data items than the cache can hold.
+        for ( int i = 0; i < 200; i++ ) {
+            String dataID = UUID.randomUUID().toString();
+            dsp.saveData(dataID, new ByteArrayInputStream(randomData(4096)));
+            dsp.fetchData(dataID, new ByteArrayOutputStream());
+        }
+
+        long hitsBefore = dsp.getHitCount();
+        for ( String hotID : hotIDs ) {
+            dsp.fetchData(hotID, new ByteArrayOutputStream());
+        }
+        assertEquals("Hot data items should survive the scan", hotIDs.length, dsp.getHitCount() - hitsBefore);
+    }
+
+    private byte[] randomData(int size) {
+        byte[] data = new byte[size];
+        new Random().nextBytes(data);
+        return data;
+    }
+}
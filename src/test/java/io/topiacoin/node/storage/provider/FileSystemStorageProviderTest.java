@@ -1,10 +1,36 @@
 package io.topiacoin.node.storage.provider;
 
+import io.topiacoin.node.exceptions.CorruptDataItemException;
+import io.topiacoin.node.exceptions.NoSuchDataItemException;
+import io.topiacoin.node.utilities.HashUtilities;
 import org.junit.After;
+import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static junit.framework.TestCase.*;
 
 public class FileSystemStorageProviderTest extends AbstractDataStorageProviderTest {
 
@@ -44,4 +70,583 @@ public class FileSystemStorageProviderTest extends AbstractDataStorageProviderTe
 
         return _storageProvider;
     }
+
+    @Test
+    public void testFailedSaveLeavesNoTempFiles() throws Exception {
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = new byte[16384] ;
+        new Random().nextBytes(data);
+        String dataHash = HashUtilities.generateHash("SHA-256", data);
+        data[0]++;
+
+        try {
+            dsp.saveData(dataID, dataHash, new ByteArrayInputStream(data));
+            fail ( "Expected CorruptDataItemException was not thrown when the data did not match the hash");
+        } catch ( CorruptDataItemException e ) {
+            // NOOP - Expected Exception
+        }
+
+        File tempDir = new File(STORAGE_BASE_PATH, "tmp");
+        assertEquals("Temp files should be cleaned up after a failed save", 0, tempDir.listFiles().length);
+    }
+
+    @Test
+    public void testInitializeRemovesLeftoverTempFiles() throws Exception {
+        getDataStorageProvider();
+
+        File leftover = new File(new File(STORAGE_BASE_PATH, "tmp"), "interrupted-save");
+        assertTrue(leftover.createNewFile());
+
+        getDataStorageProvider();
+
+        assertFalse("Leftover temp files should be removed on initialization", leftover.exists());
+    }
+
+    @Test
+    public void testSaveCompressedDataItem() throws Exception {
+        FileSystemStorageProvider dsp = getCompressedDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = generateCompressibleData(100000);
+        String dataHash = HashUtilities.generateHash("SHA-256", data);
+
+        assertEquals(data.length, dsp.saveData(dataID, dataHash, new ByteArrayInputStream(data)));
+
+        assertTrue("The data item should be stored compressed", getDataFile(dataID).length() < data.length / 2);
+        assertEquals(data.length, dsp.getDataSize(dataID));
+
+        ByteArrayOutputStream fetchedData = new ByteArrayOutputStream();
+        dsp.fetchData(dataID, fetchedData);
+        assertTrue(Arrays.equals(data, fetchedData.toByteArray()));
+    }
+
+    @Test
+    public void testRangeReadsOfCompressedDataItem() throws Exception {
+        FileSystemStorageProvider dsp = getCompressedDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = generateCompressibleData(100000);
+        dsp.saveData(dataID, new ByteArrayInputStream(data));
+
+        // Ranges within a block, spanning several blocks, and running to the end of the data item.
+        int[][] ranges = { { 0, 100 }, { 4000, 10000 }, { 8192, 4096 }, { 99000, 1000 }, { 0, data.length } };
+        for ( int[] range : ranges ) {
+            byte[] expected = Arrays.copyOfRange(data, range[0], range[0] + range[1]);
+
+            ByteArrayOutputStream fetchedData = new ByteArrayOutputStream();
+            dsp.fetchData(dataID, range[0], range[1], fetchedData);
+            assertTrue(Arrays.equals(expected, fetchedData.toByteArray()));
+
+            ByteArrayOutputStream transferredData = new ByteArrayOutputStream();
+            assertEquals(range[1], dsp.transferData(dataID, range[0], range[1], Channels.newChannel(transferredData)));
+            assertTrue(Arrays.equals(expected, transferredData.toByteArray()));
+
+            ByteBuffer buffer = dsp.getDataBuffer(dataID, range[0], range[1]);
+            byte[] bufferData = new byte[buffer.remaining()];
+            buffer.get(bufferData);
+            assertTrue(Arrays.equals(expected, bufferData));
+        }
+
+        try {
+            dsp.fetchData(dataID, data.length - 10, 20, new ByteArrayOutputStream());
+            fail("Expected IOException was not thrown when the range extended past the end of the data item");
+        } catch ( IOException e ) {
+            // NOOP - Expected Exception
+        }
+    }
+
+    @Test
+    public void testIncompressibleDataItemIsStoredRaw() throws Exception {
+        FileSystemStorageProvider dsp = getCompressedDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = new byte[100000];
+        new Random().nextBytes(data);
+        dsp.saveData(dataID, new ByteArrayInputStream(data));
+
+        assertEquals(data.length, getDataFile(dataID).length());
+        assertTrue(Arrays.equals(data, Files.readAllBytes(getDataFile(dataID).toPath())));
+    }
+
+    @Test
+    public void testRawDataResemblingCompressedDataItem() throws Exception {
+        FileSystemStorageProvider dsp = getCompressedDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        dsp.saveData(dataID, new ByteArrayInputStream(generateCompressibleData(20000)));
+
+        // Store the compressed file itself as a data item, with compression disabled.
+        byte[] data = Files.readAllBytes(getDataFile(dataID).toPath());
+        String rawDataID = UUID.randomUUID().toString();
+        dsp.setCompressionEnabled(false);
+        dsp.saveData(rawDataID, new ByteArrayInputStream(data));
+
+        assertEquals(data.length, dsp.getDataSize(rawDataID));
+        ByteArrayOutputStream fetchedData = new ByteArrayOutputStream();
+        dsp.fetchData(rawDataID, fetchedData);
+        assertTrue(Arrays.equals(data, fetchedData.toByteArray()));
+    }
+
+    @Test
+    public void testAsyncSaveFetchRemoveDataItem() throws Exception {
+        FileSystemStorageProvider dsp = (FileSystemStorageProvider) getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = new byte[100000];
+        new Random().nextBytes(data);
+        String dataHash = HashUtilities.generateHash("SHA-256", data);
+
+        assertFalse(dsp.hasDataAsync(dataID).get());
+        assertEquals(data.length, (long) dsp.saveDataAsync(dataID, dataHash, data).get());
+        assertTrue(dsp.hasDataAsync(dataID).get());
+
+        ByteBuffer fetchedData = dsp.fetchDataAsync(dataID).get();
+        assertEquals(ByteBuffer.wrap(data), fetchedData);
+
+        ByteBuffer fetchedRange = dsp.fetchDataAsync(dataID, 5000, 20000).get();
+        assertEquals(ByteBuffer.wrap(data, 5000, 20000), fetchedRange);
+
+        assertTrue(dsp.removeDataAsync(dataID).get());
+        assertFalse(dsp.hasDataAsync(dataID).get());
+        assertFalse(dsp.removeDataAsync(dataID).get());
+    }
+
+    @Test
+    public void testAsyncSaveDataItemWithWrongHash() throws Exception {
+        FileSystemStorageProvider dsp = (FileSystemStorageProvider) getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = new byte[16384];
+        new Random().nextBytes(data);
+        String dataHash = HashUtilities.generateHash("SHA-256", data);
+        data[0]++;
+
+        try {
+            dsp.saveDataAsync(dataID, dataHash, data).get();
+            fail("Expected CorruptDataItemException was not thrown when the data did not match the hash");
+        } catch ( ExecutionException e ) {
+            assertTrue(e.getCause() instanceof CorruptDataItemException);
+        }
+
+        assertFalse(dsp.hasData(dataID));
+        assertEquals("Temp files should be cleaned up after a failed save", 0, new File(STORAGE_BASE_PATH, "tmp").listFiles().length);
+    }
+
+    @Test
+    public void testAsyncFetchWithInvalidRange() throws Exception {
+        FileSystemStorageProvider dsp = (FileSystemStorageProvider) getDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = new byte[16384];
+        new Random().nextBytes(data);
+        dsp.saveData(dataID, new ByteArrayInputStream(data));
+
+        try {
+            dsp.fetchDataAsync(dataID, 16000, 1000).get();
+            fail("Expected IOException was not thrown when the range extended past the end of the data item");
+        } catch ( ExecutionException e ) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+
+        try {
+            dsp.fetchDataAsync(UUID.randomUUID().toString()).get();
+            fail("Expected NoSuchDataItemException was not thrown for a non-existent data item");
+        } catch ( ExecutionException e ) {
+            assertTrue(e.getCause() instanceof NoSuchDataItemException);
+        }
+    }
+
+    @Test
+    public void testAsyncSaveFetchCompressedDataItem() throws Exception {
+        FileSystemStorageProvider dsp = getCompressedDataStorageProvider();
+
+        String dataID = UUID.randomUUID().toString();
+        byte[] data = generateCompressibleData(100000);
+        String dataHash = HashUtilities.generateHash("SHA-256", data);
+
+        dsp.saveDataAsync(dataID, dataHash, data).get();
+
+        assertTrue("The data item should be stored compressed", getDataFile(dataID).length() < data.length / 2);
+        assertEquals(ByteBuffer.wrap(data), dsp.fetchDataAsync(dataID).get());
+        assertEquals(ByteBuffer.wrap(data, 10000, 30000), dsp.fetchDataAsync(dataID, 10000, 30000).get());
+    }
+
+    @Test
+    public void testMultiRootSpreadsDataItemsAcrossRoots() throws Exception {
+        File disk1 = new File(STORAGE_BASE_PATH, "disk1");
+        File disk2 = new File(STORAGE_BASE_PATH, "disk2");
+        FileSystemStorageProvider dsp = getMultiRootDataStorageProvider(disk1, disk2);
+
+        List<String> dataIDs = new ArrayList<>();
+        List<byte[]> datas = new ArrayList<>();
+        for ( int i = 0 ; i < 100 ; i++ ) {
+            byte[] data = new byte[1024];
+            new Random().nextBytes(data);
+            String dataID = UUID.randomUUID().toString();
+            dsp.saveData(dataID, HashUtilities.generateHash("SHA-256", data), new ByteArrayInputStream(data));
+            dataIDs.add(dataID);
+            datas.add(data);
+        }
+
+        int onDisk1 = countDataFiles(disk1);
+        int onDisk2 = countDataFiles(disk2);
+        assertEquals(100, onDisk1 + onDisk2);
+        assertTrue("Data items should be spread across both roots", onDisk1 > 20 && onDisk2 > 20);
+        assertEquals(2, dsp.getFreeSpace().size());
+
+        for ( int i = 0 ; i < dataIDs.size() ; i++ ) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            dsp.fetchData(dataIDs.get(i), baos);
+            assertTrue(Arrays.equals(datas.get(i), baos.toByteArray()));
+            assertEquals(ByteBuffer.wrap(datas.get(i)), dsp.fetchDataAsync(dataIDs.get(i)).get());
+        }
+
+        for ( String dataID : dataIDs ) {
+            assertTrue(dsp.removeData(dataID));
+            assertFalse(dsp.hasData(dataID));
+        }
+        assertEquals(0, countDataFiles(disk1) + countDataFiles(disk2));
+    }
+
+    @Test
+    public void testAddStorageRootRebalancesDataItems() throws Exception {
+        File disk1 = new File(STORAGE_BASE_PATH, "disk1");
+        File disk2 = new File(STORAGE_BASE_PATH, "disk2");
+        FileSystemStorageProvider dsp = getMultiRootDataStorageProvider(disk1);
+
+        List<String> dataIDs = new ArrayList<>();
+        List<byte[]> datas = new ArrayList<>();
+        for ( int i = 0 ; i < 100 ; i++ ) {
+            byte[] data = new byte[1024];
+            new Random().nextBytes(data);
+            String dataID = UUID.randomUUID().toString();
+            dsp.saveData(dataID, HashUtilities.generateHash("SHA-256", data), new ByteArrayInputStream(data));
+            dataIDs.add(dataID);
+            datas.add(data);
+        }
+
+        dsp.addStorageRoot(disk2.getPath());
+
+        // Data items stay readable while they are being moved.
+        for ( int i = 0 ; i < dataIDs.size() ; i++ ) {
+            assertTrue(dsp.hasData(dataIDs.get(i)));
+        }
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while ( dsp.isRebalancing() && System.currentTimeMillis() < deadline ) {
+            Thread.sleep(50);
+        }
+        assertFalse("The rebalance should finish", dsp.isRebalancing());
+
+        int onDisk2 = countDataFiles(disk2);
+        assertTrue("Data items should be moved to the new root", onDisk2 > 20);
+        assertEquals(onDisk2, dsp.getRebalancedCount());
+        assertEquals(100, countDataFiles(disk1) + onDisk2);
+        assertTrue(new File(disk1, ".roots").exists());
+        assertTrue(new File(disk2, ".roots").exists());
+
+        for ( int i = 0 ; i < dataIDs.size() ; i++ ) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            dsp.fetchData(dataIDs.get(i), baos);
+            assertTrue(Arrays.equals(datas.get(i), baos.toByteArray()));
+        }
+    }
+
+    @Test
+    public void testRestartWithNewRootRebalancesDataItems() throws Exception {
+        File disk1 = new File(STORAGE_BASE_PATH, "disk1");
+        File disk2 = new File(STORAGE_BASE_PATH, "disk2");
+        FileSystemStorageProvider dsp = getMultiRootDataStorageProvider(disk1);
+
+        List<String> dataIDs = new ArrayList<>();
+        for ( int i = 0 ; i < 50 ; i++ ) {
+            byte[] data = new byte[1024];
+            new Random().nextBytes(data);
+            String dataID = UUID.randomUUID().toString();
+            dsp.saveData(dataID, HashUtilities.generateHash("SHA-256", data), new ByteArrayInputStream(data));
+            dataIDs.add(dataID);
+        }
+        dsp.shutdown();
+
+        dsp = getMultiRootDataStorageProvider(disk1, disk2);
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while ( dsp.isRebalancing() && System.currentTimeMillis() < deadline ) {
+            Thread.sleep(50);
+        }
+        assertFalse("The rebalance should finish", dsp.isRebalancing());
+        assertTrue("Data items should be moved to the new root", countDataFiles(disk2) > 0);
+
+        for ( String dataID : dataIDs ) {
+            assertTrue(dsp.hasData(dataID));
+            assertEquals(1024, dsp.getDataSize(dataID));
+        }
+    }
+
+    @Test
+    public void testLinksStayOnTheBlobsRoot() throws Exception {
+        File disk1 = new File(STORAGE_BASE_PATH, "disk1");
+        File disk2 = new File(STORAGE_BASE_PATH, "disk2");
+        FileSystemStorageProvider dsp = getMultiRootDataStorageProvider(disk1, disk2);
+
+        byte[] data = new byte[1024];
+        new Random().nextBytes(data);
+        String blobID = UUID.randomUUID().toString();
+        dsp.saveData(blobID, HashUtilities.generateHash("SHA-256", data), new ByteArrayInputStream(data), data.length);
+        File blobDisk = ( countDataFiles(disk1) == 1 ? disk1 : disk2 );
+
+        // Enough links that some would be placed on the other root if they followed their own IDs.
+        List<String> dataIDs = new ArrayList<>();
+        for ( int i = 0 ; i < 20 ; i++ ) {
+            String dataID = UUID.randomUUID().toString();
+            dsp.linkData(blobID, dataID);
+            dataIDs.add(dataID);
+        }
+        assertEquals(21, countDataFiles(blobDisk));
+
+        // Rebalancing leaves the links where they are rather than copying the shared bytes.
+        dsp.rebalance();
+        assertEquals(21, countDataFiles(blobDisk));
+        assertEquals(0, dsp.getRebalancedCount());
+
+        for ( String dataID : dataIDs ) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            dsp.fetchData(dataID, baos);
+            assertTrue(Arrays.equals(data, baos.toByteArray()));
+        }
+    }
+
+    @Test
+    public void testPerChunkDurability() throws Exception {
+        FileSystemStorageProvider dsp = getDurableDataStorageProvider(DurabilityMode.PER_CHUNK);
+
+        byte[] data = new byte[16384];
+        new Random().nextBytes(data);
+        String dataID = UUID.randomUUID().toString();
+        String dataHash = HashUtilities.generateHash("SHA-256", data);
+
+        dsp.saveData(dataID, dataHash, new ByteArrayInputStream(data));
+        String linkedDataID = UUID.randomUUID().toString();
+        dsp.linkData(dataID, linkedDataID);
+        String asyncDataID = UUID.randomUUID().toString();
+        dsp.saveDataAsync(asyncDataID, dataHash, data).get();
+
+        for ( String id : Arrays.asList(dataID, linkedDataID, asyncDataID) ) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            dsp.fetchData(id, baos);
+            assertTrue(Arrays.equals(data, baos.toByteArray()));
+        }
+        assertEquals(0, dsp.getGroupCommitCount());
+    }
+
+    @Test
+    public void testGroupCommitBatchesConcurrentSaves() throws Exception {
+        FileSystemStorageProvider dsp = getDurableDataStorageProvider(DurabilityMode.GROUP_COMMIT);
+
+        int saveCount = 16;
+        List<String> dataIDs = new ArrayList<>();
+        List<byte[]> datas = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for ( int i = 0 ; i < saveCount ; i++ ) {
+            byte[] data = new byte[4096];
+            new Random().nextBytes(data);
+            String dataID = UUID.randomUUID().toString();
+            dataIDs.add(dataID);
+            datas.add(data);
+            threads.add(new Thread(() -> {
+                try {
+                    dsp.saveData(dataID, HashUtilities.generateHash("SHA-256", data), new ByteArrayInputStream(data));
+                } catch ( Throwable t ) {
+                    failures.add(t);
+                }
+            }));
+        }
+        for ( Thread thread : threads ) {
+            thread.start();
+        }
+        for ( Thread thread : threads ) {
+            thread.join();
+        }
+
+        assertTrue("Saves should succeed: " + failures, failures.isEmpty());
+        // Each save needs two barriers, one for its file and one for its directory entries.
+        assertTrue("Concurrent saves should share barriers", dsp.getGroupCommitCount() < saveCount * 2);
+        assertTrue(dsp.getGroupCommitCount() > 0);
+
+        String asyncDataID = UUID.randomUUID().toString();
+        dsp.saveDataAsync(asyncDataID, HashUtilities.generateHash("SHA-256", datas.get(0)), datas.get(0)).get();
+        dataIDs.add(asyncDataID);
+        datas.add(datas.get(0));
+
+        for ( int i = 0 ; i < dataIDs.size() ; i++ ) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            dsp.fetchData(dataIDs.get(i), baos);
+            assertTrue(Arrays.equals(datas.get(i), baos.toByteArray()));
+        }
+    }
+
+    private FileSystemStorageProvider getDurableDataStorageProvider(DurabilityMode durabilityMode) {
+        _storageProvider = new FileSystemStorageProvider();
+
+        _storageProvider.setStorageBasePath(STORAGE_BASE_PATH);
+        _storageProvider.setDurabilityMode(durabilityMode);
+        _storageProvider.setGroupCommitInterval(20);
+
+        _storageProvider.initialize();
+
+        return _storageProvider;
+    }
+
+    private FileSystemStorageProvider getMultiRootDataStorageProvider(File... roots) {
+        _storageProvider = new FileSystemStorageProvider();
+
+        StringBuilder storageBasePath = new StringBuilder();
+        for ( File root : roots ) {
+            if ( storageBasePath.length() > 0 ) {
+                storageBasePath.append(File.pathSeparator);
+            }
+            storageBasePath.append(root.getPath());
+        }
+        _storageProvider.setStorageBasePath(storageBasePath.toString());
+        _storageProvider.setMinFreeSpace(0);
+
+        _storageProvider.initialize();
+
+        return _storageProvider;
+    }
+
+    @Test
+    public void testMappingCacheIsBoundedByBytes() throws Exception {
+        FileSystemStorageProvider dsp = (FileSystemStorageProvider) getDataStorageProvider();
+        dsp.setMaxMappedBytes(3 * 16384);
+
+        Random random = new Random();
+        List<String> dataIDs = new ArrayList<>();
+        for ( int i = 0; i < 5; i++ ) {
+            byte[] data = new byte[16384];
+            random.nextBytes(data);
+            String dataID = UUID.randomUUID().toString();
+            dsp.saveData(dataID, new ByteArrayInputStream(data));
+            dataIDs.add(dataID);
+        }
+
+        for ( String dataID : dataIDs ) {
+            assertEquals(16, dsp.getDataBuffer(dataID, 0, 16).remaining());
+            assertTrue("Mapped bytes should stay within the limit", dsp.getMappedBytes() <= 3 * 16384);
+        }
+        assertEquals(3 * 16384, dsp.getMappedBytes());
+
+        // A data item larger than the whole cache is still readable, but is not kept mapped.
+        byte[] largeData = new byte[4 * 16384];
+        random.nextBytes(largeData);
+        String largeID = UUID.randomUUID().toString();
+        dsp.saveData(largeID, new ByteArrayInputStream(largeData));
+        assertEquals(16, dsp.getDataBuffer(largeID, 16384, 16).remaining());
+        assertEquals(3 * 16384, dsp.getMappedBytes());
+
+        // Removing a mapped data item releases its mapping.
+        dsp.removeData(dataIDs.get(4));
+        assertEquals(2 * 16384, dsp.getMappedBytes());
+    }
+
+    private int countDataFiles(File root) throws IOException {
+        if ( !root.exists() ) {
+            return 0;
+        }
+        try (Stream<Path> paths = Files.walk(root.toPath())) {
+            return (int) paths.filter(path -> root.toPath().relativize(path).getNameCount() == 5)
+                    .filter(path -> Files.isRegularFile(path))
+                    .count();
+        }
+    }
+
+    @Test
+    public void testSlowReaderDoesNotHoldUpTheDisk() throws Exception {
+        _storageProvider = new FileSystemStorageProvider();
+        _storageProvider.setStorageBasePath(STORAGE_BASE_PATH);
+        _storageProvider.setIoThreads(1);
+        _storageProvider.initialize();
+
+        byte[] data = new byte[16384];
+        new Random().nextBytes(data);
+        String dataID = UUID.randomUUID().toString();
+        String dataHash = HashUtilities.generateHash("SHA-256", data);
+        _storageProvider.saveData(dataID, dataHash, new ByteArrayInputStream(data));
+
+        // The first reader stalls on its first write, as a client that has stopped reading would.
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread slowReader = new Thread(() -> {
+            try {
+                _storageProvider.fetchData(dataID, new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        write(new byte[] { (byte) b }, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        stalled.countDown();
+                        try {
+                            release.await();
+                        } catch ( InterruptedException e ) {
+                            throw new IOException(e);
+                        }
+                    }
+                });
+            } catch ( Exception e ) {
+                // Ignored.  Only the second reader is being checked.
+            }
+        });
+        slowReader.start();
+        try {
+            assertTrue(stalled.await(5, TimeUnit.SECONDS));
+
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<byte[]> fetched = executor.submit(() -> {
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                    _storageProvider.fetchData(dataID, baos);
+                    return baos.toByteArray();
+                });
+                assertTrue(Arrays.equals(data, fetched.get(5, TimeUnit.SECONDS)));
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            release.countDown();
+            slowReader.join();
+        }
+    }
+
+    private FileSystemStorageProvider getCompressedDataStorageProvider() {
+        _storageProvider = new FileSystemStorageProvider();
+
+        _storageProvider.setStorageBasePath(STORAGE_BASE_PATH);
+        _storageProvider.setCompressionEnabled(true);
+        _storageProvider.setCompressionBlockSize(4096);
+
+        _storageProvider.initialize();
+
+        return _storageProvider;
+    }
+
+    private byte[] generateCompressibleData(int size) {
+        Random random = new Random();
+        String[] words = { "chunk", "container", "proof", "node", "storage", "challenge", " ", "\n" };
+        StringBuilder sb = new StringBuilder();
+        while ( sb.length() < size ) {
+            sb.append(words[random.nextInt(words.length)]);
+        }
+        return sb.substring(0, size).getBytes();
+    }
+
+    private File getDataFile(String dataID) {
+        String path = dataID.substring(0, 2) + File.separator + dataID.substring(2, 4) + File.separator +
+                dataID.substring(4, 6) + File.separator + dataID.substring(6, 8) + File.separator + dataID;
+        return new File(STORAGE_BASE_PATH, path);
+    }
 }
@@ -0,0 +1,156 @@
+package io.topiacoin.node.storage.provider;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static junit.framework.TestCase.*;
+
+public class OffHeapDataStorageProviderTest extends AbstractDataStorageProviderTest {
+
+    @Override
+    protected DataStorageProvider getDataStorageProvider() {
+        OffHeapDataStorageProvider provider = new OffHeapDataStorageProvider();
+        provider.setCapacity(64 * 1024 * 1024);
+        provider.initialize();
+        return provider;
+    }
+
+    @Test
+    public void testSaveFetchSpanningBlocks() throws Exception {
+        OffHeapDataStorageProvider dsp = (OffHeapDataStorageProvider) getDataStorageProvider();
+
+        try {
+            // Two full blocks of the largest size class, plus a small tail
+            String dataID = UUID.randomUUID().toString();
+            byte[] data = randomData(2 * 1024 * 1024 + 5000);
+            assertEquals(data.length, dsp.saveData(dataID, new ByteArrayInputStream(data)));
+
+            ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+            dsp.fetchData(dataID, dataOutputStream);
+            assertTrue("Fetched Data does not match stored data", Arrays.equals(data, dataOutputStream.toByteArray()));
+
+            // A range that crosses from the second block into the tail
+            int offset = 2 * 1024 * 1024 - 100;
+            dataOutputStream = new ByteArrayOutputStream();
+            dsp.fetchData(dataID, offset, 1000, dataOutputStream);
+            assertTrue(Arrays.equals(Arrays.copyOfRange(data, offset, offset + 1000), dataOutputStream.toByteArray()));
+
+            byte[] bufferData = new byte[1000];
+            dsp.getDataBuffer(dataID, offset, 1000).get(bufferData);
+            assertTrue(Arrays.equals(Arrays.copyOfRange(data, offset, offset + 1000), bufferData));
+
+            // The tail was moved into two of the smallest blocks
+            assertEquals(data.length, dsp.getStoredBytes());
+            assertEquals(2 * 1024 * 1024 + 8 * 1024, dsp.getUsedBytes());
+        } finally {
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testLargeTailIsSplitAcrossSmallerBlocks() throws Exception {
+        OffHeapDataStorageProvider dsp = (OffHeapDataStorageProvider) getDataStorageProvider();
+
+        try {
+            // One full block of the largest size class, plus a tail too large for any smaller block
+            String dataID = UUID.randomUUID().toString();
+            byte[] data = randomData(1024 * 1024 + 300 * 1024 + 100);
+            assertEquals(data.length, dsp.saveData(dataID, new ByteArrayInputStream(data)));
+
+            ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+            dsp.fetchData(dataID, dataOutputStream);
+            assertTrue("Fetched Data does not match stored data", Arrays.equals(data, dataOutputStream.toByteArray()));
+
+            // A range that crosses between the blocks holding the tail
+            int offset = 1024 * 1024 + 256 * 1024 - 500;
+            dataOutputStream = new ByteArrayOutputStream();
+            dsp.fetchData(dataID, offset, 40000, dataOutputStream);
+            assertTrue(Arrays.equals(Arrays.copyOfRange(data, offset, offset + 40000), dataOutputStream.toByteArray()));
+
+            // The tail occupies a 256KB block and three 16KB blocks, rather than a 1MB block
+            assertEquals(1024 * 1024 + 304 * 1024, dsp.getUsedBytes());
+        } finally {
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testCapacityIsEnforced() throws Exception {
+        OffHeapDataStorageProvider dsp = new OffHeapDataStorageProvider();
+        dsp.setCapacity(4 * 1024 * 1024);
+        dsp.setSlabSize(1024 * 1024);
+        dsp.initialize();
+
+        try {
+            String dataID = UUID.randomUUID().toString();
+            dsp.saveData(dataID, new ByteArrayInputStream(randomData(3 * 1024 * 1024)));
+            assertEquals(3 * 1024 * 1024, dsp.getAllocatedBytes());
+
+            try {
+                dsp.saveData(UUID.randomUUID().toString(), new ByteArrayInputStream(randomData(2 * 1024 * 1024)));
+                fail("Expected IOException was not thrown when the store is full");
+            } catch ( IOException e ) {
+                // NOOP - Expected Exception
+            }
+
+            // The failed save gave back the memory it had taken
+            assertEquals(3 * 1024 * 1024, dsp.getAllocatedBytes());
+            assertEquals(1, dsp.getDataItemCount());
+
+            // Removing data makes room again
+            assertTrue(dsp.removeData(dataID));
+            assertEquals(0, dsp.getAllocatedBytes());
+            assertEquals(0.0, dsp.getOccupancy());
+
+            dsp.saveData(UUID.randomUUID().toString(), new ByteArrayInputStream(randomData(2 * 1024 * 1024)));
+            assertEquals(0.5, dsp.getOccupancy());
+        } finally {
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testLinkedDataSharesBlocks() throws Exception {
+        OffHeapDataStorageProvider dsp = (OffHeapDataStorageProvider) getDataStorageProvider();
+
+        try {
+            String dataID = UUID.randomUUID().toString();
+            String linkedDataID = UUID.randomUUID().toString();
+            byte[] data = randomData(100 * 1024);
+
+            dsp.saveData(dataID, new ByteArrayInputStream(data));
+            long usedBytes = dsp.getUsedBytes();
+
+            dsp.linkData(dataID, linkedDataID);
+            assertEquals(usedBytes, dsp.getUsedBytes());
+            assertEquals(data.length, dsp.getStoredBytes());
+            assertEquals(2, dsp.getDataItemCount());
+
+            // The blocks are kept until the last data item using them is removed
+            dsp.removeData(dataID);
+            assertEquals(usedBytes, dsp.getUsedBytes());
+
+            ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+            dsp.fetchData(linkedDataID, dataOutputStream);
+            assertTrue(Arrays.equals(data, dataOutputStream.toByteArray()));
+
+            dsp.removeData(linkedDataID);
+            assertEquals(0, dsp.getUsedBytes());
+            assertEquals(0, dsp.getStoredBytes());
+        } finally {
+            dsp.shutdown();
+        }
+    }
+
+    private byte[] randomData(int size) {
+        byte[] data = new byte[size];
+        new Random().nextBytes(data);
+        return data;
+    }
+}
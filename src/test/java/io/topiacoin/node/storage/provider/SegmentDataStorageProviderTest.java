@@ -0,0 +1,224 @@
+package io.topiacoin.node.storage.provider;
+
+import io.topiacoin.node.exceptions.CorruptDataItemException;
+import io.topiacoin.node.utilities.HashUtilities;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.TestCase.*;
+
+public class SegmentDataStorageProviderTest extends AbstractDataStorageProviderTest {
+
+    public static final String STORAGE_BASE_PATH = "./target/segmentStorageTest";
+    private SegmentDataStorageProvider _storageProvider;
+
+    @After
+    public void tearDown() throws Exception {
+
+        _storageProvider.shutdown();
+
+        File file = new File(STORAGE_BASE_PATH);
+
+        deletePathAndContents(file);
+    }
+
+    private void deletePathAndContents(File file ) {
+        for ( File curFile : file.listFiles()) {
+            if ( curFile.isFile() ) {
+                curFile.delete();
+            } else if ( curFile.isDirectory() ) {
+                deletePathAndContents(curFile);
+            }
+        }
+
+        file.delete();
+    }
+
+    @Override
+    protected DataStorageProvider getDataStorageProvider() {
+
+        _storageProvider = new SegmentDataStorageProvider();
+
+        _storageProvider.setStorageBasePath(STORAGE_BASE_PATH);
+        _storageProvider.setMaxSegmentSize(64 * 1024);
+
+        _storageProvider.initialize();
+
+        return _storageProvider;
+    }
+
+    @Test
+    public void testDataItemsSurviveRestart() throws Exception {
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        Random random = new Random();
+        String keptID = UUID.randomUUID().toString();
+        String removedID = UUID.randomUUID().toString();
+        byte[] keptData = new byte[16384];
+        byte[] removedData = new byte[16384];
+        random.nextBytes(keptData);
+        random.nextBytes(removedData);
+
+        dsp.saveData(keptID, new ByteArrayInputStream(keptData));
+        dsp.saveData(removedID, new ByteArrayInputStream(removedData));
+        dsp.removeData(removedID);
+
+        dsp.shutdown();
+        dsp = getDataStorageProvider();
+
+        assertTrue("Saved data item should survive a restart", dsp.hasData(keptID));
+        assertFalse("Removed data item should stay removed after a restart", dsp.hasData(removedID));
+
+        ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+        dsp.fetchData(keptID, dataOutputStream);
+        assertTrue("Fetched Data does not match stored data", Arrays.equals(keptData, dataOutputStream.toByteArray()));
+    }
+
+    @Test
+    public void testCompactionReclaimsRemovedDataItems() throws Exception {
+        SegmentDataStorageProvider dsp = (SegmentDataStorageProvider) getDataStorageProvider();
+
+        Random random = new Random();
+        String[] dataIDs = new String[12];
+        byte[][] data = new byte[dataIDs.length][];
+        for ( int i = 0; i < dataIDs.length; i++ ) {
+            dataIDs[i] = UUID.randomUUID().toString();
+            data[i] = new byte[16384];
+            random.nextBytes(data[i]);
+            dsp.saveData(dataIDs[i], new ByteArrayInputStream(data[i]));
+        }
+
+        // Remove all but every fourth data item, leaving the sealed segments mostly dead.
+        for ( int i = 0; i < dataIDs.length; i++ ) {
+            if ( i % 4 != 0 ) {
+                dsp.removeData(dataIDs[i]);
+            }
+        }
+
+        File segmentDirectory = new File(STORAGE_BASE_PATH, "segments");
+        long sizeBefore = directorySize(segmentDirectory);
+
+        int reclaimed = dsp.compact();
+        assertTrue("Compaction should have reclaimed segments", reclaimed > 0);
+        assertTrue("Compaction should have reduced the space used", directorySize(segmentDirectory) < sizeBefore);
+
+        for ( int i = 0; i < dataIDs.length; i++ ) {
+            if ( i % 4 == 0 ) {
+                ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+                dsp.fetchData(dataIDs[i], dataOutputStream);
+                assertTrue("Fetched Data does not match stored data", Arrays.equals(data[i], dataOutputStream.toByteArray()));
+            } else {
+                assertFalse(dsp.hasData(dataIDs[i]));
+            }
+        }
+
+        dsp.shutdown();
+        dsp = (SegmentDataStorageProvider) getDataStorageProvider();
+
+        ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+        dsp.fetchData(dataIDs[0], dataOutputStream);
+        assertTrue("Compacted data item should survive a restart", Arrays.equals(data[0], dataOutputStream.toByteArray()));
+    }
+
+    @Test
+    public void testFailedSaveDoesNotGrowSegment() throws Exception {
+        DataStorageProvider dsp = getDataStorageProvider();
+
+        byte[] data = new byte[16384] ;
+        new Random().nextBytes(data);
+        String dataHash = HashUtilities.generateHash("SHA-256", data);
+        data[0]++;
+
+        File segmentDirectory = new File(STORAGE_BASE_PATH, "segments");
+        long sizeBefore = directorySize(segmentDirectory);
+
+        try {
+            dsp.saveData(UUID.randomUUID().toString(), dataHash, new ByteArrayInputStream(data));
+            fail ( "Expected CorruptDataItemException was not thrown when the data did not match the hash");
+        } catch ( CorruptDataItemException e ) {
+            // NOOP - Expected Exception
+        }
+
+        assertEquals("Segment should be truncated after a failed save", sizeBefore, directorySize(segmentDirectory));
+    }
+
+    @Test
+    public void testSlowSaveDoesNotBlockOtherSaves() throws Exception {
+        final DataStorageProvider dsp = getDataStorageProvider();
+
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final String slowID = UUID.randomUUID().toString();
+        final byte[] slowData = new byte[16384];
+        new Random().nextBytes(slowData);
+
+        // A client that sends half of its data item, then stalls.
+        final InputStream slowStream = new SequenceInputStream(new ByteArrayInputStream(slowData, 0, 8192), new InputStream() {
+            private final InputStream _rest = new ByteArrayInputStream(slowData, 8192, 8192);
+
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+                try {
+                    release.await();
+                } catch ( InterruptedException e ) {
+                    throw new IOException(e);
+                }
+                return _rest.read();
+            }
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> slowSave = executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    return dsp.saveData(slowID, slowStream);
+                }
+            });
+            assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+            // Another save completes while the slow client is stalled.
+            byte[] data = new byte[1024];
+            new Random().nextBytes(data);
+            String dataID = UUID.randomUUID().toString();
+            dsp.saveData(dataID, new ByteArrayInputStream(data));
+            assertTrue(dsp.hasData(dataID));
+            assertFalse(dsp.hasData(slowID));
+
+            release.countDown();
+            assertEquals(slowData.length, slowSave.get(5, TimeUnit.SECONDS).longValue());
+
+            ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+            dsp.fetchData(slowID, dataOutputStream);
+            assertTrue(Arrays.equals(slowData, dataOutputStream.toByteArray()));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private long directorySize(File directory) {
+        long size = 0;
+        for ( File file : directory.listFiles() ) {
+            size += file.length();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,90 @@
+package io.topiacoin.node.storage.provider;
+
+import io.topiacoin.node.model.provider.DataModelProvider;
+import io.topiacoin.node.model.provider.MemoryDataModelProvider;
+import io.topiacoin.node.model.provider.SQLiteDataModelProvider;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static junit.framework.TestCase.*;
+
+public class StorageProfilesTest {
+
+    private File _storageBase;
+
+    @Before
+    public void setUp() throws Exception {
+        _storageBase = Files.createTempDirectory("storageProfilesTest").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(_storageBase);
+        _storageBase = null;
+    }
+
+    @Test
+    public void testMemoryProfile() throws Exception {
+        assertProfileProviders(MemoryDataStorageProvider.class, MemoryDataModelProvider.class, "memory");
+    }
+
+    @Test
+    public void testFilesystemProfile() throws Exception {
+        assertProfileProviders(FileSystemStorageProvider.class, SQLiteDataModelProvider.class, "filesystem");
+    }
+
+    @Test
+    public void testSegmentProfile() throws Exception {
+        assertProfileProviders(SegmentDataStorageProvider.class, SQLiteDataModelProvider.class, "segment");
+    }
+
+    @Test
+    public void testOffHeapProfile() throws Exception {
+        assertProfileProviders(OffHeapDataStorageProvider.class, MemoryDataModelProvider.class, "offheap");
+    }
+
+    @Test
+    public void testTieredProfile() throws Exception {
+        assertProfileProviders(TieredDataStorageProvider.class, SQLiteDataModelProvider.class, "tiered");
+    }
+
+    @Test
+    public void testSegmentProfileCombinedWithFilesystem() throws Exception {
+        assertProfileProviders(SegmentDataStorageProvider.class, SQLiteDataModelProvider.class, "filesystem", "segment");
+    }
+
+    @Test
+    public void testOffHeapProfileCombinedWithMemory() throws Exception {
+        assertProfileProviders(OffHeapDataStorageProvider.class, MemoryDataModelProvider.class, "memory", "offheap");
+    }
+
+    // -------- Private Methods --------
+
+    /**
+     * Loads the storage and data model providers under the given profiles, and checks that the context resolves exactly
+     * the expected provider of each kind.
+     */
+    private void assertProfileProviders(Class<? extends DataStorageProvider> expectedStorageProvider,
+                                        Class<? extends DataModelProvider> expectedModelProvider,
+                                        String... profiles) {
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        try {
+            context.getEnvironment().setActiveProfiles(profiles);
+            context.getBeanFactory().registerSingleton("storageBasePath", _storageBase.getPath());
+            context.scan("io.topiacoin.node.storage.provider", "io.topiacoin.node.model.provider");
+            context.refresh();
+
+            assertEquals(expectedStorageProvider, context.getBean(DataStorageProvider.class).getClass());
+            assertEquals(expectedModelProvider, context.getBean(DataModelProvider.class).getClass());
+        } finally {
+            context.close();
+        }
+    }
+}
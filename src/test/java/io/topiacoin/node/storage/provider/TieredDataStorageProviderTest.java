@@ -0,0 +1,182 @@
+package io.topiacoin.node.storage.provider;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static junit.framework.TestCase.*;
+
+public class TieredDataStorageProviderTest extends AbstractDataStorageProviderTest {
+
+    @Override
+    protected DataStorageProvider getDataStorageProvider() {
+        TieredDataStorageProvider provider = new TieredDataStorageProvider(new MemoryDataStorageProvider(), new MemoryDataStorageProvider());
+        provider.setHotTierSize(1024 * 1024);
+        provider.initialize();
+        return provider;
+    }
+
+    @Test
+    public void testFrequentlyReadDataIsPromoted() throws Exception {
+        MemoryDataStorageProvider hotTier = new MemoryDataStorageProvider();
+        MemoryDataStorageProvider coldTier = new MemoryDataStorageProvider();
+        TieredDataStorageProvider dsp = new TieredDataStorageProvider(hotTier, coldTier);
+        dsp.setHotTierSize(1024 * 1024);
+        dsp.setPromotionThreshold(3);
+        dsp.initialize();
+
+        try {
+            String dataID = UUID.randomUUID().toString();
+            byte[] data = randomData(4096);
+            dsp.saveData(dataID, new ByteArrayInputStream(data));
+
+            // Data is written through to the cold tier only
+            assertTrue(coldTier.hasData(dataID));
+            assertFalse(hotTier.hasData(dataID));
+
+            // The save and two reads reach the promotion threshold
+            assertFetch(dsp, dataID, data);
+            assertFetch(dsp, dataID, data);
+            waitForResidency(dsp, dataID, true);
+
+            assertTrue(hotTier.hasData(dataID));
+            assertEquals(1, dsp.getPromotionCount());
+            assertEquals(1, dsp.getResidentCount());
+            assertEquals(data.length, dsp.getResidentBytes());
+            assertEquals(coldTier.getDataVersion(dataID), dsp.getDataVersion(dataID));
+
+            long hotReads = dsp.getHotReadCount();
+            assertFetch(dsp, dataID, data);
+            assertEquals(hotReads + 1, dsp.getHotReadCount());
+
+            // Replacing the data drops the hot copy
+            byte[] newData = randomData(4096);
+            dsp.saveData(dataID, new ByteArrayInputStream(newData));
+            assertFalse(dsp.isResident(dataID));
+            assertFalse(hotTier.hasData(dataID));
+            assertFetch(dsp, dataID, newData);
+
+            // Removing the data removes it from both tiers
+            dsp.removeData(dataID);
+            assertFalse(coldTier.hasData(dataID));
+            assertFalse(hotTier.hasData(dataID));
+            assertFalse(dsp.hasData(dataID));
+        } finally {
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testHotTierIsDemotedUnderPressure() throws Exception {
+        MemoryDataStorageProvider hotTier = new MemoryDataStorageProvider();
+        TieredDataStorageProvider dsp = new TieredDataStorageProvider(hotTier, new MemoryDataStorageProvider());
+        dsp.setHotTierSize(64 * 1024);
+        dsp.setPromotionThreshold(2);
+        dsp.initialize();
+
+        try {
+            String[] dataIDs = new String[10];
+            for ( int i = 0; i < dataIDs.length; i++ ) {
+                dataIDs[i] = UUID.randomUUID().toString();
+                byte[] data = randomData(8 * 1024);
+                dsp.saveData(dataIDs[i], new ByteArrayInputStream(data));
+                assertFetch(dsp, dataIDs[i], data);
+                waitForResidency(dsp, dataIDs[i], true);
+
+                assertTrue("Hot tier exceeded its size", dsp.getResidentBytes() <= 64 * 1024);
+            }
+
+            // The oldest data items were demoted to make room, but are still readable from the cold tier
+            assertTrue(dsp.getDemotionCount() > 0);
+            assertFalse(dsp.isResident(dataIDs[0]));
+            assertFalse(hotTier.hasData(dataIDs[0]));
+            assertTrue(dsp.isResident(dataIDs[dataIDs.length - 1]));
+            assertTrue(dsp.hasData(dataIDs[0]));
+            assertEquals(dsp.getResidentCount() + dsp.getDemotionCount(), dsp.getPromotionCount());
+
+            Thread.sleep(10);
+            dsp.runMaintenance();
+            assertTrue(dsp.getPromotionRate() > 0);
+            assertTrue(dsp.getDemotionRate() > 0);
+        } finally {
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testOffHeapHotTierIsMeasuredBySlabs() throws Exception {
+        OffHeapDataStorageProvider hotTier = new OffHeapDataStorageProvider();
+        hotTier.setCapacity(4 * 1024 * 1024);
+        hotTier.setSlabSize(1024 * 1024);
+        TieredDataStorageProvider dsp = new TieredDataStorageProvider(hotTier, new MemoryDataStorageProvider());
+        dsp.setHotTierSize(4 * 1024 * 1024);
+        dsp.setPromotionThreshold(2);
+        dsp.initialize();
+
+        try {
+            // Each data item is split across blocks of two size classes, so the slabs fill long before the data does
+            for ( int i = 0; i < 40; i++ ) {
+                String dataID = UUID.randomUUID().toString();
+                byte[] data = randomData(200 * 1024);
+                dsp.saveData(dataID, new ByteArrayInputStream(data));
+                assertFetch(dsp, dataID, data);
+                waitForResidency(dsp, dataID, true);
+
+                assertTrue("Hot tier exceeded its size", hotTier.getAllocatedBytes() <= 4 * 1024 * 1024);
+            }
+
+            assertTrue(dsp.getDemotionCount() > 0);
+            assertEquals(40, dsp.getPromotionCount());
+        } finally {
+            dsp.shutdown();
+        }
+    }
+
+    @Test
+    public void testLargeDataIsNotPromoted() throws Exception {
+        TieredDataStorageProvider dsp = new TieredDataStorageProvider(new MemoryDataStorageProvider(), new MemoryDataStorageProvider());
+        dsp.setHotTierSize(1024 * 1024);
+        dsp.setMaxPromotedItemSize(16 * 1024);
+        dsp.setPromotionThreshold(1);
+        dsp.initialize();
+
+        try {
+            String dataID = UUID.randomUUID().toString();
+            byte[] data = randomData(32 * 1024);
+            dsp.saveData(dataID, new ByteArrayInputStream(data));
+
+            for ( int i = 0; i < 5; i++ ) {
+                assertFetch(dsp, dataID, data);
+            }
+            Thread.sleep(100);
+
+            assertFalse(dsp.isResident(dataID));
+            assertEquals(0, dsp.getPromotionCount());
+        } finally {
+            dsp.shutdown();
+        }
+    }
+
+    private void assertFetch(DataStorageProvider dsp, String dataID, byte[] data) throws Exception {
+        ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+        dsp.fetchData(dataID, dataOutputStream);
+        assertTrue("Fetched Data does not match stored data", Arrays.equals(data, dataOutputStream.toByteArray()));
+    }
+
+    private void waitForResidency(TieredDataStorageProvider dsp, String dataID, boolean resident) throws Exception {
+        for ( int i = 0; i < 100 && dsp.isResident(dataID) != resident; i++ ) {
+            Thread.sleep(10);
+        }
+        assertEquals(resident, dsp.isResident(dataID));
+    }
+
+    private byte[] randomData(int size) {
+        byte[] data = new byte[size];
+        new Random().nextBytes(data);
+        return data;
+    }
+}
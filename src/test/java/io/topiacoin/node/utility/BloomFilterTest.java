@@ -0,0 +1,60 @@
+package io.topiacoin.node.utility;
+
+import io.topiacoin.node.utilities.BloomFilter;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testAddedKeysAreFound() throws Exception {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+
+        String[] keys = new String[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = UUID.randomUUID().toString();
+            filter.add(keys[i]);
+        }
+
+        assertEquals(keys.length, filter.size());
+        for (String key : keys) {
+            assertTrue(filter.mightContain(key));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRate() throws Exception {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+
+        for (int i = 0; i < 10000; i++) {
+            filter.add(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+
+        // Allow generous slack over the configured 1%
+        assertTrue("Too many false positives: " + falsePositives, falsePositives < 300);
+    }
+
+    @Test
+    public void testEmptyFilter() throws Exception {
+        BloomFilter filter = new BloomFilter(0, 0.01);
+
+        assertFalse(filter.mightContain("aKey"));
+        filter.add("aKey");
+        assertTrue(filter.mightContain("aKey"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFalsePositiveRate() throws Exception {
+        new BloomFilter(100, 1.5);
+    }
+}
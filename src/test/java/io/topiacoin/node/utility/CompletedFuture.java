@@ -42,7 +42,7 @@ public class CompletedFuture<T> implements Future<T> {
 
     @Override
     public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-        return result;
+        return get();
     }
 
     public void setException(Throwable t) {
@@ -0,0 +1,97 @@
+package io.topiacoin.node.utility;
+
+import io.topiacoin.node.utilities.ConsistentHashRing;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class ConsistentHashRingTest {
+
+    @Test
+    public void testKeysAreSpreadEvenly() throws Exception {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(128);
+        ring.add("A", "/disk/a");
+        ring.add("B", "/disk/b");
+        ring.add("C", "/disk/c");
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 30000; i++) {
+            counts.merge(ring.get(UUID.randomUUID().toString()), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            assertTrue("Keys should be spread evenly: " + counts, count > 7000 && count < 13000);
+        }
+    }
+
+    @Test
+    public void testAddingNodeOnlyMovesKeysToIt() throws Exception {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(128);
+        ring.add("A", "/disk/a");
+        ring.add("B", "/disk/b");
+
+        Map<String, String> owners = new HashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            String key = UUID.randomUUID().toString();
+            owners.put(key, ring.get(key));
+        }
+
+        ring.add("C", "/disk/c");
+
+        int moved = 0;
+        for (Map.Entry<String, String> entry : owners.entrySet()) {
+            String owner = ring.get(entry.getKey());
+            if (!owner.equals(entry.getValue())) {
+                assertEquals("Keys should only move to the new node", "C", owner);
+                moved++;
+            }
+        }
+        assertTrue("About a third of the keys should move: " + moved, moved > 2000 && moved < 4700);
+    }
+
+    @Test
+    public void testPreferenceList() throws Exception {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(16);
+        ring.add("A", "/disk/a");
+        ring.add("B", "/disk/b");
+        ring.add("C", "/disk/c");
+
+        for (int i = 0; i < 100; i++) {
+            String key = UUID.randomUUID().toString();
+            List<String> preferences = ring.getPreferenceList(key);
+
+            assertEquals(3, preferences.size());
+            assertEquals(3, new HashSet<>(preferences).size());
+            assertEquals(ring.get(key), preferences.get(0));
+        }
+    }
+
+    @Test
+    public void testRemoveNode() throws Exception {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(16);
+        ring.add("A", "/disk/a");
+        ring.add("B", "/disk/b");
+
+        ring.remove("A");
+
+        assertEquals(1, ring.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("B", ring.get(UUID.randomUUID().toString()));
+        }
+    }
+
+    @Test
+    public void testEmptyRing() throws Exception {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(16);
+
+        assertNull(ring.get("key"));
+        assertTrue(ring.getPreferenceList("key").isEmpty());
+    }
+}
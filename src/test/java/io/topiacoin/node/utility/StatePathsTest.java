@@ -0,0 +1,29 @@
+package io.topiacoin.node.utility;
+
+import io.topiacoin.node.utilities.StatePaths;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class StatePathsTest {
+
+    @Test
+    public void testStateDirectoryIsUnderTheStorageRoot() throws Exception {
+        assertEquals(new File("/data/node", "state").getPath(), StatePaths.getDefaultStatePath("/data/node"));
+    }
+
+    @Test
+    public void testFirstStorageRootIsUsed() throws Exception {
+        String storageBasePath = "/disk1/node" + File.pathSeparator + "/disk2/node";
+
+        assertEquals(new File("/disk1/node", "state").getPath(), StatePaths.getDefaultStatePath(storageBasePath));
+    }
+
+    @Test
+    public void testNoStorageBasePath() throws Exception {
+        assertNull(StatePaths.getDefaultStatePath(null));
+        assertNull(StatePaths.getDefaultStatePath(""));
+    }
+}